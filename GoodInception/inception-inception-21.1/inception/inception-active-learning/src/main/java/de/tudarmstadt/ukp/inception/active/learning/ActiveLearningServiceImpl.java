@@ -17,8 +17,6 @@
  */
 package de.tudarmstadt.ukp.inception.active.learning;
 
-import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_REJECTED;
-import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_SKIPPED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_TRANSIENT_ACCEPTED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_TRANSIENT_CORRECTED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordChangeLocation.AL_SIDEBAR;
@@ -53,6 +51,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.active.learning.ActiveLearningSuggestionQueue.SuggestionKey;
 import de.tudarmstadt.ukp.inception.active.learning.config.ActiveLearningAutoConfiguration;
 import de.tudarmstadt.ukp.inception.active.learning.event.ActiveLearningRecommendationEvent;
 import de.tudarmstadt.ukp.inception.active.learning.strategy.ActiveLearningStrategy;
@@ -151,8 +150,13 @@ public class ActiveLearningServiceImpl
             boolean filterSkippedRecommendation,
             List<SuggestionGroup<SpanSuggestion>> aSuggestionGroups)
     {
-        List<LearningRecord> records = learningHistoryService.listRecords(aUser.getUsername(),
-                aLayer);
+        Map<SuggestionKey, Integer> hidingFlags = ActiveLearningSuggestionQueue.getHidingFlags(
+                learningHistoryService.listRecords(aUser.getUsername(), aLayer),
+                filterSkippedRecommendation);
+
+        if (hidingFlags.isEmpty()) {
+            return;
+        }
 
         for (SuggestionGroup<SpanSuggestion> group : aSuggestionGroups) {
             for (SpanSuggestion s : group) {
@@ -165,21 +169,10 @@ public class ActiveLearningServiceImpl
                     continue;
                 }
 
-                records.stream()
-                        .filter(r -> r.getSourceDocument().getName().equals(s.getDocumentName())
-                                && r.getOffsetBegin() == s.getBegin()
-                                && r.getOffsetEnd() == s.getEnd()
-                                && s.labelEquals(r.getAnnotation()))
-                        .forEach(record -> {
-                            if (REJECTED.equals(record.getUserAction())) {
-                                s.hide(FLAG_REJECTED);
-                            }
-                            else if (filterSkippedRecommendation
-                                    && SKIPPED.equals(record.getUserAction())) {
-                                s.hide(FLAG_SKIPPED);
-                            }
-                        });
-
+                int flags = hidingFlags.getOrDefault(new SuggestionKey(s), 0);
+                if (flags != 0) {
+                    s.hide(flags);
+                }
             }
         }
     }
@@ -188,30 +181,35 @@ public class ActiveLearningServiceImpl
     public Optional<Delta<SpanSuggestion>> generateNextSuggestion(User aUser,
             ActiveLearningUserState alState)
     {
-        // Fetch the next suggestion to present to the user (if there is any)
+        Preferences pref = recommendationService.getPreferences(aUser,
+                alState.getLayer().getProject());
+
+        // The queue is only built when new suggestions are available. Afterwards, it is updated
+        // incrementally as the user acts on the suggestions.
+        Optional<ActiveLearningSuggestionQueue> queue = alState.getSuggestionQueue();
+        if (queue.isPresent() && queue.get().isValidFor(pref)) {
+            return queue.get().peek();
+        }
+
         long startTimer = System.currentTimeMillis();
-        List<SuggestionGroup<SpanSuggestion>> suggestions = alState.getSuggestions();
-        long getRecommendationsFromRecommendationService = System.currentTimeMillis();
-        log.trace("Getting recommendations from recommender system costs {} ms.",
-                (getRecommendationsFromRecommendationService - startTimer));
 
         // remove duplicate recommendations
-        suggestions = suggestions.stream() //
+        List<SuggestionGroup<SpanSuggestion>> suggestions = alState.getSuggestions().stream() //
                 .map(it -> removeDuplicateRecommendations(it)) //
                 .collect(Collectors.toList());
         long removeDuplicateRecommendation = System.currentTimeMillis();
         log.trace("Removing duplicate recommendations costs {} ms.",
-                (removeDuplicateRecommendation - getRecommendationsFromRecommendationService));
+                (removeDuplicateRecommendation - startTimer));
 
-        // hide rejected recommendations
-        hideRejectedOrSkippedAnnotations(aUser, alState.getLayer(), true, suggestions);
-        long removeRejectedSkippedRecommendation = System.currentTimeMillis();
-        log.trace("Removing rejected or skipped ones costs {} ms.",
-                (removeRejectedSkippedRecommendation - removeDuplicateRecommendation));
+        // index rejected and skipped recommendations and build the queue
+        ActiveLearningSuggestionQueue newQueue = new ActiveLearningSuggestionQueue(
+                alState.getStrategy().getPriority(), pref, suggestions,
+                learningHistoryService.listRecords(aUser.getUsername(), alState.getLayer()));
+        alState.setSuggestionQueue(newQueue);
+        log.trace("Building the active learning queue costs {} ms.",
+                (System.currentTimeMillis() - removeDuplicateRecommendation));
 
-        Preferences pref = recommendationService.getPreferences(aUser,
-                alState.getLayer().getProject());
-        return alState.getStrategy().generateNextSuggestion(pref, suggestions);
+        return newQueue.peek();
     }
 
     @Override
@@ -349,6 +347,7 @@ public class ActiveLearningServiceImpl
         private AnnotationLayer layer;
         private ActiveLearningStrategy strategy;
         private List<SuggestionGroup<SpanSuggestion>> suggestions;
+        private transient ActiveLearningSuggestionQueue suggestionQueue;
 
         private Delta<SpanSuggestion> currentDifference;
         private String leftContext;
@@ -413,6 +412,7 @@ public class ActiveLearningServiceImpl
         public void setSuggestions(List<SuggestionGroup<SpanSuggestion>> aSuggestions)
         {
             suggestions = aSuggestions;
+            suggestionQueue = null;
         }
 
         public List<SuggestionGroup<SpanSuggestion>> getSuggestions()
@@ -420,6 +420,20 @@ public class ActiveLearningServiceImpl
             return suggestions;
         }
 
+        /**
+         * @return the queue of suggestions built from the current suggestions. If the session
+         *         state has been deserialized, the queue needs to be rebuilt.
+         */
+        public Optional<ActiveLearningSuggestionQueue> getSuggestionQueue()
+        {
+            return Optional.ofNullable(suggestionQueue);
+        }
+
+        public void setSuggestionQueue(ActiveLearningSuggestionQueue aSuggestionQueue)
+        {
+            suggestionQueue = aSuggestionQueue;
+        }
+
         public String getLeftContext()
         {
             return leftContext;
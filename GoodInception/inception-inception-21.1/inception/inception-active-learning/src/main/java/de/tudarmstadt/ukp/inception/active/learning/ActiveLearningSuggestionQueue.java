@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.active.learning;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_REJECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_SKIPPED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.CORRECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.REJECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SKIPPED;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+import de.tudarmstadt.ukp.inception.active.learning.strategy.ActiveLearningStrategy;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Preferences;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SpanSuggestion;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup.Delta;
+
+/**
+ * Priority queue over the suggestion groups of an active learning session. For every group and
+ * recommender, the queue holds the top delta ordered by the priority of the
+ * {@link ActiveLearningStrategy}. Suggestions that were rejected or skipped are looked up in a
+ * hash index instead of scanning the learning records.
+ * <p>
+ * When a suggestion changes (e.g. because the user rejected it), the group containing it is
+ * re-queued and its previous entries are discarded once they reach the head of the queue. If a
+ * suggestion was hidden without the queue being notified, this is detected when its entry reaches
+ * the head of the queue. Thus, obtaining the next suggestion only takes a few heap operations.
+ * </p>
+ * <p>
+ * The queue needs to be rebuilt when new predictions are available.
+ * </p>
+ */
+public class ActiveLearningSuggestionQueue
+{
+    private final double scoreThreshold;
+    private final Preferences preferences;
+    private final PriorityQueue<Entry> heap;
+    private final Map<SuggestionKey, Integer> hidingFlags;
+    private final Map<SpanSuggestion, GroupState> groupsBySuggestion = new HashMap<>();
+    private final Map<String, List<GroupState>> groupsByDocument = new HashMap<>();
+
+    public ActiveLearningSuggestionQueue(Comparator<Delta<SpanSuggestion>> aPriority,
+            Preferences aPreferences, Collection<SuggestionGroup<SpanSuggestion>> aGroups,
+            Collection<LearningRecord> aRecords)
+    {
+        preferences = aPreferences;
+        scoreThreshold = aPreferences.getScoreThreshold();
+        hidingFlags = getHidingFlags(aRecords, true);
+        heap = new PriorityQueue<>(Math.max(1, aGroups.size()),
+                (a, b) -> aPriority.compare(a.delta, b.delta));
+
+        for (SuggestionGroup<SpanSuggestion> group : aGroups) {
+            GroupState state = new GroupState(group);
+            for (SpanSuggestion suggestion : group) {
+                groupsBySuggestion.put(suggestion, state);
+            }
+            groupsByDocument.computeIfAbsent(group.getDocumentName(), k -> new ArrayList<>())
+                    .add(state);
+            enqueue(state);
+        }
+    }
+
+    /**
+     * @return whether the queue was built for the given preferences.
+     */
+    public boolean isValidFor(Preferences aPreferences)
+    {
+        return aPreferences.getScoreThreshold() == scoreThreshold;
+    }
+
+    /**
+     * @return the suggestion which should be offered to the user next (if there is any). The
+     *         suggestion remains in the queue until it is hidden.
+     */
+    public Optional<Delta<SpanSuggestion>> peek()
+    {
+        while (!heap.isEmpty()) {
+            Entry head = heap.peek();
+
+            // The group has been re-queued since this entry was created
+            if (head.version != head.group.version) {
+                heap.poll();
+                continue;
+            }
+
+            applyHidingFlags(head.group.group);
+            Delta<SpanSuggestion> current = head.group.group.getTopDeltas(preferences)
+                    .get(head.delta.getFirst().getRecommenderId());
+            if (current != null && current.getFirst() == head.delta.getFirst()
+                    && current.getSecond().orElse(null) == head.delta.getSecond().orElse(null)) {
+                return Optional.of(head.delta);
+            }
+
+            // The visibility of suggestions in the group has changed without us being notified
+            heap.poll();
+            enqueue(head.group);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Records that the user has acted upon the given suggestion. Rejecting, skipping or
+     * correcting a suggestion hides all suggestions with the same label at the same position.
+     */
+    public void hide(SpanSuggestion aSuggestion, LearningRecordType aAction)
+    {
+        // When correcting a suggestion, its original label is rejected
+        int flags = CORRECTED.equals(aAction) ? FLAG_REJECTED : getHidingFlags(aAction, true);
+        if (flags != 0) {
+            hidingFlags.merge(new SuggestionKey(aSuggestion), flags, (a, b) -> a | b);
+        }
+
+        refresh(aSuggestion);
+    }
+
+    /**
+     * Reverts the effect of the given learning record, e.g. after it has been deleted by the user.
+     */
+    public void forget(LearningRecord aRecord)
+    {
+        hidingFlags.remove(new SuggestionKey(aRecord));
+        refreshDocument(aRecord.getSourceDocument().getName());
+    }
+
+    /**
+     * Re-queues the group containing the given suggestion after its visibility has changed.
+     */
+    public void refresh(SpanSuggestion aSuggestion)
+    {
+        GroupState state = groupsBySuggestion.get(aSuggestion);
+        if (state != null) {
+            enqueue(state);
+        }
+    }
+
+    /**
+     * Re-queues all groups in the given document, e.g. after annotations have been created or
+     * deleted in the document which may affect the visibility of the suggestions.
+     */
+    public void refreshDocument(String aDocumentName)
+    {
+        groupsByDocument.getOrDefault(aDocumentName, List.of()).forEach(this::enqueue);
+    }
+
+    private void enqueue(GroupState aState)
+    {
+        aState.version++;
+        applyHidingFlags(aState.group);
+        for (Delta<SpanSuggestion> delta : aState.group.getTopDeltas(preferences).values()) {
+            heap.add(new Entry(aState, delta));
+        }
+    }
+
+    private void applyHidingFlags(SuggestionGroup<SpanSuggestion> aGroup)
+    {
+        if (hidingFlags.isEmpty()) {
+            return;
+        }
+
+        for (SpanSuggestion suggestion : aGroup) {
+            if (suggestion.isVisible()) {
+                int flags = hidingFlags.getOrDefault(new SuggestionKey(suggestion), 0);
+                if (flags != 0) {
+                    suggestion.hide(flags);
+                }
+            }
+        }
+    }
+
+    static Map<SuggestionKey, Integer> getHidingFlags(Collection<LearningRecord> aRecords,
+            boolean aIncludeSkipped)
+    {
+        Map<SuggestionKey, Integer> flags = new HashMap<>();
+        for (LearningRecord record : aRecords) {
+            int recordFlags = getHidingFlags(record.getUserAction(), aIncludeSkipped);
+            if (recordFlags != 0) {
+                flags.merge(new SuggestionKey(record), recordFlags, (a, b) -> a | b);
+            }
+        }
+        return flags;
+    }
+
+    private static int getHidingFlags(LearningRecordType aAction, boolean aIncludeSkipped)
+    {
+        if (REJECTED.equals(aAction)) {
+            return FLAG_REJECTED;
+        }
+
+        if (aIncludeSkipped && SKIPPED.equals(aAction)) {
+            return FLAG_SKIPPED;
+        }
+
+        return 0;
+    }
+
+    private static class GroupState
+    {
+        private final SuggestionGroup<SpanSuggestion> group;
+        private int version;
+
+        public GroupState(SuggestionGroup<SpanSuggestion> aGroup)
+        {
+            group = aGroup;
+        }
+    }
+
+    private static class Entry
+    {
+        private final GroupState group;
+        private final int version;
+        private final Delta<SpanSuggestion> delta;
+
+        public Entry(GroupState aGroup, Delta<SpanSuggestion> aDelta)
+        {
+            group = aGroup;
+            version = aGroup.version;
+            delta = aDelta;
+        }
+    }
+
+    /**
+     * Identifies suggestions by document, position and label - the same properties that are used
+     * to match suggestions against learning records.
+     */
+    static class SuggestionKey
+    {
+        private final String documentName;
+        private final int begin;
+        private final int end;
+        private final String label;
+
+        public SuggestionKey(SpanSuggestion aSuggestion)
+        {
+            documentName = aSuggestion.getDocumentName();
+            begin = aSuggestion.getBegin();
+            end = aSuggestion.getEnd();
+            label = aSuggestion.getLabel();
+        }
+
+        public SuggestionKey(LearningRecord aRecord)
+        {
+            documentName = aRecord.getSourceDocument().getName();
+            begin = aRecord.getOffsetBegin();
+            end = aRecord.getOffsetEnd();
+            label = aRecord.getAnnotation();
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof SuggestionKey)) {
+                return false;
+            }
+            SuggestionKey other = (SuggestionKey) aOther;
+            return begin == other.begin && end == other.end
+                    && documentName.equals(other.documentName)
+                    && Objects.equals(label, other.label);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(documentName, begin, end, label);
+        }
+    }
+}
@@ -27,6 +27,7 @@ import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSu
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.ACCEPTED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.CORRECTED;
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.REJECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SKIPPED;
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static java.util.function.Function.identity;
@@ -649,6 +650,7 @@ public class ActiveLearningSidebar
 
         activeLearningService.acceptSpanSuggestion(state.getUser(), alState.getLayer(), suggestion,
                 editor.getModelObject().value);
+        alState.getSuggestionQueue().ifPresent(queue -> queue.refresh(suggestion));
 
         // If the currently displayed document is the same one where the annotation was created,
         // then update timestamp in state to avoid concurrent modification errors
@@ -669,6 +671,8 @@ public class ActiveLearningSidebar
             requestClearningSelectionAndJumpingToSuggestion();
             activeLearningService.skipSpanSuggestion(getModelObject().getUser(),
                     alStateModel.getObject().getLayer(), suggestion);
+            alStateModel.getObject().getSuggestionQueue()
+                    .ifPresent(queue -> queue.hide(suggestion, SKIPPED));
             moveToNextSuggestion(aTarget);
         });
     }
@@ -681,6 +685,8 @@ public class ActiveLearningSidebar
             requestClearningSelectionAndJumpingToSuggestion();
             activeLearningService.rejectSpanSuggestion(getModelObject().getUser(),
                     alStateModel.getObject().getLayer(), suggestion);
+            alStateModel.getObject().getSuggestionQueue()
+                    .ifPresent(queue -> queue.hide(suggestion, REJECTED));
             moveToNextSuggestion(aTarget);
         });
     }
@@ -966,6 +972,7 @@ public class ActiveLearningSidebar
         // here
         getMatchingSuggestion(alState.getSuggestions(), aRecord)
                 .forEach(suggestion -> suggestion.show(FLAG_SKIPPED | FLAG_REJECTED));
+        alState.getSuggestionQueue().ifPresent(queue -> queue.forget(aRecord));
 
         // Force the learning records model to be refreshed during rendering, showing the latest
         // state from the DB
@@ -1109,6 +1116,8 @@ public class ActiveLearningSidebar
                     predictions.getPredictionsByDocument(aDocument.getName()));
             recommendationService.calculateSpanSuggestionVisibility(cas, user.getUsername(), aLayer,
                     group, 0, cas.getDocumentText().length());
+            alStateModel.getObject().getSuggestionQueue()
+                    .ifPresent(queue -> queue.refreshDocument(aDocument.getName()));
 
             moveToNextSuggestion(aTarget);
         }
@@ -1145,6 +1154,8 @@ public class ActiveLearningSidebar
             }
 
             SpanSuggestion rejectedRecommendation = prediction.get();
+            alStateModel.getObject().getSuggestionQueue()
+                    .ifPresent(queue -> queue.hide(rejectedRecommendation, REJECTED));
             applicationEventPublisherHolder.get().publishEvent(
                     new ActiveLearningRecommendationEvent(this, eventState.getDocument(),
                             rejectedRecommendation, annotatorState.getUser().getUsername(),
@@ -1192,6 +1203,8 @@ public class ActiveLearningSidebar
         }
 
         SpanSuggestion acceptedSuggestion = oRecommendation.get();
+        alStateModel.getObject().getSuggestionQueue()
+                .ifPresent(queue -> queue.refresh(acceptedSuggestion));
 
         applicationEventPublisherHolder.get().publishEvent(new ActiveLearningRecommendationEvent(
                 this, eventState.getDocument(), acceptedSuggestion, state.getUser().getUsername(),
@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.active.learning.strategy;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,4 +30,10 @@ public interface ActiveLearningStrategy
 {
     public Optional<Delta<SpanSuggestion>> generateNextSuggestion(Preferences aPreferences,
             List<SuggestionGroup<SpanSuggestion>> suggestions);
+
+    /**
+     * @return the order in which the top deltas of the suggestion groups are offered to the user,
+     *         most relevant first.
+     */
+    public Comparator<Delta<SpanSuggestion>> getPriority();
 }
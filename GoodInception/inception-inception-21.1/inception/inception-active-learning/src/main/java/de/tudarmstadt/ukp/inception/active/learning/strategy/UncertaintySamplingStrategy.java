@@ -40,8 +40,14 @@ public class UncertaintySamplingStrategy
                 // Fetch the top deltas per recommender
                 .flatMap(group -> group.getTopDeltas(aPreferences).values().stream())
                 // ... sort them in ascending order (smallest delta first)
-                .sorted(Comparator.comparingDouble(Delta::getDelta))
+                .sorted(getPriority())
                 // ... and return the smallest delta (if there is one)
                 .findFirst();
     }
+
+    @Override
+    public Comparator<Delta<SpanSuggestion>> getPriority()
+    {
+        return Comparator.comparingDouble(Delta::getDelta);
+    }
 }
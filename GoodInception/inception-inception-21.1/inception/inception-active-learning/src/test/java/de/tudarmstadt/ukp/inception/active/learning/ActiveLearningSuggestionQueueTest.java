@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.active.learning;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_OVERLAP;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_REJECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.REJECTED;
+import static de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType.SKIPPED;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.active.learning.strategy.UncertaintySamplingStrategy;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Preferences;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SpanSuggestion;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup.Delta;
+
+public class ActiveLearningSuggestionQueueTest
+{
+    private SpanSuggestion a1;
+    private SpanSuggestion a2;
+    private SpanSuggestion a3;
+    private SpanSuggestion b1;
+    private SpanSuggestion c1;
+    private SpanSuggestion c2;
+    private List<SuggestionGroup<SpanSuggestion>> groups;
+
+    @BeforeEach
+    public void setup()
+    {
+        // Delta between the two best suggestions is 0.4
+        a1 = new SpanSuggestion(1, 1, "rec1", 1, "value", "doc1", 0, 1, "a", "X", "X", 0.9, "");
+        a2 = new SpanSuggestion(2, 1, "rec1", 1, "value", "doc1", 0, 1, "a", "Y", "Y", 0.5, "");
+        a3 = new SpanSuggestion(3, 1, "rec1", 1, "value", "doc1", 0, 1, "a", "Z", "Z", 0.45, "");
+        // Delta of a single suggestion is its score, i.e. 0.3
+        b1 = new SpanSuggestion(4, 1, "rec1", 1, "value", "doc1", 5, 6, "b", "X", "X", 0.3, "");
+        // Same label from two different recommenders
+        c1 = new SpanSuggestion(5, 1, "rec1", 1, "value", "doc2", 0, 1, "c", "X", "X", 0.8, "");
+        c2 = new SpanSuggestion(6, 2, "rec2", 1, "value", "doc2", 0, 1, "c", "X", "X", 0.6, "");
+
+        groups = asList(new SuggestionGroup<>(a1, a2, a3), new SuggestionGroup<>(b1),
+                new SuggestionGroup<>(c1, c2));
+    }
+
+    @Test
+    public void thatSuggestionsAreOfferedByPriority()
+    {
+        ActiveLearningSuggestionQueue sut = buildQueue(emptyList());
+
+        assertThat(next(sut)).isSameAs(b1);
+
+        sut.hide(b1, SKIPPED);
+        assertThat(b1.isVisible()).isFalse();
+        assertThat(next(sut)).isSameAs(a1);
+    }
+
+    @Test
+    public void thatGroupIsRequeuedWhenItsPriorityImproves()
+    {
+        ActiveLearningSuggestionQueue sut = buildQueue(emptyList());
+
+        assertThat(next(sut)).isSameAs(b1);
+
+        // Rejecting the best suggestion reduces the delta of the group to 0.05
+        sut.hide(a1, REJECTED);
+        assertThat(next(sut)).isSameAs(a2);
+    }
+
+    @Test
+    public void thatRejectingHidesSameLabelOfOtherRecommenders()
+    {
+        ActiveLearningSuggestionQueue sut = buildQueue(emptyList());
+
+        sut.hide(c1, REJECTED);
+        sut.hide(b1, REJECTED);
+        sut.hide(a1, REJECTED);
+        sut.hide(a2, REJECTED);
+        sut.hide(a3, REJECTED);
+
+        assertThat(c2.isVisible()).isFalse();
+        assertThat(sut.peek()).isEmpty();
+    }
+
+    @Test
+    public void thatRecordedSuggestionsAreHidden()
+    {
+        ActiveLearningSuggestionQueue sut = buildQueue(
+                asList(record("doc1", 5, 6, "X", REJECTED), record("doc1", 0, 1, "Y", SKIPPED)));
+
+        assertThat(b1.isVisible()).isFalse();
+        assertThat(a2.isVisible()).isFalse();
+        // Delta between a1 and a3 is 0.45 which is still better than any delta of the c group
+        assertThat(next(sut)).isSameAs(a1);
+    }
+
+    @Test
+    public void thatExternallyHiddenSuggestionsAreSkipped()
+    {
+        ActiveLearningSuggestionQueue sut = buildQueue(emptyList());
+
+        b1.hide(FLAG_OVERLAP);
+
+        assertThat(next(sut)).isSameAs(a1);
+    }
+
+    @Test
+    public void thatForgottenRecordsMakeSuggestionsAvailableAgain()
+    {
+        LearningRecord record = record("doc1", 5, 6, "X", REJECTED);
+        ActiveLearningSuggestionQueue sut = buildQueue(asList(record));
+
+        assertThat(next(sut)).isSameAs(a1);
+
+        // The sidebar explicitly shows the suggestions when a record is deleted
+        b1.show(FLAG_REJECTED);
+        sut.forget(record);
+
+        assertThat(next(sut)).isSameAs(b1);
+    }
+
+    private ActiveLearningSuggestionQueue buildQueue(List<LearningRecord> aRecords)
+    {
+        return new ActiveLearningSuggestionQueue(new UncertaintySamplingStrategy().getPriority(),
+                new Preferences(), groups, aRecords);
+    }
+
+    private static SpanSuggestion next(ActiveLearningSuggestionQueue aQueue)
+    {
+        Optional<Delta<SpanSuggestion>> delta = aQueue.peek();
+        assertThat(delta).isPresent();
+        return delta.get().getFirst();
+    }
+
+    private static LearningRecord record(String aDocument, int aBegin, int aEnd, String aLabel,
+            LearningRecordType aAction)
+    {
+        SourceDocument document = new SourceDocument();
+        document.setName(aDocument);
+
+        LearningRecord record = new LearningRecord();
+        record.setSourceDocument(document);
+        record.setOffsetBegin(aBegin);
+        record.setOffsetEnd(aEnd);
+        record.setAnnotation(aLabel);
+        record.setUserAction(aAction);
+        return record;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Optional;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.IncrementalAgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.task.AgreementCalculationTask;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public interface AgreementService
+{
+    /**
+     * Starts calculating the agreement in the background. The documents are processed one at a
+     * time so that only the CASes of a single document need to be held in memory.
+     * 
+     * @param aSessionOwner
+     *            the user who requested the calculation.
+     * @param aMeasure
+     *            the measure to calculate.
+     * @return the ID of the calculation task which can be used to obtain the progress and the
+     *         result via {@link #getCalculation(int)}.
+     */
+    int startCalculation(User aSessionOwner, IncrementalAgreementMeasure<?, ?> aMeasure);
+
+    /**
+     * @param aTaskId
+     *            the task ID returned by {@link #startCalculation}.
+     * @return the calculation task if it is still known.
+     */
+    Optional<AgreementCalculationTask> getCalculation(int aTaskId);
+
+    /**
+     * Obtains the per-document result of the given measure for the given document. If the
+     * result is not cached yet, the CASes of all given annotators are loaded for the document,
+     * the result is calculated and cached until any of the CASes of the document are changed.
+     * 
+     * @param aMeasure
+     *            the measure.
+     * @param aDocument
+     *            the document.
+     * @param aDocumentIndex
+     *            the index of the document in the project's document list.
+     * @param aAnnotators
+     *            the annotators over which the agreement is calculated.
+     * @return the per-document result.
+     * @throws IOException
+     *             if the CAS of any of the annotators cannot be loaded.
+     */
+    <P extends Serializable> P getDocumentResult(IncrementalAgreementMeasure<?, P> aMeasure,
+            SourceDocument aDocument, int aDocumentIndex, List<User> aAnnotators)
+        throws IOException;
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.CasUpgradeMode.AUTO_CAS_UPGRADE;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.FINISHED;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toMap;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.fit.util.FSUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.IncrementalAgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.task.AgreementCalculationTask;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil;
+import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterCasWrittenEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.AnnotationStateChangeEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeDocumentRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+
+@Component
+public class AgreementServiceImpl
+    implements AgreementService
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final DocumentService documentService;
+    private final SchedulingService schedulingService;
+
+    /**
+     * Per-document results by source document ID and measure configuration. Evicted whenever any
+     * annotator's CAS or the state of an annotation document changes. A result is only added to
+     * the map of a document if that map is still in the cache after the calculation. If the
+     * document has changed during the calculation, the map has been evicted and the result is
+     * dropped.
+     */
+    private final Cache<Long, Map<String, Serializable>> documentResults;
+
+    private final Cache<Integer, AgreementCalculationTask> calculations;
+
+    public AgreementServiceImpl(DocumentService aDocumentService,
+            SchedulingService aSchedulingService)
+    {
+        documentService = aDocumentService;
+        schedulingService = aSchedulingService;
+
+        documentResults = Caffeine.newBuilder().expireAfterAccess(30, MINUTES)
+                .maximumSize(1_000).build();
+        calculations = Caffeine.newBuilder().expireAfterAccess(30, MINUTES).build();
+    }
+
+    @Override
+    public int startCalculation(User aSessionOwner, IncrementalAgreementMeasure<?, ?> aMeasure)
+    {
+        AgreementCalculationTask task = new AgreementCalculationTask(aSessionOwner,
+                aMeasure.getFeature().getProject(), aMeasure);
+        calculations.put(task.getId(), task);
+        schedulingService.enqueue(task);
+        return task.getId();
+    }
+
+    @Override
+    public Optional<AgreementCalculationTask> getCalculation(int aTaskId)
+    {
+        return Optional.ofNullable(calculations.getIfPresent(aTaskId));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <P extends Serializable> P getDocumentResult(IncrementalAgreementMeasure<?, P> aMeasure,
+            SourceDocument aDocument, int aDocumentIndex, List<User> aAnnotators)
+        throws IOException
+    {
+        long documentId = aDocument.getId();
+        String key = aDocumentIndex + "|" + getMeasureKey(aMeasure, aAnnotators);
+
+        Map<String, Serializable> resultsForDocument = documentResults.get(documentId,
+                k -> new ConcurrentHashMap<>());
+        P cachedResult = (P) resultsForDocument.get(key);
+        if (cachedResult != null) {
+            log.trace("Using cached agreement data for {}", aDocument);
+            return cachedResult;
+        }
+
+        // The calculation usually runs on a scheduler thread which has no CAS storage session of
+        // its own
+        P result;
+        try (CasStorageSession session = CasStorageSession.openNested()) {
+            Map<String, CAS> casMap = loadCases(aDocument, aAnnotators, aMeasure.getTraits());
+            result = aMeasure.calculateDocument(aDocumentIndex, casMap);
+        }
+
+        // Do not cache results based on data that has changed while we were calculating
+        if (documentResults.getIfPresent(documentId) == resultsForDocument) {
+            resultsForDocument.put(key, result);
+        }
+
+        return result;
+    }
+
+    private Map<String, CAS> loadCases(SourceDocument aDocument, List<User> aAnnotators,
+            DefaultAgreementTraits aTraits)
+        throws IOException
+    {
+        Map<String, AnnotationDocument> annotationDocuments = documentService
+                .listAnnotationDocuments(aDocument).stream()
+                .collect(toMap(AnnotationDocument::getUser, identity()));
+
+        Map<String, CAS> casMap = new LinkedHashMap<>();
+        for (User user : aAnnotators) {
+            AnnotationDocument annotationDocument = annotationDocuments.get(user.getUsername());
+
+            if (annotationDocument != null && aTraits.isLimitToFinishedDocuments()
+                    && !annotationDocument.getState().equals(FINISHED)) {
+                // Add a skip marker (null) for the current CAS
+                casMap.put(user.getUsername(), null);
+                continue;
+            }
+
+            // Reads the user's annotation document or the initial source document - depending on
+            // what is available
+            CAS cas = documentService.readAnnotationCas(aDocument, user.getUsername(),
+                    AUTO_CAS_UPGRADE, SHARED_READ_ONLY_ACCESS);
+
+            // Set the CAS name in the DocumentMetaData so that we can pick it up in the Diff
+            // position for the purpose of debugging / transparency.
+            FeatureStructure dmd = WebAnnoCasUtil.getDocumentMetadata(cas);
+            FSUtil.setFeature(dmd, "documentId", aDocument.getName());
+            FSUtil.setFeature(dmd, "collectionId", aDocument.getProject().getName());
+
+            casMap.put(user.getUsername(), cas);
+        }
+
+        return casMap;
+    }
+
+    private String getMeasureKey(IncrementalAgreementMeasure<?, ?> aMeasure,
+            List<User> aAnnotators)
+    {
+        AnnotationFeature feature = aMeasure.getFeature();
+        try {
+            return aMeasure.getClass().getName() + "|" + feature.getId() + "|"
+                    + JSONUtil.toJsonString(aMeasure.getTraits()) + "|"
+                    + aAnnotators.stream().map(User::getUsername).collect(joining(","));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize agreement traits", e);
+        }
+    }
+
+    @EventListener
+    public void onAfterCasWritten(AfterCasWrittenEvent aEvent)
+    {
+        invalidateDocumentResults(aEvent.getDocument().getDocument());
+    }
+
+    @EventListener
+    public void onAnnotationStateChange(AnnotationStateChangeEvent aEvent)
+    {
+        invalidateDocumentResults(aEvent.getDocument());
+    }
+
+    @EventListener
+    public void onBeforeDocumentRemoved(BeforeDocumentRemovedEvent aEvent)
+    {
+        invalidateDocumentResults(aEvent.getDocument());
+    }
+
+    @EventListener
+    public void onBeforeProjectRemoved(BeforeProjectRemovedEvent aEvent)
+    {
+        Project project = aEvent.getProject();
+
+        for (SourceDocument document : documentService.listSourceDocuments(project)) {
+            invalidateDocumentResults(document);
+        }
+
+        calculations.asMap().values().removeIf(task -> project.equals(task.getProject()));
+    }
+
+    private void invalidateDocumentResults(SourceDocument aDocument)
+    {
+        if (aDocument == null || aDocument.getId() == null) {
+            return;
+        }
+
+        documentResults.invalidate(aDocument.getId());
+    }
+}
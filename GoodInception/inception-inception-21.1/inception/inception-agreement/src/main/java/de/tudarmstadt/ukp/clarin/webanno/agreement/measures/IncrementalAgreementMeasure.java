@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement.measures;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+
+/**
+ * Agreement measure which can be calculated one document at a time. Instead of holding the CASes
+ * of all annotators for all documents in memory, the caller obtains a per-document result via
+ * {@link #calculateDocument}, releases the CASes and finally folds the per-document results into
+ * the overall agreement via {@link #combine}. The per-document results do not hold on to any CAS
+ * and can be cached until the document changes.
+ *
+ * @param <R>
+ *            the overall result type.
+ * @param <P>
+ *            the per-document result type.
+ */
+public interface IncrementalAgreementMeasure<R extends Serializable, P extends Serializable>
+    extends AgreementMeasure<R>
+{
+    /**
+     * @param aDocumentIndex
+     *            the index of the document in the list of documents over which the agreement is
+     *            calculated. This is the same index the document would have in the CAS lists
+     *            passed to {@link #getAgreement(Map)}.
+     * @param aCasMap
+     *            the CASes of all annotators for the document. Values may be {@code null} if an
+     *            annotator has not worked on the document.
+     * @return the per-document result.
+     */
+    P calculateDocument(int aDocumentIndex, Map<String, CAS> aCasMap);
+
+    /**
+     * @param aCasGroupIds
+     *            the annotators over which the agreement is calculated.
+     * @param aDocumentResults
+     *            the per-document results in document order.
+     * @return the overall result. This is the same result {@link #getAgreement(Map)} would have
+     *         produced on the full CAS map.
+     */
+    R combine(List<String> aCasGroupIds, List<P> aDocumentResults);
+}
@@ -17,18 +17,6 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures.cohenkappa;
 
-import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.makeCodingStudy;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.getDiffAdapters;
-import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toCollection;
-
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-import org.apache.uima.cas.CAS;
 import org.dkpro.statistics.agreement.IAgreementMeasure;
 import org.dkpro.statistics.agreement.coding.CohenKappaAgreement;
 
@@ -36,51 +24,30 @@ import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTrai
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementResult;
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
-import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
 
 public class CohenKappaAgreementMeasure
     extends CodingAgreementMeasure_ImplBase<DefaultAgreementTraits>
 {
-    private final AnnotationSchemaService annotationService;
-
     public CohenKappaAgreementMeasure(AnnotationFeature aFeature, DefaultAgreementTraits aTraits,
             AnnotationSchemaService aAnnotationService)
     {
-        super(aFeature, aTraits);
-        annotationService = aAnnotationService;
+        super(aFeature, aTraits, aAnnotationService);
     }
 
     @Override
-    public CodingAgreementResult calculatePairAgreement(Map<String, List<CAS>> aCasMap)
+    protected void calculateAgreement(CodingAgreementResult aResult)
     {
-        AnnotationFeature feature = getFeature();
-        DefaultAgreementTraits traits = getTraits();
-
-        List<DiffAdapter> adapters = getDiffAdapters(annotationService, asList(feature.getLayer()));
-
-        CasDiff diff = doDiff(adapters, traits.getLinkCompareBehavior(), aCasMap);
+        IAgreementMeasure agreement = new CohenKappaAgreement(aResult.getStudy());
 
-        Set<String> tagset = annotationService.listTags(feature.getTagset()).stream()
-                .map(Tag::getName).collect(toCollection(LinkedHashSet::new));
-
-        CodingAgreementResult agreementResult = makeCodingStudy(diff, feature.getLayer().getName(),
-                feature.getName(), tagset, true, aCasMap);
-
-        IAgreementMeasure agreement = new CohenKappaAgreement(agreementResult.getStudy());
-
-        if (agreementResult.getStudy().getItemCount() == 0) {
-            agreementResult.setAgreement(Double.NaN);
+        if (aResult.getStudy().getItemCount() == 0) {
+            aResult.setAgreement(Double.NaN);
         }
-        else if (agreementResult.getObservedCategories().size() == 1) {
-            agreementResult.setAgreement(1.0d);
+        else if (aResult.getObservedCategories().size() == 1) {
+            aResult.setAgreement(1.0d);
         }
         else {
-            agreementResult.setAgreement(agreement.calculateAgreement());
+            aResult.setAgreement(agreement.calculateAgreement());
         }
-
-        return agreementResult;
     }
 }
@@ -17,19 +17,8 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalpha;
 
-import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.makeCodingStudy;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
-import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.getDiffAdapters;
 import static java.lang.Double.NaN;
-import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toCollection;
 
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-import org.apache.uima.cas.CAS;
 import org.dkpro.statistics.agreement.IAgreementMeasure;
 import org.dkpro.statistics.agreement.InsufficientDataException;
 import org.dkpro.statistics.agreement.coding.KrippendorffAlphaAgreement;
@@ -38,40 +27,27 @@ import org.dkpro.statistics.agreement.distance.NominalDistanceFunction;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementResult;
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
-import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
 
 public class KrippendorffAlphaAgreementMeasure
     extends CodingAgreementMeasure_ImplBase<KrippendorffAlphaAgreementTraits>
 {
-    private final AnnotationSchemaService annotationService;
-
     public KrippendorffAlphaAgreementMeasure(AnnotationFeature aFeature,
             KrippendorffAlphaAgreementTraits aTraits, AnnotationSchemaService aAnnotationService)
     {
-        super(aFeature, aTraits);
-        annotationService = aAnnotationService;
+        super(aFeature, aTraits, aAnnotationService);
     }
 
     @Override
-    public CodingAgreementResult calculatePairAgreement(Map<String, List<CAS>> aCasMap)
+    protected boolean isExcludeIncomplete()
     {
-        AnnotationFeature feature = getFeature();
-        KrippendorffAlphaAgreementTraits traits = getTraits();
-
-        List<DiffAdapter> adapters = getDiffAdapters(annotationService, asList(feature.getLayer()));
-
-        CasDiff diff = doDiff(adapters, traits.getLinkCompareBehavior(), aCasMap);
-
-        Set<String> tagset = annotationService.listTags(feature.getTagset()).stream()
-                .map(Tag::getName).collect(toCollection(LinkedHashSet::new));
-
-        CodingAgreementResult agreementResult = makeCodingStudy(diff, feature.getLayer().getName(),
-                feature.getName(), tagset, traits.isExcludeIncomplete(), aCasMap);
+        return getTraits().isExcludeIncomplete();
+    }
 
-        IAgreementMeasure agreement = new KrippendorffAlphaAgreement(agreementResult.getStudy(),
+    @Override
+    protected void calculateAgreement(CodingAgreementResult aResult)
+    {
+        IAgreementMeasure agreement = new KrippendorffAlphaAgreement(aResult.getStudy(),
                 new NominalDistanceFunction())
         {
             @Override
@@ -92,18 +68,16 @@ public class KrippendorffAlphaAgreementMeasure
             }
         };
 
-        if (agreementResult.getStudy().getItemCount() > 0) {
+        if (aResult.getStudy().getItemCount() > 0) {
             try {
-                agreementResult.setAgreement(agreement.calculateAgreement());
+                aResult.setAgreement(agreement.calculateAgreement());
             }
             catch (InsufficientDataException e) {
-                agreementResult.setAgreement(NaN);
+                aResult.setAgreement(NaN);
             }
         }
         else {
-            agreementResult.setAgreement(NaN);
+            aResult.setAgreement(NaN);
         }
-
-        return agreementResult;
     }
 }
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalphaunitizing;
 
+import static java.util.Arrays.asList;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -35,7 +37,10 @@ import org.dkpro.statistics.agreement.unitizing.UnitizingAnnotationStudy;
 
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure_ImplBase;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.IncrementalAgreementMeasure;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing.UnitizingAgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing.UnitizingDocumentUnits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing.UnitizingDocumentUnits.Unit;
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 
@@ -43,6 +48,9 @@ public class KrippendorffAlphaUnitizingAgreementMeasure
     extends AgreementMeasure_ImplBase<//
             PairwiseAnnotationResult<UnitizingAgreementResult>, //
             KrippendorffAlphaUnitizingAgreementTraits>
+    implements IncrementalAgreementMeasure<//
+            PairwiseAnnotationResult<UnitizingAgreementResult>, //
+            UnitizingDocumentUnits>
 {
     private final AnnotationSchemaService annotationService;
 
@@ -131,15 +139,105 @@ public class KrippendorffAlphaUnitizingAgreementMeasure
                 getFeature().getName(), study, new ArrayList<>(aCasMap.keySet()),
                 getTraits().isExcludeIncomplete());
 
-        IAgreementMeasure agreement = new KrippendorffAlphaUnitizingAgreement(study);
+        calculateAgreement(result);
+
+        return result;
+    }
+
+    @Override
+    public UnitizingDocumentUnits calculateDocument(int aDocumentIndex, Map<String, CAS> aCasMap)
+    {
+        String typeName = getFeature().getLayer().getName();
+
+        // All CASes of a document have the same size - since the users cannot change the document
+        // sizes, this should be an universally true assumption.
+        int docSize = aCasMap.values().stream().filter(cas -> cas != null)
+                .mapToInt(cas -> cas.getDocumentText().length()).findFirst().orElse(0);
+
+        UnitizingDocumentUnits units = new UnitizingDocumentUnits(docSize);
+        for (Entry<String, CAS> set : aCasMap.entrySet()) {
+            CAS cas = set.getValue();
+            // If a user has never worked on a source document, its CAS is null here - we skip it.
+            if (cas == null) {
+                continue;
+            }
+
+            assert docSize == cas.getDocumentText().length();
 
-        if (result.getStudy().getUnitCount() > 0) {
-            result.setAgreement(agreement.calculateAgreement());
+            units.addCasGroup(set.getKey());
+            Type t = cas.getTypeSystem().getType(typeName);
+            Feature f = t.getFeatureByBaseName(getFeature().getName());
+            cas.select(t).map(fs -> (AnnotationFS) fs).forEach(fs -> {
+                units.addUnit(set.getKey(), fs.getBegin(), fs.getEnd() - fs.getBegin(),
+                        FSUtil.getFeature(fs, f, Object.class));
+            });
         }
-        else {
-            result.setAgreement(Double.NaN);
+
+        return units;
+    }
+
+    @Override
+    public PairwiseAnnotationResult<UnitizingAgreementResult> combine(List<String> aCasGroupIds,
+            List<UnitizingDocumentUnits> aDocumentResults)
+    {
+        PairwiseAnnotationResult<UnitizingAgreementResult> result = new PairwiseAnnotationResult<>(
+                getFeature(), getTraits());
+        for (int m = 0; m < aCasGroupIds.size(); m++) {
+            for (int n = 0; n < m; n++) {
+                List<String> users = asList(aCasGroupIds.get(m), aCasGroupIds.get(n));
+                UnitizingAgreementResult res = combinePair(users, aDocumentResults);
+                result.add(users.get(0), users.get(1), res);
+            }
+        }
+        return result;
+    }
+
+    private UnitizingAgreementResult combinePair(List<String> aUsers,
+            List<UnitizingDocumentUnits> aDocumentResults)
+    {
+        // A document only contributes to the continuum if at least one of the two users has a
+        // CAS for it - this is the same as in calculatePairAgreement.
+        int[] docSizes = new int[aDocumentResults.size()];
+        for (int i = 0; i < docSizes.length; i++) {
+            UnitizingDocumentUnits doc = aDocumentResults.get(i);
+            if (aUsers.stream().anyMatch(doc::containsCasGroup)) {
+                docSizes[i] = doc.getDocumentLength();
+            }
         }
+        int continuumSize = Arrays.stream(docSizes).sum();
+
+        UnitizingAnnotationStudy study = new UnitizingAnnotationStudy(continuumSize);
+
+        for (String user : aUsers) {
+            int raterIdx = study.addRater(user);
+            int docOffset = 0;
+            for (int i = 0; i < docSizes.length; i++) {
+                for (Unit unit : aDocumentResults.get(i).getUnits(user)) {
+                    study.addUnit(docOffset + unit.getOffset(), unit.getLength(), raterIdx,
+                            unit.getCategory());
+                }
+                docOffset += docSizes[i];
+            }
+        }
+
+        UnitizingAgreementResult result = new UnitizingAgreementResult(
+                getFeature().getLayer().getName(), getFeature().getName(), study, aUsers,
+                getTraits().isExcludeIncomplete());
+
+        calculateAgreement(result);
 
         return result;
     }
+
+    private void calculateAgreement(UnitizingAgreementResult aResult)
+    {
+        IAgreementMeasure agreement = new KrippendorffAlphaUnitizingAgreement(aResult.getStudy());
+
+        if (aResult.getStudy().getUnitCount() > 0) {
+            aResult.setAgreement(agreement.calculateAgreement());
+        }
+        else {
+            aResult.setAgreement(Double.NaN);
+        }
+    }
 }
@@ -17,25 +17,46 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
 
+import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.makeCodingStudy;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiffDocument;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.getDiffAdapters;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toCollection;
+
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.uima.cas.CAS;
 
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.IncrementalAgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
 
 public abstract class CodingAgreementMeasure_ImplBase<T extends DefaultAgreementTraits>
     extends AgreementMeasure_ImplBase<PairwiseAnnotationResult<CodingAgreementResult>, T>
+    implements IncrementalAgreementMeasure<//
+            PairwiseAnnotationResult<CodingAgreementResult>, //
+            PairwiseAnnotationResult<CodingAgreementResult>>
 {
-    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits)
+    private final AnnotationSchemaService annotationService;
+
+    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits,
+            AnnotationSchemaService aAnnotationService)
     {
         super(aFeature, aTraits);
+        annotationService = aAnnotationService;
     }
 
     @Override
@@ -60,5 +81,113 @@ public abstract class CodingAgreementMeasure_ImplBase<T extends DefaultAgreement
         return result;
     }
 
-    public abstract CodingAgreementResult calculatePairAgreement(Map<String, List<CAS>> aCasMap);
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The per-document result contains the pairwise studies for the given document only. The
+     * agreement values in these studies are not set.
+     */
+    @Override
+    public PairwiseAnnotationResult<CodingAgreementResult> calculateDocument(int aDocumentIndex,
+            Map<String, CAS> aCasMap)
+    {
+        AnnotationFeature feature = getFeature();
+        List<DiffAdapter> adapters = getDiffAdapters(annotationService, asList(feature.getLayer()));
+        Set<String> tagset = getTagset();
+
+        PairwiseAnnotationResult<CodingAgreementResult> result = new PairwiseAnnotationResult<>(
+                getFeature(), getTraits());
+        List<Entry<String, CAS>> entryList = new ArrayList<>(aCasMap.entrySet());
+        for (int m = 0; m < entryList.size(); m++) {
+            for (int n = 0; n < m; n++) {
+                Map<String, CAS> pairwiseCasMap = new LinkedHashMap<>();
+                pairwiseCasMap.put(entryList.get(m).getKey(), entryList.get(m).getValue());
+                pairwiseCasMap.put(entryList.get(n).getKey(), entryList.get(n).getValue());
+
+                CasDiff diff = doDiffDocument(adapters, getTraits().getLinkCompareBehavior(),
+                        pairwiseCasMap, aDocumentIndex);
+
+                CodingAgreementResult res = makeCodingStudy(diff, feature.getLayer().getName(),
+                        feature.getName(), tagset, isExcludeIncomplete(), diff.getCasMap());
+                result.add(entryList.get(m).getKey(), entryList.get(n).getKey(), res);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public PairwiseAnnotationResult<CodingAgreementResult> combine(List<String> aCasGroupIds,
+            List<PairwiseAnnotationResult<CodingAgreementResult>> aDocumentResults)
+    {
+        AnnotationFeature feature = getFeature();
+        Set<String> tagset = getTagset();
+
+        PairwiseAnnotationResult<CodingAgreementResult> result = new PairwiseAnnotationResult<>(
+                getFeature(), getTraits());
+        for (int m = 0; m < aCasGroupIds.size(); m++) {
+            for (int n = 0; n < m; n++) {
+                String user1 = aCasGroupIds.get(m);
+                String user2 = aCasGroupIds.get(n);
+
+                List<CodingAgreementResult> documentResults = new ArrayList<>();
+                for (PairwiseAnnotationResult<CodingAgreementResult> docResult : aDocumentResults) {
+                    CodingAgreementResult res = docResult.getStudy(user1, user2);
+                    if (res != null) {
+                        documentResults.add(res);
+                    }
+                }
+
+                // The studies list the users in sorted order - cf. AgreementUtils.makeCodingStudy
+                List<String> users = new ArrayList<>(asList(user1, user2));
+                users.sort(null);
+
+                CodingAgreementResult res = CodingAgreementResult.merge(
+                        feature.getLayer().getName(), feature.getName(), tagset, users,
+                        isExcludeIncomplete(), documentResults);
+                calculateAgreement(res);
+                result.add(user1, user2, res);
+            }
+        }
+        return result;
+    }
+
+    public CodingAgreementResult calculatePairAgreement(Map<String, List<CAS>> aCasMap)
+    {
+        AnnotationFeature feature = getFeature();
+
+        List<DiffAdapter> adapters = getDiffAdapters(annotationService, asList(feature.getLayer()));
+
+        CasDiff diff = doDiff(adapters, getTraits().getLinkCompareBehavior(), aCasMap);
+
+        CodingAgreementResult agreementResult = makeCodingStudy(diff, feature.getLayer().getName(),
+                feature.getName(), getTagset(), isExcludeIncomplete(), aCasMap);
+
+        calculateAgreement(agreementResult);
+
+        return agreementResult;
+    }
+
+    private Set<String> getTagset()
+    {
+        return annotationService.listTags(getFeature().getTagset()).stream().map(Tag::getName)
+                .collect(toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * @return whether items which have not been annotated by all users are excluded from the
+     *         study.
+     */
+    protected boolean isExcludeIncomplete()
+    {
+        return true;
+    }
+
+    /**
+     * Calculates the agreement on the study contained in the given result and sets it on the
+     * result.
+     * 
+     * @param aResult
+     *            the result.
+     */
+    protected abstract void calculateAgreement(CodingAgreementResult aResult);
 }
@@ -20,11 +20,13 @@ package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
 import static java.util.Collections.unmodifiableList;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.dkpro.statistics.agreement.IAnnotationUnit;
+import org.dkpro.statistics.agreement.coding.CodingAnnotationStudy;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationItem;
 import org.dkpro.statistics.agreement.coding.ICodingAnnotationStudy;
 
@@ -63,6 +65,72 @@ public class CodingAgreementResult
         pluralitySets = unmodifiableList(new ArrayList<>(aPluralitySets));
     }
 
+    /**
+     * Combines the results calculated separately on different documents into a single result. The
+     * agreement is not calculated - it needs to be set on the merged result by the caller.
+     * 
+     * @param aType
+     *            the type over which the agreement is calculated.
+     * @param aFeature
+     *            the feature over which the agreement is calculated.
+     * @param aTagSet
+     *            the tags which should be known to the study as categories (may be {@code null}).
+     * @param aCasGroupIds
+     *            the CAS groups (annotators) in the order used by the studies.
+     * @param aExcludeIncomplete
+     *            whether incomplete items were excluded.
+     * @param aResults
+     *            the per-document results in document order.
+     * @return the merged result.
+     */
+    public static CodingAgreementResult merge(String aType, String aFeature, Set<String> aTagSet,
+            List<String> aCasGroupIds, boolean aExcludeIncomplete,
+            Collection<CodingAgreementResult> aResults)
+    {
+        CodingAnnotationStudy study = new CodingAnnotationStudy(aCasGroupIds.size());
+        if (aTagSet != null) {
+            aTagSet.forEach(study::addCategory);
+        }
+
+        List<DiffResult> diffs = new ArrayList<>();
+        List<ConfigurationSet> complete = new ArrayList<>();
+        List<ConfigurationSet> irrelevant = new ArrayList<>();
+        List<ConfigurationSet> withDifferences = new ArrayList<>();
+        List<ConfigurationSet> incompleteByPosition = new ArrayList<>();
+        List<ConfigurationSet> incompleteByLabel = new ArrayList<>();
+        List<ConfigurationSet> plurality = new ArrayList<>();
+
+        for (CodingAgreementResult result : aResults) {
+            assert aCasGroupIds.equals(result.getCasGroupIds()) : "CAS group mismatch: "
+                    + aCasGroupIds + " vs " + result.getCasGroupIds();
+
+            for (Object category : result.getStudy().getCategories()) {
+                study.addCategory(category);
+            }
+
+            for (ICodingAnnotationItem item : result.getStudy().getItems()) {
+                Object[] values = new Object[aCasGroupIds.size()];
+                for (int i = 0; i < values.length; i++) {
+                    IAnnotationUnit unit = item.getUnit(i);
+                    values[i] = unit != null ? unit.getCategory() : null;
+                }
+                study.addItemAsArray(values);
+            }
+
+            diffs.add(result.diff);
+            complete.addAll(result.completeSets);
+            irrelevant.addAll(result.irrelevantSets);
+            withDifferences.addAll(result.setsWithDifferences);
+            incompleteByPosition.addAll(result.incompleteSetsByPosition);
+            incompleteByLabel.addAll(result.incompleteSetsByLabel);
+            plurality.addAll(result.pluralitySets);
+        }
+
+        return new CodingAgreementResult(aType, aFeature, DiffResult.merge(diffs), study,
+                aCasGroupIds, complete, irrelevant, withDifferences, incompleteByPosition,
+                incompleteByLabel, plurality, aExcludeIncomplete);
+    }
+
     public boolean noPositions()
     {
         return study.getItemCount() == 0;
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableSet;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The units annotated by each annotator in a single document. Used to build a unitizing study
+ * incrementally without having to keep the CASes of all documents in memory.
+ */
+public class UnitizingDocumentUnits
+    implements Serializable
+{
+    private static final long serialVersionUID = -4395850307446217853L;
+
+    private final int documentLength;
+    private final Map<String, List<Unit>> units = new LinkedHashMap<>();
+
+    public UnitizingDocumentUnits(int aDocumentLength)
+    {
+        documentLength = aDocumentLength;
+    }
+
+    public int getDocumentLength()
+    {
+        return documentLength;
+    }
+
+    /**
+     * Registers an annotator who has a CAS for the document - even if the annotator did not
+     * create any units in it.
+     * 
+     * @param aCasGroupId
+     *            the annotator.
+     */
+    public void addCasGroup(String aCasGroupId)
+    {
+        units.computeIfAbsent(aCasGroupId, k -> new ArrayList<>());
+    }
+
+    public void addUnit(String aCasGroupId, int aOffset, int aLength, Object aCategory)
+    {
+        units.computeIfAbsent(aCasGroupId, k -> new ArrayList<>())
+                .add(new Unit(aOffset, aLength, aCategory));
+    }
+
+    /**
+     * @return the annotators which have a CAS for the document.
+     */
+    public Set<String> getCasGroupIds()
+    {
+        return unmodifiableSet(units.keySet());
+    }
+
+    public boolean containsCasGroup(String aCasGroupId)
+    {
+        return units.containsKey(aCasGroupId);
+    }
+
+    public List<Unit> getUnits(String aCasGroupId)
+    {
+        return units.getOrDefault(aCasGroupId, emptyList());
+    }
+
+    public static class Unit
+        implements Serializable
+    {
+        private static final long serialVersionUID = 5911237410596925426L;
+
+        private final int offset;
+        private final int length;
+        private final Object category;
+
+        public Unit(int aOffset, int aLength, Object aCategory)
+        {
+            offset = aOffset;
+            length = aLength;
+            category = aCategory;
+        }
+
+        public int getOffset()
+        {
+            return offset;
+        }
+
+        public int getLength()
+        {
+            return length;
+        }
+
+        public Object getCategory()
+        {
+            return category;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement.task;
+
+import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.ANNOTATOR;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementService;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.IncrementalAgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.scheduling.Task;
+
+/**
+ * Calculates the agreement over all documents of a project one document at a time. The
+ * per-document results are obtained via {@link AgreementService#getDocumentResult} which caches
+ * them until the document changes.
+ */
+public class AgreementCalculationTask
+    extends Task
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private @Autowired DocumentService documentService;
+    private @Autowired ProjectService projectService;
+    private @Autowired AgreementService agreementService;
+
+    private final IncrementalAgreementMeasure<?, ?> measure;
+
+    private volatile int progress = 0;
+    private volatile int maxProgress = 0;
+    private volatile boolean done = false;
+    private volatile Serializable result;
+    private volatile String errorMessage;
+
+    public AgreementCalculationTask(User aUser, Project aProject,
+            IncrementalAgreementMeasure<?, ?> aMeasure)
+    {
+        super(aUser, aProject, "Agreement calculation");
+        measure = aMeasure;
+    }
+
+    @Override
+    public void execute()
+    {
+        try {
+            result = calculate(measure);
+        }
+        catch (Exception e) {
+            errorMessage = ExceptionUtils.getRootCauseMessage(e);
+            log.error("Unable to calculate agreement", e);
+        }
+        finally {
+            done = true;
+        }
+    }
+
+    private <R extends Serializable, P extends Serializable> R calculate(
+            IncrementalAgreementMeasure<R, P> aMeasure)
+        throws IOException
+    {
+        List<User> annotators = projectService.listProjectUsersWithPermissions(getProject(),
+                ANNOTATOR);
+        List<SourceDocument> documents = documentService.listSourceDocuments(getProject());
+
+        if (annotators.isEmpty() || documents.isEmpty()) {
+            errorMessage = "No documents with annotations were found.";
+            return null;
+        }
+
+        maxProgress = documents.size();
+
+        List<P> documentResults = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            documentResults.add(
+                    agreementService.getDocumentResult(aMeasure, documents.get(i), i, annotators));
+            progress = i + 1;
+        }
+
+        List<String> casGroupIds = annotators.stream().map(User::getUsername).collect(toList());
+
+        return aMeasure.combine(casGroupIds, documentResults);
+    }
+
+    public IncrementalAgreementMeasure<?, ?> getMeasure()
+    {
+        return measure;
+    }
+
+    /**
+     * @return the number of documents processed so far.
+     */
+    public int getProgress()
+    {
+        return progress;
+    }
+
+    /**
+     * @return the number of documents to process or {@code 0} if not known yet.
+     */
+    public int getMaxProgress()
+    {
+        return maxProgress;
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * @return the agreement result or {@code null} if the calculation is not done yet or failed.
+     */
+    public Serializable getResult()
+    {
+        return result;
+    }
+
+    /**
+     * @return an error message if the calculation failed.
+     */
+    public String getErrorMessage()
+    {
+        return errorMessage;
+    }
+
+    @Override
+    public boolean equals(Object aOther)
+    {
+        if (!(aOther instanceof AgreementCalculationTask)) {
+            return false;
+        }
+
+        // Every calculation request is considered unique. If the same user were to start
+        // another calculation in the same project, it must not replace the pending one because
+        // the requesting page is waiting for it.
+        return super.equals(aOther) && getId() == ((AgreementCalculationTask) aOther).getId();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(super.hashCode(), getId());
+    }
+}
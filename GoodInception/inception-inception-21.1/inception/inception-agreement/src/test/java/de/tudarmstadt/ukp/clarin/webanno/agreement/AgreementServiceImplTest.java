@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.CasUpgradeMode.AUTO_CAS_UPGRADE;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.CasFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.IncrementalAgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeDocumentRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+
+public class AgreementServiceImplTest
+{
+    private @Mock DocumentService documentService;
+    private @Mock SchedulingService schedulingService;
+
+    private IncrementalAgreementMeasure<Integer, Integer> measure;
+    private Project project;
+    private SourceDocument document;
+    private List<User> annotators;
+    private ExecutorService worker;
+
+    private AgreementServiceImpl sut;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        MockitoAnnotations.openMocks(this);
+
+        project = new Project("project");
+        project.setId(1L);
+
+        document = new SourceDocument("document", project, "text");
+        document.setId(1L);
+
+        AnnotationFeature feature = new AnnotationFeature();
+        feature.setId(1L);
+        feature.setProject(project);
+
+        measure = mock(IncrementalAgreementMeasure.class);
+        when(measure.getFeature()).thenReturn(feature);
+        when(measure.getTraits()).thenReturn(new DefaultAgreementTraits());
+        // The per-document result is the number of CASes the measure was given
+        when(measure.calculateDocument(anyInt(), any())).thenAnswer(call -> {
+            Map<String, CAS> casMap = call.getArgument(1);
+            return (int) casMap.values().stream().filter(Objects::nonNull).count();
+        });
+
+        annotators = asList(new User("user1"), new User("user2"));
+
+        // Like the scheduler threads, the worker thread has no CAS storage session
+        worker = Executors.newSingleThreadExecutor();
+
+        sut = new AgreementServiceImpl(documentService, schedulingService);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        worker.shutdownNow();
+    }
+
+    @Test
+    public void thatCasesAreLoadedOffTheRequestThread() throws Exception
+    {
+        when(documentService.readAnnotationCas(eq(document), anyString(), eq(AUTO_CAS_UPGRADE),
+                eq(SHARED_READ_ONLY_ACCESS))).thenAnswer(call -> {
+                    // Fails if there is no session for the current thread
+                    CasStorageSession.get();
+                    return CasFactory.createCas();
+                });
+
+        int result = runOnWorker(
+                () -> sut.getDocumentResult(measure, document, 0, annotators));
+
+        assertThat(result) //
+                .as("The CASes of all annotators should have been loaded") //
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void thatFailureToLoadCasIsNotSwallowed() throws Exception
+    {
+        when(documentService.readAnnotationCas(eq(document), anyString(), eq(AUTO_CAS_UPGRADE),
+                eq(SHARED_READ_ONLY_ACCESS))).thenThrow(new IOException("Broken CAS"));
+
+        assertThatThrownBy(() -> runOnWorker(
+                () -> sut.getDocumentResult(measure, document, 0, annotators)))
+                        .hasRootCauseInstanceOf(IOException.class)
+                        .hasRootCauseMessage("Broken CAS");
+
+        verify(measure, never()).calculateDocument(anyInt(), any());
+    }
+
+    @Test
+    public void thatResultsAreEvictedWhenProjectIsRemoved() throws Exception
+    {
+        stubReadAnnotationCas();
+        when(documentService.listSourceDocuments(project)).thenReturn(asList(document));
+
+        runOnWorker(() -> sut.getDocumentResult(measure, document, 0, annotators));
+        runOnWorker(() -> sut.getDocumentResult(measure, document, 0, annotators));
+        verify(measure, times(1)).calculateDocument(anyInt(), any());
+
+        sut.onBeforeProjectRemoved(new BeforeProjectRemovedEvent(this, project));
+
+        runOnWorker(() -> sut.getDocumentResult(measure, document, 0, annotators));
+        verify(measure, times(2)).calculateDocument(anyInt(), any());
+    }
+
+    @Test
+    public void thatResultIsNotCachedIfDocumentChangesDuringCalculation() throws Exception
+    {
+        when(documentService.readAnnotationCas(eq(document), anyString(), eq(AUTO_CAS_UPGRADE),
+                eq(SHARED_READ_ONLY_ACCESS))).thenAnswer(call -> {
+                    // Simulate the document being changed while its CASes are being loaded
+                    sut.onBeforeDocumentRemoved(new BeforeDocumentRemovedEvent(this, document));
+                    return CasFactory.createCas();
+                });
+
+        runOnWorker(() -> sut.getDocumentResult(measure, document, 0, annotators));
+        runOnWorker(() -> sut.getDocumentResult(measure, document, 0, annotators));
+
+        verify(measure, times(2)).calculateDocument(anyInt(), any());
+    }
+
+    private void stubReadAnnotationCas() throws Exception
+    {
+        when(documentService.readAnnotationCas(eq(document), anyString(), eq(AUTO_CAS_UPGRADE),
+                eq(SHARED_READ_ONLY_ACCESS))).thenAnswer(call -> CasFactory.createCas());
+    }
+
+    private <T> T runOnWorker(Callable<T> aCallable) throws Exception
+    {
+        try {
+            return worker.submit(aCallable).get();
+        }
+        catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+}
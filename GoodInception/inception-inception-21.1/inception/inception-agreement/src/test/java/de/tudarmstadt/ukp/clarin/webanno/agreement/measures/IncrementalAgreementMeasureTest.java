@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement.measures;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst.SPAN_TYPE;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.SINGLE_TOKEN;
+import static de.tudarmstadt.ukp.clarin.webanno.model.OverlapMode.NO_OVERLAP;
+import static de.tudarmstadt.ukp.clarin.webanno.support.uima.AnnotationBuilder.buildAnnotation;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.CasFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAnnotationResult;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.cohenkappa.CohenKappaAgreementMeasureSupport;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.fleisskappa.FleissKappaAgreementMeasureSupport;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalpha.KrippendorffAlphaAgreementMeasureSupport;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalpha.KrippendorffAlphaAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalphaunitizing.KrippendorffAlphaUnitizingAgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalphaunitizing.KrippendorffAlphaUnitizingAgreementMeasureSupport;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementMeasure_ImplBase;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding.CodingAgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.results.unitizing.UnitizingAgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
+import de.tudarmstadt.ukp.clarin.webanno.model.TagSet;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+
+public class IncrementalAgreementMeasureTest
+    extends AgreementMeasureTestSuite_ImplBase
+{
+    private static final List<String> USERS = asList("user1", "user2", "user3");
+
+    private AnnotationFeature feature;
+    private Map<String, List<CAS>> casMap;
+
+    @Override
+    @BeforeEach
+    public void setup()
+    {
+        super.setup();
+
+        TagSet tagset = new TagSet(project, "tagset");
+        when(annotationService.listTags(tagset))
+                .thenReturn(asList(new Tag(tagset, "A"), new Tag(tagset, "B")));
+
+        AnnotationLayer layer = new AnnotationLayer(POS.class.getName(), POS.class.getSimpleName(),
+                SPAN_TYPE, project, false, SINGLE_TOKEN, NO_OVERLAP);
+        layer.setId(1l);
+        layers.add(layer);
+
+        feature = new AnnotationFeature(project, layer, "PosValue", "PosValue",
+                CAS.TYPE_NAME_STRING);
+        feature.setId(1l);
+        feature.setTagset(tagset);
+        features.add(feature);
+    }
+
+    @BeforeEach
+    public void createDocuments() throws Exception
+    {
+        casMap = new LinkedHashMap<>();
+        casMap.put("user1", asList( //
+                doc("This is a test.", 0, 4, "A", 5, 7, "B", 10, 14, "A"), //
+                doc("Another document.", 0, 7, "A"), //
+                doc("Third one.", 0, 5, "B")));
+        casMap.put("user2", asList( //
+                doc("This is a test.", 0, 4, "A", 5, 7, "A", 10, 14, "A"), //
+                null, //
+                doc("Third one.", 0, 5, "B", 6, 9, "A")));
+        casMap.put("user3", asList( //
+                doc("This is a test.", 0, 4, "B", 10, 14, "A"), //
+                doc("Another document.", 0, 7, "A", 8, 16, "B"), //
+                doc("Third one.")));
+    }
+
+    @Test
+    public void thatIncrementalCohenKappaMatchesFullCalculation() throws Exception
+    {
+        CohenKappaAgreementMeasureSupport sut = new CohenKappaAgreementMeasureSupport(
+                annotationService);
+
+        assertCodingResultsMatch(sut.createMeasure(feature, sut.createTraits()));
+    }
+
+    @Test
+    public void thatIncrementalFleissKappaMatchesFullCalculation() throws Exception
+    {
+        FleissKappaAgreementMeasureSupport sut = new FleissKappaAgreementMeasureSupport(
+                annotationService);
+
+        assertCodingResultsMatch(sut.createMeasure(feature, sut.createTraits()));
+    }
+
+    @Test
+    public void thatIncrementalKrippendorffAlphaMatchesFullCalculation() throws Exception
+    {
+        KrippendorffAlphaAgreementMeasureSupport sut = new KrippendorffAlphaAgreementMeasureSupport(
+                annotationService);
+        KrippendorffAlphaAgreementTraits traits = sut.createTraits();
+        traits.setExcludeIncomplete(false);
+
+        assertCodingResultsMatch(sut.createMeasure(feature, traits));
+    }
+
+    @Test
+    public void thatIncrementalKrippendorffAlphaUnitizingMatchesFullCalculation() throws Exception
+    {
+        KrippendorffAlphaUnitizingAgreementMeasureSupport sut = //
+                new KrippendorffAlphaUnitizingAgreementMeasureSupport(annotationService);
+
+        KrippendorffAlphaUnitizingAgreementMeasure measure = //
+                (KrippendorffAlphaUnitizingAgreementMeasure) sut.createMeasure(feature,
+                        sut.createTraits());
+
+        PairwiseAnnotationResult<UnitizingAgreementResult> full = measure.getAgreement(casMap);
+        PairwiseAnnotationResult<UnitizingAgreementResult> incremental = calculateIncrementally(
+                measure);
+
+        for (int m = 0; m < USERS.size(); m++) {
+            for (int n = 0; n < m; n++) {
+                UnitizingAgreementResult expected = full.getStudy(USERS.get(m), USERS.get(n));
+                UnitizingAgreementResult actual = incremental.getStudy(USERS.get(m), USERS.get(n));
+
+                assertThat(actual.getCasGroupIds()).isEqualTo(expected.getCasGroupIds());
+                assertThat(actual.getAgreement()).isEqualTo(expected.getAgreement());
+            }
+        }
+    }
+
+    private void assertCodingResultsMatch(
+            AgreementMeasure<PairwiseAnnotationResult<CodingAgreementResult>> aMeasure)
+    {
+        CodingAgreementMeasure_ImplBase<?> measure = (CodingAgreementMeasure_ImplBase<?>) aMeasure;
+
+        PairwiseAnnotationResult<CodingAgreementResult> full = measure.getAgreement(casMap);
+        PairwiseAnnotationResult<CodingAgreementResult> incremental = calculateIncrementally(
+                measure);
+
+        for (int m = 0; m < USERS.size(); m++) {
+            for (int n = 0; n < m; n++) {
+                CodingAgreementResult expected = full.getStudy(USERS.get(m), USERS.get(n));
+                CodingAgreementResult actual = incremental.getStudy(USERS.get(m), USERS.get(n));
+
+                assertThat(actual.getCasGroupIds()).isEqualTo(expected.getCasGroupIds());
+                assertThat(actual.getStudy().getItemCount())
+                        .isEqualTo(expected.getStudy().getItemCount());
+                assertThat(actual.getTotalSetCount()).isEqualTo(expected.getTotalSetCount());
+                assertThat(actual.getCompleteSetCount()).isEqualTo(expected.getCompleteSetCount());
+                assertThat(actual.getDiffSetCount()).isEqualTo(expected.getDiffSetCount());
+                assertThat(actual.getUnusableSetCount())
+                        .isEqualTo(expected.getUnusableSetCount());
+                assertThat(actual.getDiff().getPositions())
+                        .containsExactlyElementsOf(expected.getDiff().getPositions());
+                assertThat(actual.getAgreement()).isEqualTo(expected.getAgreement());
+            }
+        }
+    }
+
+    private <R extends Serializable, P extends Serializable> R calculateIncrementally(
+            IncrementalAgreementMeasure<R, P> aMeasure)
+    {
+        int docCount = casMap.values().iterator().next().size();
+        List<P> documentResults = new ArrayList<>();
+        for (int i = 0; i < docCount; i++) {
+            Map<String, CAS> documentCases = new LinkedHashMap<>();
+            for (Entry<String, List<CAS>> e : casMap.entrySet()) {
+                documentCases.put(e.getKey(), e.getValue().get(i));
+            }
+            documentResults.add(aMeasure.calculateDocument(i, documentCases));
+        }
+
+        return aMeasure.combine(new ArrayList<>(casMap.keySet()), documentResults);
+    }
+
+    private static CAS doc(String aText, Object... aAnnotations) throws Exception
+    {
+        CAS cas = CasFactory.createText(aText);
+        for (int i = 0; i < aAnnotations.length; i += 3) {
+            buildAnnotation(cas, POS.class) //
+                    .at((int) aAnnotations[i], (int) aAnnotations[i + 1]) //
+                    .withFeature(POS._FeatName_PosValue, aAnnotations[i + 2]) //
+                    .buildAndAddToIndexes();
+        }
+        return cas;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Optional;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
@@ -511,6 +512,16 @@ public interface AnnotationSchemaService
     void upgradeCas(CAS aSourceCas, CAS aTargetCas, TypeSystemDescription aTargetTypeSystem)
         throws UIMAException, IOException;
 
+    /**
+     * Load the contents of the source CAS into the target CAS which is re-initialized with the
+     * given type system. Prefer this over
+     * {@link #upgradeCas(CAS, CAS, TypeSystemDescription)} when upgrading many CASes to the same
+     * type system since the type system does not need to be compiled for every CAS. If the target
+     * CAS already uses the given type system, it is not re-initialized but only reset.
+     */
+    void upgradeCas(CAS aSourceCas, CAS aTargetCas, TypeSystem aTargetTypeSystem)
+        throws UIMAException, IOException;
+
     /**
      * @see #upgradeCas(CAS, SourceDocument, String)
      */
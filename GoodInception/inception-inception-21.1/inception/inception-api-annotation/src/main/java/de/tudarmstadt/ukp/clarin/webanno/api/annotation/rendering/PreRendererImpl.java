@@ -41,11 +41,16 @@ import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEven
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 
 @Component
 public class PreRendererImpl
     implements PreRenderer
 {
+    private static final Timer RENDER_TIMER = Metrics.timer("inception_render",
+            "Time spent rendering the annotations of a window into a VDocument");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final AnnotationSchemaService annotationService;
@@ -83,6 +88,8 @@ public class PreRendererImpl
             return;
         }
 
+        long start = System.nanoTime();
+
         // The project for all layers must be the same, so we just fetch the project from the
         // first layer
         Project project = aLayers.get(0).getProject();
@@ -107,6 +114,8 @@ public class PreRendererImpl
                     .createRenderer(layer, () -> layerAllFeatures);
             renderer.render(aCas, layerSupportedFeatures, aResponse, windowBegin, windowEnd);
         }
+
+        RENDER_TIMER.recordSince(start);
     }
 
     @EventListener
@@ -46,7 +46,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -73,8 +76,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
@@ -94,6 +99,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.TypeSystemAnalysis.
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.annotationservice.config.AnnotationSchemaServiceAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasMetadataUtils;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.TagCreatedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.TagDeletedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.TagUpdatedEvent;
@@ -108,6 +114,8 @@ import de.tudarmstadt.ukp.clarin.webanno.model.ReorderableTag;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
 import de.tudarmstadt.ukp.clarin.webanno.model.TagSet;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 
@@ -120,6 +128,9 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 public class AnnotationSchemaServiceImpl
     implements AnnotationSchemaService
 {
+    private static final Timer CAS_UPGRADE_TIMER = Metrics.timer("inception_cas_upgrade",
+            "Time spent upgrading a CAS to a new type system");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final EntityManager entityManager;
@@ -128,6 +139,9 @@ public class AnnotationSchemaServiceImpl
     private final FeatureSupportRegistry featureSupportRegistry;
     private final LoadingCache<TagSet, List<ImmutableTag>> immutableTagsCache;
     private final TypeSystemDescription builtInTypes;
+    private final Cache<ProjectTypeSystemKey, ProjectTypeSystem> projectTypeSystemCache;
+    private final Map<Long, Long> schemaVersions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSchemaVersion = new AtomicLong();
 
     public AnnotationSchemaServiceImpl()
     {
@@ -147,6 +161,9 @@ public class AnnotationSchemaServiceImpl
         immutableTagsCache = Caffeine.newBuilder().expireAfterAccess(5, MINUTES)
                 .maximumSize(10 * 1024).build(this::loadImmutableTags);
 
+        projectTypeSystemCache = Caffeine.newBuilder().expireAfterAccess(5, MINUTES)
+                .maximumSize(256).build();
+
         try {
             builtInTypes = createTypeSystemDescription();
         }
@@ -249,6 +266,8 @@ public class AnnotationSchemaServiceImpl
                 entityManager.merge(aLayer);
                 log.info("Updated layer {} in project {}", aLayer, aLayer.getProject());
             }
+
+            schemaChanged(aLayer.getProject());
         }
     }
 
@@ -265,6 +284,8 @@ public class AnnotationSchemaServiceImpl
                 entityManager.merge(aFeature);
                 log.info("Updated feature {} in project {}", aFeature, aFeature.getProject());
             }
+
+            schemaChanged(aFeature.getProject());
         }
     }
 
@@ -880,6 +901,8 @@ public class AnnotationSchemaServiceImpl
                     entityManager.contains(aFeature) ? aFeature : entityManager.merge(aFeature));
 
             log.info("Removed feature {} from project {}", aFeature, aFeature.getProject());
+
+            schemaChanged(aFeature.getProject());
         }
     }
 
@@ -910,6 +933,8 @@ public class AnnotationSchemaServiceImpl
 
             Project project = aLayer.getProject();
             log.info("Removed layer {} from project {}", aLayer, project);
+
+            schemaChanged(project);
         }
     }
 
@@ -1096,6 +1121,15 @@ public class AnnotationSchemaServiceImpl
     public TypeSystemDescription getFullProjectTypeSystem(Project aProject,
             boolean aIncludeInternalTypes)
         throws ResourceInitializationException
+    {
+        // Callers may modify the type system description, so we must not hand out the cached one
+        return (TypeSystemDescription) getProjectTypeSystem(aProject, aIncludeInternalTypes)
+                .getDescription().clone();
+    }
+
+    private TypeSystemDescription buildFullProjectTypeSystem(Project aProject,
+            boolean aIncludeInternalTypes)
+        throws ResourceInitializationException
     {
         List<TypeSystemDescription> typeSystems = new ArrayList<>();
 
@@ -1115,6 +1149,64 @@ public class AnnotationSchemaServiceImpl
         return mergeTypeSystems(typeSystems);
     }
 
+    /**
+     * Obtains the full type system of the project from the cache. The cache is keyed by the
+     * schema version of the project which changes whenever layers or features are modified.
+     * Projects which have not been persisted yet bypass the cache.
+     */
+    private ProjectTypeSystem getProjectTypeSystem(Project aProject,
+            boolean aIncludeInternalTypes)
+        throws ResourceInitializationException
+    {
+        if (aProject.getId() == null) {
+            return new ProjectTypeSystem(
+                    buildFullProjectTypeSystem(aProject, aIncludeInternalTypes));
+        }
+
+        ProjectTypeSystemKey key = new ProjectTypeSystemKey(aProject.getId(),
+                getSchemaVersion(aProject), aIncludeInternalTypes);
+        ProjectTypeSystem projectTypeSystem = projectTypeSystemCache.getIfPresent(key);
+        if (projectTypeSystem == null) {
+            // If two threads build the same type system concurrently, the second one wins. Both
+            // are equivalent, so this is not a problem.
+            projectTypeSystem = new ProjectTypeSystem(
+                    buildFullProjectTypeSystem(aProject, aIncludeInternalTypes));
+            projectTypeSystemCache.put(key, projectTypeSystem);
+        }
+
+        return projectTypeSystem;
+    }
+
+    private long getSchemaVersion(Project aProject)
+    {
+        return schemaVersions.computeIfAbsent(aProject.getId(),
+                id -> nextSchemaVersion.incrementAndGet());
+    }
+
+    /**
+     * Moves the project to a new schema version such that its type system is rebuilt the next time
+     * it is requested. This is called when the layers or features of the project are changed
+     * through this service and again when the {@link LayerConfigurationChangedEvent} is received.
+     * The latter ensures that a type system which has been built from the database while the
+     * change was not committed yet is not used any further.
+     */
+    private void schemaChanged(Project aProject)
+    {
+        if (aProject == null || aProject.getId() == null) {
+            return;
+        }
+
+        schemaVersions.put(aProject.getId(), nextSchemaVersion.incrementAndGet());
+        projectTypeSystemCache.asMap().keySet()
+                .removeIf(key -> key.projectId == aProject.getId());
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        schemaChanged(aEvent.getProject());
+    }
+
     @Override
     public void upgradeCas(CAS aCas, AnnotationDocument aAnnotationDocument)
         throws UIMAException, IOException
@@ -1163,8 +1255,7 @@ public class AnnotationSchemaServiceImpl
     @Override
     public void upgradeCas(CAS aCas, Project aProject) throws UIMAException, IOException
     {
-        TypeSystemDescription ts = getFullProjectTypeSystem(aProject);
-        upgradeCas(aCas, ts);
+        upgradeCas(aCas, aCas, getProjectTypeSystem(aProject, true).getTypeSystem());
     }
 
     @Override
@@ -1185,7 +1276,7 @@ public class AnnotationSchemaServiceImpl
     public boolean upgradeCasIfRequired(Iterable<CAS> aCasIter, Project aProject)
         throws UIMAException, IOException
     {
-        TypeSystemDescription ts = getFullProjectTypeSystem(aProject);
+        ProjectTypeSystem projectTypeSystem = getProjectTypeSystem(aProject, true);
 
         // Check if the current CAS already contains the required type system
         boolean upgradePerformed = false;
@@ -1198,8 +1289,15 @@ public class AnnotationSchemaServiceImpl
             // eventually figure out that no upgrade is required.
             CasStorageSession.get().assertWritingPermitted(cas);
 
-            if (isUpgradeRequired(cas, ts)) {
-                upgradeCas(cas, ts);
+            // UIMA re-uses committed type systems, so CASes which have already been upgraded to
+            // the current project type system share it and we can skip the detailed check
+            TypeSystem ts = projectTypeSystem.getTypeSystem();
+            if (cas.getTypeSystem() == ts) {
+                continue nextCas;
+            }
+
+            if (isUpgradeRequired(cas, projectTypeSystem.getDescription())) {
+                upgradeCas(cas, cas, ts);
                 upgradePerformed = true;
             }
         }
@@ -1222,9 +1320,18 @@ public class AnnotationSchemaServiceImpl
     @Override
     public void upgradeCas(CAS aSourceCas, CAS aTargetCas, TypeSystemDescription aTargetTypeSystem)
         throws UIMAException, IOException
+    {
+        upgradeCas(aSourceCas, aTargetCas, CasFactory.createCas(aTargetTypeSystem).getTypeSystem());
+    }
+
+    @Override
+    public void upgradeCas(CAS aSourceCas, CAS aTargetCas, TypeSystem aTargetTypeSystem)
+        throws UIMAException, IOException
     {
         CasStorageSession.get().assertWritingPermitted(aTargetCas);
 
+        long start = System.nanoTime();
+
         // Save source CAS type system (do this early since we might do an in-place upgrade)
         TypeSystem sourceTypeSystem = aSourceCas.getTypeSystem();
 
@@ -1240,14 +1347,24 @@ public class AnnotationSchemaServiceImpl
         CAS realTargetCas = getRealCas(aTargetCas);
         // UIMA-6162 Workaround: synchronize CAS during de/serialization
         synchronized (((CASImpl) realTargetCas).getBaseCAS()) {
-            CAS tempCas = CasFactory.createCas(aTargetTypeSystem);
-            CASCompleteSerializer serializer = serializeCASComplete((CASImpl) tempCas);
-            deserializeCASComplete(serializer, (CASImpl) realTargetCas);
+            // If the target CAS is a different CAS which already uses the target type system (e.g.
+            // because it is re-used for multiple upgrades), it only needs to be emptied
+            if (realSourceCas != realTargetCas
+                    && realTargetCas.getTypeSystem() == aTargetTypeSystem) {
+                realTargetCas.reset();
+            }
+            else {
+                CAS tempCas = CasCreationUtils.createCas(aTargetTypeSystem, null, null, null);
+                CASCompleteSerializer serializer = serializeCASComplete((CASImpl) tempCas);
+                deserializeCASComplete(serializer, (CASImpl) realTargetCas);
+            }
 
             // Leniently load the source CAS contents into the target CAS
             CasIOUtils.load(new ByteArrayInputStream(serializedCasContents.toByteArray()),
                     getRealCas(aTargetCas), sourceTypeSystem);
         }
+
+        CAS_UPGRADE_TIMER.recordSince(start);
     }
 
     /**
@@ -1516,4 +1633,67 @@ public class AnnotationSchemaServiceImpl
         }
         return result;
     }
+
+    private static final class ProjectTypeSystemKey
+    {
+        private final long projectId;
+        private final long schemaVersion;
+        private final boolean includeInternalTypes;
+
+        public ProjectTypeSystemKey(long aProjectId, long aSchemaVersion,
+                boolean aIncludeInternalTypes)
+        {
+            projectId = aProjectId;
+            schemaVersion = aSchemaVersion;
+            includeInternalTypes = aIncludeInternalTypes;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof ProjectTypeSystemKey)) {
+                return false;
+            }
+            ProjectTypeSystemKey other = (ProjectTypeSystemKey) aOther;
+            return projectId == other.projectId && schemaVersion == other.schemaVersion
+                    && includeInternalTypes == other.includeInternalTypes;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(projectId, schemaVersion, includeInternalTypes);
+        }
+    }
+
+    /**
+     * The type system description of a project and the type system compiled from it. The compiled
+     * type system is shared by all CASes created or upgraded for the project.
+     */
+    private static final class ProjectTypeSystem
+    {
+        private final TypeSystemDescription description;
+        private TypeSystem typeSystem;
+
+        public ProjectTypeSystem(TypeSystemDescription aDescription)
+        {
+            description = aDescription;
+        }
+
+        public TypeSystemDescription getDescription()
+        {
+            return description;
+        }
+
+        public synchronized TypeSystem getTypeSystem() throws ResourceInitializationException
+        {
+            if (typeSystem == null) {
+                typeSystem = CasFactory.createCas(description).getTypeSystem();
+            }
+            return typeSystem;
+        }
+    }
 }
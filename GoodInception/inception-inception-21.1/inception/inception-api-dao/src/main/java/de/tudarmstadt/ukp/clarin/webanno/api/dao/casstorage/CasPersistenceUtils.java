@@ -21,12 +21,23 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUt
 import static org.apache.uima.cas.impl.Serialization.deserializeCASComplete;
 import static org.apache.uima.cas.impl.Serialization.serializeCASComplete;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.uima.cas.CAS;
@@ -34,6 +45,8 @@ import org.apache.uima.cas.SerialFormat;
 import org.apache.uima.cas.impl.CASCompleteSerializer;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasLoadMode;
 import org.apache.uima.util.TypeSystemUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +58,20 @@ public final class CasPersistenceUtils
 {
     private final static Logger LOG = LoggerFactory.getLogger(CasPersistenceUtils.class);
 
+    /**
+     * Magic number at the start of compact CAS files ("ICAS"). Java serialization streams as used
+     * by the legacy format always start with {@code 0xACED}, so the two formats can be told apart
+     * by looking at the first four bytes of a file.
+     */
+    public static final int COMPACT_CAS_MAGIC = 0x49434153;
+    public static final int COMPACT_CAS_VERSION = 2;
+
+    /**
+     * Version 1 of the compact format stored the CAS in compressed binary form 6. That form does
+     * not preserve the IDs of feature structures, so it is only still supported for reading.
+     */
+    private static final int COMPACT_CAS_VERSION_FORM_6 = 1;
+
     private CasPersistenceUtils()
     {
         // No instances
@@ -83,6 +110,213 @@ public final class CasPersistenceUtils
         }
     }
 
+    /**
+     * Writes the CAS in the self-contained legacy format (Java-serialized
+     * {@link CASCompleteSerializer}) to the given stream. This is used e.g. when exporting a CAS
+     * which is stored in the compact format, because the exported data must not depend on a type
+     * system file stored elsewhere in the repository.
+     */
+    public static void writeSerializedCas(CAS aCas, OutputStream aStream) throws IOException
+    {
+        CAS realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            ObjectOutputStream os = new ObjectOutputStream(aStream);
+            os.writeObject(serializeCASComplete((CASImpl) realCas));
+            os.flush();
+        }
+    }
+
+    /**
+     * Writes the CAS in the compact format. The file consists of a small header holding the ID of
+     * the type system, the length and the CRC32 checksum of the payload followed by the payload
+     * itself which is the GZIP-compressed CAS in binary form 0 (without type system). The type
+     * system must be stored separately by the caller (cf. {@link #writeTypeSystem(CAS,
+     * OutputStream)}) and needs to be provided again when reading the CAS.
+     * <p>
+     * Binary form 0 is also used internally by the {@link CASCompleteSerializer} of the serialized
+     * format. Like that format, it preserves the IDs of the feature structures which are used
+     * e.g. as VIDs, so these remain stable when a CAS is saved and loaded again.
+     * <p>
+     * After writing, the file is read back from disk, its checksum is verified and the CAS is
+     * deserialized again to ensure that the CAS can actually be loaded.
+     */
+    public static void writeCompactCas(CAS aCas, String aTypeSystemId, File aFile)
+        throws IOException
+    {
+        FileUtils.forceMkdir(aFile.getParentFile());
+
+        CAS realCas = getRealCas(aCas);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (OutputStream os = new GZIPOutputStream(payload)) {
+                CasIOUtils.save(realCas, os, SerialFormat.BINARY);
+            }
+            catch (Exception e) {
+                if (LOG.isDebugEnabled()) {
+                    preserveForDebugging(aFile, aCas, null);
+                }
+                throw new IOException(e);
+            }
+        }
+
+        byte[] data = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        long checksum = crc.getValue();
+
+        try (DataOutputStream os = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(aFile)))) {
+            os.writeInt(COMPACT_CAS_MAGIC);
+            os.writeInt(COMPACT_CAS_VERSION);
+            os.writeUTF(aTypeSystemId);
+            os.writeInt(data.length);
+            os.writeLong(checksum);
+            os.write(data);
+        }
+
+        // BEGIN SAFEGUARD --------------
+        // Safeguard that we do NOT write a CAS which can afterwards not be read and thus would
+        // render the document broken within the project. The CAS written to disk is loaded into
+        // a CAS using the same type system as the CAS we wrote.
+        try (DataInputStream is = openCompactCas(aFile)) {
+            int version = readCompactCasVersion(is, aFile);
+            is.readUTF();
+            byte[] written = readCompactCasPayload(is, aFile);
+            CAS dummy = CasCreationUtils.createCas(realCas.getTypeSystem(), null, null, null);
+            loadCompactCasPayload(dummy, version, written, null, CasLoadMode.DEFAULT);
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            if (LOG.isDebugEnabled()) {
+                preserveForDebugging(aFile, aCas, null);
+            }
+            throw new IOException(e);
+        }
+        // END SAFEGUARD --------------
+    }
+
+    /**
+     * Reads a CAS which has been stored in the compact format.
+     * 
+     * @param aCas
+     *            the CAS to load the data into. The type system of the CAS is replaced with the
+     *            one read from the type system stream.
+     * @param aFile
+     *            the compact CAS file.
+     * @param aTypeSystemLoader
+     *            provides the serialized type system for the type system ID recorded in the file.
+     */
+    public static void readCompactCas(CAS aCas, File aFile, TypeSystemLoader aTypeSystemLoader)
+        throws IOException
+    {
+        byte[] payload;
+        int version;
+        String typeSystemId;
+        try (DataInputStream is = openCompactCas(aFile)) {
+            version = readCompactCasVersion(is, aFile);
+            typeSystemId = is.readUTF();
+            payload = readCompactCasPayload(is, aFile);
+        }
+
+        CAS realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (InputStream tsi = aTypeSystemLoader.load(typeSystemId)) {
+                loadCompactCasPayload(realCas, version, payload, tsi, CasLoadMode.REINIT);
+            }
+
+            removeSurplusDocumentAnnotations(aCas);
+        }
+    }
+
+    private static void loadCompactCasPayload(CAS aCas, int aVersion, byte[] aPayload,
+            InputStream aTypeSystem, CasLoadMode aMode)
+        throws IOException
+    {
+        if (aVersion == COMPACT_CAS_VERSION_FORM_6) {
+            CasIOUtils.load(new ByteArrayInputStream(aPayload), aTypeSystem, aCas, aMode);
+            return;
+        }
+
+        try (InputStream is = new BufferedInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(aPayload)))) {
+            CasIOUtils.load(is, aTypeSystem, aCas, aMode);
+        }
+    }
+
+    /**
+     * Writes the type system and index definitions of the given CAS in the form expected by
+     * {@link #readCompactCas}.
+     */
+    public static void writeTypeSystem(CAS aCas, OutputStream aStream) throws IOException
+    {
+        CasIOUtils.writeTypeSystem(getRealCas(aCas), aStream, true);
+    }
+
+    /**
+     * @return whether the given file is a CAS stored in the compact format.
+     */
+    public static boolean isCompactCas(File aFile) throws IOException
+    {
+        if (!aFile.exists() || aFile.length() < 4) {
+            return false;
+        }
+
+        try (DataInputStream is = new DataInputStream(new FileInputStream(aFile))) {
+            return is.readInt() == COMPACT_CAS_MAGIC;
+        }
+    }
+
+    private static DataInputStream openCompactCas(File aFile) throws IOException
+    {
+        DataInputStream is = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(aFile)));
+        try {
+            if (is.readInt() != COMPACT_CAS_MAGIC) {
+                throw new IOException("File [" + aFile + "] is not a compact CAS file");
+            }
+
+            return is;
+        }
+        catch (IOException e) {
+            is.close();
+            throw e;
+        }
+    }
+
+    private static int readCompactCasVersion(DataInputStream aStream, File aFile)
+        throws IOException
+    {
+        int version = aStream.readInt();
+        if (version != COMPACT_CAS_VERSION && version != COMPACT_CAS_VERSION_FORM_6) {
+            throw new IOException("Unsupported compact CAS file version [" + version
+                    + "] in file [" + aFile + "]");
+        }
+        return version;
+    }
+
+    private static byte[] readCompactCasPayload(DataInputStream aStream, File aFile)
+        throws IOException
+    {
+        int length = aStream.readInt();
+        long expectedChecksum = aStream.readLong();
+        byte[] data = new byte[length];
+        aStream.readFully(data);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != expectedChecksum) {
+            throw new IOException("Checksum mismatch in compact CAS file [" + aFile
+                    + "] - the file appears to be corrupt");
+        }
+
+        return data;
+    }
+
     private static void preserveForDebugging(File aFile, CAS aCas,
             CASCompleteSerializer aSerializer)
     {
@@ -104,6 +338,10 @@ public final class CasPersistenceUtils
             LOG.error("Debug type system serialization failed: {}", e2.getMessage(), e2);
         }
 
+        if (aSerializer == null) {
+            return;
+        }
+
         try (ObjectOutputStream os = new ObjectOutputStream(
                 new FileOutputStream(new File(aFile.getPath() + ".borked-" + ts + ".ser")))) {
             os.writeObject(aSerializer);
@@ -122,19 +360,30 @@ public final class CasPersistenceUtils
                 CASCompleteSerializer serializer = (CASCompleteSerializer) is.readObject();
                 deserializeCASComplete(serializer, (CASImpl) realCas);
 
-                // Workaround for UIMA adding back deleted DocumentAnnotations
-                // https://issues.apache.org/jira/browse/UIMA-6199
-                // If there is a DocumentMetaData annotation, then we can drop any of the default
-                // UIMA DocumentAnnotation instances (excluding the DocumentMetaData of course)
-                if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
-                    aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION).filter(
-                            fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
-                            .forEach(aCas::removeFsFromIndexes);
-                }
+                removeSurplusDocumentAnnotations(aCas);
             }
             catch (ClassNotFoundException e) {
                 throw new IOException(e);
             }
         }
     }
+
+    private static void removeSurplusDocumentAnnotations(CAS aCas)
+    {
+        // Workaround for UIMA adding back deleted DocumentAnnotations
+        // https://issues.apache.org/jira/browse/UIMA-6199
+        // If there is a DocumentMetaData annotation, then we can drop any of the default
+        // UIMA DocumentAnnotation instances (excluding the DocumentMetaData of course)
+        if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
+            aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION).filter(
+                    fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
+                    .forEach(aCas::removeFsFromIndexes);
+        }
+    }
+
+    @FunctionalInterface
+    public interface TypeSystemLoader
+    {
+        InputStream load(String aTypeSystemId) throws IOException;
+    }
 }
@@ -27,9 +27,10 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHA
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.UNMANAGED_ACCESS;
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.UNMANAGED_NON_INITIALIZING_ACCESS;
 import static de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageServiceImpl.RepairAndUpgradeFlags.ISOLATED_SESSION;
-import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 import static java.util.Collections.newSetFromMap;
 import static java.util.Collections.synchronizedSet;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.apache.commons.lang3.ArrayUtils.contains;
 
 import java.io.File;
@@ -76,6 +77,8 @@ import de.tudarmstadt.ukp.clarin.webanno.diag.CasDoctor;
 import de.tudarmstadt.ukp.clarin.webanno.diag.CasDoctorException;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 
 /**
  * <p>
@@ -86,6 +89,13 @@ import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 public class CasStorageServiceImpl
     implements CasStorageService
 {
+    private static final Timer CAS_READ_DISK_TIMER = Metrics.timer("inception_cas_read",
+            "Time spent loading a CAS into memory", "source", "disk");
+    private static final Timer CAS_READ_IMPORTER_TIMER = Metrics.timer("inception_cas_read",
+            "Time spent loading a CAS into memory", "source", "importer");
+    private static final Timer CAS_WRITE_TIMER = Metrics.timer("inception_cas_write",
+            "Time spent analyzing and writing a CAS to the storage");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final CasDoctor casDoctor;
@@ -525,10 +535,11 @@ public class CasStorageServiceImpl
             CasProvider aSupplier, CasUpgradeMode aUpgradeMode)
         throws IOException
     {
-        long start = currentTimeMillis();
+        long start = nanoTime();
 
         CAS cas;
         String source;
+        Timer timer;
 
         // If the CAS exists on disk already, load it from there
         if (driver.existsCas(aDocument, aUsername)) {
@@ -540,6 +551,7 @@ public class CasStorageServiceImpl
             repairAndUpgradeCasIfRequired(aDocument, aUsername, cas, aUpgradeMode,
                     ISOLATED_SESSION);
             source = "disk";
+            timer = CAS_READ_DISK_TIMER;
         }
         // If the CAS does NOT exist on disk, try obtaining it through the given CAS provider
         else if (aSupplier != null) {
@@ -547,6 +559,7 @@ public class CasStorageServiceImpl
             repairAndUpgradeCasIfRequired(aDocument, aUsername, cas, aUpgradeMode);
             realWriteCas(aDocument, aUsername, cas);
             source = "importer";
+            timer = CAS_READ_IMPORTER_TIMER;
         }
         // If no CAS provider is given, fail
         else {
@@ -561,7 +574,8 @@ public class CasStorageServiceImpl
                                 + "] of user [" + aUsername + "]"))
                 .getTimestamp(), aDocument, aUsername);
 
-        long duration = currentTimeMillis() - start;
+        timer.recordSince(start);
+        long duration = NANOSECONDS.toMillis(nanoTime() - start);
         log.debug("Loaded CAS [{}] [{},{}] from {} in {}ms", cas.hashCode(), aDocument.getId(),
                 aUsername, source, duration);
 
@@ -1008,8 +1022,12 @@ public class CasStorageServiceImpl
     private void realWriteCas(SourceDocument aDocument, String aUserName, CAS aCas)
         throws IOException
     {
+        long start = nanoTime();
+
         analyze(aDocument.getProject(), aDocument.getName(), aDocument.getId(), aUserName, aCas);
 
         driver.writeCas(aDocument, aUserName, aCas);
+
+        CAS_WRITE_TIMER.recordSince(start);
     }
 }
@@ -25,7 +25,10 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasMetadataUt
 import static java.lang.System.currentTimeMillis;
 import static java.nio.file.Files.move;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.MINUTES;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
@@ -33,8 +36,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
+import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,9 +52,13 @@ import org.apache.commons.io.comparator.LastModifiedFileComparator;
 import org.apache.commons.lang3.Validate;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.config.BackupProperties;
@@ -58,17 +70,47 @@ public class FileSystemCasStorageDriver
 {
     public static final String SER_CAS_EXTENSION = ".ser";
     public static final String OLD_EXTENSION = ".old";
+    public static final String TYPE_SYSTEM_FOLDER = "cas-typesystems";
+    public static final String TYPE_SYSTEM_EXTENSION = ".tsi";
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final RepositoryProperties repositoryProperties;
     private final BackupProperties backupProperties;
+    private final CasStorageFormat format;
+
+    /**
+     * Caches the ID of the serialized type system per type system instance so that the type system
+     * does not need to be serialized and hashed on every write in {@link CasStorageFormat#COMPACT}
+     * mode.
+     */
+    private final Map<TypeSystem, TypeSystemInfo> typeSystemIds = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Recently used serialized type systems by ID. The IDs are content hashes, so the entries never
+     * go stale, but every change to the layer configuration of a project produces a new type
+     * system, so the cache needs to be bounded.
+     */
+    private final Cache<String, byte[]> typeSystemData;
 
     public FileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
             BackupProperties aBackupProperties)
+    {
+        this(aRepositoryProperties, aBackupProperties, CasStorageFormat.SERIALIZED);
+    }
+
+    public FileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
+            BackupProperties aBackupProperties, CasStorageFormat aFormat)
     {
         repositoryProperties = aRepositoryProperties;
         backupProperties = aBackupProperties;
+        format = aFormat;
+
+        typeSystemData = Caffeine.newBuilder().expireAfterAccess(5, MINUTES).maximumSize(256)
+                .build();
+
+        log.info("CAS storage format: {}", format);
 
         if (backupProperties.getInterval() > 0) {
             log.info("CAS backups enabled - interval: {}sec  max-backups: {}  max-age: {}sec",
@@ -114,7 +156,14 @@ public class FileSystemCasStorageDriver
         }
 
         try {
-            CasPersistenceUtils.readSerializedCas(cas, casFile);
+            if (CasPersistenceUtils.isCompactCas(casFile)) {
+                long projectId = aDocument.getProject().getId();
+                CasPersistenceUtils.readCompactCas(cas, casFile,
+                        tsId -> new ByteArrayInputStream(readTypeSystem(projectId, tsId)));
+            }
+            else {
+                CasPersistenceUtils.readSerializedCas(cas, casFile);
+            }
             // Add/update the CAS metadata
             CasMetadataUtils.addOrUpdateCasMetadata(cas, casFile.lastModified(), aDocument, aUser);
         }
@@ -157,7 +206,7 @@ public class FileSystemCasStorageDriver
             // Now write the new version to "<username>.ser" or CURATION_USER.ser
             long start = currentTimeMillis();
             setDocumentId(aCas, aUserName);
-            writeSerializedCas(aCas, currentVersion);
+            writeCas(aDocument, aCas, currentVersion);
             long duration = currentTimeMillis() - start;
 
             log.debug(
@@ -348,6 +397,13 @@ public class FileSystemCasStorageDriver
         Validate.notNull(aDocument, "Source document must be specified");
         Validate.notBlank(aUser, "User must be specified");
 
+        // Compact CAS files depend on the project type system file, so we export them in the
+        // self-contained serialized format instead
+        if (CasPersistenceUtils.isCompactCas(getCasFile(aDocument, aUser))) {
+            CasPersistenceUtils.writeSerializedCas(readCas(aDocument, aUser), aStream);
+            return;
+        }
+
         try (InputStream is = Files.newInputStream(getCasFile(aDocument, aUser).toPath())) {
             IOUtils.copyLarge(is, aStream);
         }
@@ -370,9 +426,113 @@ public class FileSystemCasStorageDriver
         return new File(getAnnotationFolder(aProjectId, aDocumentId), aUser + SER_CAS_EXTENSION);
     }
 
-    private void writeSerializedCas(CAS aCas, File aFile) throws IOException
+    private void writeCas(SourceDocument aDocument, CAS aCas, File aFile) throws IOException
+    {
+        switch (format) {
+        case COMPACT:
+            String typeSystemId = writeTypeSystem(aDocument.getProject().getId(), aCas);
+            CasPersistenceUtils.writeCompactCas(aCas, typeSystemId, aFile);
+            break;
+        case SERIALIZED: // fall-through
+        default:
+            CasPersistenceUtils.writeSerializedCas(aCas, aFile);
+            break;
+        }
+    }
+
+    private File getTypeSystemFolder(long aProjectId) throws IOException
     {
-        CasPersistenceUtils.writeSerializedCas(aCas, aFile);
+        File typeSystemFolder = new File(repositoryProperties.getPath(),
+                "/" + PROJECT_FOLDER + "/" + aProjectId + "/" + TYPE_SYSTEM_FOLDER);
+        FileUtils.forceMkdir(typeSystemFolder);
+        return typeSystemFolder;
+    }
+
+    /**
+     * Makes sure the type system of the given CAS is stored in the project and returns its ID.
+     * Since the ID is a hash over the serialized type system, all CASes of a project which share
+     * the same type system also share the same type system file.
+     */
+    private String writeTypeSystem(long aProjectId, CAS aCas) throws IOException
+    {
+        TypeSystemInfo info = typeSystemIds.get(aCas.getTypeSystem());
+        if (info == null) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            CasPersistenceUtils.writeTypeSystem(aCas, bos);
+            byte[] data = bos.toByteArray();
+            info = new TypeSystemInfo(sha256(data), data);
+            typeSystemIds.put(aCas.getTypeSystem(), info);
+            typeSystemData.put(info.id, data);
+        }
+
+        File tsFile = new File(getTypeSystemFolder(aProjectId), info.id + TYPE_SYSTEM_EXTENSION);
+        if (!tsFile.exists()) {
+            // Write to a temporary file first and then move it into place so that concurrent
+            // readers never see a partially written type system
+            File tmpFile = File.createTempFile(info.id, ".tmp", tsFile.getParentFile());
+            try {
+                FileUtils.writeByteArrayToFile(tmpFile, info.data);
+                move(tmpFile.toPath(), tsFile.toPath(), REPLACE_EXISTING);
+            }
+            finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+
+            log.debug("Stored type system [{}] for project [{}]", info.id, aProjectId);
+        }
+
+        return info.id;
+    }
+
+    private byte[] readTypeSystem(long aProjectId, String aTypeSystemId) throws IOException
+    {
+        byte[] data = typeSystemData.getIfPresent(aTypeSystemId);
+        if (data != null) {
+            return data;
+        }
+
+        File tsFile = new File(getTypeSystemFolder(aProjectId),
+                aTypeSystemId + TYPE_SYSTEM_EXTENSION);
+        if (!tsFile.exists()) {
+            throw new FileNotFoundException(
+                    "Type system [" + aTypeSystemId + "] not found in project [" + aProjectId
+                            + "]: [" + tsFile + "]");
+        }
+
+        data = FileUtils.readFileToByteArray(tsFile);
+        if (!aTypeSystemId.equals(sha256(data))) {
+            throw new IOException("Type system file [" + tsFile + "] appears to be corrupt");
+        }
+
+        typeSystemData.put(aTypeSystemId, data);
+        return data;
+    }
+
+    private static String sha256(byte[] aData)
+    {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(aData);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class TypeSystemInfo
+    {
+        private final String id;
+        private final byte[] data;
+
+        public TypeSystemInfo(String aId, byte[] aData)
+        {
+            id = aId;
+            data = aData;
+        }
     }
 
     @Override
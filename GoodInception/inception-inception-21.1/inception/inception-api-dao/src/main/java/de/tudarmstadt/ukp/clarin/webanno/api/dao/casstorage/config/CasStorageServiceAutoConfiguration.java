@@ -31,7 +31,8 @@ import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.FileSystemCasStorage
 import de.tudarmstadt.ukp.clarin.webanno.diag.CasDoctor;
 
 @Configuration
-@EnableConfigurationProperties({ CasStoragePropertiesImpl.class, BackupProperties.class })
+@EnableConfigurationProperties({ CasStoragePropertiesImpl.class, BackupProperties.class,
+        FileSystemCasStorageDriverProperties.class })
 public class CasStorageServiceAutoConfiguration
 {
     @Bean(CasStorageService.SERVICE_NAME)
@@ -46,8 +47,10 @@ public class CasStorageServiceAutoConfiguration
 
     @Bean
     CasStorageDriver fileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
-            BackupProperties aBackupProperties)
+            BackupProperties aBackupProperties,
+            FileSystemCasStorageDriverProperties aDriverProperties)
     {
-        return new FileSystemCasStorageDriver(aRepositoryProperties, aBackupProperties);
+        return new FileSystemCasStorageDriver(aRepositoryProperties, aBackupProperties,
+                aDriverProperties.getFormat());
     }
 }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.dao;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.EXCLUSIVE_WRITE_ACCESS;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.fit.factory.CasFactory;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+
+public class AnnotationSchemaServiceImplTest
+{
+    private AnnotationSchemaServiceImpl sut;
+    private Project project;
+    private CasStorageSession casStorageSession;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        sut = spy(new AnnotationSchemaServiceImpl());
+        doReturn(emptyList()).when(sut).listSupportedLayers(any());
+        doReturn(emptyList()).when(sut).listSupportedFeatures((Project) any());
+
+        project = new Project();
+        project.setId(1L);
+
+        casStorageSession = CasStorageSession.open();
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        casStorageSession.close();
+    }
+
+    @Test
+    public void thatProjectTypeSystemIsCachedUntilLayerConfigurationChanges() throws Exception
+    {
+        TypeSystemDescription tsd1 = sut.getFullProjectTypeSystem(project);
+        TypeSystemDescription tsd2 = sut.getFullProjectTypeSystem(project);
+
+        assertThat(tsd2) //
+                .as("Callers must get their own copy of the cached type system") //
+                .isNotSameAs(tsd1);
+        assertThat(tsd2.getTypes()).hasSameSizeAs(tsd1.getTypes());
+        verify(sut, times(1)).getCustomProjectTypes(project);
+
+        sut.onLayerConfigurationChanged(new LayerConfigurationChangedEvent(this, project));
+        sut.getFullProjectTypeSystem(project);
+
+        verify(sut, times(2)).getCustomProjectTypes(project);
+    }
+
+    @Test
+    public void thatCasesOfProjectShareCompiledTypeSystem() throws Exception
+    {
+        CAS cas1 = CasFactory.createCas();
+        casStorageSession.add("cas1", EXCLUSIVE_WRITE_ACCESS, cas1);
+        CAS cas2 = CasFactory.createCas();
+        casStorageSession.add("cas2", EXCLUSIVE_WRITE_ACCESS, cas2);
+
+        assertThat(sut.upgradeCasIfRequired(asList(cas1, cas2), project)) //
+                .as("CASes without internal types need to be upgraded") //
+                .isTrue();
+
+        TypeSystem ts = cas1.getTypeSystem();
+        assertThat(cas2.getTypeSystem()).isSameAs(ts);
+
+        assertThat(sut.upgradeCasIfRequired(asList(cas1, cas2), project)) //
+                .as("CASes already using the project type system do not need to be upgraded") //
+                .isFalse();
+
+        sut.upgradeCas(cas1, project);
+        assertThat(cas1.getTypeSystem()).isSameAs(ts);
+    }
+}
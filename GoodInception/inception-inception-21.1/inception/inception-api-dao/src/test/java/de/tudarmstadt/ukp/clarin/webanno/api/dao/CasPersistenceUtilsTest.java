@@ -17,9 +17,19 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.api.dao;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.getAddr;
+import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectFsByAddr;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.impl.CASImpl;
@@ -67,4 +77,105 @@ public class CasPersistenceUtilsTest
                 .extracting(fs -> fs.getType().getName())
                 .containsExactly(DocumentMetaData.class.getName());
     }
+
+    @Test
+    public void thatCompactCasCanBeWrittenAndRead() throws Exception
+    {
+        CAS cas = CasFactory.createText("This is a test.", "en");
+        cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 0, 4));
+        DocumentMetaData.create(cas).setDocumentId("doc");
+
+        ByteArrayOutputStream tsi = new ByteArrayOutputStream();
+        CasPersistenceUtils.writeTypeSystem(cas, tsi);
+
+        File file = testFolder.toPath().resolve("tempFile").toFile();
+        CasPersistenceUtils.writeCompactCas(cas, "ts1", file);
+
+        assertThat(CasPersistenceUtils.isCompactCas(file)).isTrue();
+
+        CAS cas2 = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+        CasPersistenceUtils.readCompactCas(cas2, file, tsId -> {
+            assertThat(tsId).isEqualTo("ts1");
+            return new ByteArrayInputStream(tsi.toByteArray());
+        });
+
+        assertThat(cas2.getDocumentText()).isEqualTo("This is a test.");
+        assertThat(cas2.select(CAS.TYPE_NAME_ANNOTATION).asList())
+                .extracting(fs -> fs.getType().getName())
+                .contains(CAS.TYPE_NAME_ANNOTATION, DocumentMetaData.class.getName());
+        assertThat(cas2.select(DocumentAnnotation.class).asList())
+                .extracting(fs -> fs.getType().getName())
+                .containsExactly(DocumentMetaData.class.getName());
+    }
+
+    @Test
+    public void thatCompactCasPreservesAddressesAfterDeletion() throws Exception
+    {
+        CAS cas = CasFactory.createText("This is a test.", "en");
+        DocumentMetaData.create(cas).setDocumentId("doc");
+        List<AnnotationFS> annotations = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            AnnotationFS ann = cas.createAnnotation(cas.getAnnotationType(), i, i + 1);
+            cas.addFsToIndexes(ann);
+            annotations.add(ann);
+        }
+
+        // Deleting an annotation leaves a gap in the addresses which must be retained
+        cas.removeFsFromIndexes(annotations.remove(1));
+
+        ByteArrayOutputStream tsi = new ByteArrayOutputStream();
+        CasPersistenceUtils.writeTypeSystem(cas, tsi);
+
+        File file = testFolder.toPath().resolve("tempFile").toFile();
+        CasPersistenceUtils.writeCompactCas(cas, "ts1", file);
+
+        CAS cas2 = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+        CasPersistenceUtils.readCompactCas(cas2, file,
+                tsId -> new ByteArrayInputStream(tsi.toByteArray()));
+
+        assertThat(cas2.select(CAS.TYPE_NAME_ANNOTATION).asList())
+                .extracting(fs -> getAddr(fs))
+                .containsAll(annotations.stream().map(fs -> getAddr(fs)).collect(toList()));
+        for (AnnotationFS ann : annotations) {
+            AnnotationFS reloaded = (AnnotationFS) selectFsByAddr(cas2, getAddr(ann));
+            assertThat(reloaded.getBegin()).isEqualTo(ann.getBegin());
+            assertThat(reloaded.getEnd()).isEqualTo(ann.getEnd());
+        }
+    }
+
+    @Test
+    public void thatSerializedCasIsNotDetectedAsCompactCas() throws Exception
+    {
+        CAS cas = CasFactory.createText("This is a test.", "en");
+
+        File file = testFolder.toPath().resolve("tempFile").toFile();
+        CasPersistenceUtils.writeSerializedCas(cas, file);
+
+        assertThat(CasPersistenceUtils.isCompactCas(file)).isFalse();
+    }
+
+    @Test
+    public void thatCorruptCompactCasIsDetected() throws Exception
+    {
+        CAS cas = CasFactory.createText("This is a test.", "en");
+
+        ByteArrayOutputStream tsi = new ByteArrayOutputStream();
+        CasPersistenceUtils.writeTypeSystem(cas, tsi);
+
+        File file = testFolder.toPath().resolve("tempFile").toFile();
+        CasPersistenceUtils.writeCompactCas(cas, "ts1", file);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xFF);
+        }
+
+        CAS cas2 = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> CasPersistenceUtils.readCompactCas(cas2, file,
+                        tsId -> new ByteArrayInputStream(tsi.toByteArray())))
+                .withMessageContaining("Checksum mismatch");
+    }
 }
@@ -18,13 +18,18 @@
 package de.tudarmstadt.ukp.clarin.webanno.api.export;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
 
 import de.tudarmstadt.ukp.clarin.webanno.export.model.ExportedProject;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.ZipUtils;
 
 public interface ProjectExporter
 {
@@ -42,6 +47,25 @@ public interface ProjectExporter
             ExportedProject aExProject, File aStage)
         throws Exception;
 
+    /**
+     * Exports the data directly into the project archive. Exporters producing large amounts of data
+     * should override this method. By default, the data is exported into a temporary staging folder
+     * which is added to the archive and deleted afterwards.
+     */
+    default void exportData(ProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            ExportedProject aExProject, ZipOutputStream aStage)
+        throws Exception
+    {
+        File stage = Files.createTempDirectory("webanno-project-export").toFile();
+        try {
+            exportData(aRequest, aMonitor, aExProject, stage);
+            ZipUtils.zipFolder(stage, aStage);
+        }
+        finally {
+            FileUtils.deleteQuietly(stage);
+        }
+    }
+
     void importData(ProjectImportRequest aRequest, Project aProject, ExportedProject aExProject,
             ZipFile aZip)
         throws Exception;
@@ -64,7 +64,6 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.flipkart.zjsonpatch.JsonDiff;
 import com.googlecode.wicket.jquery.ui.settings.JQueryUILibrarySettings;
 import com.googlecode.wicket.jquery.ui.widget.menu.IMenuItem;
 
@@ -97,6 +96,7 @@ import de.tudarmstadt.ukp.clarin.webanno.brat.message.SpanAnnotationResponse;
 import de.tudarmstadt.ukp.clarin.webanno.brat.message.VisualOptions;
 import de.tudarmstadt.ukp.clarin.webanno.brat.metrics.BratMetrics;
 import de.tudarmstadt.ukp.clarin.webanno.brat.metrics.BratMetrics.RenderType;
+import de.tudarmstadt.ukp.clarin.webanno.brat.render.BratDocumentDiff;
 import de.tudarmstadt.ukp.clarin.webanno.brat.render.BratRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.brat.render.model.Offsets;
 import de.tudarmstadt.ukp.clarin.webanno.brat.render.model.OffsetsList;
@@ -145,8 +145,9 @@ public class BratAnnotationEditor
     private WebMarkupContainer vis;
     private AbstractAjaxBehavior requestHandler;
 
-    private transient JsonNode lastRenederedJsonParsed;
-    private String lastRenderedJson;
+    // Not serialized with the page to keep the page state small. If the page is restored from
+    // the page store, the next rendering is simply a full rendering.
+    private transient JsonNode lastRenderedJsonParsed;
     private int lastRenderedWindowStart = -1;
 
     public BratAnnotationEditor(String id, IModel<AnnotatorState> aModel,
@@ -455,9 +456,9 @@ public class BratAnnotationEditor
         String json;
         if (getModelObject().getProject() != null) {
             render(response, aCas);
-            json = toJson(response);
-            lastRenderedJson = json;
-            lastRenederedJsonParsed = null;
+            JsonNode current = JSONUtil.getObjectMapper().valueToTree(response);
+            json = toJson(current);
+            lastRenderedJsonParsed = current;
         }
         else {
             json = toJson(response);
@@ -579,7 +580,6 @@ public class BratAnnotationEditor
         RenderType renderType = FULL;
         String cmd = "renderData";
         String responseJson = json;
-        JsonNode diff;
         String diffJsonStr = null;
 
         // Here, we try to balance server CPU load against network load. So if we have a chance
@@ -595,25 +595,15 @@ public class BratAnnotationEditor
 
         if (tryDifferentialUpdate) {
             // ... try to render diff
-            JsonNode previous = null;
-            try {
-                if (lastRenederedJsonParsed != null) {
-                    previous = lastRenederedJsonParsed;
-                }
-                else {
-                    previous = lastRenderedJson != null ? mapper.readTree(lastRenderedJson) : null;
-                }
-            }
-            catch (IOException e) {
-                LOG.error("Unable to generate diff, falling back to full render.", e);
-                // Fall-through
-            }
+            JsonNode previous = lastRenderedJsonParsed;
 
             if (previous != null && current != null) {
-                diff = JsonDiff.asJson(previous, current);
+                long diffStart = System.nanoTime();
+                ArrayNode diff = BratDocumentDiff.diff(previous, current);
+                metrics.diffComplete(System.nanoTime() - diffStart);
                 diffJsonStr = diff.toString();
 
-                if (diff instanceof ArrayNode && ((ArrayNode) diff).isEmpty()) {
+                if (diff.isEmpty()) {
                     // No difference? Well, don't render at all :)
                     renderType = SKIP;
                 }
@@ -632,9 +622,7 @@ public class BratAnnotationEditor
             }
         }
 
-        // Storing the last rendered JSON as string because JsonNodes are not serializable.
-        lastRenderedJson = json;
-        lastRenederedJsonParsed = current;
+        lastRenderedJsonParsed = current;
         lastRenderedWindowStart = aState.getWindowBeginOffset();
 
         timer.stop();
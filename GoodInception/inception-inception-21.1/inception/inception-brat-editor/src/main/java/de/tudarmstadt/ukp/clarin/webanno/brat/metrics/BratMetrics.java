@@ -25,4 +25,13 @@ public interface BratMetrics
     }
 
     void renderComplete(RenderType aType, long aTime, String aFull, String aDiff);
+
+    /**
+     * Records the time spent computing a differential update. This time is also included in the
+     * time reported via {@link #renderComplete}.
+     * 
+     * @param aTime
+     *            the time in nanoseconds.
+     */
+    void diffComplete(long aTime);
 }
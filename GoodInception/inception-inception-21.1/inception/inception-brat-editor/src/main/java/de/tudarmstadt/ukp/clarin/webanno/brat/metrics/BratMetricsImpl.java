@@ -46,85 +46,111 @@ public class BratMetricsImpl
     private long maxRenderTime = 0;
     private long lastRenderTime = 0;
 
+    private long diffTime = 0;
+    private long maxDiffTime = 0;
+    private long lastDiffTime = 0;
+
     @ManagedMetric(metricType = COUNTER)
-    public long getFullRenderCount()
+    public synchronized long getFullRenderCount()
     {
         return fullRenderCount;
     }
 
     @ManagedMetric(metricType = COUNTER, unit = "chars")
-    public long getFullRenderedSize()
+    public synchronized long getFullRenderedSize()
     {
         return fullRenderedSize;
     }
 
     @ManagedMetric(metricType = COUNTER)
-    public long getDiffRenderAttempts()
+    public synchronized long getDiffRenderAttempts()
     {
         return diffRenderAttempts;
     }
 
     @ManagedMetric(metricType = COUNTER)
-    public long getDiffRenderCount()
+    public synchronized long getDiffRenderCount()
     {
         return diffRenderCount;
     }
 
     @ManagedMetric(metricType = COUNTER, unit = "chars")
-    public long getDiffRenderedSize()
+    public synchronized long getDiffRenderedSize()
     {
         return diffRenderedSize;
     }
 
     @ManagedMetric(metricType = COUNTER)
-    public long getSkipRenderCount()
+    public synchronized long getSkipRenderCount()
     {
         return skipRenderCount;
     }
 
     @ManagedMetric(metricType = COUNTER, unit = "chars")
-    public long getSavedRenderedSize()
+    public synchronized long getSavedRenderedSize()
     {
         return savedRenderedSize;
     }
 
     @ManagedMetric(metricType = COUNTER, unit = "ms")
-    public long getRenderTime()
+    public synchronized long getRenderTime()
     {
         return renderTime;
     }
 
     @ManagedMetric(metricType = COUNTER, unit = "ms")
-    public long getMaxRenderTime()
+    public synchronized long getMaxRenderTime()
     {
         return maxRenderTime;
     }
 
     @ManagedMetric(metricType = COUNTER, unit = "ms")
-    public long getLastRenderTime()
+    public synchronized long getLastRenderTime()
     {
         return lastRenderTime;
     }
 
     @ManagedMetric(metricType = COUNTER, unit = "chars")
-    public long getSentRenderedSize()
+    public synchronized long getSentRenderedSize()
     {
         return sentRenderedSize;
     }
 
+    @ManagedMetric(metricType = COUNTER, unit = "ns")
+    public synchronized long getDiffTime()
+    {
+        return diffTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ns")
+    public synchronized long getMaxDiffTime()
+    {
+        return maxDiffTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ns")
+    public synchronized long getLastDiffTime()
+    {
+        return lastDiffTime;
+    }
+
     @ManagedOperation
-    public void reset()
+    public synchronized void reset()
     {
         fullRenderCount = 0;
         fullRenderedSize = 0;
         diffRenderAttempts = 0;
         diffRenderCount = 0;
         diffRenderedSize = 0;
+        skipRenderCount = 0;
         savedRenderedSize = 0;
         sentRenderedSize = 0;
         renderTime = 0;
         maxRenderTime = 0;
         lastRenderTime = 0;
+        diffTime = 0;
+        maxDiffTime = 0;
+        lastDiffTime = 0;
     }
 
     @Override
@@ -156,4 +182,12 @@ public class BratMetricsImpl
         maxRenderTime = Math.max(maxRenderTime, aTime);
         lastRenderTime = aTime;
     }
+
+    @Override
+    public synchronized void diffComplete(long aTime)
+    {
+        diffTime += aTime;
+        maxDiffTime = Math.max(maxDiffTime, aTime);
+        lastDiffTime = aTime;
+    }
 }
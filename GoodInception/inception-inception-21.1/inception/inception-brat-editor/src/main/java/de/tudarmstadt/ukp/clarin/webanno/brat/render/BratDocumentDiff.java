@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.brat.render;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Computes a JSON Patch (RFC 6902) between two rendered brat documents.
+ * <p>
+ * Unlike a generic JSON diff, this diff makes use of the structure of the brat document: entities,
+ * relations, etc. are rendered as arrays whose first element is the {@code VID} of the annotation.
+ * Such arrays are matched by their VID in linear time instead of computing the longest common
+ * subsequence of the two arrays. Objects are compared field by field. Any other changed value is
+ * replaced as a whole.
+ * </p>
+ */
+public final class BratDocumentDiff
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private BratDocumentDiff()
+    {
+        // No instances
+    }
+
+    /**
+     * @param aPrevious
+     *            the previously rendered document.
+     * @param aCurrent
+     *            the currently rendered document.
+     * @return the patch operations turning the previous document into the current one. If the
+     *         documents are equal, the patch is empty.
+     */
+    public static ArrayNode diff(JsonNode aPrevious, JsonNode aCurrent)
+    {
+        ArrayNode patch = FACTORY.arrayNode();
+        diff(patch, "", aPrevious, aCurrent);
+        return patch;
+    }
+
+    private static void diff(ArrayNode aPatch, String aPath, JsonNode aPrevious, JsonNode aCurrent)
+    {
+        if (aPrevious.isObject() && aCurrent.isObject()) {
+            diffObject(aPatch, aPath, aPrevious, aCurrent);
+            return;
+        }
+
+        if (aPrevious.equals(aCurrent)) {
+            return;
+        }
+
+        if (aPrevious.isArray() && aCurrent.isArray()
+                && diffKeyedArray(aPatch, aPath, aPrevious, aCurrent)) {
+            return;
+        }
+
+        aPatch.add(operation("replace", aPath, aCurrent));
+    }
+
+    private static void diffObject(ArrayNode aPatch, String aPath, JsonNode aPrevious,
+            JsonNode aCurrent)
+    {
+        Iterator<String> previousFields = aPrevious.fieldNames();
+        while (previousFields.hasNext()) {
+            String field = previousFields.next();
+            if (!aCurrent.has(field)) {
+                aPatch.add(operation("remove", aPath + "/" + escape(field), null));
+            }
+        }
+
+        Iterator<Entry<String, JsonNode>> currentFields = aCurrent.fields();
+        while (currentFields.hasNext()) {
+            Entry<String, JsonNode> field = currentFields.next();
+            String path = aPath + "/" + escape(field.getKey());
+            JsonNode previous = aPrevious.get(field.getKey());
+            if (previous == null) {
+                aPatch.add(operation("add", path, field.getValue()));
+            }
+            else {
+                diff(aPatch, path, previous, field.getValue());
+            }
+        }
+    }
+
+    /**
+     * Matches the elements of the two arrays by their key (the first element of each element).
+     * 
+     * @return {@code false} if the arrays cannot be matched by key, e.g. because an element has no
+     *         key, a key is not unique or the matched elements were re-ordered. In this case, no
+     *         operations are added to the patch.
+     */
+    private static boolean diffKeyedArray(ArrayNode aPatch, String aPath, JsonNode aPrevious,
+            JsonNode aCurrent)
+    {
+        Set<JsonNode> previousKeys = keys(aPrevious);
+        Set<JsonNode> currentKeys = keys(aCurrent);
+        if (previousKeys == null || currentKeys == null) {
+            return false;
+        }
+
+        List<JsonNode> operations = new ArrayList<>();
+
+        // Remove elements which no longer exist - back to front so the indexes remain valid
+        for (int i = aPrevious.size() - 1; i >= 0; i--) {
+            if (!currentKeys.contains(aPrevious.get(i).get(0))) {
+                operations.add(operation("remove", aPath + "/" + i, null));
+            }
+        }
+
+        List<JsonNode> retained = new ArrayList<>();
+        for (JsonNode element : aPrevious) {
+            if (currentKeys.contains(element.get(0))) {
+                retained.add(element);
+            }
+        }
+
+        // Walk the current elements, replacing changed ones and inserting new ones
+        int r = 0;
+        for (int i = 0; i < aCurrent.size(); i++) {
+            JsonNode element = aCurrent.get(i);
+            JsonNode key = element.get(0);
+            if (r < retained.size() && retained.get(r).get(0).equals(key)) {
+                if (!retained.get(r).equals(element)) {
+                    operations.add(operation("replace", aPath + "/" + i, element));
+                }
+                r++;
+            }
+            else if (previousKeys.contains(key)) {
+                // Element has moved - give up and let the caller replace the whole array
+                return false;
+            }
+            else {
+                operations.add(operation("add", aPath + "/" + i, element));
+            }
+        }
+
+        aPatch.addAll(operations);
+        return true;
+    }
+
+    private static Set<JsonNode> keys(JsonNode aArray)
+    {
+        Set<JsonNode> keys = new HashSet<>();
+        for (JsonNode element : aArray) {
+            if (!element.isArray() || element.size() == 0 || !element.get(0).isValueNode()) {
+                return null;
+            }
+
+            if (!keys.add(element.get(0))) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    private static ObjectNode operation(String aOp, String aPath, JsonNode aValue)
+    {
+        ObjectNode operation = FACTORY.objectNode();
+        operation.put("op", aOp);
+        operation.put("path", aPath);
+        if (aValue != null) {
+            operation.set("value", aValue);
+        }
+        return operation;
+    }
+
+    private static String escape(String aField)
+    {
+        return aField.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.brat.render;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.flipkart.zjsonpatch.JsonPatch;
+
+public class BratDocumentDiffTest
+{
+    private ObjectMapper mapper;
+    private JsonNode base;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        mapper = new ObjectMapper();
+        base = read("src/test/resources/brat_normal.json");
+    }
+
+    @Test
+    public void thatEqualDocumentsProduceEmptyPatch() throws Exception
+    {
+        assertThat(BratDocumentDiff.diff(base, base.deepCopy())).isEmpty();
+    }
+
+    @Test
+    public void thatAddedEntityProducesSingleOperation() throws Exception
+    {
+        JsonNode target = read("src/test/resources/brat_added_entity_near_middle.json");
+
+        ArrayNode patch = BratDocumentDiff.diff(base, target);
+
+        assertThat(patch).hasSize(1);
+        assertThat(patch.get(0).get("op").asText()).isEqualTo("add");
+        assertThat(JsonPatch.apply(patch, base)).isEqualTo(target);
+    }
+
+    @Test
+    public void thatRemovedEntitiesAreApplicable() throws Exception
+    {
+        for (String file : new String[] { "src/test/resources/brat_removed_entity_in_middle.json",
+                "src/test/resources/brat_removed_entity_near_end.json" }) {
+            JsonNode target = read(file);
+
+            ArrayNode patch = BratDocumentDiff.diff(base, target);
+
+            assertThat(JsonPatch.apply(patch, base)).as(file).isEqualTo(target);
+        }
+    }
+
+    @Test
+    public void thatReorderedEntitiesAreReplaced() throws Exception
+    {
+        ObjectNode target = base.deepCopy();
+        ArrayNode entities = (ArrayNode) target.get("entities");
+        JsonNode first = entities.remove(0);
+        entities.add(first);
+
+        ArrayNode patch = BratDocumentDiff.diff(base, target);
+
+        assertThat(patch).hasSize(1);
+        assertThat(patch.get(0).get("op").asText()).isEqualTo("replace");
+        assertThat(patch.get(0).get("path").asText()).isEqualTo("/entities");
+        assertThat(JsonPatch.apply(patch, base)).isEqualTo(target);
+    }
+
+    @Test
+    public void thatChangedAndRemovedFieldsAreApplicable() throws Exception
+    {
+        ObjectNode target = base.deepCopy();
+        target.put("text", "Changed text");
+        target.remove("ctime");
+        target.put("new/field", 1);
+
+        ArrayNode patch = BratDocumentDiff.diff(base, target);
+
+        assertThat(patch).hasSize(3);
+        assertThat(JsonPatch.apply(patch, base)).isEqualTo(target);
+    }
+
+    private JsonNode read(String aFile) throws Exception
+    {
+        return mapper.readTree(new File(aFile));
+    }
+}
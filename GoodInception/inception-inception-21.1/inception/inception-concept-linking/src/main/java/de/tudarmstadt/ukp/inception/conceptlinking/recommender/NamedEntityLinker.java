@@ -18,11 +18,22 @@
 package de.tudarmstadt.ukp.inception.conceptlinking.recommender;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectSentences;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptySet;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toCollection;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -31,9 +42,13 @@ import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.util.CasUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 import de.tudarmstadt.ukp.inception.conceptlinking.service.ConceptLinkingService;
 import de.tudarmstadt.ukp.inception.kb.ConceptFeatureTraits;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
@@ -51,19 +66,28 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderCo
 public class NamedEntityLinker
     extends RecommendationEngine
 {
+    private static final Timer CANDIDATES_TIMER = Metrics.timer("inception_entity_linking",
+            "Time spent linking the mentions of a document", "stage", "candidates");
+    private static final Timer RANKING_TIMER = Metrics.timer("inception_entity_linking",
+            "Time spent linking the mentions of a document", "stage", "ranking");
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
     private NamedEntityLinkerTraits traits;
 
     private KnowledgeBaseService kbService;
     private ConceptLinkingService clService;
     private FeatureSupportRegistry fsRegistry;
     private ConceptFeatureTraits featureTraits;
+    private Executor candidateExecutor;
 
     public static final Key<Collection<ImmutablePair<String, Collection<AnnotationFS>>>> KEY_MODEL = new Key<>(
             "model");
 
     public NamedEntityLinker(Recommender aRecommender, NamedEntityLinkerTraits aTraits,
             KnowledgeBaseService aKbService, ConceptLinkingService aClService,
-            FeatureSupportRegistry aFsRegistry, ConceptFeatureTraits aFeatureTraits)
+            FeatureSupportRegistry aFsRegistry, ConceptFeatureTraits aFeatureTraits,
+            Executor aCandidateExecutor)
     {
         super(aRecommender);
 
@@ -72,6 +96,7 @@ public class NamedEntityLinker
         clService = aClService;
         fsRegistry = aFsRegistry;
         featureTraits = aFeatureTraits;
+        candidateExecutor = aCandidateExecutor;
     }
 
     @Override
@@ -91,40 +116,109 @@ public class NamedEntityLinker
     {
         Type predictedType = getPredictedType(aCas);
 
+        List<AnnotationFS> mentions = new ArrayList<>();
         for (AnnotationFS sentence : selectSentences(aCas)) {
-            for (AnnotationFS annotation : CasUtil.selectCovered(aCas, predictedType, sentence)) {
-                int begin = annotation.getBegin();
-                int end = annotation.getEnd();
-                predictSingle(annotation.getCoveredText(), begin, end, aCas);
-            }
+            mentions.addAll(CasUtil.selectCovered(aCas, predictedType, sentence));
+        }
+
+        if (mentions.isEmpty()) {
+            return;
         }
+
+        // Each distinct mention is looked up only once per knowledge base
+        Set<String> mentionTexts = mentions.stream() //
+                .map(AnnotationFS::getCoveredText) //
+                .collect(toCollection(LinkedHashSet::new));
+
+        long candidatesStart = nanoTime();
+        Map<KnowledgeBase, Map<String, Set<KBHandle>>> candidates = generateCandidates(
+                mentionTexts);
+        CANDIDATES_TIMER.recordSince(candidatesStart);
+
+        long rankingStart = nanoTime();
+        for (AnnotationFS mention : mentions) {
+            predictSingle(mention.getCoveredText(), mention.getBegin(), mention.getEnd(), aCas,
+                    candidates);
+        }
+        RANKING_TIMER.recordSince(rankingStart);
+
+        log.debug("Linked [{}] mentions ([{}] distinct) against [{}] knowledge bases - "
+                + "candidates: {}ms, ranking: {}ms", mentions.size(), mentionTexts.size(),
+                candidates.size(), NANOSECONDS.toMillis(rankingStart - candidatesStart),
+                NANOSECONDS.toMillis(nanoTime() - rankingStart));
     }
 
-    private void predictSingle(String aCoveredText, int aBegin, int aEnd, CAS aCas)
+    private List<KnowledgeBase> getLinkingKnowledgeBases()
     {
-        List<KBHandle> handles = new ArrayList<>();
-
         AnnotationFeature feat = recommender.getFeature();
         ConceptFeatureTraits conceptFeatureTraits = fsRegistry.readTraits(feat,
                 ConceptFeatureTraits::new);
 
+        List<KnowledgeBase> knowledgeBases = new ArrayList<>();
         if (conceptFeatureTraits.getRepositoryId() != null) {
             Optional<KnowledgeBase> kb = kbService.getKnowledgeBaseById(recommender.getProject(),
                     conceptFeatureTraits.getRepositoryId());
             if (kb.isPresent() && kb.get().isSupportConceptLinking()) {
-                handles.addAll(readCandidates(kb.get(), aCoveredText, aBegin, aCas));
+                knowledgeBases.add(kb.get());
             }
         }
         else {
             for (KnowledgeBase kb : kbService.getEnabledKnowledgeBases(recommender.getProject())) {
                 if (kb.isSupportConceptLinking()) {
-                    handles.addAll(readCandidates(kb, aCoveredText, aBegin, aCas));
+                    knowledgeBases.add(kb);
                 }
             }
         }
+        return knowledgeBases;
+    }
+
+    /**
+     * Generates the candidates for all mentions in all knowledge bases. The knowledge bases are
+     * queried in parallel on the candidate executor.
+     */
+    private Map<KnowledgeBase, Map<String, Set<KBHandle>>> generateCandidates(
+            Collection<String> aMentions)
+        throws RecommendationException
+    {
+        List<KnowledgeBase> knowledgeBases = getLinkingKnowledgeBases();
+
+        List<CompletableFuture<Map<String, Set<KBHandle>>>> futures = new ArrayList<>();
+        for (KnowledgeBase kb : knowledgeBases) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> clService.generateCandidates(kb, featureTraits.getScope(),
+                            featureTraits.getAllowedValueType(), aMentions),
+                    candidateExecutor));
+        }
+
+        // Keep the knowledge bases in their original order
+        Map<KnowledgeBase, Map<String, Set<KBHandle>>> candidates = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < knowledgeBases.size(); i++) {
+                candidates.put(knowledgeBases.get(i), futures.get(i).join());
+            }
+        }
+        catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RecommendationException("Unable to generate entity linking candidates",
+                    e.getCause());
+        }
+        return candidates;
+    }
+
+    private void predictSingle(String aCoveredText, int aBegin, int aEnd, CAS aCas,
+            Map<KnowledgeBase, Map<String, Set<KBHandle>>> aCandidates)
+    {
+        List<KBHandle> handles = new ArrayList<>();
+
+        for (Map<String, Set<KBHandle>> kbCandidates : aCandidates.values()) {
+            Set<KBHandle> mentionCandidates = kbCandidates.getOrDefault(aCoveredText, emptySet());
+            if (!mentionCandidates.isEmpty()) {
+                handles.addAll(clService.rankCandidates(null, aCoveredText, mentionCandidates,
+                        aCas, aBegin));
+            }
+        }
 
         Type predictedType = getPredictedType(aCas);
-        Feature scoreFeature = getScoreFeature(aCas);
         Feature predictedFeature = getPredictedFeature(aCas);
         Feature isPredictionFeature = getIsPredictionFeature(aCas);
 
@@ -137,13 +231,6 @@ public class NamedEntityLinker
         }
     }
 
-    private List<KBHandle> readCandidates(KnowledgeBase kb, String aCoveredText, int aBegin,
-            CAS aCas)
-    {
-        return kbService.read(kb, (conn) -> clService.disambiguate(kb, featureTraits.getScope(),
-                featureTraits.getAllowedValueType(), null, aCoveredText, aBegin, aCas));
-    }
-
     @Override
     public RecommendationEngineCapability getTrainingCapability()
     {
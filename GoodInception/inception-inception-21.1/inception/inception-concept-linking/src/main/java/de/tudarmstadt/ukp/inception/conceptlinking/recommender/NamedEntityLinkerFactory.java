@@ -23,7 +23,12 @@ import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.SINGLE_TOKEN
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.TOKENS;
 import static java.util.Arrays.asList;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.wicket.model.IModel;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRegistry;
@@ -45,6 +50,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
  */
 public class NamedEntityLinkerFactory
     extends RecommendationEngineFactoryImplBase<NamedEntityLinkerTraits>
+    implements DisposableBean
 {
     // This is a string literal so we can rename/refactor the class without it changing its ID
     // and without the database starting to refer to non-existing recommendation tools.
@@ -53,9 +59,13 @@ public class NamedEntityLinkerFactory
 
     private static final String PREFIX = "kb:";
 
+    // Maximum number of knowledge bases queried in parallel for entity linking candidates
+    private static final int CANDIDATE_THREADS = 4;
+
     private final KnowledgeBaseService kbService;
     private final ConceptLinkingService clService;
     private final FeatureSupportRegistry fsRegistry;
+    private final ExecutorService candidateExecutor;
 
     @Autowired
     public NamedEntityLinkerFactory(KnowledgeBaseService aKbService,
@@ -64,6 +74,18 @@ public class NamedEntityLinkerFactory
         kbService = aKbService;
         clService = aClService;
         fsRegistry = aFsRegistry;
+
+        candidateExecutor = Executors.newFixedThreadPool(CANDIDATE_THREADS,
+                new BasicThreadFactory.Builder() //
+                        .daemon(true) //
+                        .namingPattern("entity-linking-candidates-%d") //
+                        .build());
+    }
+
+    @Override
+    public void destroy()
+    {
+        candidateExecutor.shutdownNow();
     }
 
     @Override
@@ -80,7 +102,7 @@ public class NamedEntityLinkerFactory
                 ConceptFeatureTraits::new);
 
         return new NamedEntityLinker(aRecommender, linkerTraits, kbService, clService, fsRegistry,
-                featureTraits);
+                featureTraits, candidateExecutor);
     }
 
     @Override
@@ -17,7 +17,9 @@
  */
 package de.tudarmstadt.ukp.inception.conceptlinking.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.uima.cas.CAS;
@@ -55,6 +57,26 @@ public interface ConceptLinkingService
             ConceptFeatureValueType aValueType, String aTypedString, String aMention,
             int aMentionBeginOffset, CAS aCas);
 
+    /**
+     * Generates the (unranked) candidate entities for a batch of mentions, e.g. all mentions in a
+     * document. Each distinct mention is looked up only once and exact label matches are retrieved
+     * for several mentions per query. For read-only knowledge bases, the candidates are cached per
+     * normalized mention.
+     *
+     * @param aKB
+     *            the KB used to generate candidates.
+     * @param aConceptScope
+     *            optional concept limiting the candidates to its descendants. Might be null.
+     * @param aValueType
+     *            the type of items to generate candidates for.
+     * @param aMentions
+     *            the surface forms of the mentions to be linked.
+     * @return the candidates for each of the given mentions. Mentions for which no candidates
+     *         were found map to an empty set.
+     */
+    Map<String, Set<KBHandle>> generateCandidates(KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, Collection<String> aMentions);
+
     /**
      * Get all linking instances within the scope of a given knowledge base. If null is passed for
      * aRepositoryId, all enabled knowledge bases in the project are considered. If the given
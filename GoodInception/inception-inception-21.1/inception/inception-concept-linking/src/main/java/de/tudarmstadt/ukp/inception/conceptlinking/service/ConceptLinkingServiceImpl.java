@@ -24,15 +24,22 @@ import static de.tudarmstadt.ukp.inception.conceptlinking.model.CandidateEntity.
 import static de.tudarmstadt.ukp.inception.conceptlinking.model.CandidateEntity.KEY_QUERY;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
 
 import java.io.File;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -40,6 +47,9 @@ import java.util.stream.Collectors;
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.eclipse.rdf4j.common.net.ParsedIRI;
@@ -52,8 +62,13 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Counter;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
 import de.tudarmstadt.ukp.inception.conceptlinking.config.EntityLinkingProperties;
 import de.tudarmstadt.ukp.inception.conceptlinking.config.EntityLinkingPropertiesImpl;
 import de.tudarmstadt.ukp.inception.conceptlinking.config.EntityLinkingServiceAutoConfiguration;
@@ -64,8 +79,10 @@ import de.tudarmstadt.ukp.inception.conceptlinking.util.FileUtils;
 import de.tudarmstadt.ukp.inception.kb.ConceptFeatureValueType;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
 import de.tudarmstadt.ukp.inception.kb.RepositoryType;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseConfigurationChangedEvent;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQuery;
 import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryBuilder;
 import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryPrimaryConditions;
 
@@ -78,6 +95,19 @@ import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryPrimaryConditions
 public class ConceptLinkingServiceImpl
     implements InitializingBean, ConceptLinkingService
 {
+    private static final Counter CANDIDATE_CACHE_HITS = Metrics.counter(
+            "inception_entity_linking_candidate_cache_hits_total",
+            "Mentions for which the entity linking candidates were served from the cache");
+    private static final Counter CANDIDATE_CACHE_MISSES = Metrics.counter(
+            "inception_entity_linking_candidate_cache_misses_total",
+            "Mentions for which the entity linking candidates had to be queried");
+
+    /**
+     * Maximum number of mentions for which exact matches are retrieved in a single query. Each
+     * mention adds a full-text sub-query, so the query must not grow arbitrarily large.
+     */
+    private static final int EXACT_MATCH_BATCH_SIZE = 25;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final KnowledgeBaseService kbService;
@@ -89,6 +119,8 @@ public class ConceptLinkingServiceImpl
     private final List<EntityRankingFeatureGenerator> featureGeneratorsProxy;
     private List<EntityRankingFeatureGenerator> featureGenerators;
 
+    private final Cache<CandidateCacheKey, Set<KBHandle>> candidateCache;
+
     @Autowired
     public ConceptLinkingServiceImpl(KnowledgeBaseService aKbService,
             EntityLinkingPropertiesImpl aProperties, RepositoryProperties aRepoProperties,
@@ -101,6 +133,8 @@ public class ConceptLinkingServiceImpl
         properties = aProperties;
         featureGeneratorsProxy = aFeatureGenerators;
         repoProperties = aRepoProperties;
+
+        candidateCache = Caffeine.newBuilder().maximumSize(properties.getCacheSize()).build();
     }
 
     @Override
@@ -116,6 +150,21 @@ public class ConceptLinkingServiceImpl
         init();
     }
 
+    /**
+     * If the KB configuration of a project is changed, drop the cached candidates of any KBs of
+     * that project.
+     * 
+     * @param aEvent
+     *            The event containing the project
+     */
+    @EventListener
+    public void onKnowledgeBaseConfigurationChangedEvent(
+            KnowledgeBaseConfigurationChangedEvent aEvent)
+    {
+        candidateCache.asMap().keySet()
+                .removeIf(key -> key.kb.getProject().equals(aEvent.getProject()));
+    }
+
     /* package private */ void init()
     {
         List<EntityRankingFeatureGenerator> generators = new ArrayList<>();
@@ -184,13 +233,7 @@ public class ConceptLinkingServiceImpl
 
                 iriMatchBuilder.retrieveLabel().retrieveDescription();
 
-                List<KBHandle> iriMatches;
-                if (aKB.isReadOnly()) {
-                    iriMatches = kbService.listHandlesCaching(aKB, iriMatchBuilder, true);
-                }
-                else {
-                    iriMatches = kbService.read(aKB, conn -> iriMatchBuilder.asHandles(conn, true));
-                }
+                List<KBHandle> iriMatches = listHandles(aKB, iriMatchBuilder);
 
                 log.debug("Found [{}] candidates exactly matching IRI [{}]", iriMatches.size(),
                         aQuery);
@@ -221,13 +264,7 @@ public class ConceptLinkingServiceImpl
 
             exactBuilder.retrieveLabel().retrieveDescription();
 
-            List<KBHandle> exactMatches;
-            if (aKB.isReadOnly()) {
-                exactMatches = kbService.listHandlesCaching(aKB, exactBuilder, true);
-            }
-            else {
-                exactMatches = kbService.read(aKB, conn -> exactBuilder.asHandles(conn, true));
-            }
+            List<KBHandle> exactMatches = listHandles(aKB, exactBuilder);
 
             log.debug("Found [{}] candidates exactly matching {}", exactMatches.size(),
                     asList(exactLabels));
@@ -252,14 +289,7 @@ public class ConceptLinkingServiceImpl
 
             startingWithBuilder.retrieveLabel().retrieveDescription();
 
-            List<KBHandle> startingWithMatches;
-            if (aKB.isReadOnly()) {
-                startingWithMatches = kbService.listHandlesCaching(aKB, startingWithBuilder, true);
-            }
-            else {
-                startingWithMatches = kbService.read(aKB,
-                        conn -> startingWithBuilder.asHandles(conn, true));
-            }
+            List<KBHandle> startingWithMatches = listHandles(aKB, startingWithBuilder);
 
             log.debug("Found [{}] candidates starting with [{}]]", startingWithMatches.size(),
                     aQuery);
@@ -286,14 +316,7 @@ public class ConceptLinkingServiceImpl
 
             containingBuilder.retrieveLabel().retrieveDescription();
 
-            List<KBHandle> containingMatches;
-            if (aKB.isReadOnly()) {
-                containingMatches = kbService.listHandlesCaching(aKB, containingBuilder, true);
-            }
-            else {
-                containingMatches = kbService.read(aKB,
-                        conn -> containingBuilder.asHandles(conn, true));
-            }
+            List<KBHandle> containingMatches = listHandles(aKB, containingBuilder);
 
             log.debug("Found [{}] candidates using matching {}", containingMatches.size(),
                     asList(longLabels));
@@ -307,6 +330,229 @@ public class ConceptLinkingServiceImpl
         return result;
     }
 
+    @Override
+    public Map<String, Set<KBHandle>> generateCandidates(KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, Collection<String> aMentions)
+    {
+        long startTime = currentTimeMillis();
+
+        // Group the mentions by their normalized form - e.g. "Berlin" and "berlin " are only
+        // looked up once
+        Map<String, Set<String>> surfaceForms = new LinkedHashMap<>();
+        for (String mention : aMentions) {
+            if (StringUtils.isNotBlank(mention)) {
+                surfaceForms.computeIfAbsent(normalizeMention(mention),
+                        k -> new LinkedHashSet<>()).add(mention);
+            }
+        }
+
+        Map<String, Set<KBHandle>> candidates = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String key : surfaceForms.keySet()) {
+            Set<KBHandle> cached = aKB.isReadOnly()
+                    ? candidateCache.getIfPresent(
+                            new CandidateCacheKey(aKB, aConceptScope, aValueType, key))
+                    : null;
+            if (cached != null) {
+                candidates.put(key, cached);
+            }
+            else {
+                uncached.add(key);
+            }
+        }
+
+        CANDIDATE_CACHE_HITS.add(candidates.size());
+        CANDIDATE_CACHE_MISSES.add(uncached.size());
+
+        Map<String, Set<KBHandle>> exactMatches = generateExactCandidates(aKB, aConceptScope,
+                aValueType, uncached, surfaceForms);
+
+        for (String key : uncached) {
+            Set<KBHandle> mentionCandidates = new HashSet<>(
+                    exactMatches.getOrDefault(key, emptySet()));
+            // The containing search ranks and limits its results by mention, so it cannot be
+            // shared between mentions
+            String mention = selectSurfaceForm(surfaceForms.get(key));
+            mentionCandidates.addAll(generateContainingCandidates(aKB, aConceptScope, aValueType,
+                    mention));
+
+            Set<KBHandle> result = unmodifiableSet(mentionCandidates);
+            if (aKB.isReadOnly()) {
+                candidateCache.put(new CandidateCacheKey(aKB, aConceptScope, aValueType, key),
+                        result);
+            }
+            candidates.put(key, result);
+        }
+
+        Map<String, Set<KBHandle>> result = new LinkedHashMap<>();
+        for (String mention : aMentions) {
+            result.put(mention, candidates.getOrDefault(normalizeMention(mention), emptySet()));
+        }
+
+        log.debug("Generated candidates for [{}] mentions ([{}] distinct, [{}] cached) in {}ms",
+                aMentions.size(), surfaceForms.size(), surfaceForms.size() - uncached.size(),
+                currentTimeMillis() - startTime);
+
+        return result;
+    }
+
+    /**
+     * Retrieves exact label matches for several mentions per query. The results are assigned back
+     * to the mentions via the labels they matched. As for a single mention, at most
+     * {@link KnowledgeBase#getMaxResults()} candidates are retrieved for each mention.
+     */
+    private Map<String, Set<KBHandle>> generateExactCandidates(KnowledgeBase aKB,
+            String aConceptScope, ConceptFeatureValueType aValueType, List<String> aKeys,
+            Map<String, Set<String>> aSurfaceForms)
+    {
+        Map<String, Set<KBHandle>> result = new HashMap<>();
+
+        int maxResults = aKB.getMaxResults();
+
+        for (int i = 0; i < aKeys.size(); i += EXACT_MATCH_BATCH_SIZE) {
+            List<String> batch = aKeys.subList(i, Math.min(i + EXACT_MATCH_BATCH_SIZE,
+                    aKeys.size()));
+
+            String[] labels = batch.stream() //
+                    .flatMap(key -> aSurfaceForms.get(key).stream()) //
+                    .toArray(String[]::new);
+
+            // The limit applies to the query as a whole, so it is scaled by the number of
+            // mentions in the batch
+            int batchLimit = maxResults * batch.size();
+            List<KBHandle> exactMatches = listExactMatches(aKB, aConceptScope, aValueType, labels,
+                    batchLimit);
+
+            log.debug("Found [{}] candidates exactly matching any of [{}] labels",
+                    exactMatches.size(), labels.length);
+
+            for (KBHandle handle : exactMatches) {
+                for (String key : getMatchedLabels(handle)) {
+                    if (!batch.contains(key)) {
+                        continue;
+                    }
+
+                    Set<KBHandle> keyMatches = result.computeIfAbsent(key,
+                            k -> new LinkedHashSet<>());
+                    if (keyMatches.size() < maxResults) {
+                        keyMatches.add(handle);
+                    }
+                }
+            }
+
+            // If the query hit its limit, mentions with many matches may have crowded out the
+            // matches of other mentions. These are then looked up individually.
+            if (exactMatches.size() < batchLimit) {
+                continue;
+            }
+
+            for (String key : batch) {
+                if (result.getOrDefault(key, emptySet()).size() >= maxResults) {
+                    continue;
+                }
+
+                String[] keyLabels = aSurfaceForms.get(key).toArray(String[]::new);
+                Set<KBHandle> keyMatches = new LinkedHashSet<>();
+                for (KBHandle handle : listExactMatches(aKB, aConceptScope, aValueType, keyLabels,
+                        maxResults)) {
+                    if (getMatchedLabels(handle).contains(key)) {
+                        keyMatches.add(handle);
+                    }
+                }
+                result.put(key, keyMatches);
+            }
+        }
+
+        return result;
+    }
+
+    private List<KBHandle> listExactMatches(KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, String[] aLabels, int aLimit)
+    {
+        SPARQLQueryPrimaryConditions exactBuilder = newQueryBuilder(aValueType, aKB);
+
+        if (aConceptScope != null) {
+            // Scope-limiting must always happen before label matching!
+            exactBuilder.descendantsOf(aConceptScope);
+        }
+
+        exactBuilder.withLabelMatchingExactlyAnyOf(aLabels);
+
+        exactBuilder.retrieveLabel().retrieveDescription().limit(aLimit);
+
+        return listHandles(aKB, exactBuilder);
+    }
+
+    /**
+     * @return the normalized labels through which the given handle matched. The name is the matched
+     *         label unless there are additional matching properties, in which case the matched
+     *         labels are recorded as match terms.
+     */
+    private Set<String> getMatchedLabels(KBHandle aHandle)
+    {
+        Set<String> matchedLabels = new HashSet<>();
+        if (aHandle.getName() != null) {
+            matchedLabels.add(normalizeMention(aHandle.getName()));
+        }
+        for (Pair<String, String> matchTerm : aHandle.getMatchTerms()) {
+            matchedLabels.add(normalizeMention(matchTerm.getKey()));
+        }
+        return matchedLabels;
+    }
+
+    private List<KBHandle> generateContainingCandidates(KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, String aMention)
+    {
+        final int threshold = RepositoryType.LOCAL.equals(aKB.getType()) ? 0 : 3;
+
+        String mention = aMention.trim();
+        if (mention.length() < threshold) {
+            return new ArrayList<>();
+        }
+
+        SPARQLQueryPrimaryConditions containingBuilder = newQueryBuilder(aValueType, aKB);
+
+        if (aConceptScope != null) {
+            // Scope-limiting must always happen before label matching!
+            containingBuilder.descendantsOf(aConceptScope);
+        }
+
+        containingBuilder.withLabelMatchingAnyOf(mention);
+
+        containingBuilder.retrieveLabel().retrieveDescription();
+
+        return listHandles(aKB, containingBuilder);
+    }
+
+    private List<KBHandle> listHandles(KnowledgeBase aKB, SPARQLQuery aQuery)
+    {
+        if (aKB.isReadOnly()) {
+            return kbService.listHandlesCaching(aKB, aQuery, true);
+        }
+        else {
+            return kbService.read(aKB, conn -> aQuery.asHandles(conn, true));
+        }
+    }
+
+    private static String normalizeMention(String aMention)
+    {
+        return aMention.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Selects the surface form used for the containing search of a group of mentions sharing the
+     * same normalized form. The shortest trimmed form is used and ties are broken by natural
+     * order, so the choice does not depend on the order in which the mentions were encountered.
+     */
+    static String selectSurfaceForm(Collection<String> aSurfaceForms)
+    {
+        return aSurfaceForms.stream() //
+                .map(String::trim) //
+                .min(Comparator.comparingInt(String::length)
+                        .thenComparing(Comparator.naturalOrder())) //
+                .orElseThrow(() -> new IllegalArgumentException("No surface forms given"));
+    }
+
     @Override
     public List<KBHandle> disambiguate(KnowledgeBase aKB, String aConceptScope,
             ConceptFeatureValueType aValueType, String aQuery, String aMention,
@@ -422,4 +668,42 @@ public class ConceptLinkingServiceImpl
     {
         return disambiguate(aKB, null, ConceptFeatureValueType.ANY_OBJECT, aQuery, null, 0, null);
     }
+
+    private static final class CandidateCacheKey
+    {
+        private final KnowledgeBase kb;
+        private final String conceptScope;
+        private final ConceptFeatureValueType valueType;
+        private final String mention;
+
+        public CandidateCacheKey(KnowledgeBase aKb, String aConceptScope,
+                ConceptFeatureValueType aValueType, String aMention)
+        {
+            kb = aKb;
+            conceptScope = aConceptScope;
+            valueType = aValueType;
+            mention = aMention;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            if (!(other instanceof CandidateCacheKey)) {
+                return false;
+            }
+
+            CandidateCacheKey castOther = (CandidateCacheKey) other;
+            return new EqualsBuilder().append(kb, castOther.kb)
+                    .append(conceptScope, castOther.conceptScope)
+                    .append(valueType, castOther.valueType).append(mention, castOther.mention)
+                    .isEquals();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return new HashCodeBuilder().append(kb).append(conceptScope).append(valueType)
+                    .append(mention).toHashCode();
+        }
+    }
 }
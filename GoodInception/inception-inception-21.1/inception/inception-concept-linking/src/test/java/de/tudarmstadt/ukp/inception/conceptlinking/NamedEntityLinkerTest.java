@@ -20,11 +20,14 @@ package de.tudarmstadt.ukp.inception.conceptlinking;
 import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.EXCLUSIVE_WRITE_ACCESS;
 import static de.tudarmstadt.ukp.inception.support.test.recommendation.RecommenderTestHelper.getPredictions;
 import static java.util.Arrays.asList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assumptions.assumeThat;
 import static org.dkpro.core.api.datasets.DatasetValidationPolicy.CONTINUE;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -34,7 +37,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -61,7 +66,6 @@ import de.tudarmstadt.ukp.inception.conceptlinking.recommender.NamedEntityLinker
 import de.tudarmstadt.ukp.inception.conceptlinking.recommender.NamedEntityLinkerTraits;
 import de.tudarmstadt.ukp.inception.conceptlinking.service.ConceptLinkingServiceImpl;
 import de.tudarmstadt.ukp.inception.kb.ConceptFeatureTraits;
-import de.tudarmstadt.ukp.inception.kb.ConceptFeatureValueType;
 import de.tudarmstadt.ukp.inception.kb.IriConstants;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
@@ -99,7 +103,7 @@ public class NamedEntityLinkerTest
     {
         NamedEntityLinker sut = new NamedEntityLinker(recommender, new NamedEntityLinkerTraits(),
                 mock(KnowledgeBaseService.class), mock(ConceptLinkingServiceImpl.class),
-                mock(FeatureSupportRegistry.class), new ConceptFeatureTraits());
+                mock(FeatureSupportRegistry.class), new ConceptFeatureTraits(), Runnable::run);
 
         List<CAS> casList = loadDevelopmentData();
 
@@ -128,8 +132,14 @@ public class NamedEntityLinkerTest
         when(kbService.read(any(), any())).thenReturn(mockResult);
 
         ConceptLinkingServiceImpl clService = mock(ConceptLinkingServiceImpl.class);
-        when(clService.disambiguate(any(), anyString(), any(ConceptFeatureValueType.class),
-                anyString(), anyString(), anyInt(), any())).thenReturn(mockResult);
+        when(clService.generateCandidates(any(), any(), any(), anyCollection()))
+                .thenAnswer(call -> {
+                    Collection<String> mentions = call.getArgument(3);
+                    return mentions.stream().distinct()
+                            .collect(toMap(identity(), m -> new HashSet<>(mockResult)));
+                });
+        when(clService.rankCandidates(any(), anyString(), any(), any(), anyInt()))
+                .thenReturn(mockResult);
 
         FeatureSupportRegistry fsRegistry = mock(FeatureSupportRegistry.class);
         FeatureSupport fs = mock(FeatureSupport.class);
@@ -137,7 +147,7 @@ public class NamedEntityLinkerTest
         when(fsRegistry.readTraits(any(), any())).thenReturn(new ConceptFeatureTraits());
 
         NamedEntityLinker sut = new NamedEntityLinker(recommender, new NamedEntityLinkerTraits(),
-                kbService, clService, fsRegistry, new ConceptFeatureTraits());
+                kbService, clService, fsRegistry, new ConceptFeatureTraits(), Runnable::run);
 
         List<CAS> casList = loadDevelopmentData();
         CAS cas = casList.get(0);
@@ -19,12 +19,15 @@
 package de.tudarmstadt.ukp.inception.conceptlinking.service;
 
 import static de.tudarmstadt.ukp.inception.kb.ConceptFeatureValueType.ANY_OBJECT;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 
@@ -124,6 +127,37 @@ public class ConceptLinkingServiceImplTest
         kbService.removeKnowledgeBase(kb);
     }
 
+    @Test
+    public void thatCandidatesForMultipleMentionsCanBeGeneratedAtOnce() throws Exception
+    {
+        kbService.registerKnowledgeBase(kb, kbService.getNativeConfig());
+        importKnowledgeBase("data/pets.ttl");
+
+        Map<String, Set<KBHandle>> candidates = sut.generateCandidates(kb, null, ANY_OBJECT,
+                asList("Socke", "Kahmi", "Socke", "Unicorn"));
+
+        assertThat(candidates).containsOnlyKeys("Socke", "Kahmi", "Unicorn");
+        assertThat(candidates.get("Socke").stream().map(KBHandle::getName))
+                .as("Check whether \"Socke\" has been retrieved.").contains("Socke");
+        assertThat(candidates.get("Kahmi").stream().map(KBHandle::getName))
+                .as("Check whether \"Kahmi\" has been retrieved.").contains("Kahmi")
+                .doesNotContain("Socke");
+        assertThat(candidates.get("Unicorn")).isEmpty();
+
+        kbService.removeKnowledgeBase(kb);
+    }
+
+    @Test
+    public void thatSurfaceFormSelectionDoesNotDependOnMentionOrder()
+    {
+        assertThat(ConceptLinkingServiceImpl.selectSurfaceForm(asList("Socke ", "socke", "SOCKE")))
+                .isEqualTo("SOCKE");
+        assertThat(ConceptLinkingServiceImpl.selectSurfaceForm(asList("SOCKE", "socke", "Socke ")))
+                .isEqualTo("SOCKE");
+        assertThat(ConceptLinkingServiceImpl.selectSurfaceForm(asList("Die  Socke", "die Socke")))
+                .isEqualTo("die Socke");
+    }
+
     private void importKnowledgeBase(String resourceName) throws Exception
     {
         ClassLoader classLoader = getClass().getClassLoader();
@@ -45,6 +45,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -76,6 +77,12 @@ public class CasDiff
 {
     private final static Logger LOG = LoggerFactory.getLogger(CasDiff.class);
 
+    /**
+     * Minimum number of annotations for which the configuration sets are built in parallel. For
+     * small diffs (e.g. the few sentences visible in the curation editor) it is not worth it.
+     */
+    private static final int PARALLEL_THRESHOLD = 1_000;
+
     private Map<String, List<CAS>> cases = new LinkedHashMap<>();
 
     private final Map<Position, ConfigurationSet> configSets = new TreeMap<>();
@@ -84,7 +91,8 @@ public class CasDiff
 
     private int end;
 
-    private final Map<String, DiffAdapter> diffAdapters = new HashMap<>();
+    // Accessed concurrently while building the diff
+    private final Map<String, DiffAdapter> diffAdapters = new ConcurrentHashMap<>();
 
     private final LinkCompareBehavior linkCompareBehavior;
 
@@ -179,22 +187,59 @@ public class CasDiff
 
         CasDiff diff = new CasDiff(aBegin, aEnd, aAdapters, aLinkCompareBehavior);
 
+        List<DiffSlice> slices = new ArrayList<>();
         for (Entry<String, List<CAS>> e : aCasMap.entrySet()) {
             int casId = 0;
             for (CAS cas : e.getValue()) {
                 for (DiffAdapter adapter : aAdapters) {
                     // null elements in the list can occur if a user has never worked on a CAS
-                    diff.addCas(e.getKey(), casId, cas != null ? cas : null, adapter.getType());
+                    slices.add(new DiffSlice(e.getKey(), casId, cas, adapter.getType()));
                 }
                 casId++;
             }
         }
+        diff.addSlices(slices);
 
         LOG.trace("CASDiff completed in {} ms", System.currentTimeMillis() - startTime);
 
         return diff;
     }
 
+    /**
+     * Calculate the differences between the CASes of a single document. The CASes are registered
+     * at the given CAS ID such that the resulting positions are the same as if the document had
+     * been diffed as part of a full document list via
+     * {@link #doDiff(Iterable, LinkCompareBehavior, Map)}. This allows processing one document at
+     * a time and combining the results via {@link DiffResult#merge(Collection)} without having to
+     * hold the CASes of all documents in memory.
+     * 
+     * @param aAdapters
+     *            a set of diff adapters how the diff algorithm should handle different features
+     * @param aLinkCompareBehavior
+     *            the link comparison mode
+     * @param aCasMap
+     *            the CASes of a single document, each associated with an ID. Values may be
+     *            {@code null} if a user has never worked on the document.
+     * @param aCasId
+     *            the index of the document within the overall document list.
+     * @return a diff.
+     */
+    public static CasDiff doDiffDocument(Iterable<? extends DiffAdapter> aAdapters,
+            LinkCompareBehavior aLinkCompareBehavior, Map<String, CAS> aCasMap, int aCasId)
+    {
+        CasDiff diff = new CasDiff(-1, -1, aAdapters, aLinkCompareBehavior);
+
+        List<DiffSlice> slices = new ArrayList<>();
+        for (Entry<String, CAS> e : aCasMap.entrySet()) {
+            for (DiffAdapter adapter : aAdapters) {
+                slices.add(new DiffSlice(e.getKey(), aCasId, e.getValue(), adapter.getType()));
+            }
+        }
+        diff.addSlices(slices);
+
+        return diff;
+    }
+
     /**
      * Sanity check - all CASes should have the same text.
      */
@@ -240,13 +285,10 @@ public class CasDiff
 
     private DiffAdapter getAdapter(String aType)
     {
-        DiffAdapter adapter = diffAdapters.get(aType);
-        if (adapter == null) {
-            LOG.warn("No diff adapter for type [" + aType + "] -- treating as without features");
-            adapter = new SpanDiffAdapter(aType, emptySet());
-            diffAdapters.put(aType, adapter);
-        }
-        return adapter;
+        return diffAdapters.computeIfAbsent(aType, type -> {
+            LOG.warn("No diff adapter for type [" + type + "] -- treating as without features");
+            return new SpanDiffAdapter(type, emptySet());
+        });
     }
 
     public Map<String, DiffAdapter> getTypeAdapters()
@@ -260,20 +302,80 @@ public class CasDiff
     }
 
     /**
-     * CASes are added to the diff one after another, building the diff iteratively. A CAS can be
-     * added multiple times for different types. Make sure a CAS is not added twice with the same
-     * type!
+     * Adds the given slices to the diff. First, the annotations of each slice are collected
+     * together with their positions. Then the configuration sets are built for each position. Both
+     * steps are independent for different slices and positions. For large diffs they therefore run
+     * in parallel on the common fork-join pool. The annotations are grouped by position in the
+     * order of the slices, so the result is the same as when the slices are processed one after
+     * another.
+     * 
+     * @param aSlices
+     *            the slices to add. Make sure a CAS is not added twice with the same type!
+     */
+    private void addSlices(List<DiffSlice> aSlices)
+    {
+        // Registering the CASes is not thread-safe, so it needs to happen before anything else
+        for (DiffSlice slice : aSlices) {
+            registerCas(slice.casGroupId, slice.casId, slice.cas);
+        }
+
+        List<List<PositionedFS>> collected = stream(aSlices, aSlices.size() > 1) //
+                .map(this::collectAnnotations) //
+                .collect(toList());
+
+        int posBefore = configSets.keySet().size();
+        LOG.debug("Positions before: [{}]", posBefore);
+
+        Map<Position, List<PositionedFS>> annotationsByPosition = new TreeMap<>();
+        int annotationCount = 0;
+        for (List<PositionedFS> annotations : collected) {
+            for (PositionedFS pfs : annotations) {
+                annotationsByPosition.computeIfAbsent(pfs.position, k -> new ArrayList<>())
+                        .add(pfs);
+                annotationCount++;
+            }
+        }
+
+        // Get/create configuration sets at all positions
+        Map<ConfigurationSet, List<PositionedFS>> work = new LinkedHashMap<>();
+        for (Entry<Position, List<PositionedFS>> e : annotationsByPosition.entrySet()) {
+            Position pos = e.getKey();
+            ConfigurationSet configSet = configSets.computeIfAbsent(pos, ConfigurationSet::new);
+
+            assert pos.getClass() == configSet.position.getClass() : "Position type mismatch ["
+                    + pos.getClass() + "] vs [" + configSet.position.getClass() + "]";
+
+            work.put(configSet, e.getValue());
+        }
+
+        // Merge FSes into their sets - each set is only touched by a single thread
+        stream(work.entrySet(), annotationCount >= PARALLEL_THRESHOLD).forEach(e -> {
+            for (PositionedFS pfs : e.getValue()) {
+                addConfiguration(e.getKey(), pfs.casGroupId, pfs.fs);
+            }
+        });
+
+        LOG.debug("Positions after: [{}] (delta: {})", configSets.keySet().size(),
+                (configSets.keySet().size() - posBefore));
+    }
+
+    private static <T> Stream<T> stream(Collection<T> aItems, boolean aParallel)
+    {
+        return aParallel ? aItems.parallelStream() : aItems.stream();
+    }
+
+    /**
+     * Remembers that we have seen the given CAS.
      * 
      * @param aCasGroupId
      *            the ID of the CAS group to add.
+     * @param aCasId
+     *            the index of the CAS within its group.
      * @param aCas
      *            the CAS itself.
-     * @param aType
-     *            the type on which to calculate the diff.
      */
-    private void addCas(String aCasGroupId, int aCasId, CAS aCas, String aType)
+    private void registerCas(String aCasGroupId, int aCasId, CAS aCas)
     {
-        // Remember that we have already seen this CAS.
         List<CAS> casList = cases.get(aCasGroupId);
         if (casList == null) {
             casList = new ArrayList<>();
@@ -284,27 +386,47 @@ public class CasDiff
         // current CAS ID is greater than the size of the current CAS list, then we did not add
         // it yet. Before, we checked whether the casList already contained the current CAS, but
         // that failed when we had multiple "null" CASes.
+        // When diffing a single document from a larger list (cf. doDiffDocument), the slots of
+        // the other documents remain empty.
+        while (casList.size() < aCasId) {
+            casList.add(null);
+        }
         if ((casList.size() - 1) < aCasId) {
             casList.add(aCas);
         }
         assert (casList.size() - 1) == aCasId : "Expected CAS ID [" + (casList.size() - 1)
                 + "] but was [" + aCasId + "]";
+    }
+
+    /**
+     * Collects the annotations of a slice together with the positions they are located at. This
+     * only reads from the CAS and may be called concurrently for different slices.
+     * 
+     * @param aSlice
+     *            the slice.
+     * @return the annotations in the order in which they have to be added to the diff.
+     */
+    private List<PositionedFS> collectAnnotations(DiffSlice aSlice)
+    {
+        String casGroupId = aSlice.casGroupId;
+        int casId = aSlice.casId;
+        CAS cas = aSlice.cas;
 
         // null elements in the list can occur if a user has never worked on a CAS
-        // We add these to the internal list above, but then we bail out here.
-        if (aCas == null) {
-            LOG.debug("CAS group [" + aCasGroupId + "] does not contain a CAS at index [" + aCasId
+        // We add these to the internal list when registering the CAS, but then we bail out here.
+        if (cas == null) {
+            LOG.debug("CAS group [" + casGroupId + "] does not contain a CAS at index [" + casId
                     + "].");
-            return;
+            return Collections.emptyList();
         }
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("Processing CAS group [" + aCasGroupId + "] CAS [" + aCasId + "].");
+            LOG.debug("Processing CAS group [" + casGroupId + "] CAS [" + casId + "].");
 
             String collectionId = null;
             String documentId = null;
             try {
-                FeatureStructure dmd = WebAnnoCasUtil.getDocumentMetadata(aCas);
+                FeatureStructure dmd = WebAnnoCasUtil.getDocumentMetadata(cas);
                 collectionId = FSUtil.getFeature(dmd, "collectionId", String.class);
                 documentId = FSUtil.getFeature(dmd, "documentId", String.class);
                 LOG.debug("User [" + collectionId + "] - Document [" + documentId + "]");
@@ -315,61 +437,44 @@ public class CasDiff
             }
         }
 
-        Type type = aCas.getTypeSystem().getType(aType);
+        Type type = cas.getTypeSystem().getType(aSlice.type);
         if (type == null) {
-            LOG.debug("CAS group [" + aCasGroupId + "] CAS [" + aCasId
-                    + "] contains no annotations of type [" + aType + "]");
-            return;
+            LOG.debug("CAS group [" + casGroupId + "] CAS [" + casId
+                    + "] contains no annotations of type [" + aSlice.type + "]");
+            return Collections.emptyList();
         }
 
-        DiffAdapter adapter = getAdapter(aType);
+        DiffAdapter adapter = getAdapter(aSlice.type);
 
         Collection<AnnotationFS> annotations;
         if (begin == -1 && end == -1) {
-            annotations = select(aCas, type);
+            annotations = select(cas, type);
         }
         else {
-            annotations = adapter.selectAnnotationsInWindow(aCas, begin, end);
+            annotations = adapter.selectAnnotationsInWindow(cas, begin, end);
         }
 
         if (annotations.isEmpty()) {
-            LOG.debug("CAS group [" + aCasGroupId + "] CAS [" + aCasId
-                    + "] contains no annotations of type [" + aType + "]");
-            return;
+            LOG.debug("CAS group [" + casGroupId + "] CAS [" + casId
+                    + "] contains no annotations of type [" + aSlice.type + "]");
+            return Collections.emptyList();
         }
 
-        LOG.debug("CAS group [" + aCasGroupId + "] CAS [" + aCasId + "] contains ["
-                + annotations.size() + "] annotations of type [" + aType + "]");
-
-        int posBefore = configSets.keySet().size();
-        LOG.debug("Positions before: [{}]", posBefore);
+        LOG.debug("CAS group [" + casGroupId + "] CAS [" + casId + "] contains ["
+                + annotations.size() + "] annotations of type [" + aSlice.type + "]");
 
+        List<PositionedFS> result = new ArrayList<>();
         for (AnnotationFS fs : annotations) {
-            List<Position> positions = new ArrayList<>();
-
-            // Get/create configuration set at the current position
-            positions.add(adapter.getPosition(aCasId, fs));
+            // Main position
+            result.add(new PositionedFS(adapter.getPosition(casId, fs), casGroupId, fs));
 
             // Generate secondary positions for multi-link features
-            positions.addAll(adapter.generateSubPositions(aCasId, fs, linkCompareBehavior));
-
-            for (Position pos : positions) {
-                ConfigurationSet configSet = configSets.get(pos);
-                if (configSet == null) {
-                    configSet = new ConfigurationSet(pos);
-                    configSets.put(pos, configSet);
-                }
-
-                assert pos.getClass() == configSet.position.getClass() : "Position type mismatch ["
-                        + pos.getClass() + "] vs [" + configSet.position.getClass() + "]";
-
-                // Merge FS into current set
-                addConfiguration(configSet, aCasGroupId, fs);
+            for (Position pos : adapter.generateSubPositions(casId, fs, linkCompareBehavior)) {
+                result.add(new PositionedFS(pos, casGroupId, fs));
             }
         }
 
-        LOG.debug("Positions after: [{}] (delta: {})", configSets.keySet().size(),
-                (configSets.keySet().size() - posBefore));
+        return result;
     }
 
     private void addConfiguration(ConfigurationSet aSet, String aCasGroupId, FeatureStructure aFS)
@@ -967,6 +1072,36 @@ public class CasDiff
             casGroupIds = new LinkedHashSet<>(aDiff.cases.keySet());
         }
 
+        private DiffResult(Map<Position, ConfigurationSet> aData, Set<String> aCasGroupIds)
+        {
+            data = Collections.unmodifiableMap(aData);
+            casGroupIds = aCasGroupIds;
+        }
+
+        /**
+         * Combines the results of diffs calculated on different documents (e.g. via
+         * {@link CasDiff#doDiffDocument}) into a single result. Since positions include the CAS
+         * ID, the positions of the individual results do not overlap.
+         * 
+         * @param aResults
+         *            the results to merge.
+         * @return the merged result.
+         */
+        public static DiffResult merge(Collection<DiffResult> aResults)
+        {
+            Map<Position, ConfigurationSet> data = new TreeMap<>();
+            Set<String> casGroupIds = new LinkedHashSet<>();
+            for (DiffResult result : aResults) {
+                for (Entry<Position, ConfigurationSet> e : result.data.entrySet()) {
+                    ConfigurationSet previous = data.put(e.getKey(), e.getValue());
+                    assert previous == null : "Position [" + e.getKey()
+                            + "] present in multiple results";
+                }
+                casGroupIds.addAll(result.casGroupIds);
+            }
+            return new DiffResult(data, casGroupIds);
+        }
+
         public Set<String> getCasGroupIds()
         {
             return casGroupIds;
@@ -1278,6 +1413,42 @@ public class CasDiff
         return new DiffResult(this);
     }
 
+    /**
+     * The annotations of a particular type in a particular CAS.
+     */
+    private static class DiffSlice
+    {
+        private final String casGroupId;
+        private final int casId;
+        private final CAS cas;
+        private final String type;
+
+        public DiffSlice(String aCasGroupId, int aCasId, CAS aCas, String aType)
+        {
+            casGroupId = aCasGroupId;
+            casId = aCasId;
+            cas = aCas;
+            type = aType;
+        }
+    }
+
+    /**
+     * An annotation located at a particular position.
+     */
+    private static class PositionedFS
+    {
+        private final Position position;
+        private final String casGroupId;
+        private final AnnotationFS fs;
+
+        public PositionedFS(Position aPosition, String aCasGroupId, AnnotationFS aFS)
+        {
+            position = aPosition;
+            casGroupId = aCasGroupId;
+            fs = aFS;
+        }
+    }
+
     // private Set<String> entryTypes = new LinkedHashSet<>();
 
     // /**
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.curation.casdiff;
+
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.DiffTestUtils.createSyntheticCases;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.LinkCompareBehavior.LINK_TARGET_AS_LABEL;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.relation.RelationDiffAdapter.DEPENDENCY_DIFF_ADAPTER;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.span.SpanDiffAdapter.NER_DIFF_ADAPTER;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.span.SpanDiffAdapter.POS_DIFF_ADAPTER;
+import static java.util.Arrays.asList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.DiffResult;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
+
+/**
+ * Measures {@link CasDiff} on synthetic multi-annotator CASes, running in a fork-join pool of the
+ * given size (a single thread corresponds to the non-parallel diff). The window mode only diffs
+ * the range of a typical curation page. This is not a unit test - run it via the {@link #main}
+ * method from the IDE or with the JMH runner on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CasDiffBenchmark
+{
+    private static final int WINDOW_SIZE = 2_000;
+
+    @Param({ "8" })
+    public int annotators;
+
+    @Param({ "1000" })
+    public int sentences;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    private List<? extends DiffAdapter> adapters;
+    private Map<String, List<CAS>> casByUser;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        adapters = asList(POS_DIFF_ADAPTER, NER_DIFF_ADAPTER, DEPENDENCY_DIFF_ADAPTER);
+        casByUser = createSyntheticCases(annotators, sentences, 42);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public DiffResult fullDocument() throws Exception
+    {
+        return pool.submit(() -> doDiff(adapters, LINK_TARGET_AS_LABEL, casByUser).toResult())
+                .get();
+    }
+
+    @Benchmark
+    public DiffResult window() throws Exception
+    {
+        return pool.submit(() -> doDiff(adapters, LINK_TARGET_AS_LABEL, casByUser, 0,
+                WINDOW_SIZE).toResult()).get();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(CasDiffBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+}
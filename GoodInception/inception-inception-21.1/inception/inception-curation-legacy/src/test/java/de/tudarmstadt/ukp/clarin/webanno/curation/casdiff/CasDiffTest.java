@@ -24,9 +24,11 @@ import static de.tudarmstadt.ukp.clarin.webanno.curation.CurationTestUtils.loadW
 import static de.tudarmstadt.ukp.clarin.webanno.curation.CurationTestUtils.makeLinkFS;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.CurationTestUtils.makeLinkHostFS;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.DiffTestUtils.createSyntheticCases;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.LinkCompareBehavior.LINK_ROLE_AS_LABEL;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.LinkCompareBehavior.LINK_TARGET_AS_LABEL;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.relation.RelationDiffAdapter.DEPENDENCY_DIFF_ADAPTER;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.span.SpanDiffAdapter.NER_DIFF_ADAPTER;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.span.SpanDiffAdapter.POS_DIFF_ADAPTER;
 import static java.util.Arrays.asList;
 import static org.apache.uima.fit.factory.JCasFactory.createJCas;
@@ -38,6 +40,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
@@ -52,6 +55,7 @@ import org.apache.uima.util.CasCreationUtils;
 import org.junit.jupiter.api.Test;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.ConfigurationSet;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.DiffResult;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.DiffAdapter;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.relation.RelationDiffAdapter;
@@ -652,4 +656,40 @@ public class CasDiffTest
         //
         // assertEquals(0.0, agreement.getAgreement(), 0.00001d);
     }
+
+    @Test
+    public void parallelDiffMatchesSingleThreadedDiffTest() throws Exception
+    {
+        Map<String, List<CAS>> casByUser = createSyntheticCases(4, 100, 42);
+
+        List<? extends DiffAdapter> diffAdapters = asList(POS_DIFF_ADAPTER, NER_DIFF_ADAPTER,
+                DEPENDENCY_DIFF_ADAPTER);
+
+        DiffResult parallel = doDiff(diffAdapters, LINK_TARGET_AS_LABEL, casByUser).toResult();
+
+        // Parallel streams run in the fork-join pool they are called from
+        DiffResult singleThreaded;
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            singleThreaded = pool.submit(() -> doDiff(diffAdapters, LINK_TARGET_AS_LABEL,
+                    casByUser).toResult()).get();
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        assertEquals(describe(singleThreaded), describe(parallel));
+        assertEquals(singleThreaded.getDifferingConfigurationSets().keySet(),
+                parallel.getDifferingConfigurationSets().keySet());
+    }
+
+    private static List<String> describe(DiffResult aResult)
+    {
+        List<String> description = new ArrayList<>();
+        for (ConfigurationSet cfgSet : aResult.getConfigurationSets()) {
+            description.add(cfgSet.getPosition() + " " + cfgSet.getCasGroupIds() + " "
+                    + cfgSet.getConfigurations());
+        }
+        return description;
+    }
 }
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
@@ -36,6 +37,7 @@ import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.fit.factory.JCasBuilder;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
 import org.apache.uima.fit.util.FSCollectionFactory;
@@ -49,7 +51,11 @@ import org.dkpro.core.io.xmi.XmiReader;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst;
 import de.tudarmstadt.ukp.clarin.webanno.tsv.WebannoTsv2Reader;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
 
 public class DiffTestUtils
 {
@@ -69,6 +75,61 @@ public class DiffTestUtils
         return casByUser;
     }
 
+    /**
+     * Creates one CAS per annotator. All CASes share the same text, tokens and sentences. Their POS
+     * tags, named entities and dependency relations mostly agree, but not completely.
+     */
+    public static Map<String, List<CAS>> createSyntheticCases(int aAnnotators, int aSentences,
+            long aSeed)
+        throws UIMAException
+    {
+        String[] tags = { "NN", "VB", "JJ", "DT", "IN" };
+
+        Map<String, List<CAS>> casByUser = new LinkedHashMap<>();
+        for (int a = 0; a < aAnnotators; a++) {
+            Random rnd = new Random(aSeed + a);
+            JCas jcas = JCasFactory.createJCas();
+            JCasBuilder builder = new JCasBuilder(jcas);
+            for (int s = 0; s < aSentences; s++) {
+                int sentenceBegin = builder.getPosition();
+                Token previous = null;
+                for (int t = 0; t < 10; t++) {
+                    Token token = builder.add("tok" + t, Token.class);
+                    builder.add(" ");
+
+                    POS pos = new POS(jcas, token.getBegin(), token.getEnd());
+                    pos.setPosValue(tags[(t + (rnd.nextInt(5) == 0 ? 1 : 0)) % tags.length]);
+                    pos.addToIndexes();
+                    token.setPos(pos);
+
+                    if (t % 4 == 0 && rnd.nextInt(4) != 0) {
+                        NamedEntity ne = new NamedEntity(jcas, token.getBegin(), token.getEnd());
+                        ne.setValue(rnd.nextInt(4) == 0 ? "LOC" : "PER");
+                        ne.addToIndexes();
+                    }
+
+                    if (previous != null) {
+                        Dependency dep = new Dependency(jcas, token.getBegin(), token.getEnd());
+                        dep.setGovernor(previous);
+                        dep.setDependent(token);
+                        dep.setDependencyType(rnd.nextInt(5) == 0 ? "obj" : "nmod");
+                        dep.setFlavor("basic");
+                        dep.addToIndexes();
+                    }
+
+                    previous = token;
+                }
+                builder.add(sentenceBegin, Sentence.class);
+                builder.add("\n");
+            }
+            builder.close();
+
+            casByUser.put("user" + a, asList(jcas.getCas()));
+        }
+
+        return casByUser;
+    }
+
     public static Map<String, List<JCas>> loadWebAnnoTSV(TypeSystemDescription aTypes,
             String... aPaths)
         throws UIMAException, IOException
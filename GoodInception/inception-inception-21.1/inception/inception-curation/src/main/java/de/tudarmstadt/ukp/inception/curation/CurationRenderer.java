@@ -17,27 +17,41 @@
  */
 package de.tudarmstadt.ukp.inception.curation;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasMetadataUtils.getLastChanged;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiffSingle;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.getDiffAdapters;
 import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.LinkCompareBehavior.LINK_ROLE_AS_LABEL;
-import static java.util.function.Function.identity;
+import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
@@ -51,7 +65,9 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.model.VComment
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.model.VCommentType;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.model.VDocument;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.model.VObject;
-import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
+import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.Configuration;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.ConfigurationSet;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.DiffResult;
@@ -60,6 +76,7 @@ import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.api.Position;
 import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.internal.AID;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.curation.config.CurationServiceAutoConfiguration;
@@ -71,8 +88,10 @@ import de.tudarmstadt.ukp.inception.curation.config.CurationServiceAutoConfigura
  * </p>
  */
 public class CurationRenderer
-    implements RenderStep
+    implements RenderStep, DisposableBean
 {
+    private static final int DIFF_CACHE_SIZE = 100;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final CurationService curationService;
@@ -81,6 +100,9 @@ public class CurationRenderer
     private final UserDao userRepository;
     private final AnnotationSchemaService annotationService;
 
+    private final ExecutorService casLoader;
+    private final Cache<DiffKey, DiffResult> diffCache;
+
     public CurationRenderer(CurationService aCurationService,
             LayerSupportRegistry aLayerSupportRegistry, DocumentService aDocumentService,
             UserDao aUserRepository, AnnotationSchemaService aAnnotationService)
@@ -90,6 +112,28 @@ public class CurationRenderer
         documentService = aDocumentService;
         userRepository = aUserRepository;
         annotationService = aAnnotationService;
+
+        casLoader = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new BasicThreadFactory.Builder() //
+                        .daemon(true) //
+                        .namingPattern("curation-cas-loader-%d") //
+                        .build());
+        diffCache = Caffeine.newBuilder() //
+                .maximumSize(DIFF_CACHE_SIZE) //
+                .build();
+    }
+
+    @Override
+    public void destroy()
+    {
+        casLoader.shutdownNow();
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        // The diff adapters depend on the layer configuration
+        diffCache.invalidateAll();
     }
 
     @Override
@@ -109,24 +153,35 @@ public class CurationRenderer
         // This is the CAS that the user can actively edit
         casses.put(aState.getUser().getUsername(), aCas);
 
-        for (User user : selectedUsers) {
-            try {
-                CAS userCas = documentService.readAnnotationCas(aState.getDocument(),
-                        user.getUsername());
-                casses.put(user.getUsername(), userCas);
-            }
-            catch (IOException e) {
-                log.error("Could not retrieve CAS for user [{}] and project [{}]({})",
-                        user.getUsername(), aState.getProject().getName(),
-                        aState.getProject().getId(), e);
-            }
+        casses.putAll(readAnnotatorCasses(aState, selectedUsers));
+
+        Map<String, List<CAS>> casMap = new LinkedHashMap<>();
+        for (Entry<String, CAS> e : casses.entrySet()) {
+            casMap.put(e.getKey(), asList(e.getValue()));
         }
 
-        List<DiffAdapter> adapters = getDiffAdapters(annotationService,
-                aState.getAnnotationLayers());
-        CasDiff casDiff = doDiffSingle(adapters, LINK_ROLE_AS_LABEL, casses, aWindowBeginOffset,
-                aWindowEndOffset);
-        DiffResult diff = casDiff.toResult();
+        // If any of the CASes could not be loaded, the diff does not cover all users
+        boolean allLoaded = selectedUsers.stream() //
+                .allMatch(user -> casses.containsKey(user.getUsername()));
+
+        // The key is built from the CASes that were actually loaded - otherwise a concurrent
+        // change could cause a diff to be cached under a timestamp that it does not belong to
+        DiffKey diffKey = allLoaded
+                ? getDiffKey(aState, casses, aWindowBeginOffset, aWindowEndOffset)
+                : null;
+        boolean cacheable = diffKey != null;
+
+        DiffResult diff = cacheable ? diffCache.getIfPresent(diffKey) : null;
+        if (diff == null) {
+            List<DiffAdapter> adapters = getDiffAdapters(annotationService,
+                    aState.getAnnotationLayers());
+            diff = doDiffSingle(adapters, LINK_ROLE_AS_LABEL, casses, aWindowBeginOffset,
+                    aWindowEndOffset).toResult();
+
+            if (cacheable) {
+                diffCache.put(diffKey, diff);
+            }
+        }
 
         // Listing the features once is faster than repeatedly hitting the DB to list features for
         // every layer.
@@ -136,11 +191,16 @@ public class CurationRenderer
                 .listAnnotationFeature(aState.getProject());
 
         // Set up a cache for resolving type to layer to avoid hammering the DB as we process each
-        // position
-        Map<String, AnnotationLayer> type2layer = diff.getPositions().stream()
-                .map(Position::getType).distinct()
-                .map(type -> annotationService.findLayer(aState.getProject(), type))
-                .collect(toMap(AnnotationLayer::getName, identity()));
+        // position. The diff only covers the layers of the annotator state, so these should
+        // usually already cover all the types.
+        Map<String, AnnotationLayer> type2layer = new HashMap<>();
+        for (AnnotationLayer layer : aState.getAnnotationLayers()) {
+            type2layer.put(layer.getName(), layer);
+        }
+        for (Position position : diff.getPositions()) {
+            type2layer.computeIfAbsent(position.getType(),
+                    type -> annotationService.findLayer(aState.getProject(), type));
+        }
 
         Set<VID> generatedCurationVids = new HashSet<>();
         boolean showAll = curationService.isShowAll(currentUsername, aState.getProject().getId());
@@ -160,7 +220,7 @@ public class CurationRenderer
                     .collect(toList());
 
             for (Configuration cfg : cfgSet.getConfigurations()) {
-                FeatureStructure fs = cfg.getRepresentative(casDiff.getCasMap());
+                FeatureStructure fs = cfg.getRepresentative(casMap);
                 String user = cfg.getRepresentativeCasGroupId();
 
                 // We need to pass in *all* the annotation features here because we also to that in
@@ -204,6 +264,91 @@ public class CurationRenderer
         }
     }
 
+    /**
+     * Loads the CASes of the given annotators in parallel. Since the CASes are only read, they are
+     * obtained in shared read-only mode which allows them to be loaded from different threads and
+     * to be served from the shared CAS cache.
+     */
+    private Map<String, CAS> readAnnotatorCasses(AnnotatorState aState, List<User> aUsers)
+    {
+        SourceDocument document = aState.getDocument();
+
+        Map<String, Future<CAS>> futures = new LinkedHashMap<>();
+        for (User user : aUsers) {
+            futures.put(user.getUsername(), casLoader.submit(() -> {
+                try (CasStorageSession session = CasStorageSession.openNested()) {
+                    return documentService.readAnnotationCas(document, user.getUsername(),
+                            SHARED_READ_ONLY_ACCESS);
+                }
+            }));
+        }
+
+        Map<String, CAS> casses = new LinkedHashMap<>();
+        for (Entry<String, Future<CAS>> e : futures.entrySet()) {
+            try {
+                casses.put(e.getKey(), e.getValue().get());
+            }
+            catch (ExecutionException ex) {
+                log.error("Could not retrieve CAS for user [{}] and project [{}]({})", e.getKey(),
+                        aState.getProject().getName(), aState.getProject().getId(),
+                        ex.getCause());
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(future -> future.cancel(true));
+                break;
+            }
+        }
+
+        return casses;
+    }
+
+    /**
+     * @return the key under which the diff for the given window is cached or {@code null} if the
+     *         diff should not be cached, e.g. because the CAS of the current user has not been
+     *         saved yet and may differ from the last saved state.
+     */
+    private DiffKey getDiffKey(AnnotatorState aState, Map<String, CAS> aCasses,
+            int aWindowBeginOffset, int aWindowEndOffset)
+    {
+        Map<String, Long> timestamps = new LinkedHashMap<>();
+        for (Entry<String, CAS> e : aCasses.entrySet()) {
+            CAS cas = e.getValue();
+            if (cas.getTypeSystem().getType(CASMetadata.class.getName()) == null) {
+                return null;
+            }
+
+            long timestamp = getLastChanged(cas);
+            if (timestamp == -1) {
+                return null;
+            }
+
+            timestamps.put(e.getKey(), timestamp);
+        }
+
+        // The CAS of the current user is the one being edited. If it has been modified since it
+        // was last saved, its timestamp no longer identifies its contents.
+        String username = aState.getUser().getUsername();
+        try {
+            Optional<Long> diskTimestamp = documentService
+                    .getAnnotationCasTimestamp(aState.getDocument(), username);
+            if (diskTimestamp.isEmpty() || !diskTimestamp.get().equals(timestamps.get(username))) {
+                return null;
+            }
+        }
+        catch (IOException e) {
+            log.debug("Unable to obtain CAS timestamp - not caching diff", e);
+            return null;
+        }
+
+        List<Long> layerIds = aState.getAnnotationLayers().stream() //
+                .map(AnnotationLayer::getId) //
+                .collect(toList());
+
+        return new DiffKey(aState.getDocument().getId(), aWindowBeginOffset, aWindowEndOffset,
+                layerIds, timestamps);
+    }
+
     /**
      * Find and return the rendered VID which is equivalent to the given VID. E.g. if the given VID
      * belongs to an already curated annotation, then locate the VID for the rendered annotation of
@@ -224,4 +369,44 @@ public class CurationRenderer
 
         return new CurationVID(aCfg.getRepresentativeCasGroupId(), aVid);
     }
+
+    private static final class DiffKey
+    {
+        private final long documentId;
+        private final int windowBegin;
+        private final int windowEnd;
+        private final List<Long> layerIds;
+        private final Map<String, Long> timestamps;
+
+        public DiffKey(long aDocumentId, int aWindowBegin, int aWindowEnd, List<Long> aLayerIds,
+                Map<String, Long> aTimestamps)
+        {
+            documentId = aDocumentId;
+            windowBegin = aWindowBegin;
+            windowEnd = aWindowEnd;
+            layerIds = aLayerIds;
+            timestamps = aTimestamps;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof DiffKey)) {
+                return false;
+            }
+            DiffKey other = (DiffKey) aOther;
+            return documentId == other.documentId && windowBegin == other.windowBegin
+                    && windowEnd == other.windowEnd && layerIds.equals(other.layerIds)
+                    && timestamps.equals(other.timestamps);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(documentId, windowBegin, windowEnd, layerIds, timestamps);
+        }
+    }
 }
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.curation;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst.SPAN_TYPE;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasMetadataUtils.addOrUpdateCasMetadata;
+import static de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasMetadataUtils.getInternalTypeSystem;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.layer.LayerSupportRegistry;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.AnnotatorState;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.model.VDocument;
+import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.OverlapMode;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+@ExtendWith(MockitoExtension.class)
+public class CurationRendererTest
+{
+    private static final String SPAN_LAYER = "custom.Span";
+    private static final long CURATOR_TIMESTAMP = 1000l;
+
+    private @Mock CurationService curationService;
+    private @Mock LayerSupportRegistry layerSupportRegistry;
+    private @Mock DocumentService documentService;
+    private @Mock UserDao userRepository;
+    private @Mock AnnotationSchemaService annotationService;
+    private @Mock AnnotatorState state;
+
+    private CurationRenderer sut;
+
+    private Project project;
+    private SourceDocument document;
+    private AnnotationLayer layer;
+    private User curator;
+    private CAS curatorCas;
+    private Map<String, CAS> annotatorCasses;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        project = new Project("test-project");
+        project.setId(1l);
+
+        document = new SourceDocument("test-document", project, "text");
+        document.setId(1l);
+
+        layer = new AnnotationLayer(SPAN_LAYER, "Span", SPAN_TYPE, project, false,
+                AnchoringMode.TOKENS, OverlapMode.ANY_OVERLAP);
+        layer.setId(1l);
+
+        curator = new User("curator");
+
+        when(userRepository.getCurrentUsername()).thenReturn(curator.getUsername());
+        when(curationService.listUsersReadyForCuration(curator.getUsername(), project, document))
+                .thenReturn(asList(new User("anno1"), new User("anno2")));
+        when(curationService.isShowAll(curator.getUsername(), project.getId())).thenReturn(false);
+        when(state.getProject()).thenReturn(project);
+        when(state.getDocument()).thenReturn(document);
+        when(state.getUser()).thenReturn(curator);
+        when(state.getAnnotationLayers()).thenReturn(asList(layer));
+
+        curatorCas = createCas(curator.getUsername(), CURATOR_TIMESTAMP);
+        when(documentService.getAnnotationCasTimestamp(document, curator.getUsername()))
+                .thenReturn(Optional.of(CURATOR_TIMESTAMP));
+
+        annotatorCasses = new HashMap<>();
+        annotatorCasses.put("anno1", createCas("anno1", 2000l));
+        annotatorCasses.put("anno2", createCas("anno2", 3000l));
+
+        sut = new CurationRenderer(curationService, layerSupportRegistry, documentService,
+                userRepository, annotationService);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    public void thatAnnotatorCassesAreLoadedInParallel() throws Exception
+    {
+        CountDownLatch allLoading = new CountDownLatch(annotatorCasses.size());
+        Queue<String> problems = new ConcurrentLinkedQueue<>();
+        Thread renderThread = Thread.currentThread();
+
+        for (String username : annotatorCasses.keySet()) {
+            when(documentService.readAnnotationCas(document, username, SHARED_READ_ONLY_ACCESS))
+                    .thenAnswer(call -> awaitOtherLoaders(allLoading, problems, renderThread,
+                            username));
+        }
+
+        render();
+
+        assertThat(problems).isEmpty();
+        assertThat(allLoading.getCount()).isZero();
+    }
+
+    @Test
+    public void thatDiffIsCachedUntilAnnotatorCasChanges() throws Exception
+    {
+        stubAnnotatorCasses();
+
+        render();
+        verify(annotationService, atLeastOnce()).listSupportedFeatures(layer);
+
+        clearInvocations(annotationService);
+        render();
+        verify(annotationService, never()).listSupportedFeatures(layer);
+
+        addOrUpdateCasMetadata(annotatorCasses.get("anno1"), 2001l, document, "anno1");
+
+        clearInvocations(annotationService);
+        render();
+        verify(annotationService, atLeastOnce()).listSupportedFeatures(layer);
+    }
+
+    @Test
+    public void thatDiffIsNotCachedIfCuratorCasDiffersFromSavedState() throws Exception
+    {
+        stubAnnotatorCasses();
+
+        // The CAS being edited no longer corresponds to the state saved on disk
+        addOrUpdateCasMetadata(curatorCas, CURATOR_TIMESTAMP - 1, document,
+                curator.getUsername());
+
+        render();
+
+        clearInvocations(annotationService);
+        render();
+        verify(annotationService, atLeastOnce()).listSupportedFeatures(layer);
+    }
+
+    private void render()
+    {
+        sut.render(curatorCas, state, new VDocument(), 0, curatorCas.getDocumentText().length());
+    }
+
+    private void stubAnnotatorCasses() throws Exception
+    {
+        for (String username : annotatorCasses.keySet()) {
+            when(documentService.readAnnotationCas(document, username, SHARED_READ_ONLY_ACCESS))
+                    .thenReturn(annotatorCasses.get(username));
+        }
+    }
+
+    private CAS awaitOtherLoaders(CountDownLatch aLatch, Queue<String> aProblems,
+            Thread aRenderThread, String aUsername)
+        throws InterruptedException
+    {
+        if (Thread.currentThread() == aRenderThread) {
+            aProblems.add("CAS of [" + aUsername + "] loaded on the render thread");
+        }
+
+        // Loading CASes requires a CAS storage session
+        CasStorageSession.get();
+
+        aLatch.countDown();
+        if (!aLatch.await(10, SECONDS)) {
+            aProblems.add("CAS of [" + aUsername + "] not loaded in parallel with the others");
+        }
+
+        return annotatorCasses.get(aUsername);
+    }
+
+    private CAS createCas(String aUsername, long aTimestamp) throws Exception
+    {
+        TypeSystemDescription customTypes = new TypeSystemDescription_impl();
+        customTypes.addType(SPAN_LAYER, "", CAS.TYPE_NAME_ANNOTATION);
+
+        TypeSystemDescription tsd = CasCreationUtils
+                .mergeTypeSystems(List.of(getInternalTypeSystem(), customTypes));
+        CAS cas = CasCreationUtils.createCas(tsd, null, null);
+        cas.setDocumentText("This is a test.");
+        addOrUpdateCasMetadata(cas, aTimestamp, document, aUsername);
+        return cas;
+    }
+}
@@ -32,26 +32,29 @@ import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.io.FileUtils.copyFileToDirectory;
-import static org.apache.commons.io.FileUtils.forceDelete;
-import static org.apache.commons.io.FileUtils.forceMkdir;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -92,6 +95,12 @@ public class AnnotationDocumentExporter
     private static final String ANNOTATION_AS_SERIALISED_CAS = "annotation_ser";
     private static final String ANNOTATION_CAS_FOLDER = "/" + ANNOTATION_AS_SERIALISED_CAS + "/";
 
+    // Number of threads converting annotation documents to the export format and maximum number
+    // of source documents whose converted annotation documents may wait to be written
+    private static final int CONVERSION_THREADS = Math.max(1,
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_PENDING_DOCUMENTS = 2 * CONVERSION_THREADS;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final DocumentService documentService;
@@ -128,7 +137,16 @@ public class AnnotationDocumentExporter
         throws UIMAException, ClassNotFoundException, IOException, InterruptedException
     {
         exportAnnotationDocuments(aMonitor, aRequest.getProject(), aExProject);
-        exportAnnotationDocumentContents(aRequest, aMonitor, aExProject, aStage);
+        exportAnnotationDocumentContents(aRequest, aMonitor, aExProject, ExportTarget.of(aStage));
+    }
+
+    @Override
+    public void exportData(ProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            ExportedProject aExProject, ZipOutputStream aStage)
+        throws UIMAException, ClassNotFoundException, IOException, InterruptedException
+    {
+        exportAnnotationDocuments(aMonitor, aRequest.getProject(), aExProject);
+        exportAnnotationDocumentContents(aRequest, aMonitor, aExProject, ExportTarget.of(aStage));
     }
 
     private void exportAnnotationDocuments(ProjectExportTaskMonitor aMonitor, Project aProject,
@@ -154,17 +172,17 @@ public class AnnotationDocumentExporter
     }
 
     private void exportAnnotationDocumentContents(ProjectExportRequest aRequest,
-            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject, File aStage)
+            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject, ExportTarget aTarget)
         throws UIMAException, ClassNotFoundException, IOException, InterruptedException
     {
         Project project = aRequest.getProject();
 
         // The export process may store project-related information in this context to ensure it
         // is looked up only once during the bulk operation and the DB is not hit too often.
-        Map<Pair<Project, String>, Object> bulkOperationContext = new HashMap<>();
+        // The context is shared by the conversion threads.
+        Map<Pair<Project, String>, Object> bulkOperationContext = new ConcurrentHashMap<>();
 
         List<SourceDocument> documents = documentService.listSourceDocuments(project);
-        int i = 1;
         int initProgress = aMonitor.getProgress();
 
         // Create a map containing the annotation documents for each source document. Doing this
@@ -178,45 +196,33 @@ public class AnnotationDocumentExporter
         LoadingCache<String, User> usersCache = Caffeine.newBuilder()
                 .build(key -> userRepository.get(key));
 
-        for (SourceDocument srcDoc : documents) {
-            // check if the export has been cancelled
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
-            
-            try (CasStorageSession session = CasStorageSession.openNested()) {
-                //
-                // Export initial CASes
-                //
+        // The documents are converted in parallel, but they are written to the archive in order
+        // by this thread. The number of converted documents waiting to be written is limited to
+        // bound the temporary disk space required by the export.
+        ExecutorService conversionExecutor = Executors.newFixedThreadPool(CONVERSION_THREADS);
+        Deque<PendingDocument> pending = new ArrayDeque<>();
+        int i = 1;
+        try {
+            for (SourceDocument srcDoc : documents) {
+                // check if the export has been cancelled
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
 
                 // The initial CAS must always be exported to ensure that the converted source
-                // document will *always* have the state it had at the time of the initial import.
-                // We we do have a reliably initial CAS and instead lazily convert whenever an
-                // annotator starts annotating, then we could end up with two annotators having two
-                // different versions of their CAS e.g. if there was a code change in the reader
-                // component that affects its output.
+                // document will *always* have the state it had at the time of the initial
+                // import. We we do have a reliably initial CAS and instead lazily convert
+                // whenever an annotator starts annotating, then we could end up with two
+                // annotators having two different versions of their CAS e.g. if there was a code
+                // change in the reader component that affects its output.
 
                 // If the initial CAS does not exist yet, it must be created before export.
-                if (!documentService.existsInitialCas(srcDoc)) {
-                    documentService.createOrReadInitialCas(srcDoc);
-                }
-
-                File targetDir = new File(aStage, ANNOTATION_CAS_FOLDER + srcDoc.getName());
-                forceMkdir(targetDir);
-
-                try (OutputStream os = new FileOutputStream(
-                        new File(targetDir, INITIAL_CAS_PSEUDO_USER + ".ser"))) {
-                    documentService.exportCas(srcDoc, INITIAL_CAS_PSEUDO_USER, os);
+                try (CasStorageSession session = CasStorageSession.openNested()) {
+                    if (!documentService.existsInitialCas(srcDoc)) {
+                        documentService.createOrReadInitialCas(srcDoc);
+                    }
                 }
 
-                log.info("Exported annotation document content for user [" + INITIAL_CAS_PSEUDO_USER
-                        + "] for source document [" + srcDoc.getId() + "] in project ["
-                        + project.getName() + "] with id [" + project.getId() + "]");
-
-                //
-                // Export per-user annotation document
-                //
-
                 // Determine which format to use for export
                 String formatId = FORMAT_AUTO.equals(aRequest.getFormat()) ? srcDoc.getFormat()
                         : aRequest.getFormat();
@@ -232,49 +238,167 @@ public class AnnotationDocumentExporter
                             return fallbackFormat;
                         });
 
-                // Export annotations from regular users
+                // copy annotation document only for existing users and the state of the
+                // annotation document is not NEW/IGNORE
+                List<AnnotationDocument> annDocs = new ArrayList<>();
                 for (AnnotationDocument annDoc : srcToAnnIdx.computeIfAbsent(srcDoc,
                         key -> emptyList())) {
-
-                    // copy annotation document only for existing users and the state of the
-                    // annotation document is not NEW/IGNORE
                     if (usersCache.get(annDoc.getUser()) != null
                             && documentService.existsCas(annDoc)
                             && !annDoc.getState().equals(AnnotationDocumentState.NEW)
                             && !annDoc.getState().equals(AnnotationDocumentState.IGNORE)) {
-
-                        File annSerDir = new File(aStage.getAbsolutePath() + ANNOTATION_CAS_FOLDER
-                                + srcDoc.getName());
-                        forceMkdir(annSerDir);
-                        try (OutputStream os = new FileOutputStream(
-                                new File(annSerDir, annDoc.getUser() + ".ser"))) {
-                            documentService.exportCas(srcDoc, annDoc.getUser(), os);
-                        }
-
-                        File annDocDir = new File(aStage.getAbsolutePath()
-                                + ANNOTATION_ORIGINAL_FOLDER + srcDoc.getName());
-                        File annFile = null;
-                        try {
-                            annFile = importExportService.exportAnnotationDocument(srcDoc,
-                                    annDoc.getUser(), format, annDoc.getUser(), ANNOTATION, false,
-                                    bulkOperationContext);
-                            forceMkdir(annDocDir);
-                            copyFileToDirectory(annFile, annDocDir);
-                        }
-                        finally {
-                            forceDelete(annFile);
-                        }
-
-                        log.info("Exported annotation document content for user ["
-                                + annDoc.getUser() + "] for source document [" + srcDoc.getId()
-                                + "] in project [" + project.getName() + "] with id ["
-                                + project.getId() + "]");
+                        annDocs.add(annDoc);
                     }
                 }
+
+                pending.add(new PendingDocument(srcDoc, annDocs,
+                        conversionExecutor.submit(() -> convertAnnotationDocuments(srcDoc,
+                                annDocs, format, bulkOperationContext))));
+
+                while (pending.size() > MAX_PENDING_DOCUMENTS) {
+                    writeAnnotationDocumentContents(project, pending.poll(), aTarget);
+                    aMonitor.setProgress(initProgress
+                            + (int) ceil(((double) i) / documents.size() * 80.0));
+                    i++;
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                writeAnnotationDocumentContents(project, pending.poll(), aTarget);
+                aMonitor.setProgress(
+                        initProgress + (int) ceil(((double) i) / documents.size() * 80.0));
+                i++;
+            }
+        }
+        finally {
+            conversionExecutor.shutdownNow();
+            for (PendingDocument doc : pending) {
+                doc.discard();
             }
+        }
+    }
 
-            aMonitor.setProgress(initProgress + (int) ceil(((double) i) / documents.size() * 80.0));
-            i++;
+    private List<File> convertAnnotationDocuments(SourceDocument aSrcDoc,
+            List<AnnotationDocument> aAnnDocs, FormatSupport aFormat,
+            Map<Pair<Project, String>, Object> aBulkOperationContext)
+        throws Exception
+    {
+        List<File> annFiles = new ArrayList<>();
+        try {
+            for (AnnotationDocument annDoc : aAnnDocs) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+
+                annFiles.add(importExportService.exportAnnotationDocument(aSrcDoc,
+                        annDoc.getUser(), aFormat, annDoc.getUser(), ANNOTATION, false,
+                        aBulkOperationContext));
+            }
+        }
+        catch (Exception e) {
+            annFiles.forEach(FileUtils::deleteQuietly);
+            throw e;
+        }
+        return annFiles;
+    }
+
+    private void writeAnnotationDocumentContents(Project aProject, PendingDocument aDoc,
+            ExportTarget aTarget)
+        throws UIMAException, IOException, InterruptedException
+    {
+        SourceDocument srcDoc = aDoc.srcDoc;
+
+        List<File> annFiles;
+        try {
+            annFiles = aDoc.conversion.get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UIMAException) {
+                throw (UIMAException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IOException(cause);
+        }
+
+        try (CasStorageSession session = CasStorageSession.openNested()) {
+            //
+            // Export initial CASes
+            //
+            writeCas(aTarget, srcDoc, INITIAL_CAS_PSEUDO_USER);
+
+            log.info("Exported annotation document content for user [" + INITIAL_CAS_PSEUDO_USER
+                    + "] for source document [" + srcDoc.getId() + "] in project ["
+                    + aProject.getName() + "] with id [" + aProject.getId() + "]");
+
+            //
+            // Export per-user annotation document
+            //
+            for (int n = 0; n < aDoc.annDocs.size(); n++) {
+                AnnotationDocument annDoc = aDoc.annDocs.get(n);
+                File annFile = annFiles.get(n);
+
+                writeCas(aTarget, srcDoc, annDoc.getUser());
+
+                aTarget.addFile(ANNOTATION_ORIGINAL_FOLDER.substring(1) + srcDoc.getName() + "/"
+                        + annFile.getName(), annFile);
+
+                log.info("Exported annotation document content for user [" + annDoc.getUser()
+                        + "] for source document [" + srcDoc.getId() + "] in project ["
+                        + aProject.getName() + "] with id [" + aProject.getId() + "]");
+            }
+        }
+        finally {
+            annFiles.forEach(FileUtils::deleteQuietly);
+        }
+    }
+
+    private void writeCas(ExportTarget aTarget, SourceDocument aSrcDoc, String aUser)
+        throws IOException
+    {
+        aTarget.addEntry(ANNOTATION_CAS_FOLDER.substring(1) + aSrcDoc.getName() + "/" + aUser
+                + ".ser", os -> documentService.exportCas(aSrcDoc, aUser, os));
+    }
+
+    /**
+     * A source document whose annotation documents are being converted and which is waiting to be
+     * written to the archive.
+     */
+    private static class PendingDocument
+    {
+        private final SourceDocument srcDoc;
+        private final List<AnnotationDocument> annDocs;
+        private final Future<List<File>> conversion;
+
+        PendingDocument(SourceDocument aSrcDoc, List<AnnotationDocument> aAnnDocs,
+                Future<List<File>> aConversion)
+        {
+            srcDoc = aSrcDoc;
+            annDocs = aAnnDocs;
+            conversion = aConversion;
+        }
+
+        /**
+         * Cancels the conversion or deletes the converted files if the conversion is already
+         * complete.
+         */
+        void discard()
+        {
+            if (conversion.cancel(true)) {
+                return;
+            }
+
+            try {
+                conversion.get().forEach(FileUtils::deleteQuietly);
+            }
+            catch (Exception e) {
+                // Conversion failed - the files have already been cleaned up
+            }
         }
     }
 
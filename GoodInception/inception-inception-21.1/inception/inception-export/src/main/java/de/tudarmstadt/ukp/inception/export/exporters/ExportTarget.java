@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.export.exporters;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import de.tudarmstadt.ukp.clarin.webanno.support.ZipUtils;
+
+/**
+ * Location into which an exporter writes its files - either a staging folder or the project
+ * archive. Paths are relative and use {@code /} as separator.
+ */
+abstract class ExportTarget
+{
+    public static ExportTarget of(File aFolder)
+    {
+        return new FolderExportTarget(aFolder);
+    }
+
+    public static ExportTarget of(ZipOutputStream aZip)
+    {
+        return new ZipExportTarget(aZip);
+    }
+
+    public abstract void addFile(String aPath, File aFile) throws IOException;
+
+    public abstract void addEntry(String aPath, EntryWriter aWriter) throws IOException;
+
+    @FunctionalInterface
+    public interface EntryWriter
+    {
+        void write(OutputStream aOut) throws IOException;
+    }
+
+    private static class FolderExportTarget
+        extends ExportTarget
+    {
+        private final File folder;
+
+        FolderExportTarget(File aFolder)
+        {
+            folder = aFolder;
+        }
+
+        @Override
+        public void addFile(String aPath, File aFile) throws IOException
+        {
+            FileUtils.copyFile(aFile, new File(folder, aPath));
+        }
+
+        @Override
+        public void addEntry(String aPath, EntryWriter aWriter) throws IOException
+        {
+            File file = new File(folder, aPath);
+            FileUtils.forceMkdirParent(file);
+            try (OutputStream os = new FileOutputStream(file)) {
+                aWriter.write(os);
+            }
+        }
+    }
+
+    private static class ZipExportTarget
+        extends ExportTarget
+    {
+        private final ZipOutputStream zip;
+
+        ZipExportTarget(ZipOutputStream aZip)
+        {
+            zip = aZip;
+        }
+
+        @Override
+        public void addFile(String aPath, File aFile) throws IOException
+        {
+            ZipUtils.addFileToZip(zip, aFile, aPath);
+        }
+
+        @Override
+        public void addEntry(String aPath, EntryWriter aWriter) throws IOException
+        {
+            zip.putNextEntry(new ZipEntry(aPath));
+            aWriter.write(new CloseShieldOutputStream(zip));
+            zip.closeEntry();
+        }
+    }
+}
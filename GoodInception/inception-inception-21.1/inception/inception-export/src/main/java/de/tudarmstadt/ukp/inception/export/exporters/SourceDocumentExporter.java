@@ -37,8 +37,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
@@ -77,7 +77,16 @@ public class SourceDocumentExporter
         throws IOException, ProjectExportException, InterruptedException
     {
         exportSourceDocuments(aRequest.getProject(), aExProject);
-        exportSourceDocumentContents(aRequest, aMonitor, aExProject, aStage);
+        exportSourceDocumentContents(aRequest, aMonitor, aExProject, ExportTarget.of(aStage));
+    }
+
+    @Override
+    public void exportData(ProjectExportRequest aRequest, ProjectExportTaskMonitor aMonitor,
+            ExportedProject aExProject, ZipOutputStream aStage)
+        throws IOException, ProjectExportException, InterruptedException
+    {
+        exportSourceDocuments(aRequest.getProject(), aExProject);
+        exportSourceDocumentContents(aRequest, aMonitor, aExProject, ExportTarget.of(aStage));
     }
 
     private void exportSourceDocuments(Project aProject, ExportedProject exProject)
@@ -102,12 +111,10 @@ public class SourceDocumentExporter
     }
 
     private void exportSourceDocumentContents(ProjectExportRequest aRequest,
-            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject, File aStage)
+            ProjectExportTaskMonitor aMonitor, ExportedProject aExProject, ExportTarget aTarget)
         throws IOException, ProjectExportException, InterruptedException
     {
         Project project = aRequest.getProject();
-        File sourceDocumentDir = new File(aStage, SOURCE_FOLDER);
-        FileUtils.forceMkdir(sourceDocumentDir);
         // Get all the source documents from the project
         List<SourceDocument> documents = documentService.listSourceDocuments(project);
         int i = 1;
@@ -118,8 +125,8 @@ public class SourceDocumentExporter
             }
             
             try {
-                FileUtils.copyFileToDirectory(documentService.getSourceDocumentFile(sourceDocument),
-                        sourceDocumentDir);
+                aTarget.addFile(SOURCE_FOLDER + "/" + sourceDocument.getName(),
+                        documentService.getSourceDocumentFile(sourceDocument));
                 aMonitor.setProgress((int) Math.ceil(((double) i) / documents.size() * 10.0));
                 i++;
                 log.info("Exported content for source document [" + sourceDocument.getId()
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.export.exporters;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst.INITIAL_CAS_PSEUDO_USER;
+import static de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportRequest.FORMAT_AUTO;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.IN_PROGRESS;
+import static de.tudarmstadt.ukp.clarin.webanno.security.model.Role.ROLE_USER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentImportExportService;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportRequest;
+import de.tudarmstadt.ukp.clarin.webanno.api.export.ProjectExportTaskMonitor;
+import de.tudarmstadt.ukp.clarin.webanno.api.format.FormatSupport;
+import de.tudarmstadt.ukp.clarin.webanno.export.model.ExportedProject;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class AnnotationDocumentExporterTest
+{
+    private static final String ANNOTATOR = "annotator";
+
+    public @TempDir File workFolder;
+
+    private @Mock DocumentService documentService;
+    private @Mock UserDao userService;
+    private @Mock DocumentImportExportService importExportService;
+    private @Mock RepositoryProperties repositoryProperties;
+    private @Mock FormatSupport format;
+
+    private Project project;
+    private List<SourceDocument> documents;
+
+    private AnnotationDocumentExporter sut;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        openMocks(this);
+
+        project = new Project();
+        project.setId(1l);
+        project.setName("Test Project");
+
+        documents = new ArrayList<>();
+        List<AnnotationDocument> annotationDocuments = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            SourceDocument document = new SourceDocument("doc" + i + ".txt", project, "text");
+            document.setId((long) i);
+            documents.add(document);
+
+            AnnotationDocument annotationDocument = new AnnotationDocument(ANNOTATOR, document);
+            annotationDocument.setState(IN_PROGRESS);
+            annotationDocuments.add(annotationDocument);
+        }
+
+        when(documentService.listSourceDocuments(project)).thenReturn(documents);
+        when(documentService.listAnnotationDocuments(project)).thenReturn(annotationDocuments);
+        when(documentService.existsInitialCas(any())).thenReturn(true);
+        when(documentService.existsCas(any(AnnotationDocument.class))).thenReturn(true);
+        when(userService.get(ANNOTATOR)).thenReturn(new User(ANNOTATOR, ROLE_USER));
+        when(importExportService.getWritableFormatById("text")).thenReturn(Optional.of(format));
+
+        // Documents earlier in the project take longer to convert so that the conversions
+        // complete in reverse order
+        when(importExportService.exportAnnotationDocument(any(), any(), any(), any(), any(),
+                anyBoolean(), any())).thenAnswer(_call -> {
+                    SourceDocument document = _call.getArgument(0);
+                    Thread.sleep((documents.size() - documents.indexOf(document)) * 50l);
+                    File file = new File(workFolder, document.getName());
+                    FileUtils.writeStringToFile(file, document.getName(), UTF_8);
+                    return file;
+                });
+
+        sut = new AnnotationDocumentExporter(documentService, userService, importExportService,
+                repositoryProperties);
+    }
+
+    @Test
+    public void thatExportIntoArchiveKeepsDocumentOrder() throws Exception
+    {
+        ProjectExportRequest exportRequest = new ProjectExportRequest(project, FORMAT_AUTO, true);
+        ProjectExportTaskMonitor monitor = new ProjectExportTaskMonitor();
+        ExportedProject exportedProject = new ExportedProject();
+
+        File archive = new File(workFolder, "export.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(archive))) {
+            sut.exportData(exportRequest, monitor, exportedProject, zos);
+        }
+
+        List<String> expectedEntries = new ArrayList<>();
+        for (SourceDocument document : documents) {
+            String name = document.getName();
+            expectedEntries.add("annotation_ser/" + name + "/" + INITIAL_CAS_PSEUDO_USER + ".ser");
+            expectedEntries.add("annotation_ser/" + name + "/" + ANNOTATOR + ".ser");
+            expectedEntries.add("annotation/" + name + "/" + name);
+        }
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            assertThat(zip.stream().map(ZipEntry::getName).collect(toList()))
+                    .containsExactlyElementsOf(expectedEntries);
+        }
+
+        // The converted documents are removed once they have been added to the archive
+        assertThat(workFolder.listFiles()).containsExactly(archive);
+    }
+}
@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span;
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.CHARACTERS;
 import static de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult.toEvaluationResult;
 import static java.util.Arrays.asList;
+import static java.util.Comparator.comparing;
 import static java.util.Comparator.comparingInt;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
@@ -32,7 +33,6 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
@@ -63,13 +63,21 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderCo
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.GazeteerService;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.model.Gazeteer;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.gazeteer.model.GazeteerEntry;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.AhoCorasickDictionary;
+import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.KeySanitizer;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.Trie;
 import de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie.WhitespaceNormalizingSanitizer;
 
 public class StringMatchingRecommender
     extends RecommendationEngine
 {
-    public static final Key<Trie<DictEntry>> KEY_MODEL = new Key<>("model");
+    public static final Key<AhoCorasickDictionary<DictEntry>> KEY_MODEL = new Key<>("model");
+
+    /**
+     * Mutable trie into which gazeteers and training data are collected. At the end of training,
+     * it is compiled into the {@link #KEY_MODEL model} and removed from the context.
+     */
+    private static final Key<Trie<DictEntry>> KEY_TRIE = new Key<>("trie");
 
     private static final String UNKNOWN_LABEL = "unknown";
     private static final String NO_LABEL = "O";
@@ -106,14 +114,16 @@ public class StringMatchingRecommender
     @Override
     public void exportModel(RecommenderContext aContext, OutputStream aOutput) throws IOException
     {
-        Trie<DictEntry> dict = aContext.get(KEY_MODEL)
+        AhoCorasickDictionary<DictEntry> dict = aContext.get(KEY_MODEL)
                 .orElseThrow(() -> new IOException("No model trained yet."));
 
+        KeySanitizer sanitizer = WhitespaceNormalizingSanitizer.factory().create();
+        List<DictEntry> sortedEntries = new ArrayList<>(dict.values());
+        sortedEntries.sort(comparing(DictEntry::getKey));
+
         OutputStreamWriter out = new OutputStreamWriter(aOutput);
-        List<String> sortedKeys = new ArrayList<>(dict.keys());
-        Collections.sort(sortedKeys);
-        for (String key : sortedKeys) {
-            DictEntry value = dict.get(key);
+        for (DictEntry value : sortedEntries) {
+            String key = sanitizer.sanitize(value.getKey()).toString();
             for (int i = 0; i < value.labels.length; i++) {
                 out.append(key);
                 out.append("\t");
@@ -128,7 +138,7 @@ public class StringMatchingRecommender
 
     public void pretrain(List<GazeteerEntry> aData, RecommenderContext aContext)
     {
-        Trie<DictEntry> dict = aContext.get(KEY_MODEL).orElseGet(this::createTrie);
+        Trie<DictEntry> dict = aContext.get(KEY_TRIE).orElseGet(this::createTrie);
 
         if (aData != null) {
             for (GazeteerEntry entry : aData) {
@@ -136,7 +146,9 @@ public class StringMatchingRecommender
             }
         }
 
-        aContext.put(KEY_MODEL, dict);
+        aContext.put(KEY_TRIE, dict);
+        // Any previously compiled model is outdated now
+        aContext.put(KEY_MODEL, null);
     }
 
     private <T> Trie<T> createTrie()
@@ -164,7 +176,7 @@ public class StringMatchingRecommender
             }
         }
 
-        Trie<DictEntry> dict = aContext.get(KEY_MODEL).orElseGet(this::createTrie);
+        Trie<DictEntry> dict = aContext.get(KEY_TRIE).orElseGet(this::createTrie);
 
         for (CAS cas : aCasses) {
             Type predictedType = getPredictedType(cas);
@@ -178,14 +190,16 @@ public class StringMatchingRecommender
         aContext.info("Learned dictionary model with %d entries on %d documents", dict.size(),
                 aCasses.size());
 
-        aContext.put(KEY_MODEL, dict);
+        // Compile the trie into a compact automaton and drop the trie - for large gazeteers, the
+        // trie is much larger than the compiled model
+        aContext.put(KEY_MODEL, AhoCorasickDictionary.compile(dict));
+        aContext.put(KEY_TRIE, null);
     }
 
     @Override
     public void predict(RecommenderContext aContext, CAS aCas) throws RecommendationException
     {
-        Trie<DictEntry> dict = aContext.get(KEY_MODEL).orElseThrow(
-                () -> new RecommendationException("Key [" + KEY_MODEL + "] not found in context"));
+        AhoCorasickDictionary<DictEntry> dict = getModel(aContext);
 
         Type predictedType = getPredictedType(aCas);
         Feature predictedFeature = getPredictedFeature(aCas);
@@ -206,7 +220,24 @@ public class StringMatchingRecommender
         }
     }
 
-    private List<Sample> predict(int aDocNo, CAS aCas, Trie<DictEntry> aDict)
+    private AhoCorasickDictionary<DictEntry> getModel(RecommenderContext aContext)
+        throws RecommendationException
+    {
+        Optional<AhoCorasickDictionary<DictEntry>> model = aContext.get(KEY_MODEL);
+        if (model.isPresent()) {
+            return model.get();
+        }
+
+        // Gazeteers have been pre-loaded but there was no training run which compiled them
+        Optional<Trie<DictEntry>> trie = aContext.get(KEY_TRIE);
+        if (trie.isPresent()) {
+            return AhoCorasickDictionary.compile(trie.get());
+        }
+
+        throw new RecommendationException("Key [" + KEY_MODEL + "] not found in context");
+    }
+
+    private List<Sample> predict(int aDocNo, CAS aCas, AhoCorasickDictionary<DictEntry> aDict)
     {
         boolean requireEndAtTokenBoundary = !CHARACTERS
                 .equals(getRecommender().getLayer().getAnchoringMode());
@@ -222,15 +253,16 @@ public class StringMatchingRecommender
             text = text.toLowerCase(Locale.ROOT);
         }
 
+        AhoCorasickDictionary<DictEntry>.LongestMatches matches = aDict.findLongestMatches(text);
+
         for (Annotation sampleUnit : aCas.<Annotation> select(sampleUnitType)) {
             List<Span> spans = new ArrayList<>();
             List<Annotation> tokens = aCas.<Annotation> select(tokenType).coveredBy(sampleUnit)
                     .asList();
             for (Annotation token : tokens) {
-                Trie<DictEntry>.MatchedNode match = aDict.getNode(text, token.getBegin());
-                if (match != null) {
-                    int begin = token.getBegin();
-                    int end = begin + match.matchLength;
+                int begin = token.getBegin();
+                int end = matches.getEnd(begin);
+                if (end != -1) {
 
                     // If the end is not in the same sentence as the start, skip
                     if (requireSingleSentence && !(end <= sampleUnit.getEnd())) {
@@ -243,7 +275,7 @@ public class StringMatchingRecommender
                         continue;
                     }
 
-                    for (LabelStats lc : match.node.value.getBest(maxRecommendations)) {
+                    for (LabelStats lc : matches.getValue(begin).getBest(maxRecommendations)) {
                         String label = lc.getLabel();
                         // check instance equality to avoid collision with user labels
                         if (label == UNKNOWN_LABEL) {
@@ -335,19 +367,27 @@ public class StringMatchingRecommender
             }
         }
 
+        AhoCorasickDictionary<DictEntry> compiledDict = AhoCorasickDictionary.compile(dict);
+
         // Predict
         List<LabelPair> labelPairs = new ArrayList<>();
+        String matchedText = null;
+        AhoCorasickDictionary<DictEntry>.LongestMatches matches = null;
         for (Sample sample : testSet) {
+            // Samples from the same document share the text, so we only need to scan it once
+            if (sample.getText() != matchedText) {
+                matchedText = sample.getText();
+                matches = compiledDict.findLongestMatches(matchedText);
+            }
+
             for (TokenSpan token : sample.getTokens()) {
-                Trie<DictEntry>.MatchedNode match = dict.getNode(sample.getText(),
-                        token.getBegin());
                 int begin = token.getBegin();
                 int end = token.getEnd();
+                int matchEnd = matches.getEnd(begin);
 
                 String predictedLabel = NO_LABEL;
-                if (match != null
-                        && sample.hasTokenEndingAt(token.getBegin() + match.matchLength)) {
-                    List<LabelStats> labelStats = match.node.value.getBest(1);
+                if (matchEnd != -1 && sample.hasTokenEndingAt(matchEnd)) {
+                    List<LabelStats> labelStats = matches.getValue(begin).getBest(1);
                     if (!labelStats.isEmpty()) {
                         predictedLabel = labelStats.get(0).getLabel();
                     }
@@ -603,6 +643,11 @@ public class StringMatchingRecommender
             key = aKey;
         }
 
+        public String getKey()
+        {
+            return key;
+        }
+
         public void put(String aLabel)
         {
             // No data yet - create it
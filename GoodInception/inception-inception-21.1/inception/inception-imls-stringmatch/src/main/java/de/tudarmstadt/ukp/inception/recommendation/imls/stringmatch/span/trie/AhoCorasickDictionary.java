@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Immutable Aho-Corasick automaton compiled from a {@link Trie}. The goto function is stored as
+ * sorted edge lists in primitive arrays, so the dictionary needs a few bytes per state instead of a
+ * map per node. All matches in a text are found in a single pass.
+ *
+ * @param <V>
+ *            the value type.
+ */
+public class AhoCorasickDictionary<V>
+{
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final KeySanitizerFactory sanitizerFactory;
+
+    // Edges of state s are at [edgeOffsets[s], edgeOffsets[s + 1]), sorted by label
+    private final int[] edgeOffsets;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+    private final int[] failure;
+    // Nearest state in the failure chain that carries a value (or NONE)
+    private final int[] outputs;
+    private final int[] depths;
+    // Index into values if the state carries a value (or NONE)
+    private final int[] valueIndexes;
+    private final List<V> values;
+
+    private AhoCorasickDictionary(KeySanitizerFactory aSanitizerFactory, int[] aEdgeOffsets,
+            char[] aEdgeLabels, int[] aEdgeTargets, int[] aFailure, int[] aOutputs,
+            int[] aDepths, int[] aValueIndexes, List<V> aValues)
+    {
+        sanitizerFactory = aSanitizerFactory;
+        edgeOffsets = aEdgeOffsets;
+        edgeLabels = aEdgeLabels;
+        edgeTargets = aEdgeTargets;
+        failure = aFailure;
+        outputs = aOutputs;
+        depths = aDepths;
+        valueIndexes = aValueIndexes;
+        values = Collections.unmodifiableList(aValues);
+    }
+
+    /**
+     * Compile the given trie into a dictionary. The trie is not modified and can be discarded
+     * afterwards. Keys are matched using the same sanitizer as the trie.
+     *
+     * @param aTrie
+     *            the trie.
+     * @return the dictionary.
+     */
+    public static <V> AhoCorasickDictionary<V> compile(Trie<V> aTrie)
+    {
+        // Number the states in breadth-first order - this way, the children of a state get
+        // consecutive numbers and every state is numbered after all states of lower depth
+        List<Trie<V>.Node> nodes = new ArrayList<>();
+        nodes.add(aTrie.getRoot());
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.addAll(nodes.get(i).children.values());
+        }
+
+        int stateCount = nodes.size();
+        int edgeCount = stateCount - 1;
+        int[] edgeOffsets = new int[stateCount + 1];
+        char[] edgeLabels = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] depths = new int[stateCount];
+        int[] valueIndexes = new int[stateCount];
+        List<V> values = new ArrayList<>();
+
+        int edge = 0;
+        for (int state = 0; state < stateCount; state++) {
+            Trie<V>.Node node = nodes.get(state);
+            edgeOffsets[state] = edge;
+            depths[state] = node.level;
+            valueIndexes[state] = NONE;
+            if (node.set) {
+                valueIndexes[state] = values.size();
+                values.add(node.value);
+            }
+
+            // The trie uses a TreeMap for the children, so the labels are already sorted. Every
+            // state except the root has exactly one incoming edge, so edge e leads to state e + 1.
+            for (Entry<Character, Trie<V>.Node> child : node.children.entrySet()) {
+                edgeLabels[edge] = child.getKey();
+                edgeTargets[edge] = edge + 1;
+                edge++;
+            }
+        }
+        edgeOffsets[stateCount] = edge;
+
+        int[] failure = new int[stateCount];
+        int[] outputs = new int[stateCount];
+        outputs[ROOT] = NONE;
+
+        AhoCorasickDictionary<V> dict = new AhoCorasickDictionary<>(aTrie.getSanitizerFactory(),
+                edgeOffsets, edgeLabels, edgeTargets, failure, outputs, depths, valueIndexes,
+                values);
+
+        // The failure link of a state always points to a state of lower depth, so processing the
+        // states in breadth-first order guarantees that the links we rely on are already set
+        for (int state = 0; state < stateCount; state++) {
+            for (int e = edgeOffsets[state]; e < edgeOffsets[state + 1]; e++) {
+                int target = edgeTargets[e];
+                char label = edgeLabels[e];
+
+                int fallback = ROOT;
+                if (state != ROOT) {
+                    int f = failure[state];
+                    while (true) {
+                        int next = dict.transition(f, label);
+                        if (next != NONE) {
+                            fallback = next;
+                            break;
+                        }
+                        if (f == ROOT) {
+                            break;
+                        }
+                        f = failure[f];
+                    }
+                }
+
+                failure[target] = fallback;
+                outputs[target] = valueIndexes[fallback] != NONE ? fallback : outputs[fallback];
+            }
+        }
+
+        return dict;
+    }
+
+    /**
+     * @return the number of keys in the dictionary.
+     */
+    public int size()
+    {
+        return values.size();
+    }
+
+    /**
+     * @return the values of all keys in the dictionary.
+     */
+    public List<V> values()
+    {
+        return values;
+    }
+
+    /**
+     * Finds the longest key starting at each offset of the given text in a single pass over the
+     * text. The text is sanitized in the same way as the keys were when they were added to the
+     * trie.
+     *
+     * @param aText
+     *            the text.
+     * @return the matches.
+     */
+    public LongestMatches findLongestMatches(CharSequence aText)
+    {
+        int length = aText.length();
+        int[] ends = new int[length];
+        int[] matchValues = new int[length];
+        Arrays.fill(ends, NONE);
+
+        // Maps the offsets in the sanitized text back to the offsets in the original text
+        int[] originalOffsets = new int[length];
+
+        KeySanitizer sanitizer = sanitizerFactory != null ? sanitizerFactory.create() : null;
+        int state = ROOT;
+        int sanitizedOffset = 0;
+        for (int i = 0; i < length; i++) {
+            char c = aText.charAt(i);
+
+            if (sanitizer != null) {
+                c = sanitizer.map(c);
+                if (c == KeySanitizer.SKIP_CHAR) {
+                    continue;
+                }
+            }
+
+            originalOffsets[sanitizedOffset] = i;
+            state = step(state, c);
+
+            int match = valueIndexes[state] != NONE ? state : outputs[state];
+            while (match != NONE) {
+                int begin = originalOffsets[sanitizedOffset - depths[match] + 1];
+                // Matches are reported in order of their end, so a later match is always longer
+                ends[begin] = i + 1;
+                matchValues[begin] = valueIndexes[match];
+                match = outputs[match];
+            }
+
+            sanitizedOffset++;
+        }
+
+        return new LongestMatches(ends, matchValues);
+    }
+
+    private int step(int aState, char aChar)
+    {
+        int state = aState;
+        while (true) {
+            int next = transition(state, aChar);
+            if (next != NONE) {
+                return next;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    private int transition(int aState, char aChar)
+    {
+        int low = edgeOffsets[aState];
+        int high = edgeOffsets[aState + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = edgeLabels[mid];
+            if (label < aChar) {
+                low = mid + 1;
+            }
+            else if (label > aChar) {
+                high = mid - 1;
+            }
+            else {
+                return edgeTargets[mid];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * The longest key found at each offset of a text.
+     */
+    public class LongestMatches
+    {
+        private final int[] ends;
+        private final int[] matchValues;
+
+        private LongestMatches(int[] aEnds, int[] aValues)
+        {
+            ends = aEnds;
+            matchValues = aValues;
+        }
+
+        /**
+         * @param aBegin
+         *            an offset in the text.
+         * @return the end offset of the longest key starting at the given offset or {@code -1} if
+         *         no key starts there.
+         */
+        public int getEnd(int aBegin)
+        {
+            if (aBegin < 0 || aBegin >= ends.length) {
+                return NONE;
+            }
+
+            return ends[aBegin];
+        }
+
+        /**
+         * @param aBegin
+         *            an offset in the text.
+         * @return the value of the longest key starting at the given offset or {@code null} if no
+         *         key starts there.
+         */
+        public V getValue(int aBegin)
+        {
+            if (getEnd(aBegin) == NONE) {
+                return null;
+            }
+
+            return values.get(matchValues[aBegin]);
+        }
+    }
+}
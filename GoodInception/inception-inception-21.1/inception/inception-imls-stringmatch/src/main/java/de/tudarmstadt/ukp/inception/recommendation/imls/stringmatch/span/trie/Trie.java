@@ -85,6 +85,16 @@ public class Trie<V>
         sanitizerFactory = aSanitizer;
     }
 
+    Node getRoot()
+    {
+        return root;
+    }
+
+    KeySanitizerFactory getSanitizerFactory()
+    {
+        return sanitizerFactory;
+    }
+
     /**
      * @see Map#clear()
      */
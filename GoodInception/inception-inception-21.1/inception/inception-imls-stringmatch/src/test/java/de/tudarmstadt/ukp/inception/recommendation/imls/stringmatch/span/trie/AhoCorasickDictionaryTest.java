@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AhoCorasickDictionaryTest
+{
+    private Trie<String> trie;
+
+    @BeforeEach
+    public void setup()
+    {
+        trie = new Trie<>(WhitespaceNormalizingSanitizer.factory());
+    }
+
+    @Test
+    public void thatLongestMatchIsFoundAtEachOffset()
+    {
+        trie.put("New", "new");
+        trie.put("New York", "new york");
+        trie.put("York", "york");
+        trie.put("ork", "ork");
+
+        AhoCorasickDictionary<String> sut = AhoCorasickDictionary.compile(trie);
+
+        String text = "New York and New Yolk";
+        AhoCorasickDictionary<String>.LongestMatches matches = sut.findLongestMatches(text);
+
+        assertThat(sut.size()).isEqualTo(4);
+        assertThat(matches.getValue(0)).isEqualTo("new york");
+        assertThat(matches.getEnd(0)).isEqualTo(8);
+        assertThat(matches.getValue(4)).isEqualTo("york");
+        assertThat(matches.getValue(5)).isEqualTo("ork");
+        assertThat(matches.getValue(13)).isEqualTo("new");
+        assertThat(matches.getEnd(13)).isEqualTo(16);
+        assertThat(matches.getEnd(1)).isEqualTo(-1);
+        assertThat(matches.getValue(1)).isNull();
+        assertThat(matches.getEnd(text.length())).isEqualTo(-1);
+    }
+
+    @Test
+    public void thatMatchesFollowingAFailureAreFound()
+    {
+        trie.put("abcd", "abcd");
+        trie.put("bc", "bc");
+        trie.put("c", "c");
+
+        AhoCorasickDictionary<String> sut = AhoCorasickDictionary.compile(trie);
+
+        AhoCorasickDictionary<String>.LongestMatches matches = sut.findLongestMatches("abcx");
+
+        assertThat(matches.getEnd(0)).isEqualTo(-1);
+        assertThat(matches.getValue(1)).isEqualTo("bc");
+        assertThat(matches.getValue(2)).isEqualTo("c");
+    }
+
+    @Test
+    public void thatWhitespaceIsNormalized()
+    {
+        trie.put("  this is\ta test\n  .", "exists");
+
+        AhoCorasickDictionary<String> sut = AhoCorasickDictionary.compile(trie);
+
+        String text = "Yes,  this is\na  test  . Done";
+        AhoCorasickDictionary<String>.LongestMatches matches = sut.findLongestMatches(text);
+
+        assertThat(matches.getValue(6)).isEqualTo("exists");
+        assertThat(text.substring(6, matches.getEnd(6))).isEqualTo("this is\na  test  .");
+    }
+
+    @Test
+    public void thatKeysContainedInLongerKeysAreFound()
+    {
+        trie.put("John Smith", "PER");
+        trie.put("Smith", "PER-LAST");
+        trie.put("Darmstadt", "LOC");
+
+        AhoCorasickDictionary<String> sut = AhoCorasickDictionary.compile(trie);
+
+        String text = "John  Smith lives in Darmstadt";
+        AhoCorasickDictionary<String>.LongestMatches matches = sut.findLongestMatches(text);
+
+        assertThat(sut.values()).containsExactlyInAnyOrder("PER", "PER-LAST", "LOC");
+        assertThat(matches.getValue(0)).isEqualTo("PER");
+        assertThat(matches.getEnd(0)).isEqualTo(11);
+        assertThat(matches.getValue(6)).isEqualTo("PER-LAST");
+        assertThat(matches.getValue(21)).isEqualTo("LOC");
+    }
+}
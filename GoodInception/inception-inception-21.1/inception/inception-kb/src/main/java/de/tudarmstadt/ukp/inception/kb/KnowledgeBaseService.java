@@ -17,12 +17,14 @@
  */
 package de.tudarmstadt.ukp.inception.kb;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.LongConsumer;
 
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
@@ -33,6 +35,8 @@ import org.eclipse.rdf4j.repository.config.RepositoryImplConfig;
 import org.eclipse.rdf4j.rio.RDFFormat;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.kb.bulk.BulkImportTask;
 import de.tudarmstadt.ukp.inception.kb.graph.KBConcept;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBInstance;
@@ -59,6 +63,70 @@ public interface KnowledgeBaseService
 
     void importData(KnowledgeBase kb, String aFilename, InputStream aIS) throws IOException;
 
+    /**
+     * Copies a file to the staging area of a local knowledge base from where it can be imported
+     * using {@link #bulkImportData}. If a file with the same name and content has already been
+     * staged, e.g. because its import was interrupted, the staged file is kept so that the import
+     * resumes where it stopped.
+     *
+     * @param aKB
+     *            the knowledge base to import the file into.
+     * @param aFilename
+     *            the original name of the file - used to determine the RDF format.
+     * @param aFile
+     *            the file to stage.
+     * @return the staged file.
+     * @throws IOException
+     *             if the file cannot be copied.
+     */
+    File stageBulkImport(KnowledgeBase aKB, String aFilename, File aFile) throws IOException;
+
+    /**
+     * Imports a file staged via {@link #stageBulkImport} into a local knowledge base. The data is
+     * parsed in a streaming fashion and committed in chunks. The full text index is not updated
+     * during the import but rebuilt once at the end. If the import is interrupted, calling this
+     * method again with the same staged file continues after the last committed chunk. Once the
+     * import is complete, the staged file is removed.
+     *
+     * @param aKB
+     *            the knowledge base to import the file into.
+     * @param aStagedFile
+     *            the staged file.
+     * @param aProgressListener
+     *            notified about the number of statements imported so far after every chunk.
+     * @throws IOException
+     *             if the file cannot be read or the import is interrupted.
+     */
+    void bulkImportData(KnowledgeBase aKB, File aStagedFile, LongConsumer aProgressListener)
+        throws IOException;
+
+    /**
+     * Stages a file via {@link #stageBulkImport} and schedules a {@link BulkImportTask} which
+     * imports it in the background.
+     *
+     * @param aUser
+     *            the user requesting the import.
+     * @param aKB
+     *            the knowledge base to import the file into.
+     * @param aFilename
+     *            the original name of the file - used to determine the RDF format.
+     * @param aFile
+     *            the file to import.
+     * @return the task importing the file.
+     * @throws IOException
+     *             if the file cannot be staged.
+     */
+    BulkImportTask scheduleBulkImport(User aUser, KnowledgeBase aKB, String aFilename, File aFile)
+        throws IOException;
+
+    /**
+     * @param aKB
+     *            a knowledge base.
+     * @return the background imports into the given knowledge base which are waiting, running or
+     *         have finished. A finished import is listed until the same file is imported again.
+     */
+    List<BulkImportTask> listBulkImports(KnowledgeBase aKB);
+
     /**
      * Writes the contents of a knowledge base of type {@link RepositoryType#LOCAL} to a given
      * {@link OutputStream} in a specifiable format.<br>
@@ -21,7 +21,9 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.ProjectService.withProjectLo
 import static de.tudarmstadt.ukp.inception.kb.http.PerThreadSslCheckingHttpClientUtils.restoreSslVerification;
 import static de.tudarmstadt.ukp.inception.kb.http.PerThreadSslCheckingHttpClientUtils.skipCertificateChecks;
 import static de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryBuilder.DEFAULT_LIMIT;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.substringAfter;
 import static org.apache.commons.lang3.StringUtils.substringBefore;
@@ -37,11 +39,14 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
@@ -51,7 +56,10 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -83,6 +91,7 @@ import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFParseException;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.sail.Sail;
 import org.eclipse.rdf4j.sail.lucene.LuceneSail;
 import org.eclipse.rdf4j.sail.lucene.config.LuceneSailConfig;
 import org.eclipse.rdf4j.sail.nativerdf.config.NativeStoreConfig;
@@ -107,8 +116,11 @@ import com.github.benmanes.caffeine.cache.LoadingCache;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.SettingsUtil;
 import de.tudarmstadt.ukp.clarin.webanno.support.StopWatch;
+import de.tudarmstadt.ukp.inception.kb.bulk.BulkImportTask;
+import de.tudarmstadt.ukp.inception.kb.bulk.BulkLoader;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseConfigurationChangedEvent;
@@ -127,6 +139,7 @@ import de.tudarmstadt.ukp.inception.kb.reification.NoReification;
 import de.tudarmstadt.ukp.inception.kb.reification.ReificationStrategy;
 import de.tudarmstadt.ukp.inception.kb.reification.WikiDataReification;
 import de.tudarmstadt.ukp.inception.kb.yaml.KnowledgeBaseProfile;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 
 /**
  * <p>
@@ -140,12 +153,16 @@ public class KnowledgeBaseServiceImpl
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private @PersistenceContext EntityManager entityManager;
+    private @Autowired SchedulingService schedulingService;
     private final RepositoryManager repoManager;
     private final File kbRepositoriesRoot;
     private final KnowledgeBaseProperties properties;
 
     private final LoadingCache<QueryKey, List<KBHandle>> queryCache;
 
+    // Background imports by repository ID and staged file - guarded by the map itself
+    private final Map<String, Map<File, BulkImportTask>> bulkImports = new HashMap<>();
+
     @Autowired
     public KnowledgeBaseServiceImpl(RepositoryProperties aRepoProperties,
             KnowledgeBaseProperties aKBProperties)
@@ -401,6 +418,17 @@ public class KnowledgeBaseServiceImpl
 
         repoManager.removeRepository(aKB.getRepositoryId());
 
+        synchronized (bulkImports) {
+            bulkImports.remove(aKB.getRepositoryId());
+        }
+
+        try {
+            FileUtils.deleteDirectory(getBulkImportFolder(aKB));
+        }
+        catch (IOException e) {
+            log.warn("Unable to remove staged imports of knowledge base [{}]", aKB.getName(), e);
+        }
+
         entityManager.remove(entityManager.contains(aKB) ? aKB : entityManager.merge(aKB));
     }
 
@@ -489,15 +517,8 @@ public class KnowledgeBaseServiceImpl
             return;
         }
 
-        InputStream is = new BufferedInputStream(aIS);
-        try {
-            // Stream is expected to be closed by caller of importData
-            is = new CompressorStreamFactory().createCompressorInputStream(is);
-        }
-        catch (CompressorException e) {
-            // Probably not compressed then or unknown format - just try as is.
-            log.debug("Stream is not compressed, continue as is.");
-        }
+        // Stream is expected to be closed by caller of importData
+        InputStream is = decompress(aIS);
 
         // Detect the file format
         RDFFormat format = Rio.getParserFormatForFileName(aFilename).orElse(RDFFormat.RDFXML);
@@ -512,6 +533,166 @@ public class KnowledgeBaseServiceImpl
         }
     }
 
+    private InputStream decompress(InputStream aIS)
+    {
+        InputStream is = new BufferedInputStream(aIS);
+        try {
+            is = new CompressorStreamFactory().createCompressorInputStream(is);
+        }
+        catch (CompressorException e) {
+            // Probably not compressed then or unknown format - just try as is.
+            log.debug("Stream is not compressed, continue as is.");
+        }
+        return is;
+    }
+
+    @Override
+    public File stageBulkImport(KnowledgeBase aKB, String aFilename, File aFile)
+        throws IOException
+    {
+        File stagedFile = getBulkImportStagedFile(aKB, aFilename);
+        File hashFile = getBulkImportHashFile(stagedFile);
+
+        String hash;
+        try (InputStream is = Files.newInputStream(aFile.toPath())) {
+            hash = DigestUtils.sha256Hex(is);
+        }
+
+        // A different file with the same name and size must not resume the previous import, so
+        // we compare the content hash recorded when the previous file was staged
+        if (stagedFile.exists() && hashFile.exists()
+                && hash.equals(FileUtils.readFileToString(hashFile, UTF_8).trim())) {
+            log.info("Resuming interrupted import of [{}] into knowledge base [{}]", aFilename,
+                    aKB.getName());
+            return stagedFile;
+        }
+
+        Files.createDirectories(stagedFile.getParentFile().toPath());
+        Files.deleteIfExists(hashFile.toPath());
+        Files.deleteIfExists(getBulkImportProgressFile(stagedFile).toPath());
+        Files.copy(aFile.toPath(), stagedFile.toPath(), REPLACE_EXISTING);
+        // Record the hash only once the copy is complete so that a partial copy is never resumed
+        FileUtils.writeStringToFile(hashFile, hash, UTF_8);
+        return stagedFile;
+    }
+
+    @Override
+    public BulkImportTask scheduleBulkImport(User aUser, KnowledgeBase aKB, String aFilename,
+            File aFile)
+        throws IOException
+    {
+        File stagedFile = getBulkImportStagedFile(aKB, aFilename);
+        BulkImportTask task = new BulkImportTask(aUser, aKB, stagedFile);
+
+        // Register the task before staging so that staging cannot replace a file which is still
+        // being read by an earlier import of a file with the same name
+        synchronized (bulkImports) {
+            Map<File, BulkImportTask> imports = bulkImports
+                    .computeIfAbsent(aKB.getRepositoryId(), k -> new LinkedHashMap<>());
+            BulkImportTask previous = imports.get(stagedFile);
+            if (previous != null && !previous.isDone()) {
+                throw new IOException("[" + aFilename + "] is still being imported");
+            }
+            imports.put(stagedFile, task);
+        }
+
+        try {
+            stageBulkImport(aKB, aFilename, aFile);
+        }
+        catch (IOException e) {
+            synchronized (bulkImports) {
+                bulkImports.getOrDefault(aKB.getRepositoryId(), emptyMap()).remove(stagedFile);
+            }
+            throw e;
+        }
+
+        schedulingService.enqueue(task);
+        return task;
+    }
+
+    @Override
+    public List<BulkImportTask> listBulkImports(KnowledgeBase aKB)
+    {
+        synchronized (bulkImports) {
+            return new ArrayList<>(
+                    bulkImports.getOrDefault(aKB.getRepositoryId(), emptyMap()).values());
+        }
+    }
+
+    @Override
+    public void bulkImportData(KnowledgeBase aKB, File aStagedFile,
+            LongConsumer aProgressListener)
+        throws IOException
+    {
+        if (aKB.isReadOnly()) {
+            log.warn("Knowledge base [{}] is read only, will not import!", aKB.getName());
+            return;
+        }
+
+        Repository repo = repoManager.getRepository(aKB.getRepositoryId());
+        if (!RepositoryType.LOCAL.equals(aKB.getType()) || !(repo instanceof SailRepository)) {
+            throw new IllegalArgumentException("Bulk import is only supported on local KBs");
+        }
+
+        // Load directly into the store underneath the full text index. Updating the index
+        // statement by statement is much slower than rebuilding it once at the end.
+        Sail sail = ((SailRepository) repo).getSail();
+        boolean fullTextIndex = sail instanceof LuceneSail;
+        if (fullTextIndex) {
+            sail = ((LuceneSail) sail).getBaseSail();
+        }
+
+        RDFFormat format = Rio.getParserFormatForFileName(aStagedFile.getName())
+                .orElse(RDFFormat.RDFXML);
+        // See importData for why the hash is dropped from the base prefix
+        String prefix = StringUtils.removeEnd(aKB.getBasePrefix(), "#");
+
+        File progressFile = getBulkImportProgressFile(aStagedFile);
+        BulkLoader loader = new BulkLoader(progressFile, properties.getBulkImportChunkSize());
+
+        long statements;
+        try (StopWatch watch = new StopWatch(log, "bulkImportData(%s)", aStagedFile.getName());
+                InputStream is = decompress(Files.newInputStream(aStagedFile.toPath()))) {
+            statements = loader.load(sail, is, format, prefix, aProgressListener);
+        }
+
+        if (fullTextIndex) {
+            try {
+                rebuildFullTextIndex(aKB);
+            }
+            catch (Exception e) {
+                throw new IOException("Unable to rebuild full text index", e);
+            }
+        }
+
+        log.info("Imported [{}] statements from [{}] into knowledge base [{}]", statements,
+                aStagedFile.getName(), aKB.getName());
+
+        Files.deleteIfExists(progressFile.toPath());
+        Files.deleteIfExists(getBulkImportHashFile(aStagedFile).toPath());
+        Files.deleteIfExists(aStagedFile.toPath());
+    }
+
+    private File getBulkImportFolder(KnowledgeBase aKB)
+    {
+        return new File(kbRepositoriesRoot, "imports/" + aKB.getRepositoryId());
+    }
+
+    private File getBulkImportStagedFile(KnowledgeBase aKB, String aFilename)
+    {
+        return new File(getBulkImportFolder(aKB), FilenameUtils.getName(aFilename));
+    }
+
+    private File getBulkImportProgressFile(File aStagedFile)
+    {
+        return new File(aStagedFile.getPath() + ".progress");
+    }
+
+    private File getBulkImportHashFile(File aStagedFile)
+    {
+        return new File(aStagedFile.getPath() + ".sha256");
+    }
+
     @Override
     public void exportData(KnowledgeBase kb, RDFFormat format, OutputStream os)
     {
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.bulk;
+
+import java.io.File;
+import java.util.Objects;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+import de.tudarmstadt.ukp.inception.scheduling.Task;
+
+/**
+ * Imports a file staged via {@link KnowledgeBaseService#stageBulkImport} into a local knowledge
+ * base in the background. Use {@link KnowledgeBaseService#scheduleBulkImport} to create and
+ * schedule the task.
+ */
+public class BulkImportTask
+    extends Task
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private @Autowired KnowledgeBaseService kbService;
+
+    private final KnowledgeBase knowledgeBase;
+    private final File stagedFile;
+
+    private volatile long progress = 0;
+    private volatile boolean done = false;
+    private volatile String errorMessage;
+
+    public BulkImportTask(User aUser, KnowledgeBase aKnowledgeBase, File aStagedFile)
+    {
+        super(aUser, aKnowledgeBase.getProject(), "Bulk import of [" + aStagedFile.getName()
+                + "] into knowledge base [" + aKnowledgeBase.getName() + "]");
+        knowledgeBase = aKnowledgeBase;
+        stagedFile = aStagedFile;
+    }
+
+    @Override
+    public void execute()
+    {
+        try {
+            kbService.bulkImportData(knowledgeBase, stagedFile, count -> progress = count);
+        }
+        catch (Exception e) {
+            errorMessage = ExceptionUtils.getRootCauseMessage(e);
+            log.error("Bulk import of [{}] into knowledge base [{}] failed - it can be resumed by "
+                    + "importing the file again", stagedFile.getName(), knowledgeBase.getName(),
+                    e);
+        }
+        finally {
+            done = true;
+        }
+    }
+
+    public KnowledgeBase getKnowledgeBase()
+    {
+        return knowledgeBase;
+    }
+
+    /**
+     * @return the name of the file being imported.
+     */
+    public String getFileName()
+    {
+        return stagedFile.getName();
+    }
+
+    /**
+     * @return the number of statements imported so far.
+     */
+    public long getProgress()
+    {
+        return progress;
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * @return an error message if the import failed.
+     */
+    public String getErrorMessage()
+    {
+        return errorMessage;
+    }
+
+    @Override
+    public boolean equals(Object aOther)
+    {
+        if (!(aOther instanceof BulkImportTask)) {
+            return false;
+        }
+
+        // Several files may be imported into the same knowledge base - only the import of the
+        // same file must not be scheduled twice
+        BulkImportTask castOther = (BulkImportTask) aOther;
+        return super.equals(aOther) && stagedFile.equals(castOther.stagedFile);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(super.hashCode(), stagedFile);
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.bulk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.AbstractValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.sail.Sail;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams RDF data into a {@link Sail}, committing every {@code chunkSize} statements. After each
+ * chunk, the number of committed statements is recorded in a progress file. If the progress file
+ * exists when loading starts, the statements committed by the interrupted load are skipped.
+ * <p>
+ * Blank nodes are given identifiers derived from an import ID which is also kept in the progress
+ * file. Thus, a resumed load assigns the same identifiers to the blank nodes as the interrupted
+ * one did and statements about a blank node that straddle a chunk boundary stay connected.
+ */
+public class BulkLoader
+{
+    private static final String PROP_IMPORT_ID = "importId";
+    private static final String PROP_STATEMENTS = "statements";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final File progressFile;
+    private final int chunkSize;
+
+    public BulkLoader(File aProgressFile, int aChunkSize)
+    {
+        progressFile = aProgressFile;
+        chunkSize = aChunkSize;
+    }
+
+    /**
+     * @return the number of statements committed by previous (interrupted) loads.
+     */
+    public long getCommittedStatements() throws IOException
+    {
+        return Long.parseLong(readProgress().getProperty(PROP_STATEMENTS, "0"));
+    }
+
+    /**
+     * @param aSail
+     *            the sail to load the data into.
+     * @param aStream
+     *            the RDF data. The stream is not closed.
+     * @param aFormat
+     *            the format of the data.
+     * @param aBaseUri
+     *            the base URI against which relative URIs are resolved.
+     * @param aProgressListener
+     *            notified about the total number of committed statements after every chunk.
+     * @return the total number of statements loaded, including those of previous loads.
+     */
+    public long load(Sail aSail, InputStream aStream, RDFFormat aFormat, String aBaseUri,
+            LongConsumer aProgressListener)
+        throws IOException
+    {
+        Properties progress = readProgress();
+        String importId = progress.getProperty(PROP_IMPORT_ID);
+        if (importId == null) {
+            importId = UUID.randomUUID().toString().replace("-", "");
+            progress.setProperty(PROP_IMPORT_ID, importId);
+        }
+        long skip = Long.parseLong(progress.getProperty(PROP_STATEMENTS, "0"));
+
+        if (skip > 0) {
+            log.info("Resuming bulk load after [{}] statements", skip);
+        }
+
+        RDFParser parser = Rio.createParser(aFormat, new StableBNodeValueFactory(importId));
+        parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+
+        try (SailConnection conn = aSail.getConnection()) {
+            ChunkingHandler handler = new ChunkingHandler(conn, skip, count -> {
+                progress.setProperty(PROP_STATEMENTS, String.valueOf(count));
+                writeProgress(progress);
+                aProgressListener.accept(count);
+            });
+            parser.setRDFHandler(handler);
+
+            try {
+                parser.parse(aStream, aBaseUri);
+            }
+            catch (IOException | RuntimeException e) {
+                // Drop the partial chunk - it is loaded again when the import is resumed
+                if (conn.isActive()) {
+                    conn.rollback();
+                }
+                if (e instanceof RDFHandlerException && e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+
+            return handler.getStatementCount();
+        }
+    }
+
+    private Properties readProgress() throws IOException
+    {
+        Properties progress = new Properties();
+        if (progressFile.exists()) {
+            try (Reader reader = Files.newBufferedReader(progressFile.toPath(), UTF_8)) {
+                progress.load(reader);
+            }
+        }
+        return progress;
+    }
+
+    private void writeProgress(Properties aProgress)
+    {
+        // Write to a temporary file first so an interruption cannot leave a corrupt progress file
+        File tmp = new File(progressFile.getPath() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp.toPath(), UTF_8)) {
+                aProgress.store(writer, null);
+            }
+            Files.move(tmp.toPath(), progressFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    private class ChunkingHandler
+        extends AbstractRDFHandler
+    {
+        private final SailConnection conn;
+        private final long skip;
+        private final LongConsumer chunkListener;
+
+        private long statementCount = 0;
+
+        ChunkingHandler(SailConnection aConn, long aSkip, LongConsumer aChunkListener)
+        {
+            conn = aConn;
+            skip = aSkip;
+            chunkListener = aChunkListener;
+        }
+
+        @Override
+        public void startRDF()
+        {
+            conn.begin();
+        }
+
+        @Override
+        public void handleNamespace(String aPrefix, String aUri)
+        {
+            conn.setNamespace(aPrefix, aUri);
+        }
+
+        @Override
+        public void handleStatement(Statement aStatement)
+        {
+            statementCount++;
+
+            // Statements already committed by an interrupted load
+            if (statementCount <= skip) {
+                return;
+            }
+
+            if (aStatement.getContext() != null) {
+                conn.addStatement(aStatement.getSubject(), aStatement.getPredicate(),
+                        aStatement.getObject(), aStatement.getContext());
+            }
+            else {
+                conn.addStatement(aStatement.getSubject(), aStatement.getPredicate(),
+                        aStatement.getObject());
+            }
+
+            if (statementCount % chunkSize == 0) {
+                commitChunk();
+
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RDFHandlerException(new InterruptedIOException(
+                            "Bulk load interrupted after [" + statementCount + "] statements"));
+                }
+
+                conn.begin();
+            }
+        }
+
+        @Override
+        public void endRDF()
+        {
+            commitChunk();
+        }
+
+        private void commitChunk()
+        {
+            conn.commit();
+            if (statementCount > skip) {
+                chunkListener.accept(statementCount);
+            }
+        }
+
+        long getStatementCount()
+        {
+            return statementCount;
+        }
+    }
+
+    /**
+     * Prefixes the blank node IDs from the data with the import ID and numbers anonymous blank
+     * nodes in the order in which they are encountered.
+     */
+    private static class StableBNodeValueFactory
+        extends AbstractValueFactory
+    {
+        private final String prefix;
+        private final AtomicLong nextAnonymousId = new AtomicLong();
+
+        StableBNodeValueFactory(String aImportId)
+        {
+            prefix = "bulk" + aImportId;
+        }
+
+        @Override
+        public BNode createBNode()
+        {
+            return super.createBNode(prefix + "a" + nextAnonymousId.incrementAndGet());
+        }
+
+        @Override
+        public BNode createBNode(String aNodeId)
+        {
+            return super.createBNode(prefix + "n" + aNodeId);
+        }
+    }
+}
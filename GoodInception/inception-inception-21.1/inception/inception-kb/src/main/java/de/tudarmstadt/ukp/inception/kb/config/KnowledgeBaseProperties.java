@@ -19,6 +19,8 @@ package de.tudarmstadt.ukp.inception.kb.config;
 
 import java.time.Duration;
 
+import org.springframework.util.unit.DataSize;
+
 public interface KnowledgeBaseProperties
 {
     int getDefaultMaxResults();
@@ -52,4 +54,15 @@ public interface KnowledgeBaseProperties
     Duration getRenderCacheExpireDelay();
 
     long getRenderCacheSize();
+
+    /**
+     * @return the size from which uploaded files are imported into local knowledge bases in the
+     *         background using the bulk loader.
+     */
+    DataSize getBulkImportThreshold();
+
+    /**
+     * @return the number of statements committed at once by the bulk loader.
+     */
+    int getBulkImportChunkSize();
 }
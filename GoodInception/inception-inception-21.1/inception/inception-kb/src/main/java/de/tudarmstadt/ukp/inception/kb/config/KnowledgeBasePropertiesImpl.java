@@ -24,6 +24,7 @@ import java.time.Duration;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.convert.DurationUnit;
+import org.springframework.util.unit.DataSize;
 
 /**
  * <p>
@@ -49,6 +50,9 @@ public class KnowledgeBasePropertiesImpl
     private @DurationUnit(MINUTES) Duration renderCacheExpireDelay = ofMinutes(10);
     private @DurationUnit(MINUTES) Duration renderCacheRefreshDelay = ofMinutes(1);
 
+    private DataSize bulkImportThreshold = DataSize.ofMegabytes(50);
+    private int bulkImportChunkSize = 100_000;
+
     @Override
     public int getDefaultMaxResults()
     {
@@ -147,4 +151,26 @@ public class KnowledgeBasePropertiesImpl
     {
         renderCacheRefreshDelay = aRenderCacheRefreshDelay;
     }
+
+    @Override
+    public DataSize getBulkImportThreshold()
+    {
+        return bulkImportThreshold;
+    }
+
+    public void setBulkImportThreshold(DataSize aBulkImportThreshold)
+    {
+        bulkImportThreshold = aBulkImportThreshold;
+    }
+
+    @Override
+    public int getBulkImportChunkSize()
+    {
+        return bulkImportChunkSize;
+    }
+
+    public void setBulkImportChunkSize(int aBulkImportChunkSize)
+    {
+        bulkImportChunkSize = aBulkImportChunkSize;
+    }
 }
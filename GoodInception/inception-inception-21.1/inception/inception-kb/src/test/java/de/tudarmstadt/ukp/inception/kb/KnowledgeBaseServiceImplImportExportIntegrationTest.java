@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.kb;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
@@ -24,6 +25,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -31,6 +33,7 @@ import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 
+import org.apache.commons.io.FileUtils;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -47,7 +50,6 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
-import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBasePropertiesImpl;
 import de.tudarmstadt.ukp.inception.kb.graph.KBConcept;
 import de.tudarmstadt.ukp.inception.kb.graph.KBInstance;
@@ -91,7 +93,9 @@ public class KnowledgeBaseServiceImplImportExportIntegrationTest
     {
         RepositoryProperties repoProps = new RepositoryProperties();
         repoProps.setPath(temporaryFolder);
-        KnowledgeBaseProperties kbProperties = new KnowledgeBasePropertiesImpl();
+        KnowledgeBasePropertiesImpl kbProperties = new KnowledgeBasePropertiesImpl();
+        // Use small chunks so that the bulk import commits several times
+        kbProperties.setBulkImportChunkSize(10);
         EntityManager entityManager = testEntityManager.getEntityManager();
         testFixtures = new TestFixtures(testEntityManager);
         sut = new KnowledgeBaseServiceImpl(repoProps, kbProperties, entityManager);
@@ -193,6 +197,62 @@ public class KnowledgeBaseServiceImplImportExportIntegrationTest
                 .containsExactlyInAnyOrder(666);
     }
 
+    @Test
+    public void bulkImportData_WithStagedTtl_ShouldImportTriplesAndRemoveStagedFile()
+        throws Exception
+    {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        File dataFile = new File(
+                getClass().getClassLoader().getResource("data/pets.ttl").getFile());
+        File stagedFile = sut.stageBulkImport(kb, dataFile.getName(), dataFile);
+
+        List<Long> progress = new ArrayList<>();
+        sut.bulkImportData(kb, stagedFile, progress::add);
+
+        Stream<String> conceptLabels = sut.listAllConcepts(kb, false).stream()
+                .map(KBObject::getName);
+        Stream<String> propertyLabels = sut.listProperties(kb, false).stream()
+                .map(KBObject::getName);
+        assertThat(conceptLabels).as("Check that concepts all have been imported")
+                .containsExactlyInAnyOrder("Animal", "Character", "Cat", "Dog");
+        assertThat(propertyLabels).as("Check that properties all have been imported")
+                .containsExactlyInAnyOrder("Loves", "Hates", "Has Character", "Year Of Birth");
+        assertThat(progress) //
+                .as("Check that progress has been reported after every chunk") //
+                .hasSizeGreaterThan(1) //
+                .isSorted();
+        assertThat(stagedFile).as("Check that the staged file has been removed").doesNotExist();
+    }
+
+    @Test
+    public void stageBulkImport_WithDifferentContentOfSameSize_ShouldNotResume() throws Exception
+    {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        File uploadFolder = new File(temporaryFolder, "upload");
+        File original = new File(uploadFolder, "original/data.ttl");
+        File changed = new File(uploadFolder, "changed/data.ttl");
+        FileUtils.writeStringToFile(original, "<urn:a> <urn:b> <urn:c> .", UTF_8);
+        FileUtils.writeStringToFile(changed, "<urn:x> <urn:y> <urn:z> .", UTF_8);
+
+        File stagedFile = sut.stageBulkImport(kb, original.getName(), original);
+        // Pretend that the import of the staged file has been interrupted after the first chunk
+        File progressFile = new File(stagedFile.getPath() + ".progress");
+        FileUtils.writeStringToFile(progressFile, "1", UTF_8);
+
+        sut.stageBulkImport(kb, original.getName(), original);
+        assertThat(progressFile) //
+                .as("Check that staging the same file again resumes the import") //
+                .exists();
+
+        sut.stageBulkImport(kb, changed.getName(), changed);
+        assertThat(progressFile) //
+                .as("Check that staging a different file restarts the import") //
+                .doesNotExist();
+        assertThat(stagedFile).hasSameTextualContentAs(changed);
+    }
+
     @Test
     public void exportData_WithLocalKnowledgeBase_ShouldExportKnowledgeBase() throws Exception
     {
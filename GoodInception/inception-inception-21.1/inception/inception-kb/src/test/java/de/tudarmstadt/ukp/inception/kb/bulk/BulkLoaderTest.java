@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.bulk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BulkLoaderTest
+{
+    private static final String DATA = String.join("\n", //
+            "<http://example.org/a> <http://example.org/p> \"1\" .", //
+            "<http://example.org/b> <http://example.org/p> \"2\" .", //
+            "_:x <http://example.org/p> \"3\" .", //
+            "_:x <http://example.org/q> \"4\" .", //
+            "<http://example.org/c> <http://example.org/p> \"5\" .");
+
+    private @TempDir File tempDir;
+
+    private MemoryStore store;
+
+    @BeforeEach
+    public void setup()
+    {
+        store = new MemoryStore();
+        store.init();
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        store.shutDown();
+    }
+
+    @Test
+    public void thatDataIsCommittedInChunks() throws Exception
+    {
+        BulkLoader sut = new BulkLoader(new File(tempDir, "progress"), 2);
+
+        List<Long> progress = new ArrayList<>();
+        long count = sut.load(store, data(), RDFFormat.NTRIPLES, "http://example.org/",
+                progress::add);
+
+        assertThat(count).isEqualTo(5);
+        assertThat(progress).containsExactly(2l, 4l, 5l);
+        assertThat(statements()).hasSize(5);
+    }
+
+    @Test
+    public void thatInterruptedLoadIsResumed() throws Exception
+    {
+        File progressFile = new File(tempDir, "progress");
+
+        // Abort the first load after the first chunk has been committed
+        BulkLoader first = new BulkLoader(progressFile, 3);
+        assertThatThrownBy(() -> first.load(store, data(), RDFFormat.NTRIPLES,
+                "http://example.org/", count -> {
+                    throw new IllegalStateException("Crash");
+                })).hasMessageContaining("Crash");
+
+        assertThat(statements()).hasSize(3);
+        assertThat(first.getCommittedStatements()).isEqualTo(3);
+
+        BulkLoader second = new BulkLoader(progressFile, 3);
+        List<Long> progress = new ArrayList<>();
+        second.load(store, data(), RDFFormat.NTRIPLES, "http://example.org/", progress::add);
+
+        assertThat(progress) //
+                .as("Only the statements after the first chunk are loaded again") //
+                .containsExactly(5l);
+        assertThat(statements()).hasSize(5);
+
+        Set<Resource> blankNodes = statements().stream() //
+                .map(Statement::getSubject) //
+                .filter(s -> s instanceof BNode) //
+                .collect(Collectors.toSet());
+        assertThat(blankNodes) //
+                .as("Blank node spanning the chunk boundary is the same in both loads") //
+                .hasSize(1);
+    }
+
+    private InputStream data()
+    {
+        return new ByteArrayInputStream(DATA.getBytes(UTF_8));
+    }
+
+    private List<Statement> statements()
+    {
+        try (SailConnection conn = store.getConnection()) {
+            return Iterations.asList(conn.getStatements(null, null, null, false));
+        }
+    }
+}
@@ -17,14 +17,16 @@
  */
 package de.tudarmstadt.ukp.inception.log;
 
+import static de.tudarmstadt.ukp.inception.log.config.EventLoggingOverflowPolicy.DROP_OLDEST;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,14 +35,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.EventListener;
 
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Counter;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapter;
 import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapterRegistry;
 import de.tudarmstadt.ukp.inception.log.config.EventLoggingAutoConfiguration;
 import de.tudarmstadt.ukp.inception.log.config.EventLoggingProperties;
+import de.tudarmstadt.ukp.inception.log.metrics.EventLoggingMetrics;
 import de.tudarmstadt.ukp.inception.log.model.LoggedEvent;
 import de.tudarmstadt.ukp.inception.support.spring.StartupProgressInfoEvent;
 
 /**
+ * Converts application events to {@link LoggedEvent logged events} and writes them to the
+ * database. Events are placed in a bounded queue which is drained by a dedicated writer thread
+ * that stores them in batches. Threads publishing events never block on the database - if the
+ * queue is full, events are dropped according to the configured overflow policy.
  * <p>
  * This class is exposed as a Spring Component via
  * {@link EventLoggingAutoConfiguration#eventLoggingListener}.
@@ -49,28 +59,41 @@ import de.tudarmstadt.ukp.inception.support.spring.StartupProgressInfoEvent;
 public class EventLoggingListener
     implements DisposableBean
 {
+    private static final int DROP_WARNING_INTERVAL = 1000;
+
+    private static final Timer FLUSH_TIMER = Metrics.timer("inception_event_log_flush",
+            "Time spent writing a batch of logged events to the database");
+    private static final Counter DROPPED_COUNTER = Metrics.counter(
+            "inception_event_log_dropped_total", "Number of events dropped due to a full queue");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final EventRepository repo;
-    private final ScheduledExecutorService scheduler;
-    private final Deque<LoggedEvent> queue;
+    private final BlockingQueue<LoggedEvent> queue;
     private final EventLoggingProperties properties;
     private final EventLoggingAdapterRegistry adapterRegistry;
+    private final EventLoggingMetrics metrics;
+    private final Thread writer;
+    private final AtomicLong droppedEvents = new AtomicLong();
 
-    private volatile boolean flushing = false;
+    private volatile boolean running = true;
 
     @Autowired
     public EventLoggingListener(EventRepository aRepo, EventLoggingProperties aProperties,
-            EventLoggingAdapterRegistry aAdapterRegistry)
+            EventLoggingAdapterRegistry aAdapterRegistry, EventLoggingMetrics aMetrics)
     {
         repo = aRepo;
         properties = aProperties;
         adapterRegistry = aAdapterRegistry;
+        metrics = aMetrics;
 
-        queue = new ConcurrentLinkedDeque<>();
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        Metrics.gauge("inception_event_log_queue_size",
+                "Number of events waiting to be written to the database", queue::size);
 
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(() -> flush(), 1, 1, TimeUnit.SECONDS);
+        writer = new Thread(this::writeLoop, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
     }
 
     @EventListener
@@ -100,49 +123,122 @@ public class EventLoggingListener
                 return;
             }
 
-            // Add to the writing queue which gets flushed regularly by a timer
-            queue.add(e);
+            // Add to the writing queue which is drained by the writer thread
+            enqueue(e);
+        }
+    }
+
+    void enqueue(LoggedEvent aEvent)
+    {
+        if (queue.offer(aEvent)) {
+            return;
+        }
 
-            // If the queue gets too large, force a flush even if the timer is not there yet
-            if (queue.size() > 1000) {
-                flush();
+        // The queue is full - we never wait for the writer to make room
+        if (properties.getOverflowPolicy() == DROP_OLDEST) {
+            // Another thread may have taken the slot we freed, so we only try once
+            if (queue.poll() != null) {
+                eventDropped();
+            }
+            if (queue.offer(aEvent)) {
+                return;
             }
         }
+
+        eventDropped();
     }
 
-    public void flush()
+    private void eventDropped()
     {
-        // If a flushing process is already in progress, we can abort here already. No need to
-        // wait for obtaining a synchronize lock. This also avoids a deadlock situation that was
-        // observed when importing huge tagsets with HSQLDB.
-        if (flushing) {
-            return;
+        metrics.eventDropped(queue.size());
+        DROPPED_COUNTER.increment();
+
+        long dropped = droppedEvents.incrementAndGet();
+        if (dropped % DROP_WARNING_INTERVAL == 1) {
+            log.warn("Event log queue is full (capacity {}) - {} event(s) dropped so far",
+                    properties.getQueueCapacity(), dropped);
         }
+    }
 
-        synchronized (queue) {
-            try {
-                flushing = true;
+    private void writeLoop()
+    {
+        long flushInterval = properties.getFlushInterval().toMillis();
+        int batchSize = properties.getBatchSize();
 
-                // Fetch all items that are currently in the queue
-                List<LoggedEvent> batch = new ArrayList<>();
-                while (!queue.isEmpty()) {
-                    batch.add(queue.pop());
+        while (running) {
+            List<LoggedEvent> batch = new ArrayList<>(batchSize);
+            try {
+                LoggedEvent first = queue.poll(flushInterval, MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Collect further events until the batch is full or the flush interval has
+                // passed - this groups events arriving in short succession into one commit
+                long deadline = System.currentTimeMillis() + flushInterval;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+
+                    LoggedEvent next = queue.poll(remaining, MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
                 }
-
-                // And dump them into the database
-                repo.create(batch.toArray(new LoggedEvent[batch.size()]));
             }
-            finally {
-                flushing = false;
+            catch (InterruptedException e) {
+                // Shutting down - the batch collected so far is written below and the rest of
+                // the queue is written by destroy()
+                running = false;
             }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+    }
+
+    private void write(List<LoggedEvent> aBatch)
+    {
+        long start = System.nanoTime();
+        try {
+            repo.createBatch(aBatch);
+        }
+        catch (Exception e) {
+            log.error("Unable to store {} logged events", aBatch.size(), e);
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        FLUSH_TIMER.record(duration);
+        metrics.batchWritten(aBatch.size(), MILLISECONDS.convert(duration, NANOSECONDS),
+                queue.size());
+    }
+
+    /**
+     * Writes all events currently in the queue to the database on the calling thread.
+     */
+    public void flush()
+    {
+        int batchSize = properties.getBatchSize();
+        List<LoggedEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(batchSize);
         }
     }
 
     @Override
     public void destroy() throws Exception
     {
-        // Kill the flush scheduler
-        scheduler.shutdownNow();
+        // Stop the writer thread
+        running = false;
+        writer.interrupt();
+        writer.join(properties.getFlushInterval().toMillis() + 1000);
 
         // Make sure and pending events are flushed before the application shuts down
         flush();
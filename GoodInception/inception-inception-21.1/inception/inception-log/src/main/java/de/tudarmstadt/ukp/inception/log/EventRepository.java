@@ -31,6 +31,15 @@ public interface EventRepository
 
     void create(LoggedEvent... aEvents);
 
+    /**
+     * Stores the given events using a single JDBC batch within a single transaction. Unlike
+     * {@link #create}, this does not assign IDs to the given event objects.
+     * 
+     * @param aEvents
+     *            the events to store.
+     */
+    void createBatch(List<LoggedEvent> aEvents);
+
     /**
      * Get the aMaxSize amount of logged events of the given type, user name, project and
      * recommender id from the db.
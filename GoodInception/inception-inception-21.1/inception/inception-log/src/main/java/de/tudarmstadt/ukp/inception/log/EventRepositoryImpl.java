@@ -19,6 +19,9 @@ package de.tudarmstadt.ukp.inception.log;
 
 import static java.lang.String.join;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -35,6 +38,7 @@ import javax.persistence.TypedQuery;
 import org.apache.commons.lang3.function.FailableConsumer;
 import org.apache.commons.lang3.stream.Streams;
 import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,6 +59,11 @@ public class EventRepositoryImpl
 {
     private final int RECENT_ACTIVITY_HORIZON = 3500;
 
+    private static final String INSERT_EVENT = String.join(" ", //
+            "INSERT INTO logged_event", //
+            "(event, created, user, project, document, annotator, details)", //
+            "VALUES (?, ?, ?, ?, ?, ?, ?)");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private @PersistenceContext EntityManager entityManager;
@@ -81,6 +90,52 @@ public class EventRepositoryImpl
         }
     }
 
+    @Override
+    @Transactional
+    public void createBatch(List<LoggedEvent> aEvents)
+    {
+        if (aEvents.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+
+        // The IDs of logged events are generated by the database (IDENTITY) which prevents
+        // Hibernate from batching the inserts, so we batch them at the JDBC level
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(INSERT_EVENT)) {
+                for (LoggedEvent event : aEvents) {
+                    log.trace("{}", event);
+                    stmt.setString(1, event.getEvent());
+                    stmt.setTimestamp(2, new Timestamp(event.getCreated().getTime()));
+                    stmt.setString(3, event.getUser());
+                    stmt.setLong(4, event.getProject());
+                    stmt.setLong(5, event.getDocument());
+                    if (event.getAnnotator() != null) {
+                        stmt.setString(6, event.getAnnotator());
+                    }
+                    else {
+                        stmt.setNull(6, Types.VARCHAR);
+                    }
+                    if (event.getDetails() != null) {
+                        stmt.setString(7, event.getDetails());
+                    }
+                    else {
+                        stmt.setNull(7, Types.VARCHAR);
+                    }
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        });
+
+        long duration = System.currentTimeMillis() - start;
+
+        if (!log.isTraceEnabled()) {
+            log.debug("... {} events stored in batch ... ({}ms)", aEvents.size(), duration);
+        }
+    }
+
     @Override
     @Transactional
     public List<LoggedEvent> listLoggedEventsForRecommender(Project aProject, String aUsername,
@@ -34,6 +34,8 @@ import de.tudarmstadt.ukp.inception.log.EventRepositoryImpl;
 import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapter;
 import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapterRegistry;
 import de.tudarmstadt.ukp.inception.log.adapter.EventLoggingAdapterRegistryImpl;
+import de.tudarmstadt.ukp.inception.log.metrics.EventLoggingMetrics;
+import de.tudarmstadt.ukp.inception.log.metrics.EventLoggingMetricsImpl;
 
 /**
  * Provides support event logging.
@@ -58,11 +60,18 @@ public class EventLoggingAutoConfiguration
         return new EventLoggingAdapterRegistryImpl(aAdapters);
     }
 
+    @Bean
+    public EventLoggingMetrics eventLoggingMetrics()
+    {
+        return new EventLoggingMetricsImpl();
+    }
+
     @Bean
     @Autowired
     public EventLoggingListener eventLoggingListener(EventRepository aRepo,
-            EventLoggingAdapterRegistry aAdapterRegistry, EventLoggingProperties aProperties)
+            EventLoggingAdapterRegistry aAdapterRegistry, EventLoggingProperties aProperties,
+            EventLoggingMetrics aMetrics)
     {
-        return new EventLoggingListener(aRepo, aProperties, aAdapterRegistry);
+        return new EventLoggingListener(aRepo, aProperties, aAdapterRegistry, aMetrics);
     }
 }
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.log.config;
+
+/**
+ * What to do with an event if the queue of events waiting to be written is full. Threads logging
+ * events never wait for the queue to make room.
+ */
+public enum EventLoggingOverflowPolicy
+{
+    /**
+     * Drop the event that could not be queued.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop the oldest event in the queue to make room for the new event.
+     */
+    DROP_OLDEST;
+}
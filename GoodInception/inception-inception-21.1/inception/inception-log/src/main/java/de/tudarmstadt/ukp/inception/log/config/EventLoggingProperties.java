@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.log.config;
 
+import java.time.Duration;
 import java.util.Set;
 
 public interface EventLoggingProperties
@@ -32,4 +33,34 @@ public interface EventLoggingProperties
      *            events never to be written to the event log.
      */
     void setExcludeEvents(Set<String> aExcludeEvents);
+
+    /**
+     * @return maximum number of events waiting to be written to the database. If more events
+     *         arrive, events are dropped according to the {@link #getOverflowPolicy() overflow
+     *         policy}.
+     */
+    int getQueueCapacity();
+
+    void setQueueCapacity(int aQueueCapacity);
+
+    /**
+     * @return which events to drop when the queue is full.
+     */
+    EventLoggingOverflowPolicy getOverflowPolicy();
+
+    void setOverflowPolicy(EventLoggingOverflowPolicy aOverflowPolicy);
+
+    /**
+     * @return maximum number of events written to the database in a single transaction.
+     */
+    int getBatchSize();
+
+    void setBatchSize(int aBatchSize);
+
+    /**
+     * @return time to wait for further events to arrive before writing an incomplete batch.
+     */
+    Duration getFlushInterval();
+
+    void setFlushInterval(Duration aFlushInterval);
 }
@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.log.config;
 
+import java.time.Duration;
 import java.util.Set;
 
 import org.springframework.boot.availability.AvailabilityChangeEvent;
@@ -35,6 +36,14 @@ public class EventLoggingPropertiesImpl
             AfterCasWrittenEvent.class.getSimpleName(),
             AvailabilityChangeEvent.class.getSimpleName());
 
+    private int queueCapacity = 10_000;
+
+    private EventLoggingOverflowPolicy overflowPolicy = EventLoggingOverflowPolicy.DROP_NEWEST;
+
+    private int batchSize = 500;
+
+    private Duration flushInterval = Duration.ofSeconds(1);
+
     @Override
     public boolean isEnabled()
     {
@@ -58,4 +67,52 @@ public class EventLoggingPropertiesImpl
     {
         excludeEvents = aExcludeEvents;
     }
+
+    @Override
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    @Override
+    public void setQueueCapacity(int aQueueCapacity)
+    {
+        queueCapacity = aQueueCapacity;
+    }
+
+    @Override
+    public EventLoggingOverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    @Override
+    public void setOverflowPolicy(EventLoggingOverflowPolicy aOverflowPolicy)
+    {
+        overflowPolicy = aOverflowPolicy;
+    }
+
+    @Override
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    @Override
+    public void setBatchSize(int aBatchSize)
+    {
+        batchSize = aBatchSize;
+    }
+
+    @Override
+    public Duration getFlushInterval()
+    {
+        return flushInterval;
+    }
+
+    @Override
+    public void setFlushInterval(Duration aFlushInterval)
+    {
+        flushInterval = aFlushInterval;
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.log.metrics;
+
+public interface EventLoggingMetrics
+{
+    /**
+     * Records that a batch of events has been written to the database.
+     * 
+     * @param aSize
+     *            the number of events in the batch.
+     * @param aTime
+     *            the time in milliseconds it took to write the batch.
+     * @param aQueueDepth
+     *            the number of events still waiting to be written.
+     */
+    void batchWritten(int aSize, long aTime, int aQueueDepth);
+
+    /**
+     * Records that an event has been dropped because the queue was full.
+     * 
+     * @param aQueueDepth
+     *            the number of events waiting to be written.
+     */
+    void eventDropped(int aQueueDepth);
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.log.metrics;
+
+import static org.springframework.jmx.support.MetricType.COUNTER;
+import static org.springframework.jmx.support.MetricType.GAUGE;
+
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import de.tudarmstadt.ukp.inception.log.config.EventLoggingAutoConfiguration;
+
+/**
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link EventLoggingAutoConfiguration#eventLoggingMetrics}.
+ * </p>
+ */
+@ManagedResource
+public class EventLoggingMetricsImpl
+    implements EventLoggingMetrics
+{
+    private long writtenEvents = 0;
+    private long writtenBatches = 0;
+    private long droppedEvents = 0;
+
+    private int queueDepth = 0;
+    private int maxQueueDepth = 0;
+
+    private int lastBatchSize = 0;
+    private int maxBatchSize = 0;
+
+    private long flushTime = 0;
+    private long maxFlushTime = 0;
+    private long lastFlushTime = 0;
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getWrittenEvents()
+    {
+        return writtenEvents;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getWrittenBatches()
+    {
+        return writtenBatches;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getDroppedEvents()
+    {
+        return droppedEvents;
+    }
+
+    /**
+     * @return the number of events waiting to be written when last written or dropped an event.
+     */
+    @ManagedMetric(metricType = GAUGE)
+    public synchronized int getQueueDepth()
+    {
+        return queueDepth;
+    }
+
+    @ManagedMetric(metricType = GAUGE)
+    public synchronized int getMaxQueueDepth()
+    {
+        return maxQueueDepth;
+    }
+
+    @ManagedMetric(metricType = GAUGE)
+    public synchronized int getLastBatchSize()
+    {
+        return lastBatchSize;
+    }
+
+    @ManagedMetric(metricType = GAUGE)
+    public synchronized int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getFlushTime()
+    {
+        return flushTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getMaxFlushTime()
+    {
+        return maxFlushTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getLastFlushTime()
+    {
+        return lastFlushTime;
+    }
+
+    @ManagedOperation
+    public synchronized void reset()
+    {
+        writtenEvents = 0;
+        writtenBatches = 0;
+        droppedEvents = 0;
+        queueDepth = 0;
+        maxQueueDepth = 0;
+        lastBatchSize = 0;
+        maxBatchSize = 0;
+        flushTime = 0;
+        maxFlushTime = 0;
+        lastFlushTime = 0;
+    }
+
+    @Override
+    public synchronized void batchWritten(int aSize, long aTime, int aQueueDepth)
+    {
+        writtenEvents += aSize;
+        writtenBatches++;
+        lastBatchSize = aSize;
+        maxBatchSize = Math.max(maxBatchSize, aSize);
+        flushTime += aTime;
+        maxFlushTime = Math.max(maxFlushTime, aTime);
+        lastFlushTime = aTime;
+        updateQueueDepth(aQueueDepth);
+    }
+
+    @Override
+    public synchronized void eventDropped(int aQueueDepth)
+    {
+        droppedEvents++;
+        updateQueueDepth(aQueueDepth);
+    }
+
+    private void updateQueueDepth(int aQueueDepth)
+    {
+        queueDepth = aQueueDepth;
+        maxQueueDepth = Math.max(maxQueueDepth, aQueueDepth);
+    }
+}
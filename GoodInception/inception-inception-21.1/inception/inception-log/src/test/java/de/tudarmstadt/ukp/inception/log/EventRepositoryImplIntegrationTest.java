@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.log;
 
+import static java.util.Arrays.asList;
 import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -168,6 +169,26 @@ public class EventRepositoryImplIntegrationTest
         assertThat(loggedEvents).as("Check that no logged event is found").isEmpty();
     }
 
+    @Test
+    public void getLoggedEvents_WithBatchStoredLoggedEvents_ShouldReturnStoredLoggedEvents()
+    {
+        List<LoggedEvent> batch = asList( //
+                buildLoggedEvent(project, USERNAME, EVENT_TYPE_RECOMMENDER_EVALUATION_EVENT,
+                        new Date(), 1, DETAIL_JSON),
+                buildLoggedEvent(project, USERNAME, EVENT_TYPE_RECOMMENDER_EVALUATION_EVENT,
+                        new Date(), 2, DETAIL_JSON),
+                buildLoggedEvent(project, USERNAME, EVENT_TYPE_RECOMMENDER_EVALUATION_EVENT,
+                        new Date(), 3, DETAIL_JSON));
+
+        sut.createBatch(batch);
+        List<LoggedEvent> loggedEvents = sut.listLoggedEventsForRecommender(project,
+                user.getUsername(), EVENT_TYPE_RECOMMENDER_EVALUATION_EVENT, 5, RECOMMENDER_ID);
+
+        assertThat(loggedEvents).as("Check that all events of the batch are found")
+                .extracting(LoggedEvent::getDocument) //
+                .containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
     @Test
     public void getLoggedEvents_WithLoggedEventOfOtherUser_ShouldReturnEmptyList()
     {
@@ -22,7 +22,6 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUt
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectSentenceAt;
 import static de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.render.PdfAnnoRenderer.convertToDocumentOffset;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -53,7 +52,6 @@ import org.xml.sax.SAXException;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.clarin.webanno.api.CasProvider;
-import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.AnnotationEditorBase;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.AnnotationEditorExtensionRegistry;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.action.AnnotationActionHandler;
@@ -63,13 +61,14 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.AnnotatorState;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.Selection;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.VID;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.model.VDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.pdfeditor.extraction.PdfExtractCacheService;
 import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.PdfAnnoPanel;
 import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.DocumentModel;
 import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.Offset;
 import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.PdfAnnoModel;
 import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.PdfExtractFile;
 import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.render.PdfAnnoRenderer;
-import de.tudarmstadt.ukp.inception.pdfeditor.pdfextract.PDFExtractor;
 
 public class PdfAnnotationEditor
     extends AnnotationEditorBase
@@ -92,10 +91,10 @@ public class PdfAnnotationEditor
     private Offset pageOffset;
     private Map<Integer, Offset> pageOffsetCache;
 
-    private @SpringBean DocumentService documentService;
     private @SpringBean AnnotationSchemaService annotationService;
     private @SpringBean ColoringService coloringService;
     private @SpringBean AnnotationEditorExtensionRegistry extensionRegistry;
+    private @SpringBean PdfExtractCacheService pdfExtractCacheService;
 
     public PdfAnnotationEditor(String aId, IModel<AnnotatorState> aModel,
             AnnotationActionHandler aActionHandler, CasProvider aCasProvider)
@@ -472,14 +471,13 @@ public class PdfAnnotationEditor
             handleError("Unable to load data", e, aTarget);
         }
 
-        File pdfFile = documentService.getSourceDocumentFile(getModel().getObject().getDocument());
+        SourceDocument document = getModel().getObject().getDocument();
 
         try {
-            String pdfText = PDFExtractor.processFileToString(pdfFile, false);
-            pdfExtractFile = new PdfExtractFile(pdfText, getSubstitutionTable());
+            pdfExtractFile = pdfExtractCacheService.getPdfExtractFile(document);
         }
-        catch (IOException | SAXException | ParserConfigurationException e) {
-            handleError("Unable to create PdfExtractFile for [" + pdfFile.getName() + "]"
+        catch (IOException e) {
+            handleError("Unable to create PdfExtractFile for [" + document.getName() + "]"
                     + "with PDFExtractor.", e, aTarget);
         }
 
@@ -21,8 +21,12 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.inception.pdfeditor.PdfAnnotationEditorFactory;
 import de.tudarmstadt.ukp.inception.pdfeditor.PdfFormatSupport;
+import de.tudarmstadt.ukp.inception.pdfeditor.extraction.PdfExtractCacheService;
+import de.tudarmstadt.ukp.inception.pdfeditor.extraction.PdfExtractCacheServiceImpl;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 
 /**
  * Provides support for an PDF-oriented annotation editor.
@@ -42,4 +46,11 @@ public class PdfAnnotationEditorSupportAutoConfiguration
     {
         return new PdfFormatSupport();
     }
+
+    @Bean
+    public PdfExtractCacheService pdfExtractCacheService(DocumentService aDocumentService,
+            SchedulingService aSchedulingService, PdfEditorProperties aProperties)
+    {
+        return new PdfExtractCacheServiceImpl(aDocumentService, aSchedulingService, aProperties);
+    }
 }
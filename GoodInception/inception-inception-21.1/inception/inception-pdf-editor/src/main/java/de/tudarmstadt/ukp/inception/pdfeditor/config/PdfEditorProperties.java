@@ -22,4 +22,11 @@ public interface PdfEditorProperties
     public boolean isDebug();
 
     public void setDebug(boolean aDebug);
+
+    /**
+     * @return number of page ranges of a PDF file that are extracted in parallel.
+     */
+    public int getExtractionParallelism();
+
+    public void setExtractionParallelism(int aExtractionParallelism);
 }
@@ -26,6 +26,7 @@ public class PdfEditorPropertiesImpl
     implements PdfEditorProperties
 {
     private boolean debug = false;
+    private int extractionParallelism = 4;
 
     @Override
     public boolean isDebug()
@@ -38,4 +39,16 @@ public class PdfEditorPropertiesImpl
     {
         this.debug = aDebug;
     }
+
+    @Override
+    public int getExtractionParallelism()
+    {
+        return extractionParallelism;
+    }
+
+    @Override
+    public void setExtractionParallelism(int aExtractionParallelism)
+    {
+        extractionParallelism = aExtractionParallelism;
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor.extraction;
+
+import java.io.IOException;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.PdfExtractFile;
+
+/**
+ * Keeps the result of extracting the text and glyph positions from a PDF source document so that
+ * the PDF editor does not have to extract it again every time the document is opened.
+ */
+public interface PdfExtractCacheService
+{
+    /**
+     * Returns the extraction result for the given document. If no up-to-date result has been
+     * cached for the source file yet, the file is extracted and the result is cached.
+     *
+     * @param aDocument
+     *            a PDF source document.
+     * @return the extraction result.
+     * @throws IOException
+     *             if the source file cannot be extracted or the result cannot be cached.
+     */
+    PdfExtractFile getPdfExtractFile(SourceDocument aDocument) throws IOException;
+
+    /**
+     * Extracts the given document and caches the result unless an up-to-date result is already
+     * cached.
+     *
+     * @param aDocument
+     *            a PDF source document.
+     * @throws IOException
+     *             if the source file cannot be extracted or the result cannot be cached.
+     */
+    void buildCache(SourceDocument aDocument) throws IOException;
+}
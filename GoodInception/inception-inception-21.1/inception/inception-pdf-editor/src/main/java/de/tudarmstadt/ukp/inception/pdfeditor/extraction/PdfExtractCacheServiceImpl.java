@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor.extraction;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.xml.sax.SAXException;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentCreatedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.support.StopWatch;
+import de.tudarmstadt.ukp.inception.pdfeditor.PdfAnnotationEditor;
+import de.tudarmstadt.ukp.inception.pdfeditor.PdfFormatSupport;
+import de.tudarmstadt.ukp.inception.pdfeditor.config.PdfAnnotationEditorSupportAutoConfiguration;
+import de.tudarmstadt.ukp.inception.pdfeditor.config.PdfEditorProperties;
+import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.PdfExtractFile;
+import de.tudarmstadt.ukp.inception.pdfeditor.pdfextract.PDFExtractor;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+
+/**
+ * Stores the extraction result of a PDF document in the document folder next to the source
+ * document. The file name of the cached result is the SHA-256 hash of the source file, so a
+ * replaced source file is never served a stale result. The cached file contains the extracted text
+ * as well as the offset maps built by {@link PdfExtractFile}.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link PdfAnnotationEditorSupportAutoConfiguration#pdfExtractCacheService}.
+ * </p>
+ */
+public class PdfExtractCacheServiceImpl
+    implements PdfExtractCacheService
+{
+    private static final String CACHE_FOLDER = "pdfextract";
+    private static final String CACHE_SUFFIX = ".bin";
+
+    /**
+     * Increment when the extraction or the structure of {@link PdfExtractFile} changes so that
+     * existing cached results are rebuilt.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final DocumentService documentService;
+    private final SchedulingService schedulingService;
+    private final PdfEditorProperties properties;
+
+    public PdfExtractCacheServiceImpl(DocumentService aDocumentService,
+            SchedulingService aSchedulingService, PdfEditorProperties aProperties)
+    {
+        documentService = aDocumentService;
+        schedulingService = aSchedulingService;
+        properties = aProperties;
+    }
+
+    @EventListener
+    public void onDocumentCreated(AfterDocumentCreatedEvent aEvent)
+    {
+        SourceDocument document = aEvent.getDocument();
+        if (PdfFormatSupport.ID.equals(document.getFormat())) {
+            schedulingService.enqueue(new PdfExtractCacheTask(document, "onDocumentCreated"));
+        }
+    }
+
+    @Override
+    public PdfExtractFile getPdfExtractFile(SourceDocument aDocument) throws IOException
+    {
+        File pdfFile = documentService.getSourceDocumentFile(aDocument);
+        File cacheFile = getCacheFile(aDocument, pdfFile);
+
+        if (cacheFile.exists()) {
+            try {
+                return readCacheFile(cacheFile);
+            }
+            catch (IOException e) {
+                log.warn("Unable to read cached extraction of [{}] - extracting again",
+                        pdfFile.getName(), e);
+            }
+        }
+
+        return extract(pdfFile, cacheFile);
+    }
+
+    @Override
+    public void buildCache(SourceDocument aDocument) throws IOException
+    {
+        File pdfFile = documentService.getSourceDocumentFile(aDocument);
+        File cacheFile = getCacheFile(aDocument, pdfFile);
+
+        if (!cacheFile.exists()) {
+            extract(pdfFile, cacheFile);
+        }
+    }
+
+    private PdfExtractFile extract(File aPdfFile, File aCacheFile) throws IOException
+    {
+        PdfExtractFile extractFile;
+        try (StopWatch watch = new StopWatch(log, "extract(%s)", aPdfFile.getName())) {
+            String pdfText = PDFExtractor.processFileToString(aPdfFile, false,
+                    properties.getExtractionParallelism());
+            extractFile = new PdfExtractFile(pdfText, PdfAnnotationEditor.getSubstitutionTable());
+        }
+        catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Unable to load substitution table", e);
+        }
+
+        writeCacheFile(aCacheFile, extractFile);
+
+        // Results for earlier versions of the source file are no longer needed
+        deleteStaleCacheFiles(aCacheFile);
+
+        return extractFile;
+    }
+
+    private File getCacheFile(SourceDocument aDocument, File aPdfFile) throws IOException
+    {
+        String hash;
+        try (InputStream is = new BufferedInputStream(new FileInputStream(aPdfFile))) {
+            hash = DigestUtils.sha256Hex(is);
+        }
+
+        // The document folder is the "source" folder - the cache goes next to it
+        File cacheFolder = new File(documentService.getDocumentFolder(aDocument).getParentFile(),
+                CACHE_FOLDER);
+        return new File(cacheFolder, hash + CACHE_SUFFIX);
+    }
+
+    static void writeCacheFile(File aCacheFile, PdfExtractFile aExtractFile) throws IOException
+    {
+        FileUtils.forceMkdir(aCacheFile.getParentFile());
+
+        // Write to a temporary file first so that a concurrent reader never sees a partial file
+        File tempFile = File.createTempFile(CACHE_FOLDER, ".tmp", aCacheFile.getParentFile());
+        try {
+            try (ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+                os.writeInt(FORMAT_VERSION);
+                os.writeObject(aExtractFile);
+            }
+            Files.move(tempFile.toPath(), aCacheFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+        }
+        finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Deletes all completed cache files other than the given one. Temporary files are left alone
+     * because other threads may still be writing them - they are removed by their writers.
+     */
+    static void deleteStaleCacheFiles(File aCacheFile)
+    {
+        File[] staleFiles = aCacheFile.getParentFile()
+                .listFiles(f -> f.isFile() && f.getName().endsWith(CACHE_SUFFIX)
+                        && !f.getName().equals(aCacheFile.getName()));
+        if (staleFiles != null) {
+            for (File staleFile : staleFiles) {
+                FileUtils.deleteQuietly(staleFile);
+            }
+        }
+    }
+
+    static PdfExtractFile readCacheFile(File aCacheFile) throws IOException
+    {
+        try (ObjectInputStream is = new ObjectInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(aCacheFile))))) {
+            int version = is.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported cache format version [" + version + "]");
+            }
+            return (PdfExtractFile) is.readObject();
+        }
+        catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unable to read cache file [" + aCacheFile + "]", e);
+        }
+    }
+}
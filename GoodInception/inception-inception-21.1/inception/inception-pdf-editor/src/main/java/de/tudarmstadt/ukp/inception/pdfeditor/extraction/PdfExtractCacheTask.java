@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor.extraction;
+
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.scheduling.Task;
+
+/**
+ * Extracts a PDF document in the background so that the result is already cached when the
+ * document is opened in the PDF editor for the first time.
+ */
+public class PdfExtractCacheTask
+    extends Task
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private @Autowired PdfExtractCacheService pdfExtractCacheService;
+
+    private final SourceDocument document;
+
+    public PdfExtractCacheTask(SourceDocument aDocument, String aTrigger)
+    {
+        super(aDocument.getProject(), aTrigger);
+        document = aDocument;
+    }
+
+    @Override
+    public void execute()
+    {
+        try {
+            pdfExtractCacheService.buildCache(document);
+        }
+        catch (Exception e) {
+            // Not fatal - the document is extracted again when it is opened
+            log.error("Unable to extract PDF document [{}]({})", document.getName(),
+                    document.getId(), e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object aOther)
+    {
+        if (!(aOther instanceof PdfExtractCacheTask)) {
+            return false;
+        }
+
+        PdfExtractCacheTask castOther = (PdfExtractCacheTask) aOther;
+        return super.equals(aOther) && document.equals(castOther.document);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(super.hashCode(), document);
+    }
+}
@@ -23,6 +23,8 @@
  */
 package de.tudarmstadt.ukp.inception.pdfeditor.pdfextract;
 
+import static java.util.stream.Collectors.joining;
+
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
@@ -35,9 +37,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -89,17 +93,64 @@ public class PDFExtractor
     public static String processFileToString(File file, boolean writeGlyphCoords) throws IOException
     {
         try (StringWriter w = new StringWriter(); PDDocument doc = PDDocument.load(file)) {
-
-            for (int i = 0; i < doc.getNumberOfPages(); i++) {
-                PDFExtractor ext = new PDFExtractor(doc.getPage(i), i + 1, w);
-                ext.setWriteGlyphCoords(writeGlyphCoords);
-                ext.processPage(doc.getPage(i));
-                ext.write();
-            }
+            processPages(doc, 0, doc.getNumberOfPages(), writeGlyphCoords, w);
             return w.toString();
         }
     }
 
+    /**
+     * Extracts the file in parallel. The pages are split into consecutive ranges and each range is
+     * processed on its own copy of the document because PDFBox documents are not thread-safe. The
+     * result is the same as for {@link #processFileToString(File, boolean)}.
+     */
+    public static String processFileToString(File file, boolean writeGlyphCoords,
+            int parallelism)
+        throws IOException
+    {
+        int pageCount;
+        try (PDDocument doc = PDDocument.load(file)) {
+            pageCount = doc.getNumberOfPages();
+        }
+
+        int rangeCount = Math.max(1, Math.min(parallelism, pageCount));
+        if (rangeCount == 1) {
+            return processFileToString(file, writeGlyphCoords);
+        }
+
+        int rangeSize = (pageCount + rangeCount - 1) / rangeCount;
+        try {
+            return IntStream.range(0, rangeCount).parallel() //
+                    .mapToObj(r -> {
+                        int begin = r * rangeSize;
+                        int end = Math.min(begin + rangeSize, pageCount);
+                        try (StringWriter w = new StringWriter();
+                                PDDocument doc = PDDocument.load(file)) {
+                            processPages(doc, begin, end, writeGlyphCoords, w);
+                            return w.toString();
+                        }
+                        catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }) //
+                    .collect(joining());
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void processPages(PDDocument doc, int begin, int end, boolean writeGlyphCoords,
+            Writer w)
+        throws IOException
+    {
+        for (int i = begin; i < end; i++) {
+            PDFExtractor ext = new PDFExtractor(doc.getPage(i), i + 1, w);
+            ext.setWriteGlyphCoords(writeGlyphCoords);
+            ext.processPage(doc.getPage(i));
+            ext.write();
+        }
+    }
+
     private static void processFile(File file)
     {
         String outPath = String.format("%s.0-3-1.txt.gz", file);
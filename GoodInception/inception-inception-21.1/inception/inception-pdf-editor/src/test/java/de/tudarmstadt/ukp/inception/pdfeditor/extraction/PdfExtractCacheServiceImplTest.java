@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.pdfeditor.extraction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.pdfeditor.PdfAnnotationEditor;
+import de.tudarmstadt.ukp.inception.pdfeditor.config.PdfEditorPropertiesImpl;
+import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.Offset;
+import de.tudarmstadt.ukp.inception.pdfeditor.pdfanno.model.PdfExtractFile;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+
+public class PdfExtractCacheServiceImplTest
+{
+    private @TempDir File tempDir;
+
+    private PdfExtractFile pdfExtractFile;
+    private File sourceFile;
+    private SourceDocument document;
+    private PdfExtractCacheServiceImpl sut;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        String pdftxt = new String(readAllBytes(Paths.get("src/test/resources/pdfextract.txt")),
+                UTF_8);
+        pdfExtractFile = new PdfExtractFile(pdftxt, PdfAnnotationEditor.getSubstitutionTable());
+
+        File sourceFolder = new File(tempDir, "source");
+        sourceFile = new File(sourceFolder, "test.pdf");
+        // Not a real PDF - reading it only works if the extraction result is taken from the cache
+        FileUtils.writeStringToFile(sourceFile, "not a PDF", UTF_8);
+
+        document = new SourceDocument();
+        document.setName("test.pdf");
+
+        DocumentService documentService = mock(DocumentService.class);
+        when(documentService.getSourceDocumentFile(any())).thenReturn(sourceFile);
+        when(documentService.getDocumentFolder(any())).thenReturn(sourceFolder);
+
+        sut = new PdfExtractCacheServiceImpl(documentService, mock(SchedulingService.class),
+                new PdfEditorPropertiesImpl());
+    }
+
+    @Test
+    public void thatCachedExtractionIsUsed() throws Exception
+    {
+        File cacheFile = new File(tempDir,
+                "pdfextract/" + DigestUtils.sha256Hex(readAllBytes(sourceFile.toPath())) + ".bin");
+        PdfExtractCacheServiceImpl.writeCacheFile(cacheFile, pdfExtractFile);
+
+        PdfExtractFile cached = sut.getPdfExtractFile(document);
+
+        assertThat(cached.getSanitizedContent()).isEqualTo(pdfExtractFile.getSanitizedContent());
+        assertThat(cached.getMaxPageNumber()).isEqualTo(pdfExtractFile.getMaxPageNumber());
+        assertThat(cached.getPageOffset(1)).isEqualTo(pdfExtractFile.getPageOffset(1));
+        assertThat(cached.getExtractIndex(12)).isEqualTo(new Offset(18, 19));
+    }
+
+    @Test
+    public void thatCacheIsNotUsedForChangedSourceFile() throws Exception
+    {
+        File cacheFile = new File(tempDir,
+                "pdfextract/" + DigestUtils.sha256Hex(readAllBytes(sourceFile.toPath())) + ".bin");
+        PdfExtractCacheServiceImpl.writeCacheFile(cacheFile, pdfExtractFile);
+
+        FileUtils.writeStringToFile(sourceFile, "still not a PDF", UTF_8);
+
+        assertThatThrownBy(() -> sut.getPdfExtractFile(document)) //
+                .as("Changed file is extracted again") //
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void thatOnlyCompletedStaleCacheFilesAreDeleted() throws Exception
+    {
+        File cacheFolder = new File(tempDir, "pdfextract");
+        File cacheFile = new File(cacheFolder, "current.bin");
+        File staleFile = new File(cacheFolder, "stale.bin");
+        File tempFile = new File(cacheFolder, "pdfextract123.tmp");
+        PdfExtractCacheServiceImpl.writeCacheFile(cacheFile, pdfExtractFile);
+        PdfExtractCacheServiceImpl.writeCacheFile(staleFile, pdfExtractFile);
+        FileUtils.writeStringToFile(tempFile, "being written", UTF_8);
+
+        PdfExtractCacheServiceImpl.deleteStaleCacheFiles(cacheFile);
+
+        assertThat(cacheFile).exists();
+        assertThat(staleFile).doesNotExist();
+        assertThat(tempFile).exists();
+    }
+
+    @Test
+    public void thatCacheFileWithOtherFormatVersionIsRejected() throws Exception
+    {
+        File cacheFile = new File(tempDir, "outdated.bin");
+        try (ObjectOutputStream os = new ObjectOutputStream(
+                new GZIPOutputStream(new FileOutputStream(cacheFile)))) {
+            os.writeInt(0);
+            os.writeObject(pdfExtractFile);
+        }
+
+        assertThatThrownBy(() -> PdfExtractCacheServiceImpl.readCacheFile(cacheFile))
+                .isInstanceOf(IOException.class);
+    }
+}
@@ -18,20 +18,23 @@
 package de.tudarmstadt.ukp.inception.recommendation.api.model;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.newSetFromMap;
-import static java.util.stream.Collectors.toList;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.Validate;
 
@@ -50,13 +53,28 @@ import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
  * 
  * If the prediction task has run it stores the predicted annotations for an annotation layer in the
  * predictions map.
+ * 
+ * Besides the primary map, the predictions are indexed by document, layer and window offset, by
+ * document, recommender and suggestion ID (i.e. by {@link VID}) and by recommender. This allows
+ * looking up the predictions for a window, a VID or a recommender without scanning all predictions
+ * of the user which can be many if predictions are generated for all documents of a project.
  */
 public class Predictions
     implements Serializable
 {
     private static final long serialVersionUID = -1598768729246662885L;
 
-    private Map<ExtendedId, AnnotationSuggestion> predictions = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All the fields below are guarded by the lock
+    private final Map<ExtendedId, AnnotationSuggestion> predictions = new HashMap<>();
+    // document name -> layer ID -> window begin -> predictions
+    private final Map<String, Map<Long, OffsetIndex>> idxDocumentLayerOffset = new HashMap<>();
+    // document name -> recommender ID -> suggestion ID -> prediction
+    private final Map<String, Map<Long, Map<Integer, AnnotationSuggestion>>> idxDocumentVid;
+    // recommender ID -> predictions
+    private final Map<Long, Set<ExtendedId>> idxRecommender = new HashMap<>();
+
     private Set<String> seenDocumentsForPrediction = newSetFromMap(new ConcurrentHashMap<>());
 
     private final Project project;
@@ -70,9 +88,10 @@ public class Predictions
 
         project = aProject;
         user = aUser;
+        idxDocumentVid = new HashMap<>();
 
         if (aPredictions != null) {
-            predictions = new ConcurrentHashMap<>(aPredictions);
+            aPredictions.forEach(this::put);
         }
     }
 
@@ -113,7 +132,7 @@ public class Predictions
             Class<T> type, String aDocumentName, AnnotationLayer aLayer, int aWindowBegin,
             int aWindowEnd)
     {
-        return new SuggestionDocumentGroup(
+        return new SuggestionDocumentGroup<>(
                 getFlattenedPredictions(type, aDocumentName, aLayer, aWindowBegin, aWindowEnd));
     }
 
@@ -127,18 +146,43 @@ public class Predictions
     private <T extends AnnotationSuggestion> List<T> getFlattenedPredictions(Class<T> type,
             String aDocumentName, AnnotationLayer aLayer, int aWindowBegin, int aWindowEnd)
     {
-        return predictions.entrySet().stream().filter(f -> type.isInstance(f.getValue()))
-                .map(f -> (Entry<ExtendedId, T>) (Entry) f)
-                .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-                .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-                // .filter(f -> overlapping(f.getValue().getWindowBegin(),
-                // f.getValue().getWindowEnd(),
-                // aWindowBegin == -1 ? 0 : aWindowBegin,
-                // aWindowEnd == -1 ? MAX_VALUE : aWindowEnd))
-                .filter(f -> aWindowBegin == -1 || (f.getValue().getWindowBegin() >= aWindowBegin))
-                .filter(f -> aWindowEnd == -1 || (f.getValue().getWindowEnd() <= aWindowEnd))
-                .sorted(Comparator.comparingInt(e2 -> e2.getValue().getWindowBegin()))
-                .map(Map.Entry::getValue).collect(toList());
+        lock.readLock().lock();
+        try {
+            OffsetIndex byOffset = getByOffset(aDocumentName, aLayer.getId());
+            if (byOffset == null) {
+                return emptyList();
+            }
+
+            // Suggestions contained in the window must also start within the window, so we can
+            // restrict the candidates by their begin offset
+            NavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>> range = byOffset;
+            if (aWindowBegin != -1 && aWindowEnd != -1) {
+                if (aWindowBegin > aWindowEnd) {
+                    return emptyList();
+                }
+                range = byOffset.subMap(aWindowBegin, true, aWindowEnd, true);
+            }
+            else if (aWindowBegin != -1) {
+                range = byOffset.tailMap(aWindowBegin, true);
+            }
+            else if (aWindowEnd != -1) {
+                range = byOffset.headMap(aWindowEnd, true);
+            }
+
+            List<T> result = new ArrayList<>();
+            for (Map<ExtendedId, AnnotationSuggestion> bucket : range.values()) {
+                for (AnnotationSuggestion suggestion : bucket.values()) {
+                    if (type.isInstance(suggestion)
+                            && (aWindowEnd == -1 || suggestion.getWindowEnd() <= aWindowEnd)) {
+                        result.add(type.cast(suggestion));
+                    }
+                }
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -147,10 +191,24 @@ public class Predictions
      */
     public Optional<AnnotationSuggestion> getPredictionByVID(SourceDocument aDocument, VID aVID)
     {
-        return predictions.values().stream()
-                .filter(f -> f.getDocumentName().equals(aDocument.getName()))
-                .filter(f -> f.getId() == aVID.getSubId())
-                .filter(f -> f.getRecommenderId() == aVID.getId()).findFirst();
+        lock.readLock().lock();
+        try {
+            Map<Long, Map<Integer, AnnotationSuggestion>> byRecommender = idxDocumentVid
+                    .get(aDocument.getName());
+            if (byRecommender == null) {
+                return Optional.empty();
+            }
+
+            Map<Integer, AnnotationSuggestion> byId = byRecommender.get((long) aVID.getId());
+            if (byId == null) {
+                return Optional.empty();
+            }
+
+            return Optional.ofNullable(byId.get(aVID.getSubId()));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -159,10 +217,100 @@ public class Predictions
      */
     public void putPredictions(List<AnnotationSuggestion> aPredictions)
     {
-        aPredictions.forEach(prediction -> predictions.put(new ExtendedId(user.getUsername(),
-                project.getId(), prediction.getDocumentName(), prediction.getLayerId(),
-                prediction.getPosition(), prediction.getRecommenderId(), prediction.getId(), -1),
-                prediction));
+        lock.writeLock().lock();
+        try {
+            aPredictions.forEach(prediction -> put(new ExtendedId(user.getUsername(),
+                    project.getId(), prediction.getDocumentName(), prediction.getLayerId(),
+                    prediction.getPosition(), prediction.getRecommenderId(), prediction.getId(),
+                    -1), prediction));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(ExtendedId aId, AnnotationSuggestion aPrediction)
+    {
+        lock.writeLock().lock();
+        try {
+            AnnotationSuggestion previous = predictions.put(aId, aPrediction);
+            if (previous != null) {
+                unindex(aId, previous);
+            }
+            index(aId, aPrediction);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(ExtendedId aId, AnnotationSuggestion aPrediction)
+    {
+        idxDocumentLayerOffset.computeIfAbsent(aId.getDocumentName(), k -> new HashMap<>())
+                .computeIfAbsent(aId.getLayerId(), k -> new OffsetIndex())
+                .computeIfAbsent(aPrediction.getWindowBegin(), k -> new LinkedHashMap<>())
+                .put(aId, aPrediction);
+
+        idxDocumentVid.computeIfAbsent(aId.getDocumentName(), k -> new HashMap<>())
+                .computeIfAbsent(aId.getRecommenderId(), k -> new HashMap<>())
+                .putIfAbsent(aPrediction.getId(), aPrediction);
+
+        idxRecommender.computeIfAbsent(aId.getRecommenderId(), k -> new HashSet<>()).add(aId);
+    }
+
+    private void unindex(ExtendedId aId, AnnotationSuggestion aPrediction)
+    {
+        OffsetIndex byOffset = getByOffset(aId.getDocumentName(), aId.getLayerId());
+        if (byOffset != null) {
+            Map<ExtendedId, AnnotationSuggestion> bucket = byOffset
+                    .get(aPrediction.getWindowBegin());
+            if (bucket != null) {
+                bucket.remove(aId);
+                if (bucket.isEmpty()) {
+                    byOffset.remove(aPrediction.getWindowBegin());
+                }
+            }
+            if (byOffset.isEmpty()) {
+                Map<Long, OffsetIndex> byLayer = idxDocumentLayerOffset.get(aId.getDocumentName());
+                byLayer.remove(aId.getLayerId());
+                if (byLayer.isEmpty()) {
+                    idxDocumentLayerOffset.remove(aId.getDocumentName());
+                }
+            }
+        }
+
+        Map<Long, Map<Integer, AnnotationSuggestion>> byRecommender = idxDocumentVid
+                .get(aId.getDocumentName());
+        if (byRecommender != null) {
+            Map<Integer, AnnotationSuggestion> byId = byRecommender.get(aId.getRecommenderId());
+            if (byId != null) {
+                byId.remove(aPrediction.getId(), aPrediction);
+                if (byId.isEmpty()) {
+                    byRecommender.remove(aId.getRecommenderId());
+                }
+            }
+            if (byRecommender.isEmpty()) {
+                idxDocumentVid.remove(aId.getDocumentName());
+            }
+        }
+
+        Set<ExtendedId> ids = idxRecommender.get(aId.getRecommenderId());
+        if (ids != null) {
+            ids.remove(aId);
+            if (ids.isEmpty()) {
+                idxRecommender.remove(aId.getRecommenderId());
+            }
+        }
+    }
+
+    private OffsetIndex getByOffset(String aDocumentName, long aLayerId)
+    {
+        Map<Long, OffsetIndex> byLayer = idxDocumentLayerOffset.get(aDocumentName);
+        if (byLayer == null) {
+            return null;
+        }
+
+        return byLayer.get(aLayerId);
     }
 
     public Project getProject()
@@ -172,23 +320,63 @@ public class Predictions
 
     public boolean hasPredictions()
     {
-        return !predictions.isEmpty();
+        lock.readLock().lock();
+        try {
+            return !predictions.isEmpty();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
+    /**
+     * @return a snapshot of all predictions.
+     */
     public Map<ExtendedId, AnnotationSuggestion> getGroupedPredictions()
     {
-        return predictions;
+        lock.readLock().lock();
+        try {
+            return new HashMap<>(predictions);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
     public void clearPredictions()
     {
-        predictions.clear();
-        seenDocumentsForPrediction.clear();
+        lock.writeLock().lock();
+        try {
+            predictions.clear();
+            idxDocumentLayerOffset.clear();
+            idxDocumentVid.clear();
+            idxRecommender.clear();
+            seenDocumentsForPrediction.clear();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void removePredictions(Long recommenderId)
     {
-        predictions.entrySet().removeIf((p) -> p.getKey().getRecommenderId() == recommenderId);
+        lock.writeLock().lock();
+        try {
+            Set<ExtendedId> ids = idxRecommender.get(recommenderId);
+            if (ids == null) {
+                return;
+            }
+
+            for (ExtendedId id : new ArrayList<>(ids)) {
+                AnnotationSuggestion prediction = predictions.remove(id);
+                if (prediction != null) {
+                    unindex(id, prediction);
+                }
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -211,30 +399,79 @@ public class Predictions
     public List<SpanSuggestion> getPredictionsByTokenAndFeature(String aDocumentName,
             AnnotationLayer aLayer, int aBegin, int aEnd, String aFeature)
     {
-        return predictions.entrySet().stream().filter(f -> f.getValue() instanceof SpanSuggestion)
-                .map(f -> (Entry<ExtendedId, SpanSuggestion>) (Entry) f)
-                .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-                .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-                .filter(f -> f.getValue().getBegin() == aBegin)
-                .filter(f -> f.getValue().getEnd() == aEnd)
-                .filter(f -> f.getValue().getFeature().equals(aFeature)).map(Map.Entry::getValue)
-                .collect(Collectors.toList());
+        lock.readLock().lock();
+        try {
+            OffsetIndex byOffset = getByOffset(aDocumentName, aLayer.getId());
+            if (byOffset == null) {
+                return new ArrayList<>();
+            }
+
+            // The window of a span suggestion starts at the begin of the span
+            Map<ExtendedId, AnnotationSuggestion> bucket = byOffset.get(aBegin);
+            if (bucket == null) {
+                return new ArrayList<>();
+            }
+
+            List<SpanSuggestion> result = new ArrayList<>();
+            for (AnnotationSuggestion suggestion : bucket.values()) {
+                if (suggestion instanceof SpanSuggestion) {
+                    SpanSuggestion spanSuggestion = (SpanSuggestion) suggestion;
+                    if (spanSuggestion.getBegin() == aBegin && spanSuggestion.getEnd() == aEnd
+                            && spanSuggestion.getFeature().equals(aFeature)) {
+                        result.add(spanSuggestion);
+                    }
+                }
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
     public List<AnnotationSuggestion> getPredictionsByRecommenderAndDocument(
             Recommender aRecommender, String aDocument)
     {
-        return predictions.entrySet().stream()
-                .filter(f -> f.getKey().getRecommenderId() == (long) aRecommender.getId()
-                        && f.getKey().getDocumentName().equals(aDocument))
-                .map(Map.Entry::getValue).collect(Collectors.toList());
+        lock.readLock().lock();
+        try {
+            Map<Long, Map<Integer, AnnotationSuggestion>> byRecommender = idxDocumentVid
+                    .get(aDocument);
+            if (byRecommender == null) {
+                return new ArrayList<>();
+            }
+
+            Map<Integer, AnnotationSuggestion> byId = byRecommender.get(aRecommender.getId());
+            if (byId == null) {
+                return new ArrayList<>();
+            }
+
+            return new ArrayList<>(byId.values());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
     public List<AnnotationSuggestion> getPredictionsByDocument(String aDocument)
     {
-        return predictions.entrySet().stream()
-                .filter(f -> f.getKey().getDocumentName().equals(aDocument))
-                .map(Map.Entry::getValue).collect(Collectors.toList());
+        lock.readLock().lock();
+        try {
+            Map<Long, OffsetIndex> byLayer = idxDocumentLayerOffset.get(aDocument);
+            if (byLayer == null) {
+                return new ArrayList<>();
+            }
+
+            List<AnnotationSuggestion> result = new ArrayList<>();
+            for (OffsetIndex byOffset : byLayer.values()) {
+                for (Map<ExtendedId, AnnotationSuggestion> bucket : byOffset.values()) {
+                    result.addAll(bucket.values());
+                }
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
     public void markDocumentAsPredictionCompleted(SourceDocument aDocument)
@@ -270,4 +507,13 @@ public class Predictions
             return asList(log.stream().toArray(LogMessage[]::new));
         }
     }
+
+    /**
+     * Predictions of a single document and layer by the begin offset of their window.
+     */
+    private static class OffsetIndex
+        extends TreeMap<Integer, Map<ExtendedId, AnnotationSuggestion>>
+    {
+        private static final long serialVersionUID = 4412327393826207213L;
+    }
 }
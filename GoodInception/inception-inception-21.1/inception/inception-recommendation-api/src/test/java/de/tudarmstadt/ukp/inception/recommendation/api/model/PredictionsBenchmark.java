@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.VID;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+/**
+ * Compares the indexed {@link Predictions} against a flat map which is scanned on every lookup (as
+ * {@link Predictions} used to do). This is not a unit test - run it via the {@link #main} method
+ * from the IDE or with the JMH runner on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredictionsBenchmark
+{
+    private static final int WINDOW_SIZE = 2_000;
+
+    @Param({ "100", "1000" })
+    public int documents;
+
+    @Param({ "1000" })
+    public int suggestionsPerDocument;
+
+    private AnnotationLayer layer;
+    private Predictions indexed;
+    private ScanningPredictions scanning;
+    private List<SpanSuggestion> probes;
+    private Random rnd;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Project project = new Project();
+        project.setId(1l);
+        User user = new User("user");
+
+        layer = new AnnotationLayer();
+        layer.setId(1l);
+
+        indexed = new Predictions(user, project);
+        scanning = new ScanningPredictions();
+
+        rnd = new Random(42);
+        probes = new ArrayList<>();
+        int id = 0;
+        for (int d = 0; d < documents; d++) {
+            List<AnnotationSuggestion> batch = new ArrayList<>();
+            for (int s = 0; s < suggestionsPerDocument; s++) {
+                int begin = s * 10;
+                SpanSuggestion suggestion = new SpanSuggestion(id++, 1 + (s % 3), "rec", 1l,
+                        "value", "doc" + d, begin, begin + 5, "text", "label", "label",
+                        rnd.nextDouble(), null);
+                batch.add(suggestion);
+                if (rnd.nextInt(suggestionsPerDocument) == 0) {
+                    probes.add(suggestion);
+                }
+            }
+            indexed.putPredictions(batch);
+            scanning.putPredictions(batch);
+        }
+    }
+
+    private SpanSuggestion probe()
+    {
+        return probes.get(rnd.nextInt(probes.size()));
+    }
+
+    @Benchmark
+    public Object windowIndexed()
+    {
+        SpanSuggestion p = probe();
+        return indexed.getGroupedPredictions(SpanSuggestion.class, p.getDocumentName(), layer,
+                p.getBegin(), p.getBegin() + WINDOW_SIZE);
+    }
+
+    @Benchmark
+    public Object windowScanning()
+    {
+        SpanSuggestion p = probe();
+        return scanning.getFlattenedPredictions(SpanSuggestion.class, p.getDocumentName(), layer,
+                p.getBegin(), p.getBegin() + WINDOW_SIZE);
+    }
+
+    @Benchmark
+    public Object vidIndexed()
+    {
+        SpanSuggestion p = probe();
+        return indexed.getPredictionByVID(new SourceDocument(p.getDocumentName(), null, null),
+                p.getVID());
+    }
+
+    @Benchmark
+    public Object vidScanning()
+    {
+        SpanSuggestion p = probe();
+        return scanning.getPredictionByVID(p.getDocumentName(), p.getVID());
+    }
+
+    @Benchmark
+    public Object tokenAndFeatureIndexed()
+    {
+        SpanSuggestion p = probe();
+        return indexed.getPredictionsByTokenAndFeature(p.getDocumentName(), layer, p.getBegin(),
+                p.getEnd(), p.getFeature());
+    }
+
+    @Benchmark
+    public Object tokenAndFeatureScanning()
+    {
+        SpanSuggestion p = probe();
+        return scanning.getPredictionsByTokenAndFeature(p.getDocumentName(), layer, p.getBegin(),
+                p.getEnd(), p.getFeature());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(PredictionsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * The lookup strategy used by {@link Predictions} before it was indexed.
+     */
+    private static class ScanningPredictions
+    {
+        private final Map<ExtendedId, AnnotationSuggestion> predictions = new ConcurrentHashMap<>();
+
+        public void putPredictions(List<AnnotationSuggestion> aPredictions)
+        {
+            aPredictions.forEach(prediction -> predictions.put(new ExtendedId("user", 1l,
+                    prediction.getDocumentName(), prediction.getLayerId(),
+                    prediction.getPosition(), prediction.getRecommenderId(), prediction.getId(),
+                    -1), prediction));
+        }
+
+        public <T extends AnnotationSuggestion> List<T> getFlattenedPredictions(Class<T> type,
+                String aDocumentName, AnnotationLayer aLayer, int aWindowBegin, int aWindowEnd)
+        {
+            return predictions.values().stream() //
+                    .filter(type::isInstance) //
+                    .map(type::cast) //
+                    .filter(f -> f.getDocumentName().equals(aDocumentName))
+                    .filter(f -> f.getLayerId() == aLayer.getId())
+                    .filter(f -> aWindowBegin == -1 || (f.getWindowBegin() >= aWindowBegin))
+                    .filter(f -> aWindowEnd == -1 || (f.getWindowEnd() <= aWindowEnd))
+                    .sorted(Comparator.comparingInt(AnnotationSuggestion::getWindowBegin))
+                    .collect(toList());
+        }
+
+        public Optional<AnnotationSuggestion> getPredictionByVID(String aDocumentName, VID aVID)
+        {
+            return predictions.values().stream()
+                    .filter(f -> f.getDocumentName().equals(aDocumentName))
+                    .filter(f -> f.getId() == aVID.getSubId())
+                    .filter(f -> f.getRecommenderId() == aVID.getId()).findFirst();
+        }
+
+        public List<SpanSuggestion> getPredictionsByTokenAndFeature(String aDocumentName,
+                AnnotationLayer aLayer, int aBegin, int aEnd, String aFeature)
+        {
+            return predictions.values().stream() //
+                    .filter(f -> f instanceof SpanSuggestion) //
+                    .map(f -> (SpanSuggestion) f) //
+                    .filter(f -> f.getDocumentName().equals(aDocumentName))
+                    .filter(f -> f.getLayerId() == aLayer.getId())
+                    .filter(f -> f.getBegin() == aBegin) //
+                    .filter(f -> f.getEnd() == aEnd) //
+                    .filter(f -> f.getFeature().equals(aFeature)) //
+                    .collect(toList());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class PredictionsTest
+{
+    private Project project;
+    private AnnotationLayer layer1;
+    private AnnotationLayer layer2;
+    private SourceDocument doc1;
+    private Predictions sut;
+
+    @BeforeEach
+    public void setup()
+    {
+        project = new Project();
+        project.setId(1l);
+
+        layer1 = new AnnotationLayer();
+        layer1.setId(1l);
+        layer2 = new AnnotationLayer();
+        layer2.setId(2l);
+
+        doc1 = new SourceDocument("doc1", project, "text");
+        doc1.setId(1l);
+
+        sut = new Predictions(new User("user"), project);
+    }
+
+    @Test
+    public void thatWindowQueryReturnsContainedPredictionsSortedByOffset()
+    {
+        SpanSuggestion s1 = span(1, 1, 1, "doc1", 10, 15, "a");
+        SpanSuggestion s2 = span(2, 1, 1, "doc1", 0, 5, "b");
+        SpanSuggestion s3 = span(3, 1, 1, "doc1", 18, 25, "c");
+        SpanSuggestion s4 = span(4, 1, 2, "doc1", 0, 5, "d");
+        SpanSuggestion s5 = span(5, 1, 1, "doc2", 0, 5, "e");
+        sut.putPredictions(asList(s1, s2, s3, s4, s5));
+
+        assertThat(sut.getGroupedPredictions(SpanSuggestion.class, "doc1", layer1, -1, -1)
+                .stream().flatMap(SuggestionGroup::stream))
+                        .containsExactly(s2, s1, s3);
+
+        assertThat(sut.getGroupedPredictions(SpanSuggestion.class, "doc1", layer1, 0, 20)
+                .stream().flatMap(SuggestionGroup::stream))
+                        .as("Suggestions extending beyond the window are excluded")
+                        .containsExactly(s2, s1);
+
+        assertThat(sut.getGroupedPredictions(SpanSuggestion.class, "doc1", layer1, 5, -1)
+                .stream().flatMap(SuggestionGroup::stream))
+                        .containsExactly(s1, s3);
+
+        assertThat(sut.getGroupedPredictions(SpanSuggestion.class, "doc1", layer2, -1, -1)
+                .stream().flatMap(SuggestionGroup::stream))
+                        .containsExactly(s4);
+
+        assertThat(sut.getGroupedPredictions(RelationSuggestion.class, "doc1", layer1, -1, -1))
+                .isEmpty();
+    }
+
+    @Test
+    public void thatLookupByVidWorks()
+    {
+        SpanSuggestion s1 = span(1, 1, 1, "doc1", 10, 15, "a");
+        SpanSuggestion s2 = span(2, 2, 1, "doc1", 10, 15, "a");
+        sut.putPredictions(asList(s1, s2));
+
+        assertThat(sut.getPredictionByVID(doc1, s1.getVID())).containsSame(s1);
+        assertThat(sut.getPredictionByVID(doc1, s2.getVID())).containsSame(s2);
+
+        SourceDocument doc2 = new SourceDocument("doc2", project, "text");
+        assertThat(sut.getPredictionByVID(doc2, s1.getVID())).isEmpty();
+    }
+
+    @Test
+    public void thatLookupByTokenAndFeatureWorks()
+    {
+        SpanSuggestion s1 = span(1, 1, 1, "doc1", 10, 15, "a");
+        SpanSuggestion s2 = span(2, 2, 1, "doc1", 10, 15, "b");
+        SpanSuggestion s3 = span(3, 2, 1, "doc1", 10, 16, "c");
+        sut.putPredictions(asList(s1, s2, s3));
+
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer1, 10, 15, "value"))
+                .containsExactlyInAnyOrder(s1, s2);
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer1, 10, 15, "other"))
+                .isEmpty();
+    }
+
+    @Test
+    public void thatRemovingPredictionsByRecommenderUpdatesAllIndexes()
+    {
+        SpanSuggestion s1 = span(1, 1, 1, "doc1", 10, 15, "a");
+        SpanSuggestion s2 = span(2, 2, 1, "doc1", 10, 15, "b");
+        SpanSuggestion s3 = span(3, 2, 1, "doc2", 0, 5, "c");
+        sut.putPredictions(asList(s1, s2, s3));
+
+        sut.removePredictions(2l);
+
+        assertThat(sut.getGroupedPredictions().values()).containsExactly(s1);
+        assertThat(sut.getPredictionsByDocument("doc1")).containsExactly(s1);
+        assertThat(sut.getPredictionsByDocument("doc2")).isEmpty();
+        assertThat(sut.getPredictionByVID(doc1, s2.getVID())).isEmpty();
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer1, 10, 15, "value"))
+                .containsExactly(s1);
+
+        sut.removePredictions(1l);
+
+        assertThat(sut.hasPredictions()).isFalse();
+    }
+
+    private static SpanSuggestion span(int aId, long aRecommenderId, long aLayerId,
+            String aDocumentName, int aBegin, int aEnd, String aLabel)
+    {
+        return new SpanSuggestion(aId, aRecommenderId, "rec" + aRecommenderId, aLayerId, "value",
+                aDocumentName, aBegin, aEnd, "text", aLabel, aLabel, 0.5, null);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasCreationUtils;
+
+/**
+ * Keeps a small number of idle prediction CASes around so that prediction runs do not have to
+ * create and initialize a new CAS each time. CASes are handed out per type system. Since UIMA
+ * canonicalizes committed type systems, a pooled CAS is only re-used if its type system is
+ * identical to the requested one. Idle CASes using a different type system are dropped as soon as
+ * they are encountered, e.g. after the layer configuration of a project has changed.
+ */
+class PredictionCasPool
+{
+    private final int maxIdle;
+    private final Deque<CAS> idle = new ArrayDeque<>();
+
+    PredictionCasPool(int aMaxIdle)
+    {
+        maxIdle = aMaxIdle;
+    }
+
+    /**
+     * @param aTypeSystem
+     *            the type system the CAS must use.
+     * @return an empty CAS using the given type system.
+     */
+    CAS borrow(TypeSystem aTypeSystem) throws ResourceInitializationException
+    {
+        synchronized (idle) {
+            Iterator<CAS> i = idle.iterator();
+            while (i.hasNext()) {
+                CAS cas = i.next();
+                i.remove();
+                if (cas.getTypeSystem() == aTypeSystem) {
+                    return cas;
+                }
+            }
+        }
+
+        return CasCreationUtils.createCas(aTypeSystem, null, null, null);
+    }
+
+    /**
+     * Resets the given CAS and returns it to the pool. If the pool is full, the CAS is dropped.
+     * 
+     * @param aCas
+     *            the CAS to return.
+     */
+    void release(CAS aCas)
+    {
+        if (aCas == null) {
+            return;
+        }
+
+        aCas.reset();
+
+        synchronized (idle) {
+            if (idle.size() < maxIdle) {
+                idle.push(aCas);
+            }
+        }
+    }
+
+    int getIdleCount()
+    {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+}
@@ -64,7 +64,11 @@ import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.CASSerializer;
+import org.apache.uima.cas.impl.Serialization;
 import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.factory.CasFactory;
 import org.apache.uima.fit.util.CasUtil;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -100,7 +104,6 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.event.DocumentOpenedEven
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.exception.AnnotationException;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.AnnotatorState;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.page.AnnotationPageBase;
-import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterCasWrittenEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentCreatedEvent;
@@ -115,6 +118,8 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.StopWatch;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessageGroup;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.TrimUtils;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
@@ -150,6 +155,7 @@ import de.tudarmstadt.ukp.inception.recommendation.tasks.TrainingTask;
 import de.tudarmstadt.ukp.inception.recommendation.util.OverlapIterator;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
 
 /**
  * The implementation of the RecommendationService.
@@ -167,6 +173,9 @@ public class RecommendationServiceImpl
 
     private static final String PREDICTION_CAS = "predictionCas";
 
+    private static final Timer PREDICT_TIMER = Metrics.timer("inception_recommender_predict",
+            "Time spent by a recommender predicting on a single document");
+
     private final EntityManager entityManager;
 
     private final SessionRegistry sessionRegistry;
@@ -182,6 +191,12 @@ public class RecommendationServiceImpl
     private final ConcurrentMap<RecommendationStateKey, AtomicInteger> trainingTaskCounter;
     private final ConcurrentMap<RecommendationStateKey, RecommendationState> states;
 
+    /*
+     * Prediction runs happen in prediction tasks, so the pool keeps at most as many idle CASes as
+     * the scheduler may run prediction tasks at the same time.
+     */
+    private final PredictionCasPool predictionCasPool;
+
     /*
      * Marks user/projects to which annotations were added during this request.
      */
@@ -221,6 +236,9 @@ public class RecommendationServiceImpl
 
         trainingTaskCounter = new ConcurrentHashMap<>();
         states = new ConcurrentHashMap<>();
+        predictionCasPool = new PredictionCasPool(schedulingService != null
+                ? schedulingService.getMaxConcurrentTasks(TaskType.PREDICTION)
+                : 0);
     }
 
     public RecommendationServiceImpl(SessionRegistry aSessionRegistry, UserDao aUserRepository,
@@ -1184,8 +1202,14 @@ public class RecommendationServiceImpl
             Predictions activePredictions = getPredictions(aUser, aProject);
             Predictions predictions = new Predictions(aUser, aProject);
 
+            // The type system of the prediction CAS only depends on the project configuration, so
+            // we compute it only once per run instead of once per document and recommender
+            TypeSystem predictionTypeSystem;
             try {
-                predictionCas = WebAnnoCasUtil.createCas();
+                predictionTypeSystem = CasFactory
+                        .createCas(createPredictionTypeSystemDescription(aProject))
+                        .getTypeSystem();
+                predictionCas = predictionCasPool.borrow(predictionTypeSystem);
                 CasStorageSession.get().add(PREDICTION_CAS, EXCLUSIVE_WRITE_ACCESS, predictionCas);
             }
             catch (ResourceInitializationException e) {
@@ -1211,6 +1235,10 @@ public class RecommendationServiceImpl
             // Generate new predictions or inherit at the recommender level
             nextDocument: for (SourceDocument document : aDocuments) {
                 Optional<CAS> originalCas = Optional.empty();
+                // Snapshot of the prediction CAS right after it was initialized from the original
+                // CAS. Recommenders write their predictions into the prediction CAS, so each of
+                // them starts from a copy of this snapshot.
+                CASSerializer predictionCasSnapshot = null;
                 nextLayer: for (AnnotationLayer layer : annoService
                         .listAnnotationLayer(document.getProject())) {
                     if (!layer.isEnabled()) {
@@ -1350,7 +1378,18 @@ public class RecommendationServiceImpl
                             log.trace("[{}][{}]: Generating predictions for layer [{}]", username,
                                     r.getRecommender().getName(), layer.getUiName());
 
-                            cloneAndMonkeyPatchCAS(aProject, originalCas.get(), predictionCas);
+                            if (predictionCasSnapshot == null) {
+                                try (StopWatch watch = new StopWatch(log,
+                                        "initializing prediction CAS")) {
+                                    annoService.upgradeCas(originalCas.get(), predictionCas,
+                                            predictionTypeSystem);
+                                }
+                                predictionCasSnapshot = Serialization.serializeCAS(predictionCas);
+                            }
+                            else {
+                                Serialization.deserializeCAS(predictionCas,
+                                        predictionCasSnapshot);
+                            }
 
                             List<AnnotationSuggestion> suggestions;
 
@@ -1421,7 +1460,10 @@ public class RecommendationServiceImpl
             return predictions;
         }
         finally {
-            CasStorageSession.get().remove(predictionCas);
+            if (predictionCas != null) {
+                CasStorageSession.get().remove(predictionCas);
+                predictionCasPool.release(predictionCas);
+            }
         }
     }
 
@@ -1493,7 +1535,9 @@ public class RecommendationServiceImpl
         throws RecommendationException
     {
         // Perform the actual prediction
+        long start = System.nanoTime();
         engine.predict(ctx, predictionCas);
+        PREDICT_TIMER.recordSince(start);
 
         // Extract the suggestions from the data which the recommender has written into the CAS
         List<AnnotationSuggestion> suggestions = extractSuggestions(aUsername, originalCas,
@@ -2012,33 +2056,44 @@ public class RecommendationServiceImpl
         throws UIMAException, IOException
     {
         try (StopWatch watch = new StopWatch(log, "adding score features")) {
-            TypeSystemDescription tsd = annoService.getFullProjectTypeSystem(aProject);
+            TypeSystemDescription tsd = createPredictionTypeSystemDescription(aProject);
+            annoService.upgradeCas(aSourceCas, aTargetCas, tsd);
+        }
+
+        return aTargetCas;
+    }
 
-            for (AnnotationLayer layer : annoService.listAnnotationLayer(aProject)) {
-                TypeDescription td = tsd.getType(layer.getName());
+    /**
+     * Creates the full project type system extended with the score, score explanation and
+     * prediction marker features required to hold predictions.
+     */
+    private TypeSystemDescription createPredictionTypeSystemDescription(Project aProject)
+        throws ResourceInitializationException
+    {
+        TypeSystemDescription tsd = annoService.getFullProjectTypeSystem(aProject);
 
-                if (td == null) {
-                    log.trace("Could not monkey patch type [{}]", layer.getName());
-                    continue;
-                }
+        for (AnnotationLayer layer : annoService.listAnnotationLayer(aProject)) {
+            TypeDescription td = tsd.getType(layer.getName());
 
-                for (FeatureDescription feature : td.getFeatures()) {
-                    String scoreFeatureName = feature.getName() + FEATURE_NAME_SCORE_SUFFIX;
-                    td.addFeature(scoreFeatureName, "Score feature", CAS.TYPE_NAME_DOUBLE);
+            if (td == null) {
+                log.trace("Could not monkey patch type [{}]", layer.getName());
+                continue;
+            }
 
-                    String scoreExplanationFeatureName = feature.getName()
-                            + FEATURE_NAME_SCORE_EXPLANATION_SUFFIX;
-                    td.addFeature(scoreExplanationFeatureName, "Score explanation feature",
-                            CAS.TYPE_NAME_STRING);
-                }
+            for (FeatureDescription feature : td.getFeatures()) {
+                String scoreFeatureName = feature.getName() + FEATURE_NAME_SCORE_SUFFIX;
+                td.addFeature(scoreFeatureName, "Score feature", CAS.TYPE_NAME_DOUBLE);
 
-                td.addFeature(FEATURE_NAME_IS_PREDICTION, "Is Prediction", CAS.TYPE_NAME_BOOLEAN);
+                String scoreExplanationFeatureName = feature.getName()
+                        + FEATURE_NAME_SCORE_EXPLANATION_SUFFIX;
+                td.addFeature(scoreExplanationFeatureName, "Score explanation feature",
+                        CAS.TYPE_NAME_STRING);
             }
 
-            annoService.upgradeCas(aSourceCas, aTargetCas, tsd);
+            td.addFeature(FEATURE_NAME_IS_PREDICTION, "Is Prediction", CAS.TYPE_NAME_BOOLEAN);
         }
 
-        return aTargetCas;
+        return tsd;
     }
 
     private class TriggerTrainingTaskListener
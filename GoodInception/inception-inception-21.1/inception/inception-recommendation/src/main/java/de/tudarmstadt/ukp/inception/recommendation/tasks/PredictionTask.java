@@ -41,6 +41,7 @@ import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
 
 /**
  * This consumer predicts new annotations for a given annotation layer, if a classification tool for
@@ -63,6 +64,12 @@ public class PredictionTask
         currentDocument = aCurrentDocument;
     }
 
+    @Override
+    public TaskType getType()
+    {
+        return TaskType.PREDICTION;
+    }
+
     @Override
     public void execute()
     {
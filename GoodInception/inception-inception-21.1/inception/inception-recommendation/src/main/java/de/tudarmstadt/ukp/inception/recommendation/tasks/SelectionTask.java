@@ -60,6 +60,7 @@ import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderEvaluationRe
 import de.tudarmstadt.ukp.inception.recommendation.event.SelectionTaskEvent;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
 
 /**
  * This task evaluates all available classification tools for all annotation layers of the current
@@ -87,6 +88,12 @@ public class SelectionTask
         currentDocument = aCurrentDocument;
     }
 
+    @Override
+    public TaskType getType()
+    {
+        return TaskType.TRAINING;
+    }
+
     @Override
     public void execute()
     {
@@ -59,6 +59,8 @@ import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
@@ -69,6 +71,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderCo
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderTaskEvent;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
 
 /**
  * This consumer trains a new classifier model, if a classification tool was selected before.
@@ -76,6 +79,9 @@ import de.tudarmstadt.ukp.inception.scheduling.Task;
 public class TrainingTask
     extends Task
 {
+    private static final Timer TRAIN_TIMER = Metrics.timer("inception_recommender_train",
+            "Time spent training a recommender");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private @Autowired AnnotationSchemaService annoService;
@@ -94,6 +100,12 @@ public class TrainingTask
         currentDocument = aCurrentDocument;
     }
 
+    @Override
+    public TaskType getType()
+    {
+        return TaskType.TRAINING;
+    }
+
     @Override
     public void execute()
     {
@@ -232,7 +244,9 @@ public class TrainingTask
                                 "Training model for [%s] on [%d] out of [%d] documents ...",
                                 layer.getUiName(), cassesForTraining.size(), casses.get().size()));
 
+                        long trainStart = System.nanoTime();
                         recommendationEngine.train(ctx, cassesForTraining);
+                        TRAIN_TIMER.recordSince(trainStart);
                         logMessages.addAll(ctx.getMessages());
 
                         long duration = System.currentTimeMillis() - startTime;
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.fit.factory.CasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.junit.jupiter.api.Test;
+
+public class PredictionCasPoolTest
+{
+    @Test
+    public void thatReleasedCasIsReusedForSameTypeSystem() throws Exception
+    {
+        PredictionCasPool sut = new PredictionCasPool(2);
+        TypeSystem ts = CasFactory.createCas().getTypeSystem();
+
+        CAS cas = sut.borrow(ts);
+        cas.setDocumentText("Test");
+        sut.release(cas);
+
+        CAS reused = sut.borrow(ts);
+        assertThat(reused).isSameAs(cas);
+        assertThat(reused.getDocumentText()).isNull();
+        assertThat(sut.getIdleCount()).isZero();
+    }
+
+    @Test
+    public void thatCasWithOtherTypeSystemIsNotReused() throws Exception
+    {
+        PredictionCasPool sut = new PredictionCasPool(2);
+        TypeSystem ts1 = CasFactory.createCas().getTypeSystem();
+
+        TypeSystemDescription tsd = TypeSystemDescriptionFactory
+                .createTypeSystemDescription();
+        tsd.addType("my.Type", "", CAS.TYPE_NAME_ANNOTATION);
+        TypeSystem ts2 = CasFactory.createCas(tsd).getTypeSystem();
+
+        CAS cas = sut.borrow(ts1);
+        sut.release(cas);
+
+        CAS other = sut.borrow(ts2);
+        assertThat(other).isNotSameAs(cas);
+        assertThat(other.getTypeSystem()).isSameAs(ts2);
+        assertThat(sut.getIdleCount()).isZero();
+    }
+
+    @Test
+    public void thatPoolSizeIsLimited() throws Exception
+    {
+        PredictionCasPool sut = new PredictionCasPool(1);
+        TypeSystem ts = CasFactory.createCas().getTypeSystem();
+
+        CAS cas1 = sut.borrow(ts);
+        CAS cas2 = sut.borrow(ts);
+        sut.release(cas1);
+        sut.release(cas2);
+
+        assertThat(sut.getIdleCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Comparator.comparingLong;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.config.RemoteApiAutoConfiguration;
+
+/**
+ * Disk-backed cache of documents exported through the AERO remote API.
+ * <p>
+ * Entries are addressed by an entity tag which is derived from the document, the user, the format
+ * and the timestamp of the CAS the export was created from. Since the timestamp can be obtained
+ * without loading the CAS, a client which already has the current version of an export can be
+ * answered without touching the CAS at all. Changing the layer configuration of a project changes
+ * the tags of all its documents because it may change the exported data even if the CAS itself
+ * is unchanged. The tags also change when the application is restarted, so the cache folder is
+ * cleared on startup.
+ * <p>
+ * When the cache grows beyond its maximum size, the least recently used entries are removed.
+ * Entries obtained from the cache are leased until the {@link CachedExport} is closed. Leased
+ * entries are not removed, so the cache may temporarily exceed its maximum size while exports are
+ * being sent.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link RemoteApiAutoConfiguration#aeroExportCache}.
+ * </p>
+ */
+public class AeroExportCache
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final String STAGING_PREFIX = ".staging-";
+
+    private final File cacheFolder;
+    private final long maxSize;
+    private final long startupEpoch = System.currentTimeMillis();
+    private final Map<Long, Long> projectEpochs = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    // Number of leases per entry - guarded by this
+    private final Map<String, Integer> leases = new HashMap<>();
+
+    public AeroExportCache(File aCacheFolder, long aMaxSize) throws IOException
+    {
+        cacheFolder = aCacheFolder;
+        maxSize = aMaxSize;
+
+        if (cacheFolder.exists()) {
+            FileUtils.cleanDirectory(cacheFolder);
+        }
+        else {
+            FileUtils.forceMkdir(cacheFolder);
+        }
+    }
+
+    /**
+     * @return the (quoted) entity tag for the export of the given document in the given format
+     *         created from a CAS with the given timestamp.
+     */
+    public String getETag(SourceDocument aDocument, String aUser, String aFormat, long aTimestamp)
+    {
+        long projectEpoch = projectEpochs.getOrDefault(aDocument.getProject().getId(), 0L);
+        String key = String.join("\n", String.valueOf(startupEpoch), String.valueOf(projectEpoch),
+                String.valueOf(aDocument.getId()), aUser, aFormat, String.valueOf(aTimestamp));
+        return "\"" + DigestUtils.sha1Hex(key) + "\"";
+    }
+
+    /**
+     * @return the cached export for the given entity tag, if there is one. The export must be
+     *         closed once it is no longer used.
+     */
+    public Optional<CachedExport> get(String aETag)
+    {
+        return lease(unquote(aETag));
+    }
+
+    /**
+     * Moves the given exported file into the cache. If another thread has cached the same export
+     * in the meantime, the given file is discarded in favor of the existing entry.
+     * 
+     * @return the cached export which must be closed once it is no longer used.
+     */
+    public CachedExport put(String aETag, File aExportedFile) throws IOException
+    {
+        String entryName = unquote(aETag);
+        Path entryFolder = cacheFolder.toPath().resolve(entryName);
+        Path stagingFolder = Files.createTempDirectory(cacheFolder.toPath(), STAGING_PREFIX);
+        Path stagedFile = stagingFolder.resolve(aExportedFile.getName());
+        long fileSize;
+        try {
+            Files.move(aExportedFile.toPath(), stagedFile);
+            fileSize = Files.size(stagedFile);
+        }
+        catch (IOException e) {
+            FileUtils.deleteQuietly(stagingFolder.toFile());
+            throw e;
+        }
+
+        // The new entry is leased before the lock is released so it cannot be evicted before the
+        // caller has used it
+        synchronized (this) {
+            try {
+                Files.move(stagingFolder, entryFolder, ATOMIC_MOVE);
+            }
+            catch (IOException e) {
+                FileUtils.deleteQuietly(stagingFolder.toFile());
+                return lease(entryName).orElseThrow(() -> e);
+            }
+
+            size.addAndGet(fileSize);
+            CachedExport export = lease(entryName).orElseThrow(() -> new IOException(
+                    "Export [" + entryName + "] disappeared from the cache"));
+
+            if (size.get() > maxSize) {
+                evict();
+            }
+
+            return export;
+        }
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        projectEpochs.merge(aEvent.getProject().getId(), 1L, Long::sum);
+    }
+
+    long getSize()
+    {
+        return size.get();
+    }
+
+    private synchronized Optional<CachedExport> lease(String aEntryName)
+    {
+        File entryFolder = new File(cacheFolder, aEntryName);
+        File[] files = entryFolder.listFiles();
+        if (files == null || files.length != 1) {
+            return Optional.empty();
+        }
+
+        // Used to determine the least recently used entries during eviction
+        entryFolder.setLastModified(System.currentTimeMillis());
+        leases.merge(aEntryName, 1, Integer::sum);
+        return Optional.of(new CachedExport(aEntryName, files[0]));
+    }
+
+    private synchronized void release(String aEntryName)
+    {
+        leases.computeIfPresent(aEntryName, (k, v) -> v > 1 ? v - 1 : null);
+
+        // Eviction may have been deferred while the entry was leased
+        if (size.get() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is within its maximum size again.
+     * Leased entries are never removed because they may still be sent to a client.
+     */
+    private synchronized void evict()
+    {
+        File[] entries = cacheFolder
+                .listFiles(f -> f.isDirectory() && !f.getName().startsWith(STAGING_PREFIX));
+        if (entries == null) {
+            return;
+        }
+
+        Arrays.sort(entries, comparingLong(File::lastModified));
+        for (File entry : entries) {
+            if (size.get() <= maxSize) {
+                break;
+            }
+
+            if (leases.containsKey(entry.getName())) {
+                continue;
+            }
+
+            long entrySize = FileUtils.sizeOfDirectory(entry);
+            if (FileUtils.deleteQuietly(entry)) {
+                size.addAndGet(-entrySize);
+                log.trace("Evicted [{}] from the export cache", entry.getName());
+            }
+        }
+    }
+
+    private static String unquote(String aETag)
+    {
+        return aETag.replace("\"", "");
+    }
+
+    /**
+     * An export obtained from the cache. The export is not evicted from the cache until it is
+     * closed.
+     */
+    public class CachedExport
+        implements AutoCloseable
+    {
+        private final String entryName;
+        private final File file;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private CachedExport(String aEntryName, File aFile)
+        {
+            entryName = aEntryName;
+            file = aFile;
+        }
+
+        public File getFile()
+        {
+            return file;
+        }
+
+        @Override
+        public void close()
+        {
+            if (closed.compareAndSet(false, true)) {
+                release(entryName);
+            }
+        }
+    }
+}
@@ -17,11 +17,13 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst.INITIAL_CAS_PSEUDO_USER;
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectSentences;
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectTokens;
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.model.RMessageLevel.ERROR;
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.model.RMessageLevel.INFO;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.ALL_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
@@ -30,6 +32,7 @@ import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -38,16 +41,29 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import javax.persistence.NoResultException;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -56,6 +72,7 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.lang3.reflect.MethodUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -65,9 +82,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -78,6 +98,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -105,6 +126,7 @@ import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.support.ZipUtils;
 import de.tudarmstadt.ukp.clarin.webanno.tsv.WebAnnoTsv3FormatSupport;
+import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.AeroExportCache.CachedExport;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.exception.AccessForbiddenException;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.exception.IllegalObjectStateException;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.exception.IncompatibleDocumentException;
@@ -134,6 +156,7 @@ public class AeroRemoteApiController
     private static final String CURATION = "curation";
     private static final String IMPORT = "import";
     private static final String EXPORT = "export.zip";
+    private static final String ANNOTATIONS_ZIP = "annotations.zip";
     private static final String STATE = "state";
 
     private static final String PARAM_FILE = "file";
@@ -146,6 +169,7 @@ public class AeroRemoteApiController
     private static final String PARAM_PROJECT_ID = "projectId";
     private static final String PARAM_ANNOTATOR_ID = "userId";
     private static final String PARAM_DOCUMENT_ID = "documentId";
+    private static final String PARAM_SINCE = "since";
 
     private static final String VAL_ORIGINAL = "ORIGINAL";
 
@@ -157,6 +181,12 @@ public class AeroRemoteApiController
 
     private static final String FORMAT_DEFAULT = "text";
 
+    // Number of threads converting documents for bulk downloads and maximum number of converted
+    // documents which may wait to be written
+    private static final int BULK_CONVERSION_THREADS = Math.max(1,
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int BULK_MAX_PENDING = 2 * BULK_CONVERSION_THREADS;
+
     private final Logger LOG = LoggerFactory.getLogger(getClass());
 
     private @Autowired DocumentService documentService;
@@ -165,6 +195,7 @@ public class AeroRemoteApiController
     private @Autowired DocumentImportExportService importExportService;
     private @Autowired UserDao userRepository;
     private @Autowired ProjectExportService exportService;
+    private @Autowired AeroExportCache exportCache;
 
     @ExceptionHandler(value = RemoteApiException.class)
     public ResponseEntity<RResponse<Void>> handleException(RemoteApiException aException)
@@ -543,9 +574,9 @@ public class AeroRemoteApiController
             value = "/" + PROJECTS + "/{" + PARAM_PROJECT_ID + "}/" + DOCUMENTS + "/{"
                     + PARAM_DOCUMENT_ID + "}", //
             produces = { APPLICATION_OCTET_STREAM_VALUE, APPLICATION_JSON_VALUE })
-    public ResponseEntity<?> documentRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
+    public ResponseEntity<Resource> documentRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
             @PathVariable(PARAM_DOCUMENT_ID) long aDocumentId,
-            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat)
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat, WebRequest aRequest)
         throws Exception
     {
         // Get project (this also ensures that it exists and that the current user can access it
@@ -574,17 +605,17 @@ public class AeroRemoteApiController
             // Export the original file - no temporary file created here, we export directly from
             // the file system
             File docFile = documentService.getSourceDocumentFile(doc);
-            FileSystemResource resource = new FileSystemResource(docFile);
-            HttpHeaders httpHeaders = new HttpHeaders();
-            httpHeaders.setContentLength(resource.contentLength());
-            httpHeaders.set("Content-Disposition",
-                    "attachment; filename=\"" + doc.getName() + "\"");
-            return new ResponseEntity<org.springframework.core.io.Resource>(resource, httpHeaders,
-                    OK);
+            String eTag = exportCache.getETag(doc, INITIAL_CAS_PSEUDO_USER, VAL_ORIGINAL,
+                    docFile.lastModified());
+            if (aRequest.checkNotModified(eTag)) {
+                return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).build();
+            }
+
+            return fileResponse(docFile, doc.getName(), eTag);
         }
         else {
-            // Export a converted file - here we first export to a local temporary file and then
-            // send that back to the client
+            // Export a converted file - here we first export to a local file and then stream that
+            // back to the client
 
             // Check if the format is supported
             FormatSupport format = importExportService.getWritableFormatById(formatId)
@@ -594,29 +625,11 @@ public class AeroRemoteApiController
                                     .map(FormatSupport::getId).sorted().collect(Collectors.toList())
                                     .toString()));
 
-            // Create a temporary export file from the annotations
-            CAS cas = documentService.createOrReadInitialCas(doc);
-
-            File exportedFile = null;
-            try {
-                // Load the converted file into memory
-                exportedFile = importExportService.exportCasToFile(cas, doc, doc.getName(), format,
-                        true);
-                byte[] resource = FileUtils.readFileToByteArray(exportedFile);
-
-                // Send it back to the client
-                HttpHeaders httpHeaders = new HttpHeaders();
-                httpHeaders.setContentLength(resource.length);
-                httpHeaders.set("Content-Disposition",
-                        "attachment; filename=\"" + exportedFile.getName() + "\"");
-
-                return new ResponseEntity<>(resource, httpHeaders, OK);
-            }
-            finally {
-                if (exportedFile != null) {
-                    FileUtils.forceDelete(exportedFile);
-                }
-            }
+            return readExport(aRequest, doc, INITIAL_CAS_PSEUDO_USER, format,
+                    () -> importExportService.exportCasToFile(
+                            documentService.createOrReadInitialCas(doc), doc, doc.getName(),
+                            format, true),
+                    File::getName);
         }
     }
 
@@ -746,13 +759,15 @@ public class AeroRemoteApiController
             value = "/" + PROJECTS + "/{" + PARAM_PROJECT_ID + "}/" + DOCUMENTS + "/{"
                     + PARAM_DOCUMENT_ID + "}/" + ANNOTATIONS + "/{" + PARAM_ANNOTATOR_ID + "}", //
             produces = { APPLICATION_OCTET_STREAM_VALUE, APPLICATION_JSON_VALUE })
-    public ResponseEntity<byte[]> annotationsRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
+    public ResponseEntity<Resource> annotationsRead(
+            @PathVariable(PARAM_PROJECT_ID) long aProjectId,
             @PathVariable(PARAM_DOCUMENT_ID) long aDocumentId,
             @PathVariable(PARAM_ANNOTATOR_ID) String aAnnotatorId,
-            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat)
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat, WebRequest aRequest)
         throws Exception
     {
-        return readAnnotation(aProjectId, aDocumentId, aAnnotatorId, Mode.ANNOTATION, aFormat);
+        return readAnnotation(aProjectId, aDocumentId, aAnnotatorId, Mode.ANNOTATION, aFormat,
+                aRequest);
     }
 
     @Operation(summary = "Delete a user's annotations of one document from a project")
@@ -836,19 +851,166 @@ public class AeroRemoteApiController
                 .body(response);
     }
 
+    @Operation(summary = "Get annotations of multiple documents in a project as a ZIP file")
+    @GetMapping( //
+            value = "/" + PROJECTS + "/{" + PARAM_PROJECT_ID + "}/" + ANNOTATIONS_ZIP, //
+            produces = { "application/zip", APPLICATION_JSON_VALUE })
+    public void annotationsBulkRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat,
+            @RequestParam(value = PARAM_ANNOTATOR_ID) Optional<List<String>> aAnnotators,
+            @RequestParam(value = PARAM_STATE) Optional<List<String>> aStates,
+            @RequestParam(value = PARAM_SINCE) //
+            @DateTimeFormat(iso = ISO.DATE_TIME) Optional<Date> aSince,
+            HttpServletResponse aResponse)
+        throws Exception
+    {
+        // Get project (this also ensures that it exists and that the current user can access it
+        Project project = getProject(aProjectId);
+
+        // Check if the format is supported
+        Optional<FormatSupport> format = Optional.empty();
+        if (aFormat.isPresent()) {
+            format = Optional.of(importExportService.getWritableFormatById(aFormat.get())
+                    .orElseThrow(() -> new UnsupportedFormatException(
+                            "Format [%s] is not writable. Acceptable formats are %s.",
+                            aFormat.get(),
+                            importExportService.getWritableFormats().stream() //
+                                    .map(FormatSupport::getId) //
+                                    .sorted().collect(Collectors.toList()))));
+        }
+
+        Optional<Set<AnnotationDocumentState>> states = aStates.map(s -> s.stream()
+                .map(AeroRemoteApiController::parseAnnotationDocumentState)
+                .collect(Collectors.toSet()));
+
+        // Select the annotation documents to export. The CAS timestamps are obtained without
+        // loading the CASes, so unchanged documents are skipped cheaply during incremental syncs.
+        List<BulkExportItem> items = new ArrayList<>();
+        for (AnnotationDocument annDoc : documentService.listAnnotationDocuments(project)) {
+            if (aAnnotators.isPresent() && !aAnnotators.get().contains(annDoc.getUser())) {
+                continue;
+            }
+
+            if (states.isPresent() && !states.get().contains(annDoc.getState())) {
+                continue;
+            }
+
+            Optional<Long> timestamp = documentService
+                    .getAnnotationCasTimestamp(annDoc.getDocument(), annDoc.getUser());
+            if (timestamp.isEmpty()) {
+                continue;
+            }
+
+            if (aSince.isPresent() && timestamp.get() <= aSince.get().getTime()) {
+                continue;
+            }
+
+            items.add(new BulkExportItem(annDoc.getDocument(), annDoc.getUser(), timestamp.get(),
+                    format.orElseGet(() -> getBulkExportFormat(annDoc.getDocument()))));
+        }
+        items.sort((a, b) -> {
+            int result = a.document.getName().compareTo(b.document.getName());
+            return result != 0 ? result : a.user.compareTo(b.user);
+        });
+
+        aResponse.setContentType("application/zip");
+        aResponse.setHeader("Content-Disposition",
+                "attachment; filename=\"" + project.getSlug() + "-annotations.zip\"");
+
+        // The documents are converted in parallel, but they are written to the archive in order
+        // by this thread. Converted documents go into the export cache, so repeated downloads of
+        // unchanged documents do not need to convert them again.
+        Map<Pair<Project, String>, Object> bulkOperationContext = new ConcurrentHashMap<>();
+        ExecutorService conversionExecutor = Executors
+                .newFixedThreadPool(BULK_CONVERSION_THREADS);
+        Deque<PendingBulkExport> pending = new ArrayDeque<>();
+        try (ZipOutputStream zip = new ZipOutputStream(
+                new BufferedOutputStream(aResponse.getOutputStream()))) {
+            for (BulkExportItem item : items) {
+                String eTag = exportCache.getETag(item.document, item.user, item.format.getId(),
+                        item.timestamp);
+                Exporter exporter = () -> importExportService.exportAnnotationDocument(
+                        item.document, item.user, item.format, item.document.getName(),
+                        Mode.ANNOTATION, true, bulkOperationContext);
+                pending.add(new PendingBulkExport(item, conversionExecutor
+                        .submit(() -> convertBulkExport(eTag, exporter))));
+
+                while (pending.size() > BULK_MAX_PENDING) {
+                    writeBulkExport(zip, pending.poll());
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                writeBulkExport(zip, pending.poll());
+            }
+        }
+        finally {
+            conversionExecutor.shutdownNow();
+            for (PendingBulkExport export : pending) {
+                export.discard();
+            }
+        }
+    }
+
+    private FormatSupport getBulkExportFormat(SourceDocument aDocument)
+    {
+        return importExportService.getWritableFormatById(aDocument.getFormat())
+                .orElseGet(WebAnnoTsv3FormatSupport::new);
+    }
+
+    private CachedExport convertBulkExport(String aETag, Exporter aExporter) throws Exception
+    {
+        CachedExport export = getOrCreateCachedExport(aETag, aExporter);
+
+        // If the bulk export has been aborted in the meantime, nobody is going to release the
+        // export
+        if (Thread.currentThread().isInterrupted()) {
+            export.close();
+            throw new InterruptedException();
+        }
+
+        return export;
+    }
+
+    private void writeBulkExport(ZipOutputStream aZip, PendingBulkExport aExport)
+        throws Exception
+    {
+        CachedExport export;
+        try {
+            export = aExport.conversion.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+
+        // The export is leased from the cache, so it cannot be evicted while it is waiting to be
+        // written
+        try (CachedExport cachedExport = export) {
+            File file = cachedExport.getFile();
+            BulkExportItem item = aExport.item;
+            ZipEntry entry = new ZipEntry(item.document.getName() + "/" + item.user + "."
+                    + FilenameUtils.getExtension(file.getName()));
+            entry.setTime(item.timestamp);
+            ZipUtils.addFileToZip(aZip, file, entry);
+        }
+    }
+
     @Operation(summary = "Get curated annotations of a document in a project")
     @ApiResponse(content = @Content(array = @ArraySchema(schema = @Schema(implementation = byte.class))))
     @GetMapping( //
             value = "/" + PROJECTS + "/{" + PARAM_PROJECT_ID + "}/" + DOCUMENTS + "/{"
                     + PARAM_DOCUMENT_ID + "}/" + CURATION, //
             produces = { APPLICATION_OCTET_STREAM_VALUE, APPLICATION_JSON_VALUE })
-    public ResponseEntity<byte[]> curationRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
+    public ResponseEntity<Resource> curationRead(@PathVariable(PARAM_PROJECT_ID) long aProjectId,
             @PathVariable(PARAM_DOCUMENT_ID) long aDocumentId,
-            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat)
+            @RequestParam(value = PARAM_FORMAT) Optional<String> aFormat, WebRequest aRequest)
         throws Exception
     {
         return readAnnotation(aProjectId, aDocumentId, WebAnnoConst.CURATION_USER, Mode.CURATION,
-                aFormat);
+                aFormat, aRequest);
     }
 
     @Operation(summary = "Delete a user's annotations of one document from a project")
@@ -883,9 +1045,9 @@ public class AeroRemoteApiController
                 + aDocumentId + "] deleted from project [" + aProjectId + "]."));
     }
 
-    private ResponseEntity<byte[]> readAnnotation(long aProjectId, long aDocumentId,
-            String aAnnotatorId, Mode aMode, Optional<String> aFormat)
-        throws RemoteApiException, ClassNotFoundException, IOException, UIMAException
+    private ResponseEntity<Resource> readAnnotation(long aProjectId, long aDocumentId,
+            String aAnnotatorId, Mode aMode, Optional<String> aFormat, WebRequest aRequest)
+        throws Exception
     {
         // Get project (this also ensures that it exists and that the current user can access it
         Project project = getProject(aProjectId);
@@ -920,32 +1082,121 @@ public class AeroRemoteApiController
             getAnnotation(doc, aAnnotatorId, false);
         }
 
-        // Create a temporary export file from the annotations
-        File exportedAnnoFile = null;
-        byte[] resource;
-        try {
-            exportedAnnoFile = importExportService.exportAnnotationDocument(doc, aAnnotatorId,
-                    format, doc.getName(), Mode.ANNOTATION);
-            resource = FileUtils.readFileToByteArray(exportedAnnoFile);
+        String filenameBase = FilenameUtils.removeExtension(doc.getName()) + "-" + aAnnotatorId;
+        return readExport(aRequest, doc, aAnnotatorId, format,
+                () -> importExportService.exportAnnotationDocument(doc, aAnnotatorId, format,
+                        doc.getName(), Mode.ANNOTATION),
+                file -> filenameBase + "." + FilenameUtils.getExtension(file.getName()));
+    }
+
+    /**
+     * Sends an exported document to the client. If the CAS to be exported exists, its timestamp
+     * is used to derive an entity tag. If the client already has the export with this tag, it is
+     * not sent again. Otherwise, it is served from the export cache - or created and added to the
+     * cache if necessary. If the CAS does not exist yet, the export is created, sent and deleted.
+     * <p>
+     * In any case, the export is streamed from disk and is never loaded into memory as a whole.
+     */
+    private ResponseEntity<Resource> readExport(WebRequest aRequest, SourceDocument aDocument,
+            String aUser, FormatSupport aFormat, Exporter aExporter,
+            Function<File, String> aFilename)
+        throws Exception
+    {
+        Optional<String> eTag = documentService.getAnnotationCasTimestamp(aDocument, aUser)
+                .map(ts -> exportCache.getETag(aDocument, aUser, aFormat.getId(), ts));
+
+        if (eTag.isPresent()) {
+            if (aRequest.checkNotModified(eTag.get())) {
+                return ResponseEntity.status(NOT_MODIFIED).eTag(eTag.get()).build();
+            }
+
+            CachedExport cachedExport = getOrCreateCachedExport(eTag.get(), aExporter);
+            return cachedExportResponse(cachedExport,
+                    aFilename.apply(cachedExport.getFile()), eTag.get());
         }
-        finally {
-            if (exportedAnnoFile != null) {
-                FileUtils.forceDelete(exportedAnnoFile);
+
+        File exportedFile = aExporter.export();
+
+        // Turn the file into a resource and auto-delete the file when the resource closes the
+        // stream.
+        long length = exportedFile.length();
+        InputStreamResource resource = new InputStreamResource(new FileInputStream(exportedFile)
+        {
+            @Override
+            public void close() throws IOException
+            {
+                super.close();
+                FileUtils.forceDelete(exportedFile);
             }
+        });
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setContentLength(length);
+        httpHeaders.set("Content-Disposition",
+                "attachment; filename=\"" + aFilename.apply(exportedFile) + "\"");
+
+        return new ResponseEntity<>(resource, httpHeaders, OK);
+    }
+
+    private CachedExport getOrCreateCachedExport(String aETag, Exporter aExporter)
+        throws Exception
+    {
+        Optional<CachedExport> cachedExport = exportCache.get(aETag);
+        if (cachedExport.isPresent()) {
+            return cachedExport.get();
         }
 
-        String filename = FilenameUtils.removeExtension(doc.getName());
-        filename += "-" + aAnnotatorId;
-        // Actually, exportedAnnoFile cannot be null here - the warning can be ignored.
-        filename += "." + FilenameUtils.getExtension(exportedAnnoFile.getName());
+        return exportCache.put(aETag, aExporter.export());
+    }
+
+    /**
+     * Streams a cached export to the client. The export is released from the cache once the
+     * stream has been closed.
+     */
+    private ResponseEntity<Resource> cachedExportResponse(CachedExport aExport, String aFilename,
+            String aETag)
+        throws IOException
+    {
+        File file = aExport.getFile();
+        InputStreamResource resource;
+        try {
+            resource = new InputStreamResource(new FileInputStream(file)
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try {
+                        super.close();
+                    }
+                    finally {
+                        aExport.close();
+                    }
+                }
+            });
+        }
+        catch (IOException e) {
+            aExport.close();
+            throw e;
+        }
 
         HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setContentLength(resource.length);
-        httpHeaders.set("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+        httpHeaders.setContentLength(file.length());
+        httpHeaders.set("Content-Disposition", "attachment; filename=\"" + aFilename + "\"");
+        httpHeaders.setETag(aETag);
 
         return new ResponseEntity<>(resource, httpHeaders, OK);
     }
 
+    private ResponseEntity<Resource> fileResponse(File aFile, String aFilename, String aETag)
+    {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setContentLength(aFile.length());
+        httpHeaders.set("Content-Disposition", "attachment; filename=\"" + aFilename + "\"");
+        httpHeaders.setETag(aETag);
+
+        return new ResponseEntity<>(new FileSystemResource(aFile), httpHeaders, OK);
+    }
+
     private CAS createCompatibleCas(long aProjectId, long aDocumentId, MultipartFile aFile,
             Optional<String> aFormatId)
         throws RemoteApiException, ClassNotFoundException, IOException, UIMAException
@@ -1180,4 +1431,60 @@ public class AeroRemoteApiController
                     "Unknown annotation document state [" + aState + "]");
         }
     }
+
+    @FunctionalInterface
+    private static interface Exporter
+    {
+        File export() throws Exception;
+    }
+
+    private static class BulkExportItem
+    {
+        private final SourceDocument document;
+        private final String user;
+        private final long timestamp;
+        private final FormatSupport format;
+
+        BulkExportItem(SourceDocument aDocument, String aUser, long aTimestamp,
+                FormatSupport aFormat)
+        {
+            document = aDocument;
+            user = aUser;
+            timestamp = aTimestamp;
+            format = aFormat;
+        }
+    }
+
+    /**
+     * An annotation document which is being converted and which is waiting to be written to the
+     * archive.
+     */
+    private static class PendingBulkExport
+    {
+        private final BulkExportItem item;
+        private final Future<CachedExport> conversion;
+
+        PendingBulkExport(BulkExportItem aItem, Future<CachedExport> aConversion)
+        {
+            item = aItem;
+            conversion = aConversion;
+        }
+
+        /**
+         * Cancels the conversion or releases the export if the conversion is already complete.
+         */
+        void discard()
+        {
+            if (conversion.cancel(true)) {
+                return;
+            }
+
+            try {
+                conversion.get().close();
+            }
+            catch (Exception e) {
+                // Conversion failed - there is no export to release
+            }
+        }
+    }
 }
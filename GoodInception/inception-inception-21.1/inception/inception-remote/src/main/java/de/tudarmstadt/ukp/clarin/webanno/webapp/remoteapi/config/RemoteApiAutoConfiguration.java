@@ -17,14 +17,21 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.config;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.springdoc.core.GroupedOpenApi;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.LegacyRemoteApiController;
+import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.AeroExportCache;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.AeroRemoteApiController;
+import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.metrics.PrometheusMetricsController;
 import io.swagger.v3.oas.models.info.Info;
 
 @Configuration
@@ -40,6 +47,16 @@ public class RemoteApiAutoConfiguration
         return new AeroRemoteApiController();
     }
 
+    @ConditionalOnExpression(RemoteApiAutoConfiguration.REMOTE_API_ENABLED_CONDITION)
+    @Bean
+    public AeroExportCache aeroExportCache(RepositoryProperties aRepositoryProperties,
+            RemoteApiProperties aRemoteApiProperties)
+        throws IOException
+    {
+        return new AeroExportCache(new File(aRepositoryProperties.getPath(), "export-cache"),
+                aRemoteApiProperties.getExportCacheSize().toBytes());
+    }
+
     @ConditionalOnExpression(RemoteApiAutoConfiguration.REMOTE_API_ENABLED_CONDITION)
     @Bean
     public LegacyRemoteApiController legacyRemoteApiController()
@@ -47,6 +64,13 @@ public class RemoteApiAutoConfiguration
         return new LegacyRemoteApiController();
     }
 
+    @ConditionalOnProperty(prefix = "monitoring.metrics", name = "enabled", havingValue = "true")
+    @Bean
+    public PrometheusMetricsController prometheusMetricsController()
+    {
+        return new PrometheusMetricsController();
+    }
+
     @ConditionalOnExpression("!(" + REMOTE_API_ENABLED_CONDITION + ")")
     @Bean
     public GroupedOpenApi defaultDocket()
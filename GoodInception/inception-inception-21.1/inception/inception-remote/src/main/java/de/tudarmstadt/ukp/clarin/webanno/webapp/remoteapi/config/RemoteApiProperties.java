@@ -18,12 +18,18 @@
 package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties("remote-api")
 public class RemoteApiProperties
 {
     private boolean enabled = false;
 
+    /**
+     * Maximum disk space used for caching documents exported through the AERO API.
+     */
+    private DataSize exportCacheSize = DataSize.ofMegabytes(512);
+
     public boolean isEnabled()
     {
         boolean enabledViaLegacySystemProperty = "true"
@@ -36,4 +42,14 @@ public class RemoteApiProperties
     {
         enabled = aRemoteApiEnabled;
     }
+
+    public DataSize getExportCacheSize()
+    {
+        return exportCacheSize;
+    }
+
+    public void setExportCacheSize(DataSize aExportCacheSize)
+    {
+        exportCacheSize = aExportCacheSize;
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.config.RemoteApiAutoConfiguration;
+import io.swagger.v3.oas.annotations.Operation;
+
+/**
+ * Exposes the metrics collected in the {@link Metrics#globalRegistry() global metrics registry}
+ * in the Prometheus text exposition format. Being located under {@code /api}, the endpoint is
+ * protected like the rest of the remote API and requires the {@code ROLE_REMOTE} role.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link RemoteApiAutoConfiguration#prometheusMetricsController}.
+ * </p>
+ */
+@RequestMapping(PrometheusMetricsController.API_BASE)
+public class PrometheusMetricsController
+{
+    public static final String API_BASE = "/api/metrics";
+
+    static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Operation(summary = "Metrics in the Prometheus text exposition format")
+    @GetMapping(value = "/prometheus", produces = PROMETHEUS_CONTENT_TYPE)
+    public ResponseEntity<String> prometheus() throws IOException
+    {
+        StringWriter out = new StringWriter();
+        Metrics.globalRegistry().writePrometheus(out);
+        return ResponseEntity.ok(out.toString());
+    }
+}
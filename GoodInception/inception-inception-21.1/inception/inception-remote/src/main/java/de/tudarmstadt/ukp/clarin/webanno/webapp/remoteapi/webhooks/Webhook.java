@@ -27,6 +27,7 @@ public class Webhook
     private boolean enabled = true;
     private List<String> topics = new ArrayList<>();
     private boolean verifyCertificates = true;
+    private int batchSize = 1;
 
     public String getUrl()
     {
@@ -78,6 +79,16 @@ public class Webhook
         verifyCertificates = aVerifyCertificates;
     }
 
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize(int aBatchSize)
+    {
+        batchSize = aBatchSize;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks;
+
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_BATCH_SIZE;
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_NOTIFICATION;
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_SIGNATURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.ssl.TrustStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Counter;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
+
+/**
+ * Delivers the messages for a single webhook. Messages are queued and sent in order by a
+ * dedicated thread using a HTTP client which keeps its connection to the receiver open. Failed
+ * deliveries are retried with an exponential backoff.
+ * <p>
+ * If an outbox folder is set, every message is written to it before it is queued and only removed
+ * once it has been delivered or given up on. Messages which have not been delivered when the
+ * application is stopped are sent when the dispatcher is started again. Messages which do not fit
+ * into the queue remain only in the outbox and are picked up again once the queue has drained.
+ * Without an outbox folder, such messages are dropped.
+ * </p>
+ */
+public class WebhookDispatcher
+{
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    private static final Pattern OUTBOX_FILE_PATTERN = Pattern.compile("(\\d+)-(\\w+)\\.json");
+
+    static final Timer DELIVERY_TIMER = Metrics.timer("inception_webhook_delivery",
+            "Time taken by successful webhook requests");
+    static final Counter DELIVERED = Metrics.counter("inception_webhook_delivered_total",
+            "Number of webhook messages delivered");
+    static final Counter FAILED_ATTEMPTS = Metrics.counter(
+            "inception_webhook_failed_attempts_total", "Number of failed webhook requests");
+    static final Counter DROPPED = Metrics.counter("inception_webhook_dropped_total",
+            "Number of webhook messages dropped because they could not be delivered or queued");
+
+    private final Webhook hook;
+    private final WebhooksConfiguration configuration;
+    private final File outboxFolder;
+    private final BlockingQueue<Delivery> queue;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final Thread worker;
+
+    private long nextSequence;
+    private boolean spilled;
+
+    /**
+     * @param aHook
+     *            the webhook to deliver messages to.
+     * @param aConfiguration
+     *            the queue and retry settings.
+     * @param aOutboxFolder
+     *            folder in which undelivered messages are kept - may be {@code null} if messages
+     *            should only be kept in memory.
+     */
+    public WebhookDispatcher(Webhook aHook, WebhooksConfiguration aConfiguration,
+            File aOutboxFolder)
+    {
+        hook = aHook;
+        configuration = aConfiguration;
+        outboxFolder = aOutboxFolder;
+        queue = new LinkedBlockingQueue<>(configuration.getQueueSize());
+
+        int timeout = (int) configuration.getTimeout().toMillis();
+        RequestConfig requestConfig = RequestConfig.custom() //
+                .setConnectTimeout(timeout) //
+                .setConnectionRequestTimeout(timeout) //
+                .setSocketTimeout(timeout) //
+                .build();
+
+        // Messages are sent one after the other, so a single connection is sufficient. Failed
+        // requests are retried by the dispatcher itself.
+        HttpClientBuilder clientBuilder = HttpClients.custom() //
+                .setDefaultRequestConfig(requestConfig) //
+                .setMaxConnTotal(1) //
+                .setMaxConnPerRoute(1) //
+                .disableAutomaticRetries();
+        if (!hook.isVerifyCertificates()) {
+            clientBuilder.setSSLSocketFactory(nonValidatingSocketFactory());
+        }
+        httpClient = clientBuilder.build();
+        restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+        if (outboxFolder != null) {
+            outboxFolder.mkdirs();
+            for (File file : listOutbox()) {
+                Matcher matcher = OUTBOX_FILE_PATTERN.matcher(file.getName());
+                if (matcher.matches()) {
+                    nextSequence = Math.max(nextSequence, Long.parseLong(matcher.group(1)) + 1);
+                    spilled = true;
+                }
+            }
+        }
+
+        worker = new Thread(this::run, "Webhook " + hook.getUrl());
+        worker.setDaemon(true);
+    }
+
+    public void start()
+    {
+        if (spilled) {
+            LOG.info("Resuming delivery of undelivered messages to {}", hook);
+        }
+
+        worker.start();
+    }
+
+    public void stop()
+    {
+        worker.interrupt();
+        try {
+            worker.join(configuration.getTimeout().toMillis());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            httpClient.close();
+        }
+        catch (IOException e) {
+            LOG.error("Unable to close HTTP client for {}", hook, e);
+        }
+    }
+
+    public Webhook getHook()
+    {
+        return hook;
+    }
+
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Queues a message for delivery. This method does not block.
+     * 
+     * @param aTopic
+     *            the message topic.
+     * @param aJson
+     *            the message body.
+     */
+    public synchronized void enqueue(String aTopic, String aJson)
+    {
+        Delivery delivery = new Delivery(nextSequence++, aTopic, aJson, null);
+
+        if (outboxFolder != null) {
+            File file = new File(outboxFolder,
+                    String.format("%020d-%s.json", delivery.sequence, aTopic));
+            try {
+                FileUtils.writeStringToFile(file, aJson, UTF_8);
+                delivery.file = file;
+            }
+            catch (IOException e) {
+                LOG.error("Unable to add message to the outbox of {}", hook, e);
+            }
+        }
+
+        // Once messages have spilled over into the outbox, new messages must go there as well
+        // so they are not delivered before the older ones
+        if ((!spilled || delivery.file == null) && queue.offer(delivery)) {
+            return;
+        }
+
+        if (delivery.file != null) {
+            spilled = true;
+            return;
+        }
+
+        DROPPED.increment();
+        LOG.error("Queue of {} is full - dropping [{}] message", hook, aTopic);
+    }
+
+    private void run()
+    {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                reloadFromOutbox();
+
+                List<Delivery> batch = new ArrayList<>();
+                batch.add(queue.take());
+                while (batch.size() < hook.getBatchSize() && queue.peek() != null
+                        && queue.peek().topic.equals(batch.get(0).topic)) {
+                    batch.add(queue.poll());
+                }
+
+                deliver(batch);
+
+                for (Delivery delivery : batch) {
+                    if (delivery.file != null) {
+                        FileUtils.deleteQuietly(delivery.file);
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            // Undelivered messages remain in the outbox and are delivered on the next start
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Moves messages that did not fit into the queue from the outbox back into the queue. This is
+     * only done by the worker thread while the queue is empty and no delivery is in progress, so
+     * all messages still in the outbox at this point are not yet queued.
+     */
+    private synchronized void reloadFromOutbox()
+    {
+        if (!spilled || !queue.isEmpty()) {
+            return;
+        }
+
+        File[] files = listOutbox();
+        int processed = 0;
+        for (File file : files) {
+            if (queue.remainingCapacity() == 0) {
+                break;
+            }
+
+            processed++;
+
+            Matcher matcher = OUTBOX_FILE_PATTERN.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+
+            try {
+                queue.offer(new Delivery(Long.parseLong(matcher.group(1)), matcher.group(2),
+                        FileUtils.readFileToString(file, UTF_8), file));
+            }
+            catch (IOException e) {
+                DROPPED.increment();
+                LOG.error("Unable to read message [{}] from the outbox of {} - dropping it",
+                        file.getName(), hook, e);
+                FileUtils.deleteQuietly(file);
+            }
+        }
+
+        spilled = processed < files.length;
+    }
+
+    private File[] listOutbox()
+    {
+        File[] files = outboxFolder.listFiles(file -> file.getName().endsWith(".json"));
+        if (files == null) {
+            return new File[0];
+        }
+
+        // File names start with the zero-padded sequence number, so they sort in queue order
+        Arrays.sort(files);
+        return files;
+    }
+
+    private void deliver(List<Delivery> aBatch) throws InterruptedException
+    {
+        String topic = aBatch.get(0).topic;
+
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        requestHeaders.set(X_AERO_NOTIFICATION, topic);
+
+        String json;
+        if (hook.getBatchSize() > 1) {
+            json = aBatch.stream().map(delivery -> delivery.json).collect(joining(",", "[", "]"));
+            requestHeaders.set(X_AERO_BATCH_SIZE, String.valueOf(aBatch.size()));
+        }
+        else {
+            json = aBatch.get(0).json;
+        }
+
+        // If a secret is set, then add a digest header that allows the client to verify
+        // the message integrity
+        if (isNotBlank(hook.getSecret())) {
+            String digest = DigestUtils.shaHex(hook.getSecret() + json);
+            requestHeaders.set(X_AERO_SIGNATURE, digest);
+        }
+
+        HttpEntity<?> httpEntity = new HttpEntity<Object>(json, requestHeaders);
+
+        for (int attempt = 1;; attempt++) {
+            long start = System.nanoTime();
+            try {
+                restTemplate.postForEntity(hook.getUrl(), httpEntity, Void.class);
+                DELIVERY_TIMER.recordSince(start);
+                DELIVERED.add(aBatch.size());
+                return;
+            }
+            catch (RestClientException e) {
+                FAILED_ATTEMPTS.increment();
+
+                if (!isRetryable(e) || attempt >= configuration.getMaxAttempts()) {
+                    DROPPED.add(aBatch.size());
+                    LOG.error("Unable to invoke webhook {} - giving up after {} attempts", hook,
+                            attempt, e);
+                    return;
+                }
+
+                long delay = getRetryDelay(attempt);
+                LOG.warn("Unable to invoke webhook {} - retrying in {}ms: {}", hook, delay,
+                        e.getMessage());
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    private long getRetryDelay(int aAttempt)
+    {
+        long delay = configuration.getRetryDelay().toMillis() << Math.min(aAttempt - 1, 30);
+        return Math.min(delay, configuration.getMaxRetryDelay().toMillis());
+    }
+
+    private static boolean isRetryable(RestClientException aException)
+    {
+        // Client errors will not go away by retrying - except if the receiver is just busy
+        if (aException instanceof HttpClientErrorException) {
+            HttpStatus status = ((HttpClientErrorException) aException).getStatusCode();
+            return status == HttpStatus.REQUEST_TIMEOUT || status == HttpStatus.TOO_MANY_REQUESTS;
+        }
+
+        return true;
+    }
+
+    private static SSLConnectionSocketFactory nonValidatingSocketFactory()
+    {
+        TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
+
+        try {
+            SSLContext sslContext = SSLContexts.custom()
+                    .loadTrustMaterial(null, acceptingTrustStrategy).build();
+            return new SSLConnectionSocketFactory(sslContext);
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to set up SSL context", e);
+        }
+    }
+
+    private static class Delivery
+    {
+        private final long sequence;
+        private final String topic;
+        private final String json;
+        private File file;
+
+        public Delivery(long aSequence, String aTopic, String aJson, File aFile)
+        {
+            sequence = aSequence;
+            topic = aTopic;
+            json = aJson;
+            file = aFile;
+        }
+    }
+}
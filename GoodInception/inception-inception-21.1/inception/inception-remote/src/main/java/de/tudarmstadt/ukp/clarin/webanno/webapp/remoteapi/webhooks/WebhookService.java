@@ -17,54 +17,44 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks;
 
-import static org.apache.commons.lang3.StringUtils.isNotBlank;
-
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.X509Certificate;
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-
-import javax.net.ssl.SSLContext;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.ssl.TrustStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.ApplicationEvent;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionalEventListener;
-import org.springframework.web.client.RestTemplate;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AnnotationStateChangeEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.DocumentStateChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.ProjectStateChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.json.AnnotationStateChangeMessage;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.json.DocumentStateChangeMessage;
 import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.json.ProjectStateChangeMessage;
 
 @Component
 public class WebhookService
-    implements InitializingBean
+    implements InitializingBean, DisposableBean
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     public static final String X_AERO_NOTIFICATION = "X-AERO-Notification";
     public static final String X_AERO_SIGNATURE = "X-AERO-Signature";
+    public static final String X_AERO_BATCH_SIZE = "X-AERO-Batch-Size";
+
+    public static final String OUTBOX_FOLDER = "webhooks-outbox";
 
     private static final Map<Class<? extends ApplicationEvent>, String> EVENT_TOPICS;
 
@@ -81,25 +71,9 @@ public class WebhookService
     }
 
     private @Autowired WebhooksConfiguration configuration;
-    private @Autowired RestTemplateBuilder restTemplateBuilder;
+    private @Autowired(required = false) RepositoryProperties repositoryProperties;
 
-    private HttpComponentsClientHttpRequestFactory nonValidatingRequestFactory = null;
-
-    public WebhookService()
-        throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException
-    {
-        TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
-
-        SSLContext sslContext = org.apache.http.ssl.SSLContexts.custom()
-                .loadTrustMaterial(null, acceptingTrustStrategy).build();
-
-        SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(sslContext);
-
-        CloseableHttpClient httpClient = HttpClients.custom().setSSLSocketFactory(csf).build();
-
-        nonValidatingRequestFactory = new HttpComponentsClientHttpRequestFactory();
-        nonValidatingRequestFactory.setHttpClient(httpClient);
-    }
+    private final Map<Webhook, WebhookDispatcher> dispatchers = new ConcurrentHashMap<>();
 
     @Override
     public void afterPropertiesSet() throws Exception
@@ -113,12 +87,26 @@ public class WebhookService
             log.info("Global webhooks registered:");
             for (Webhook hook : configuration.getGlobalHooks()) {
                 log.info("- " + hook);
+                // Start the dispatchers right away to deliver messages left over in the outbox
+                if (hook.isEnabled()) {
+                    getDispatcher(hook);
+                }
             }
         }
+
+        Metrics.gauge("inception_webhook_queue_size", "Number of queued webhook messages",
+                () -> dispatchers.values().stream() //
+                        .mapToInt(WebhookDispatcher::getQueueSize).sum());
+    }
+
+    @Override
+    public void destroy()
+    {
+        dispatchers.values().forEach(WebhookDispatcher::stop);
+        dispatchers.clear();
     }
 
     @TransactionalEventListener(fallbackExecution = true)
-    @Async
     public void onApplicationEvent(ApplicationEvent aEvent)
     {
         String topic = EVENT_TOPICS.get(aEvent.getClass());
@@ -141,45 +129,46 @@ public class WebhookService
             return;
         }
 
+        String json;
+        try {
+            json = JSONUtil.toJsonString(message);
+        }
+        catch (IOException e) {
+            log.error("Unable to serialize [{}] message", topic, e);
+            return;
+        }
+
+        // Only queue the message here - it is delivered by the dispatcher of the respective hook
         for (Webhook hook : configuration.getGlobalHooks()) {
             if (!hook.isEnabled() || !hook.getTopics().contains(topic)) {
                 continue;
             }
 
-            try {
-                // Configure rest template without SSL certification check if that is disabled.
-                RestTemplate restTemplate;
-                if (hook.isVerifyCertificates()) {
-                    restTemplate = restTemplateBuilder.build();
-                }
-                else {
-                    restTemplate = restTemplateBuilder
-                            .requestFactory(this::getNonValidatingRequestFactory).build();
-                }
+            getDispatcher(hook).enqueue(topic, json);
+        }
+    }
 
-                HttpHeaders requestHeaders = new HttpHeaders();
-                requestHeaders.setContentType(MediaType.APPLICATION_JSON_UTF8);
-                requestHeaders.set(X_AERO_NOTIFICATION, topic);
+    private WebhookDispatcher getDispatcher(Webhook aHook)
+    {
+        return dispatchers.computeIfAbsent(aHook, hook -> {
+            WebhookDispatcher dispatcher = new WebhookDispatcher(hook, configuration,
+                    getOutboxFolder(hook));
+            dispatcher.start();
+            return dispatcher;
+        });
+    }
 
-                // If a secret is set, then add a digest header that allows the client to verify
-                // the message integrity
-                String json = JSONUtil.toJsonString(message);
-                if (isNotBlank(hook.getSecret())) {
-                    String digest = DigestUtils.shaHex(hook.getSecret() + json);
-                    requestHeaders.set(X_AERO_SIGNATURE, digest);
-                }
+    private File getOutboxFolder(Webhook aHook)
+    {
+        File folder = configuration.getOutboxFolder();
+        if (folder == null && repositoryProperties != null) {
+            folder = new File(repositoryProperties.getPath(), OUTBOX_FOLDER);
+        }
 
-                HttpEntity<?> httpEntity = new HttpEntity<Object>(json, requestHeaders);
-                restTemplate.postForEntity(hook.getUrl(), httpEntity, Void.class);
-            }
-            catch (Exception e) {
-                log.error("Unable to invoke webhook [{}]", hook, e);
-            }
+        if (folder == null) {
+            return null;
         }
-    }
 
-    private HttpComponentsClientHttpRequestFactory getNonValidatingRequestFactory()
-    {
-        return nonValidatingRequestFactory;
+        return new File(folder, DigestUtils.sha1Hex(aHook.getUrl()));
     }
 }
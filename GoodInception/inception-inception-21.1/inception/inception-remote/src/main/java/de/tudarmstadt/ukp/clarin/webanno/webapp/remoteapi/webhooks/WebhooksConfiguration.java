@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks;
 
+import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,6 +32,12 @@ public class WebhooksConfiguration
     public static final String PROPERTY_PREFIX = "webhooks";
 
     private List<Webhook> globalHooks = new ArrayList<>();
+    private int queueSize = 1000;
+    private int maxAttempts = 8;
+    private Duration retryDelay = Duration.ofSeconds(1);
+    private Duration maxRetryDelay = Duration.ofMinutes(1);
+    private Duration timeout = Duration.ofSeconds(10);
+    private File outboxFolder;
 
     public List<Webhook> getGlobalHooks()
     {
@@ -40,4 +48,64 @@ public class WebhooksConfiguration
     {
         globalHooks = aWebhooks;
     }
+
+    public int getQueueSize()
+    {
+        return queueSize;
+    }
+
+    public void setQueueSize(int aQueueSize)
+    {
+        queueSize = aQueueSize;
+    }
+
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int aMaxAttempts)
+    {
+        maxAttempts = aMaxAttempts;
+    }
+
+    public Duration getRetryDelay()
+    {
+        return retryDelay;
+    }
+
+    public void setRetryDelay(Duration aRetryDelay)
+    {
+        retryDelay = aRetryDelay;
+    }
+
+    public Duration getMaxRetryDelay()
+    {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(Duration aMaxRetryDelay)
+    {
+        maxRetryDelay = aMaxRetryDelay;
+    }
+
+    public Duration getTimeout()
+    {
+        return timeout;
+    }
+
+    public void setTimeout(Duration aTimeout)
+    {
+        timeout = aTimeout;
+    }
+
+    public File getOutboxFolder()
+    {
+        return outboxFolder;
+    }
+
+    public void setOutboxFolder(File aOutboxFolder)
+    {
+        outboxFolder = aOutboxFolder;
+    }
 }
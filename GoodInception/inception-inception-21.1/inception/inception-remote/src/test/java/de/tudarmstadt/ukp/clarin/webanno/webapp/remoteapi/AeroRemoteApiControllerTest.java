@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi;
 
 import static de.tudarmstadt.ukp.clarin.webanno.security.model.Role.ROLE_ADMIN;
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.AeroRemoteApiController.API_BASE;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
@@ -28,10 +29,16 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -50,6 +57,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.web.context.WebApplicationContext;
@@ -294,6 +302,92 @@ public class AeroRemoteApiControllerTest
         // @formatter:on
     }
 
+    @Test
+    public void t006_testAnnotationReadWithETag() throws Exception
+    {
+        // @formatter:off
+        MvcResult result = mvc.perform(get(API_BASE + "/projects/1/documents/1/annotations/admin")
+                .with(csrf().asHeader())
+                .with(user("admin").roles("ADMIN"))
+                .param("format", "text"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"))
+            .andReturn();
+        
+        String eTag = result.getResponse().getHeader("ETag");
+        
+        mvc.perform(get(API_BASE + "/projects/1/documents/1/annotations/admin")
+                .with(csrf().asHeader())
+                .with(user("admin").roles("ADMIN"))
+                .param("format", "text")
+                .header("If-None-Match", eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", eTag));
+        
+        mvc.perform(get(API_BASE + "/projects/1/documents/1/annotations/admin")
+                .with(csrf().asHeader())
+                .with(user("admin").roles("ADMIN"))
+                .param("format", "text")
+                .header("If-None-Match", "\"outdated\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", eTag))
+            .andExpect(content().bytes(result.getResponse().getContentAsByteArray()));
+        // @formatter:on
+    }
+
+    @Test
+    public void t007_testAnnotationsBulkRead() throws Exception
+    {
+        // @formatter:off
+        MvcResult result = mvc.perform(get(API_BASE + "/projects/1/annotations.zip")
+                .with(csrf().asHeader())
+                .with(user("admin").roles("ADMIN"))
+                .param("format", "text")
+                .param("state", "IN-PROGRESS"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/zip"))
+            .andReturn();
+        
+        assertThat(listZipEntries(result.getResponse().getContentAsByteArray()))
+            .hasSize(1) //
+            .allMatch(name -> name.startsWith("test.txt/admin."));
+        
+        MvcResult filteredByState = mvc.perform(get(API_BASE + "/projects/1/annotations.zip")
+                .with(csrf().asHeader())
+                .with(user("admin").roles("ADMIN"))
+                .param("format", "text")
+                .param("state", "COMPLETE"))
+            .andExpect(status().isOk())
+            .andReturn();
+        
+        assertThat(listZipEntries(filteredByState.getResponse().getContentAsByteArray()))
+            .isEmpty();
+        
+        MvcResult filteredByTime = mvc.perform(get(API_BASE + "/projects/1/annotations.zip")
+                .with(csrf().asHeader())
+                .with(user("admin").roles("ADMIN"))
+                .param("format", "text")
+                .param("since", "2999-01-01T00:00:00.000Z"))
+            .andExpect(status().isOk())
+            .andReturn();
+        
+        assertThat(listZipEntries(filteredByTime.getResponse().getContentAsByteArray()))
+            .isEmpty();
+        // @formatter:on
+    }
+
+    private static List<String> listZipEntries(byte[] aZip) throws Exception
+    {
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(aZip))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry.getName());
+            }
+        }
+        return entries;
+    }
+
     @SpringBootConfiguration
     public static class TestContext
     {
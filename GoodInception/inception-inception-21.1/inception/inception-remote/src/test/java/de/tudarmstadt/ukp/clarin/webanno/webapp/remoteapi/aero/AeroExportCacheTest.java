@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.aero.AeroExportCache.CachedExport;
+
+public class AeroExportCacheTest
+{
+    private @TempDir File tempFolder;
+
+    private Project project;
+    private SourceDocument document;
+    private AeroExportCache sut;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        project = new Project("test");
+        project.setId(1L);
+        document = new SourceDocument("doc.txt", project, "text");
+        document.setId(1L);
+
+        sut = new AeroExportCache(new File(tempFolder, "cache"), 10);
+    }
+
+    @Test
+    public void thatETagDependsOnAllKeyParts()
+    {
+        String eTag = sut.getETag(document, "user", "text", 1);
+
+        assertThat(eTag).startsWith("\"").endsWith("\"");
+        assertThat(sut.getETag(document, "user", "text", 1)).isEqualTo(eTag);
+        assertThat(sut.getETag(document, "other", "text", 1)).isNotEqualTo(eTag);
+        assertThat(sut.getETag(document, "user", "xmi", 1)).isNotEqualTo(eTag);
+        assertThat(sut.getETag(document, "user", "text", 2)).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void thatLayerConfigurationChangeInvalidatesETags()
+    {
+        String eTag = sut.getETag(document, "user", "text", 1);
+
+        sut.onLayerConfigurationChanged(new LayerConfigurationChangedEvent(this, project));
+
+        assertThat(sut.getETag(document, "user", "text", 1)).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void thatExportCanBeRetrievedFromCache() throws Exception
+    {
+        String eTag = sut.getETag(document, "user", "text", 1);
+        assertThat(sut.get(eTag)).isEmpty();
+
+        try (CachedExport cached = sut.put(eTag, export("doc-user.txt", "12345"))) {
+            assertThat(cached.getFile()).hasName("doc-user.txt").hasContent("12345");
+
+            try (CachedExport retrieved = sut.get(eTag).get()) {
+                assertThat(retrieved.getFile()).isEqualTo(cached.getFile());
+            }
+        }
+
+        assertThat(sut.getSize()).isEqualTo(5);
+    }
+
+    @Test
+    public void thatConcurrentlyCachedExportIsDiscarded() throws Exception
+    {
+        String eTag = sut.getETag(document, "user", "text", 1);
+
+        File secondExport = export("doc-user.txt", "second");
+        try (CachedExport first = sut.put(eTag, export("doc-user.txt", "first"));
+                CachedExport second = sut.put(eTag, secondExport)) {
+            assertThat(second.getFile()).isEqualTo(first.getFile()).hasContent("first");
+            assertThat(secondExport).doesNotExist();
+        }
+    }
+
+    @Test
+    public void thatLeastRecentlyUsedEntriesAreEvicted() throws Exception
+    {
+        String eTag1 = sut.getETag(document, "user1", "text", 1);
+        String eTag2 = sut.getETag(document, "user2", "text", 1);
+        String eTag3 = sut.getETag(document, "user3", "text", 1);
+
+        sut.put(eTag1, export("doc-user1.txt", "1234")).close();
+        sut.put(eTag2, export("doc-user2.txt", "1234")).close();
+        // Make sure the first entry is older than the second one
+        makeOldest(eTag1);
+        sut.put(eTag3, export("doc-user3.txt", "1234")).close();
+
+        assertThat(isCached(eTag1)).isFalse();
+        assertThat(isCached(eTag2)).isTrue();
+        assertThat(isCached(eTag3)).isTrue();
+        assertThat(sut.getSize()).isEqualTo(8);
+    }
+
+    @Test
+    public void thatLeasedEntriesAreNotEvicted() throws Exception
+    {
+        String eTag1 = sut.getETag(document, "user1", "text", 1);
+        String eTag2 = sut.getETag(document, "user2", "text", 1);
+        String eTag3 = sut.getETag(document, "user3", "text", 1);
+
+        try (CachedExport export1 = sut.put(eTag1, export("doc-user1.txt", "1234"))) {
+            sut.put(eTag2, export("doc-user2.txt", "1234")).close();
+            makeOldest(eTag1);
+            sut.put(eTag3, export("doc-user3.txt", "1234")).close();
+
+            assertThat(export1.getFile()).hasContent("1234");
+            assertThat(isCached(eTag2)).isFalse();
+            assertThat(isCached(eTag3)).isTrue();
+        }
+
+        assertThat(isCached(eTag1)).isTrue();
+        assertThat(sut.getSize()).isEqualTo(8);
+    }
+
+    @Test
+    public void thatEvictionIsDeferredUntilEntriesAreReleased() throws Exception
+    {
+        String eTag1 = sut.getETag(document, "user1", "text", 1);
+        String eTag2 = sut.getETag(document, "user2", "text", 1);
+        String eTag3 = sut.getETag(document, "user3", "text", 1);
+
+        CachedExport export1 = sut.put(eTag1, export("doc-user1.txt", "1234"));
+        CachedExport export2 = sut.put(eTag2, export("doc-user2.txt", "1234"));
+        CachedExport export3 = sut.put(eTag3, export("doc-user3.txt", "1234"));
+        makeOldest(eTag1);
+
+        assertThat(sut.getSize()).isEqualTo(12);
+
+        export1.close();
+
+        assertThat(sut.getSize()).isEqualTo(8);
+        assertThat(export1.getFile()).doesNotExist();
+        assertThat(export2.getFile()).exists();
+        assertThat(export3.getFile()).exists();
+
+        export2.close();
+        export3.close();
+    }
+
+    @Test
+    public void thatCacheFolderIsClearedOnStartup() throws Exception
+    {
+        String eTag = sut.getETag(document, "user", "text", 1);
+        sut.put(eTag, export("doc-user.txt", "12345")).close();
+
+        sut = new AeroExportCache(new File(tempFolder, "cache"), 10);
+
+        assertThat(new File(tempFolder, "cache").list()).isEmpty();
+    }
+
+    private boolean isCached(String aETag)
+    {
+        Optional<CachedExport> export = sut.get(aETag);
+        export.ifPresent(CachedExport::close);
+        return export.isPresent();
+    }
+
+    private void makeOldest(String aETag)
+    {
+        new File(new File(tempFolder, "cache"), aETag.replace("\"", "")).setLastModified(0);
+    }
+
+    private File export(String aName, String aContent) throws IOException
+    {
+        File exportFolder = new File(tempFolder, "export-" + System.nanoTime());
+        File file = new File(exportFolder, aName);
+        FileUtils.writeStringToFile(file, aContent, UTF_8);
+        return file;
+    }
+}
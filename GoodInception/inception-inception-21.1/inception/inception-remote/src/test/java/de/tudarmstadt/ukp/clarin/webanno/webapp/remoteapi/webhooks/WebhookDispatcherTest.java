@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks;
+
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.ANNOTATION_STATE;
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.DOCUMENT_STATE;
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_BATCH_SIZE;
+import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_NOTIFICATION;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.io.File;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class WebhookDispatcherTest
+{
+    private @TempDir File outbox;
+
+    private MockWebServer receiver;
+    private WebhooksConfiguration configuration;
+    private Webhook hook;
+    private WebhookDispatcher sut;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        receiver = new MockWebServer();
+        receiver.start();
+
+        configuration = new WebhooksConfiguration();
+        configuration.setRetryDelay(Duration.ofMillis(10));
+        configuration.setTimeout(Duration.ofSeconds(5));
+
+        hook = new Webhook();
+        hook.setUrl(receiver.url("/hook").toString());
+    }
+
+    @AfterEach
+    public void teardown() throws Exception
+    {
+        if (sut != null) {
+            sut.stop();
+        }
+        receiver.shutdown();
+    }
+
+    @Test
+    public void thatMessageIsDelivered() throws Exception
+    {
+        long delivered = WebhookDispatcher.DELIVERED.get();
+        long timed = WebhookDispatcher.DELIVERY_TIMER.getCount();
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+
+        sut = new WebhookDispatcher(hook, configuration, outbox);
+        sut.start();
+        sut.enqueue(DOCUMENT_STATE, "{\"documentId\":1}");
+
+        RecordedRequest request = receiver.takeRequest(5, SECONDS);
+        assertThat(request.getHeader(X_AERO_NOTIFICATION)).isEqualTo(DOCUMENT_STATE);
+        assertThat(request.getHeader(X_AERO_BATCH_SIZE)).isNull();
+        assertThat(request.getBody().readUtf8()).isEqualTo("{\"documentId\":1}");
+
+        // The message is removed from the outbox after the metrics have been updated
+        await().atMost(5, SECONDS).until(() -> outbox.listFiles().length == 0);
+        assertThat(WebhookDispatcher.DELIVERED.get() - delivered).isEqualTo(1);
+        assertThat(WebhookDispatcher.DELIVERY_TIMER.getCount() - timed).isEqualTo(1);
+    }
+
+    @Test
+    public void thatFailedDeliveryIsRetried() throws Exception
+    {
+        long failed = WebhookDispatcher.FAILED_ATTEMPTS.get();
+        long delivered = WebhookDispatcher.DELIVERED.get();
+        receiver.enqueue(new MockResponse().setResponseCode(503));
+        receiver.enqueue(new MockResponse().setResponseCode(500));
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+
+        sut = new WebhookDispatcher(hook, configuration, outbox);
+        sut.start();
+        sut.enqueue(DOCUMENT_STATE, "{}");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(receiver.takeRequest(5, SECONDS)).isNotNull();
+        }
+
+        await().atMost(5, SECONDS).until(() -> outbox.listFiles().length == 0);
+        assertThat(WebhookDispatcher.FAILED_ATTEMPTS.get() - failed).isEqualTo(2);
+        assertThat(WebhookDispatcher.DELIVERED.get() - delivered).isEqualTo(1);
+    }
+
+    @Test
+    public void thatClientErrorIsNotRetried() throws Exception
+    {
+        long dropped = WebhookDispatcher.DROPPED.get();
+        receiver.enqueue(new MockResponse().setResponseCode(400));
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+
+        sut = new WebhookDispatcher(hook, configuration, outbox);
+        sut.enqueue(DOCUMENT_STATE, "{\"documentId\":1}");
+        sut.enqueue(DOCUMENT_STATE, "{\"documentId\":2}");
+        sut.start();
+
+        assertThat(receiver.takeRequest(5, SECONDS).getBody().readUtf8())
+                .isEqualTo("{\"documentId\":1}");
+        assertThat(receiver.takeRequest(5, SECONDS).getBody().readUtf8())
+                .isEqualTo("{\"documentId\":2}");
+
+        assertThat(WebhookDispatcher.DROPPED.get() - dropped).isEqualTo(1);
+        assertThat(receiver.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void thatMessagesWithSameTopicAreBatched() throws Exception
+    {
+        hook.setBatchSize(10);
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+
+        sut = new WebhookDispatcher(hook, configuration, outbox);
+        sut.enqueue(DOCUMENT_STATE, "{\"documentId\":1}");
+        sut.enqueue(DOCUMENT_STATE, "{\"documentId\":2}");
+        sut.enqueue(ANNOTATION_STATE, "{\"documentId\":3}");
+        sut.start();
+
+        RecordedRequest first = receiver.takeRequest(5, SECONDS);
+        assertThat(first.getHeader(X_AERO_NOTIFICATION)).isEqualTo(DOCUMENT_STATE);
+        assertThat(first.getHeader(X_AERO_BATCH_SIZE)).isEqualTo("2");
+        assertThat(first.getBody().readUtf8())
+                .isEqualTo("[{\"documentId\":1},{\"documentId\":2}]");
+
+        RecordedRequest second = receiver.takeRequest(5, SECONDS);
+        assertThat(second.getHeader(X_AERO_NOTIFICATION)).isEqualTo(ANNOTATION_STATE);
+        assertThat(second.getHeader(X_AERO_BATCH_SIZE)).isEqualTo("1");
+        assertThat(second.getBody().readUtf8()).isEqualTo("[{\"documentId\":3}]");
+    }
+
+    @Test
+    public void thatMessagesExceedingQueueAreDeliveredFromOutbox() throws Exception
+    {
+        configuration.setQueueSize(1);
+        for (int i = 0; i < 3; i++) {
+            receiver.enqueue(new MockResponse().setResponseCode(200));
+        }
+
+        sut = new WebhookDispatcher(hook, configuration, outbox);
+        for (int i = 1; i <= 3; i++) {
+            sut.enqueue(DOCUMENT_STATE, "{\"documentId\":" + i + "}");
+        }
+        sut.start();
+
+        for (int i = 1; i <= 3; i++) {
+            assertThat(receiver.takeRequest(5, SECONDS).getBody().readUtf8())
+                    .isEqualTo("{\"documentId\":" + i + "}");
+        }
+    }
+
+    @Test
+    public void thatUndeliveredMessagesSurviveRestart() throws Exception
+    {
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+
+        WebhookDispatcher stopped = new WebhookDispatcher(hook, configuration, outbox);
+        stopped.enqueue(DOCUMENT_STATE, "{\"documentId\":1}");
+        stopped.stop();
+
+        assertThat(outbox.listFiles()).hasSize(1);
+        assertThat(receiver.getRequestCount()).isZero();
+
+        sut = new WebhookDispatcher(hook, configuration, outbox);
+        sut.start();
+
+        RecordedRequest request = receiver.takeRequest(5, SECONDS);
+        assertThat(request.getHeader(X_AERO_NOTIFICATION)).isEqualTo(DOCUMENT_STATE);
+        assertThat(request.getBody().readUtf8()).isEqualTo("{\"documentId\":1}");
+    }
+}
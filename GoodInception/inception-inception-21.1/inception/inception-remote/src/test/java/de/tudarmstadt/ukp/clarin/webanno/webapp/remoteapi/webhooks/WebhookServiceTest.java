@@ -22,11 +22,13 @@ import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.Webhoo
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.PROJECT_STATE;
 import static de.tudarmstadt.ukp.clarin.webanno.webapp.remoteapi.webhooks.WebhookService.X_AERO_NOTIFICATION;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -72,7 +74,8 @@ import de.tudarmstadt.ukp.inception.export.config.DocumentImportExportServiceAut
         ProjectServiceAutoConfiguration.class })
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, //
         properties = { //
-                "spring.main.banner-mode=off" })
+                "spring.main.banner-mode=off", //
+                "webhooks.outbox-folder=target/WebhookServiceTest/outbox" })
 public class WebhookServiceTest
 {
     private @LocalServerPort int port;
@@ -112,6 +115,9 @@ public class WebhookServiceTest
         applicationEventPublisher.publishEvent(
                 new AnnotationStateChangeEvent(this, ann, AnnotationDocumentState.IN_PROGRESS));
 
+        // Messages are delivered asynchronously
+        await().atMost(15, SECONDS).until(() -> testService.annStateChangeMsgs.size() == 1);
+
         assertEquals(1, testService.projectStateChangeMsgs.size());
         assertEquals(1, testService.docStateChangeMsgs.size());
         assertEquals(1, testService.annStateChangeMsgs.size());
@@ -121,9 +127,12 @@ public class WebhookServiceTest
     @Controller
     public static class TestService
     {
-        private List<ProjectStateChangeMessage> projectStateChangeMsgs = new ArrayList<>();
-        private List<DocumentStateChangeMessage> docStateChangeMsgs = new ArrayList<>();
-        private List<AnnotationStateChangeMessage> annStateChangeMsgs = new ArrayList<>();
+        private List<ProjectStateChangeMessage> projectStateChangeMsgs = //
+                new CopyOnWriteArrayList<>();
+        private List<DocumentStateChangeMessage> docStateChangeMsgs = //
+                new CopyOnWriteArrayList<>();
+        private List<AnnotationStateChangeMessage> annStateChangeMsgs = //
+                new CopyOnWriteArrayList<>();
 
         @RequestMapping(value = "/subscribe", method = RequestMethod.POST, headers = X_AERO_NOTIFICATION
                 + "="
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import static java.util.Comparator.comparingInt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Queue of tasks waiting to be scheduled. The tasks are grouped by project and within each project
+ * by user. When the next task is taken from the queue, the project with the fewest running tasks
+ * is preferred. If there is a tie, the project which has used the least run time wins. Within the
+ * project, the user is chosen the same way. Within the tasks of a user, the oldest eligible task is
+ * taken.
+ * <p>
+ * A project or user that has no tasks waiting or running is forgotten. When it becomes active
+ * again, it starts with the lowest run time of the currently active projects or users. Thus, it
+ * cannot claim run time for the period it was idle.
+ * <p>
+ * This class is not thread-safe.
+ */
+class FairTaskQueue
+{
+    private static final Comparator<Account> FAIRNESS = comparingInt((Account a) -> a.running)
+            .thenComparingLong(a -> a.usage);
+
+    private final Map<Long, ProjectQueue> projects = new LinkedHashMap<>();
+
+    private int size;
+
+    public void add(Task aTask)
+    {
+        ProjectQueue project = projects.get(projectKey(aTask));
+        if (project == null) {
+            project = new ProjectQueue(minUsage(projects.values()));
+            projects.put(projectKey(aTask), project);
+        }
+
+        UserQueue user = project.users.get(userKey(aTask));
+        if (user == null) {
+            user = new UserQueue(minUsage(project.users.values()));
+            project.users.put(userKey(aTask), user);
+        }
+
+        user.tasks.add(aTask);
+        size++;
+    }
+
+    /**
+     * Takes the next task that satisfies the given condition from the queue and counts it as
+     * running.
+     * 
+     * @param aEligible
+     *            condition a task must satisfy to be taken.
+     * @return the task or {@code null} if no waiting task satisfies the condition.
+     */
+    public Task poll(Predicate<Task> aEligible)
+    {
+        for (ProjectQueue project : sorted(projects.values())) {
+            for (UserQueue user : sorted(project.users.values())) {
+                Iterator<Task> i = user.tasks.iterator();
+                while (i.hasNext()) {
+                    Task task = i.next();
+                    if (aEligible.test(task)) {
+                        i.remove();
+                        size--;
+                        project.running++;
+                        user.running++;
+                        return task;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Accounts for a task previously returned by {@link #poll} having completed.
+     * 
+     * @param aTask
+     *            the task.
+     * @param aRunTime
+     *            the time the task has been running.
+     */
+    public void completed(Task aTask, long aRunTime)
+    {
+        ProjectQueue project = projects.get(projectKey(aTask));
+        if (project == null) {
+            return;
+        }
+
+        project.running--;
+        project.usage += aRunTime;
+
+        UserQueue user = project.users.get(userKey(aTask));
+        if (user != null) {
+            user.running--;
+            user.usage += aRunTime;
+        }
+
+        cleanup(aTask);
+    }
+
+    /**
+     * Removes the given task (by identity) from the queue.
+     * 
+     * @param aTask
+     *            the task.
+     * @return whether the task was waiting in the queue.
+     */
+    public boolean remove(Task aTask)
+    {
+        ProjectQueue project = projects.get(projectKey(aTask));
+        if (project == null) {
+            return false;
+        }
+
+        UserQueue user = project.users.get(userKey(aTask));
+        if (user == null || !user.tasks.removeIf(t -> t == aTask)) {
+            return false;
+        }
+
+        size--;
+        cleanup(aTask);
+        return true;
+    }
+
+    /**
+     * Removes all tasks satisfying the given condition from the queue.
+     * 
+     * @param aPredicate
+     *            the condition.
+     * @return the removed tasks.
+     */
+    public List<Task> removeIf(Predicate<Task> aPredicate)
+    {
+        List<Task> removed = new ArrayList<>();
+        for (Task task : list()) {
+            if (aPredicate.test(task)) {
+                remove(task);
+                removed.add(task);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return all waiting tasks.
+     */
+    public List<Task> list()
+    {
+        List<Task> result = new ArrayList<>(size);
+        for (ProjectQueue project : projects.values()) {
+            for (UserQueue user : project.users.values()) {
+                result.addAll(user.tasks);
+            }
+        }
+        return result;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void clear()
+    {
+        projects.clear();
+        size = 0;
+    }
+
+    private void cleanup(Task aTask)
+    {
+        ProjectQueue project = projects.get(projectKey(aTask));
+
+        UserQueue user = project.users.get(userKey(aTask));
+        if (user != null && user.isIdle()) {
+            project.users.remove(userKey(aTask));
+        }
+
+        if (project.users.isEmpty()) {
+            projects.remove(projectKey(aTask));
+        }
+    }
+
+    private static <T extends Account> List<T> sorted(Collection<T> aAccounts)
+    {
+        List<T> result = new ArrayList<>(aAccounts);
+        result.sort(FAIRNESS);
+        return result;
+    }
+
+    private static long minUsage(Collection<? extends Account> aAccounts)
+    {
+        return aAccounts.stream().mapToLong(a -> a.usage).min().orElse(0);
+    }
+
+    private static Long projectKey(Task aTask)
+    {
+        return aTask.getProject().getId();
+    }
+
+    private static String userKey(Task aTask)
+    {
+        return aTask.getUser() != null ? aTask.getUser().getUsername() : null;
+    }
+
+    private static class Account
+    {
+        long usage;
+        int running;
+
+        Account(long aUsage)
+        {
+            usage = aUsage;
+        }
+    }
+
+    private static class ProjectQueue
+        extends Account
+    {
+        final Map<String, UserQueue> users = new LinkedHashMap<>();
+
+        ProjectQueue(long aUsage)
+        {
+            super(aUsage);
+        }
+    }
+
+    private static class UserQueue
+        extends Account
+    {
+        final Deque<Task> tasks = new ArrayDeque<>();
+
+        UserQueue(long aUsage)
+        {
+            super(aUsage);
+        }
+
+        boolean isIdle()
+        {
+            return tasks.isEmpty() && running <= 0;
+        }
+    }
+}
@@ -28,4 +28,14 @@ public interface MatchableTask
      * @return whether the given task matches this one
      */
     MatchResult matches(Task aTask);
+
+    /**
+     * The scheduler only checks tasks that have an equal match key for {@link #matches matches}.
+     * Thus, tasks that may match each other must return equal keys. Tasks that cannot match each
+     * other should return different keys, otherwise checking for duplicates becomes more
+     * expensive.
+     * 
+     * @return the key under which the scheduler indexes this task for duplicate detection.
+     */
+    Object getMatchKey();
 }
@@ -41,6 +41,14 @@ public interface SchedulingService
 
     List<Task> getAllTasks();
 
+    /**
+     * @param aType
+     *            a task type.
+     * @return maximum number of tasks of the given type which may be scheduled or running at the
+     *         same time over all projects.
+     */
+    int getMaxConcurrentTasks(TaskType aType);
+
     /**
      * Enqueue a task. This may not immediately schedule or run the task. If an equivalent task
      * (i.e. one that {@link Object#equals} the given task) has already been scheduled or started,
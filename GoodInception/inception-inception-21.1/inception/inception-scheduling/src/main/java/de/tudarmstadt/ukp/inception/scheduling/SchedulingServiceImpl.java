@@ -20,13 +20,18 @@ package de.tudarmstadt.ukp.inception.scheduling;
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.DISCARD_OR_QUEUE_THIS;
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTING_AND_QUEUE_THIS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -39,10 +44,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
 
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingProperties;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.SchedulingServiceMetrics;
 
 /**
+ * Tasks are only handed to the executor when a thread is available for them. Until then, they
+ * wait in a {@link FairTaskQueue} which ensures that a project or user with many tasks cannot
+ * starve the others. Additionally, the number of concurrently running tasks of each
+ * {@link TaskType} within a project is limited according to
+ * {@link SchedulingProperties#getConcurrencyLimits()}. Since the limits apply per project, a
+ * long-running task in one project does not hold back tasks of the same type in other projects.
+ * <p>
+ * To check for duplicates efficiently, all tasks known to the scheduler are indexed by their
+ * {@link MatchableTask#getMatchKey() match key} - or by the task itself if it is not a
+ * {@link MatchableTask}. Only tasks with the same key are checked against each other.
  * <p>
  * This class is exposed as a Spring Component via
  * {@link SchedulingServiceAutoConfiguration#schedulingService}.
@@ -53,66 +71,105 @@ public class SchedulingServiceImpl
 {
     private static final Logger log = LoggerFactory.getLogger(SchedulingService.class);
 
+    private static final Map<TaskType, Timer> WAIT_TIMERS = timersByType("inception_task_wait",
+            "Time tasks spend waiting between being enqueued and being started");
+    private static final Map<TaskType, Timer> RUN_TIMERS = timersByType("inception_task_run",
+            "Time tasks spend running");
+
     private final ApplicationContext applicationContext;
+    private final SchedulingProperties properties;
+    private final SchedulingServiceMetrics metrics;
     private final ThreadPoolExecutor executor;
     private final ScheduledExecutorService watchdog;
 
-    private final List<Task> runningTasks;
-    private final List<Task> enqueuedTasks;
+    // All of the following are guarded by the monitor of the service
+    private final FairTaskQueue enqueuedTasks;
+    private final Set<Task> scheduledTasks;
+    private final Set<Task> runningTasks;
+    private final Map<Object, Set<Task>> tasksByMatchKey;
+    private final Map<Long, Map<TaskType, Integer>> activeTasksByProject;
 
     @Autowired
     public SchedulingServiceImpl(ApplicationContext aApplicationContext,
-            SchedulingProperties aConfig)
+            SchedulingProperties aConfig, SchedulingServiceMetrics aMetrics)
     {
         applicationContext = aApplicationContext;
+        properties = aConfig;
+        metrics = aMetrics;
+        // Tasks are only handed to the executor when a thread is free for them, so its queue
+        // never needs to hold more tasks than there are threads
         executor = new InspectableThreadPoolExecutor(aConfig.getNumberOfThreads(),
-                aConfig.getQueueSize(), this::beforeExecute, this::afterExecute);
-        runningTasks = Collections.synchronizedList(new ArrayList<>());
-        enqueuedTasks = Collections.synchronizedList(new ArrayList<>());
+                aConfig.getNumberOfThreads(), this::beforeExecute, this::afterExecute);
+        enqueuedTasks = new FairTaskQueue();
+        scheduledTasks = identitySet();
+        runningTasks = identitySet();
+        tasksByMatchKey = new HashMap<>();
+        activeTasksByProject = new HashMap<>();
         watchdog = Executors.newScheduledThreadPool(1);
         watchdog.scheduleAtFixedRate(this::scheduleEligibleTasks, 5, 5, SECONDS);
+
+        Metrics.gauge("inception_task_queue_size",
+                "Number of tasks waiting in the queue to be scheduled", this::getQueueSize);
     }
 
-    private void beforeExecute(Thread aThread, Runnable aRunnable)
+    private synchronized void beforeExecute(Thread aThread, Runnable aRunnable)
     {
-        runningTasks.add((Task) aRunnable);
+        Task task = (Task) aRunnable;
+        task.setStartTime(System.currentTimeMillis());
+        scheduledTasks.remove(task);
+        runningTasks.add(task);
+        long waitTime = task.getStartTime() - task.getEnqueueTime();
+        metrics.taskStarted(task.getType(), waitTime);
+        WAIT_TIMERS.get(task.getType()).record(waitTime, MILLISECONDS);
         log.debug("Starting task [{}]", aRunnable);
     }
 
     private void afterExecute(Runnable aRunnable, Throwable aThrowable)
     {
-        runningTasks.remove(aRunnable);
+        Task task = (Task) aRunnable;
+        long runTime = System.currentTimeMillis() - task.getStartTime();
+
+        synchronized (this) {
+            runningTasks.remove(task);
+            release(task, runTime);
+        }
+
+        metrics.taskCompleted(task.getType(), runTime);
+        RUN_TIMERS.get(task.getType()).record(runTime, MILLISECONDS);
         log.debug("Completed task [{}]", aRunnable);
         scheduleEligibleTasks();
     }
 
+    private synchronized int getQueueSize()
+    {
+        return enqueuedTasks.size();
+    }
+
     /**
      * @return tasks which have not been handed to the executor yet.
      */
     @Override
-    public List<Task> getEnqueuedTasks()
+    public synchronized List<Task> getEnqueuedTasks()
     {
         // We return copy here, as else the list the receiver sees might be updated
         // when new tasks are running or existing ones stopped.
-        return new ArrayList<>(enqueuedTasks);
+        return enqueuedTasks.list();
     }
 
     /**
      * @return tasks which have been handed to the executor but have not yet been started.
      */
     @Override
-    public List<Task> getScheduledTasks()
+    public synchronized List<Task> getScheduledTasks()
     {
-        List<Task> result = new ArrayList<>();
-        executor.getQueue().forEach(r -> result.add((Task) r));
-        return result;
+        return new ArrayList<>(scheduledTasks);
     }
 
     /**
      * @return tasks which have been already been started.
      */
     @Override
-    public List<Task> getRunningTasks()
+    public synchronized List<Task> getRunningTasks()
     {
         // We return copy here, as else the list the receiver sees might be updated
         // when new tasks are running or existing ones stopped.
@@ -120,24 +177,36 @@ public class SchedulingServiceImpl
     }
 
     @Override
-    public List<Task> getScheduledAndRunningTasks()
+    public synchronized List<Task> getScheduledAndRunningTasks()
     {
         List<Task> result = new ArrayList<>();
-        result.addAll(getScheduledTasks());
-        result.addAll(getRunningTasks());
+        result.addAll(scheduledTasks);
+        result.addAll(runningTasks);
         return result;
     }
 
     @Override
-    public List<Task> getAllTasks()
+    public synchronized List<Task> getAllTasks()
     {
         List<Task> result = new ArrayList<>();
-        result.addAll(getEnqueuedTasks());
-        result.addAll(getScheduledTasks());
-        result.addAll(getRunningTasks());
+        result.addAll(enqueuedTasks.list());
+        result.addAll(scheduledTasks);
+        result.addAll(runningTasks);
         return result;
     }
 
+    @Override
+    public int getMaxConcurrentTasks(TaskType aType)
+    {
+        if (properties.getConcurrencyLimit(aType) <= 0) {
+            return 0;
+        }
+
+        // The concurrency limits apply per project, so tasks of the same type from different
+        // projects may still occupy all threads
+        return properties.getNumberOfThreads();
+    }
+
     /**
      * Enqueue a task. This may not immediately schedule or run the task. If an equivalent task
      * (i.e. one that {@link Object#equals} the given task) has already been scheduled or started,
@@ -155,48 +224,35 @@ public class SchedulingServiceImpl
     @Override
     public synchronized void enqueue(Task aTask)
     {
+        Set<Task> relatedTasks = tasksByMatchKey.getOrDefault(matchKey(aTask), emptySet());
+
         // Check if the incoming task should be discarded
-        for (Task enqueuedTask : enqueuedTasks) {
-            if (matchTask(aTask, enqueuedTask) == DISCARD_OR_QUEUE_THIS) {
+        for (Task relatedTask : relatedTasks) {
+            if (isEnqueued(relatedTask)
+                    && matchTask(aTask, relatedTask) == DISCARD_OR_QUEUE_THIS) {
                 log.debug("Matching task already queued - keeping existing: [{}] and discarding "
-                        + "incoming [{}]", enqueuedTask, aTask);
+                        + "incoming [{}]", relatedTask, aTask);
                 return;
             }
         }
 
         // Check if any existing tasks should be replaced with the new incoming task (i.e. the
         // incoming task supersedes them).
-        List<Task> tasksToUnqueue = new ArrayList<>();
-        for (Task enqueuedTask : enqueuedTasks) {
-            if (matchTask(aTask, enqueuedTask) == UNQUEUE_EXISTING_AND_QUEUE_THIS) {
-                tasksToUnqueue.add(enqueuedTask);
+        for (Task relatedTask : new ArrayList<>(relatedTasks)) {
+            if (isEnqueued(relatedTask)
+                    && matchTask(aTask, relatedTask) == UNQUEUE_EXISTING_AND_QUEUE_THIS) {
                 log.debug("Matching task already queued - unqueuing exsting: [{}] in favor of "
-                        + "incoming [{}]", enqueuedTask, aTask);
+                        + "incoming [{}]", relatedTask, aTask);
+                enqueuedTasks.remove(relatedTask);
+                unindex(relatedTask);
             }
         }
-        enqueuedTasks.removeAll(tasksToUnqueue);
-
-        if (containsMatchingTask(getScheduledTasks(), aTask)) {
-            log.debug("Matching task already scheduled - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
-        }
 
-        if (containsMatchingTask(getRunningTasks(), aTask)) {
-            log.debug("Matching task already running - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
-        }
+        aTask.setEnqueueTime(System.currentTimeMillis());
+        index(aTask);
+        enqueuedTasks.add(aTask);
 
-        if (!aTask.isReadyToStart()) {
-            log.debug("Task not yet ready to start - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
-        }
-
-        schedule(aTask);
-
-        logState();
+        scheduleEligibleTasks();
     }
 
     private MatchResult matchTask(Task aTask, Task aEnqueueTask)
@@ -217,6 +273,35 @@ public class SchedulingServiceImpl
         return aTasks.contains(aTask);
     }
 
+    /**
+     * A task may be scheduled if it is ready, if the concurrency limit for its type has not been
+     * reached yet in its project and if no matching task is scheduled or running.
+     */
+    private boolean isEligible(Task aTask)
+    {
+        if (!aTask.isReadyToStart()) {
+            return false;
+        }
+
+        if (countActiveTasks(aTask) >= properties.getConcurrencyLimit(aTask.getType())) {
+            return false;
+        }
+
+        List<Task> activeRelatedTasks = new ArrayList<>();
+        for (Task t : tasksByMatchKey.getOrDefault(matchKey(aTask), emptySet())) {
+            if (t != aTask && !isEnqueued(t)) {
+                activeRelatedTasks.add(t);
+            }
+        }
+
+        return !containsMatchingTask(activeRelatedTasks, aTask);
+    }
+
+    private boolean isEnqueued(Task aTask)
+    {
+        return !scheduledTasks.contains(aTask) && !runningTasks.contains(aTask);
+    }
+
     /**
      * Send a task to the scheduler. Once a task has been scheduled, it will be executed eventually.
      * 
@@ -227,24 +312,39 @@ public class SchedulingServiceImpl
     {
         log.debug("Scheduling task [{}]", aTask);
 
-        // This auto-wires the task fields manually
-        AutowireCapableBeanFactory factory = applicationContext.getAutowireCapableBeanFactory();
-        factory.autowireBean(aTask);
-        factory.initializeBean(aTask, "transientTask");
+        try {
+            // This auto-wires the task fields manually
+            AutowireCapableBeanFactory factory = applicationContext
+                    .getAutowireCapableBeanFactory();
+            factory.autowireBean(aTask);
+            factory.initializeBean(aTask, "transientTask");
 
-        executor.execute(aTask);
+            scheduledTasks.add(aTask);
+            updateActiveTasks(aTask, 1);
+            executor.execute(aTask);
+        }
+        catch (RuntimeException e) {
+            log.error("Unable to schedule task [{}] - discarding it", aTask, e);
+
+            // The task will never run, so it must not keep blocking matching tasks
+            if (scheduledTasks.remove(aTask)) {
+                updateActiveTasks(aTask, -1);
+            }
+            unindex(aTask);
+        }
     }
 
     private synchronized void scheduleEligibleTasks()
     {
-        Iterator<Task> i = enqueuedTasks.iterator();
-
-        while (i.hasNext()) {
-            Task t = i.next();
-            if (!getScheduledAndRunningTasks().contains(t) && t.isReadyToStart()) {
-                i.remove();
-                schedule(t);
+        // Only hand tasks to the executor if there is a thread to run them. This keeps the
+        // tasks in the fair queue until the last moment.
+        while (scheduledTasks.size() + runningTasks.size() < properties.getNumberOfThreads()) {
+            Task task = enqueuedTasks.poll(this::isEligible);
+            if (task == null) {
+                break;
             }
+
+            schedule(task);
         }
 
         logState();
@@ -265,8 +365,15 @@ public class SchedulingServiceImpl
     @Override
     public synchronized void stopAllTasksMatching(Predicate<Task> aPredicate)
     {
-        enqueuedTasks.removeIf(aPredicate);
-        executor.getQueue().removeIf(runnable -> aPredicate.test((Task) runnable));
+        enqueuedTasks.removeIf(aPredicate).forEach(this::unindex);
+
+        for (Task task : new ArrayList<>(scheduledTasks)) {
+            // Compare by identity - removing by equality could hit a different but equal task
+            if (aPredicate.test(task) && executor.getQueue().removeIf(r -> r == task)) {
+                scheduledTasks.remove(task);
+                release(task, 0);
+            }
+        }
 
         // TODO: Stop the running tasks as well
     }
@@ -275,14 +382,99 @@ public class SchedulingServiceImpl
     public void destroy()
     {
         log.info("Shutting down scheduling service!");
-        enqueuedTasks.clear();
-        executor.getQueue().clear();
+        synchronized (this) {
+            enqueuedTasks.clear();
+            executor.getQueue().clear();
+        }
         watchdog.shutdownNow();
         executor.shutdownNow();
     }
 
+    private void release(Task aTask, long aRunTime)
+    {
+        updateActiveTasks(aTask, -1);
+        enqueuedTasks.completed(aTask, aRunTime);
+        unindex(aTask);
+    }
+
+    /**
+     * @return number of scheduled or running tasks in the project of the given task which have
+     *         the same type as the given task.
+     */
+    private int countActiveTasks(Task aTask)
+    {
+        Map<TaskType, Integer> activeTasks = activeTasksByProject
+                .get(aTask.getProject().getId());
+        return activeTasks != null ? activeTasks.getOrDefault(aTask.getType(), 0) : 0;
+    }
+
+    private void updateActiveTasks(Task aTask, int aDelta)
+    {
+        Long projectId = aTask.getProject().getId();
+        Map<TaskType, Integer> activeTasks = activeTasksByProject.computeIfAbsent(projectId,
+                k -> new EnumMap<>(TaskType.class));
+
+        // Drop entries that reach zero so that the map does not grow with every project ever seen
+        if (activeTasks.merge(aTask.getType(), aDelta, Integer::sum) <= 0) {
+            activeTasks.remove(aTask.getType());
+        }
+        if (activeTasks.isEmpty()) {
+            activeTasksByProject.remove(projectId);
+        }
+    }
+
+    private void index(Task aTask)
+    {
+        tasksByMatchKey.computeIfAbsent(matchKey(aTask), k -> identitySet()).add(aTask);
+    }
+
+    private void unindex(Task aTask)
+    {
+        Object key = matchKey(aTask);
+        Set<Task> tasks = tasksByMatchKey.get(key);
+        if (tasks != null) {
+            tasks.remove(aTask);
+            if (tasks.isEmpty()) {
+                tasksByMatchKey.remove(key);
+            }
+        }
+    }
+
+    private static Object matchKey(Task aTask)
+    {
+        if (aTask instanceof MatchableTask) {
+            return ((MatchableTask) aTask).getMatchKey();
+        }
+
+        // Tasks which are not matchable are considered duplicates if they are equal
+        return aTask;
+    }
+
+    private static Map<TaskType, Timer> timersByType(String aName, String aHelp)
+    {
+        Map<TaskType, Timer> timers = new EnumMap<>(TaskType.class);
+        for (TaskType type : TaskType.values()) {
+            timers.put(type, Metrics.timer(aName, aHelp, "type", type.name().toLowerCase()));
+        }
+        return timers;
+    }
+
+    private static Set<Task> identitySet()
+    {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private static Set<Task> emptySet()
+    {
+        return Collections.emptySet();
+    }
+
     private void logState()
     {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+
         getEnqueuedTasks().forEach(t -> log.debug("Queued   : {}", t));
         getScheduledTasks().forEach(t -> log.debug("Scheduled: {}", t));
         getRunningTasks().forEach(t -> log.debug("Running  : {}", t));
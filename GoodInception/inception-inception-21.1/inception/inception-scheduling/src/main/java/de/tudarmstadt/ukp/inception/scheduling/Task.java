@@ -44,6 +44,9 @@ public abstract class Task
     private final String trigger;
     private final int id;
 
+    private long enqueueTime;
+    private long startTime;
+
     public Task(Project aProject, String aTrigger)
     {
         this(null, aProject, aTrigger);
@@ -85,11 +88,40 @@ public abstract class Task
         return id;
     }
 
+    /**
+     * @return the type of the task which determines how many tasks of this kind may run
+     *         concurrently.
+     */
+    public TaskType getType()
+    {
+        return TaskType.OTHER;
+    }
+
     public boolean isReadyToStart()
     {
         return true;
     }
 
+    long getEnqueueTime()
+    {
+        return enqueueTime;
+    }
+
+    void setEnqueueTime(long aEnqueueTime)
+    {
+        enqueueTime = aEnqueueTime;
+    }
+
+    long getStartTime()
+    {
+        return startTime;
+    }
+
+    void setStartTime(long aStartTime)
+    {
+        startTime = aStartTime;
+    }
+
     @Override
     public void run()
     {
@@ -17,13 +17,29 @@
  */
 package de.tudarmstadt.ukp.inception.scheduling.config;
 
+import static de.tudarmstadt.ukp.inception.scheduling.TaskType.INDEXING;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskType.TRAINING;
+
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
+
 @ConfigurationProperties("inception.scheduling")
 public class SchedulingProperties
 {
     private int numberOfThreads = 4;
-    private int queueSize = 100;
+    private Map<TaskType, Integer> concurrencyLimits = new EnumMap<>(TaskType.class);
+
+    public SchedulingProperties()
+    {
+        // Within a project, leave at least one of the default threads for predictions and other
+        // tasks
+        concurrencyLimits.put(TRAINING, 2);
+        concurrencyLimits.put(INDEXING, 1);
+    }
 
     public int getNumberOfThreads()
     {
@@ -35,13 +51,22 @@ public class SchedulingProperties
         numberOfThreads = aNumberOfThreads;
     }
 
-    public int getQueueSize()
+    /**
+     * @return maximum number of tasks of a given type that may run concurrently within a single
+     *         project. Types without a limit may use all threads.
+     */
+    public Map<TaskType, Integer> getConcurrencyLimits()
+    {
+        return concurrencyLimits;
+    }
+
+    public void setConcurrencyLimits(Map<TaskType, Integer> aConcurrencyLimits)
     {
-        return queueSize;
+        concurrencyLimits = aConcurrencyLimits;
     }
 
-    public void setQueueSize(int aQueueSize)
+    public int getConcurrencyLimit(TaskType aType)
     {
-        queueSize = queueSize;
+        return concurrencyLimits.getOrDefault(aType, numberOfThreads);
     }
 }
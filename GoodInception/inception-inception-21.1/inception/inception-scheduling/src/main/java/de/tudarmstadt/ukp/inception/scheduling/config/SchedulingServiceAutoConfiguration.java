@@ -24,6 +24,8 @@ import org.springframework.context.annotation.Configuration;
 
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingServiceImpl;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.SchedulingServiceMetrics;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.SchedulingServiceMetricsImpl;
 
 @Configuration
 @EnableConfigurationProperties({ SchedulingProperties.class })
@@ -31,8 +33,14 @@ public class SchedulingServiceAutoConfiguration
 {
     @Bean
     public SchedulingService schedulingService(ApplicationContext aApplicationContext,
-            SchedulingProperties aConfig)
+            SchedulingProperties aConfig, SchedulingServiceMetrics aMetrics)
     {
-        return new SchedulingServiceImpl(aApplicationContext, aConfig);
+        return new SchedulingServiceImpl(aApplicationContext, aConfig, aMetrics);
+    }
+
+    @Bean
+    public SchedulingServiceMetrics schedulingServiceMetrics()
+    {
+        return new SchedulingServiceMetricsImpl();
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
+
+public interface SchedulingServiceMetrics
+{
+    /**
+     * Records that a task has been started.
+     * 
+     * @param aType
+     *            the type of the task.
+     * @param aWaitTime
+     *            the time in milliseconds the task has been waiting since it was enqueued.
+     */
+    void taskStarted(TaskType aType, long aWaitTime);
+
+    /**
+     * Records that a task has completed.
+     * 
+     * @param aType
+     *            the type of the task.
+     * @param aRunTime
+     *            the time in milliseconds the task has been running.
+     */
+    void taskCompleted(TaskType aType, long aRunTime);
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling.metrics;
+
+import static de.tudarmstadt.ukp.inception.scheduling.TaskType.INDEXING;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskType.OTHER;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskType.PREDICTION;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskType.TRAINING;
+import static org.springframework.jmx.support.MetricType.COUNTER;
+import static org.springframework.jmx.support.MetricType.GAUGE;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
+import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
+
+/**
+ * Wait time (from enqueuing until start) and run time of scheduled tasks per {@link TaskType}.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link SchedulingServiceAutoConfiguration#schedulingServiceMetrics}.
+ * </p>
+ */
+@ManagedResource
+public class SchedulingServiceMetricsImpl
+    implements SchedulingServiceMetrics
+{
+    private final Map<TaskType, Stats> stats = new EnumMap<>(TaskType.class);
+
+    public SchedulingServiceMetricsImpl()
+    {
+        reset();
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getTrainingTasksStarted()
+    {
+        return get(TRAINING).started;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getTrainingTasksCompleted()
+    {
+        return get(TRAINING).completed;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getTrainingWaitTime()
+    {
+        return get(TRAINING).waitTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getTrainingMaxWaitTime()
+    {
+        return get(TRAINING).maxWaitTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getTrainingRunTime()
+    {
+        return get(TRAINING).runTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getTrainingMaxRunTime()
+    {
+        return get(TRAINING).maxRunTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getPredictionTasksStarted()
+    {
+        return get(PREDICTION).started;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getPredictionTasksCompleted()
+    {
+        return get(PREDICTION).completed;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getPredictionWaitTime()
+    {
+        return get(PREDICTION).waitTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getPredictionMaxWaitTime()
+    {
+        return get(PREDICTION).maxWaitTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getPredictionRunTime()
+    {
+        return get(PREDICTION).runTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getPredictionMaxRunTime()
+    {
+        return get(PREDICTION).maxRunTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getIndexingTasksStarted()
+    {
+        return get(INDEXING).started;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getIndexingTasksCompleted()
+    {
+        return get(INDEXING).completed;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getIndexingWaitTime()
+    {
+        return get(INDEXING).waitTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getIndexingMaxWaitTime()
+    {
+        return get(INDEXING).maxWaitTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getIndexingRunTime()
+    {
+        return get(INDEXING).runTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getIndexingMaxRunTime()
+    {
+        return get(INDEXING).maxRunTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getOtherTasksStarted()
+    {
+        return get(OTHER).started;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getOtherTasksCompleted()
+    {
+        return get(OTHER).completed;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getOtherWaitTime()
+    {
+        return get(OTHER).waitTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getOtherMaxWaitTime()
+    {
+        return get(OTHER).maxWaitTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getOtherRunTime()
+    {
+        return get(OTHER).runTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getOtherMaxRunTime()
+    {
+        return get(OTHER).maxRunTime;
+    }
+
+    @ManagedOperation
+    public synchronized void reset()
+    {
+        for (TaskType type : TaskType.values()) {
+            stats.put(type, new Stats());
+        }
+    }
+
+    @Override
+    public synchronized void taskStarted(TaskType aType, long aWaitTime)
+    {
+        Stats s = stats.get(aType);
+        s.started++;
+        s.waitTime += aWaitTime;
+        s.maxWaitTime = Math.max(s.maxWaitTime, aWaitTime);
+    }
+
+    @Override
+    public synchronized void taskCompleted(TaskType aType, long aRunTime)
+    {
+        Stats s = stats.get(aType);
+        s.completed++;
+        s.runTime += aRunTime;
+        s.maxRunTime = Math.max(s.maxRunTime, aRunTime);
+    }
+
+    private Stats get(TaskType aType)
+    {
+        return stats.get(aType);
+    }
+
+    private static class Stats
+    {
+        long started;
+        long completed;
+        long waitTime;
+        long maxWaitTime;
+        long runTime;
+        long maxRunTime;
+    }
+}
@@ -21,22 +21,29 @@ import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingProperties;
+import de.tudarmstadt.ukp.inception.scheduling.metrics.SchedulingServiceMetricsImpl;
 
 public class SchedulingServiceTest
 {
@@ -53,7 +60,8 @@ public class SchedulingServiceTest
         when(mockContext.getAutowireCapableBeanFactory())
                 .thenReturn(mock(AutowireCapableBeanFactory.class));
 
-        sut = new SchedulingServiceImpl(mockContext, new SchedulingProperties());
+        sut = new SchedulingServiceImpl(mockContext, new SchedulingProperties(),
+                new SchedulingServiceMetricsImpl());
     }
 
     @AfterEach
@@ -112,6 +120,143 @@ public class SchedulingServiceTest
                 .doesNotContain(tasksToRemove);
     }
 
+    @Test
+    public void thatConcurrencyLimitPerTypeIsRespected()
+    {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.getConcurrencyLimits().put(TaskType.OTHER, 1);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties,
+                new SchedulingServiceMetricsImpl());
+
+        Project project = buildProject("project1");
+        project.setId(1L);
+
+        List<Task> tasks = asList( //
+                new DummyTask(buildUser("user1"), project), //
+                new DummyTask(buildUser("user2"), project), //
+                new DummyTask(buildUser("user3"), project));
+
+        for (Task task : tasks) {
+            sut.enqueue(task);
+        }
+
+        assertThat(sut.getScheduledAndRunningTasks()) //
+                .as("Only one task of the type may be scheduled or running") //
+                .hasSize(1);
+        assertThat(sut.getEnqueuedTasks()) //
+                .as("The other tasks should wait in the queue") //
+                .hasSize(2);
+    }
+
+    @Test
+    public void thatConcurrencyLimitIsAppliedPerProject()
+    {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.getConcurrencyLimits().put(TaskType.OTHER, 1);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties,
+                new SchedulingServiceMetricsImpl());
+
+        Project project1 = buildProject("project1");
+        project1.setId(1L);
+        Project project2 = buildProject("project2");
+        project2.setId(2L);
+
+        Task a1 = new DummyTask(buildUser("user1"), project1);
+        Task a2 = new DummyTask(buildUser("user2"), project1);
+        Task b1 = new DummyTask(buildUser("user1"), project2);
+
+        for (Task task : asList(a1, a2, b1)) {
+            sut.enqueue(task);
+        }
+
+        assertThat(sut.getScheduledAndRunningTasks()) //
+                .as("A busy project must not hold back tasks of the same type in other projects") //
+                .containsExactlyInAnyOrder(a1, b1);
+        assertThat(sut.getEnqueuedTasks()) //
+                .as("The second task of the busy project should wait in the queue") //
+                .containsExactly(a2);
+    }
+
+    @Test
+    public void thatMaxConcurrentTasksIsBoundedByThreads()
+    {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setNumberOfThreads(3);
+        properties.getConcurrencyLimits().put(TaskType.TRAINING, 1);
+        properties.getConcurrencyLimits().put(TaskType.INDEXING, 0);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties,
+                new SchedulingServiceMetricsImpl());
+
+        assertThat(sut.getMaxConcurrentTasks(TaskType.PREDICTION)).isEqualTo(3);
+        assertThat(sut.getMaxConcurrentTasks(TaskType.TRAINING)) //
+                .as("Per-project limits do not restrict tasks across projects") //
+                .isEqualTo(3);
+        assertThat(sut.getMaxConcurrentTasks(TaskType.INDEXING)).isZero();
+    }
+
+    @Test
+    public void thatProjectsAreServedFairly() throws Exception
+    {
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setNumberOfThreads(1);
+        sut.destroy();
+        sut = new SchedulingServiceImpl(mockContext, properties,
+                new SchedulingServiceMetricsImpl());
+
+        Project project1 = buildProject("project1");
+        project1.setId(1L);
+        Project project2 = buildProject("project2");
+        project2.setId(2L);
+
+        List<Task> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Task a1 = new RecordingTask(buildUser("a1"), project1, executionOrder, latch);
+        Task a2 = new RecordingTask(buildUser("a2"), project1, executionOrder, null);
+        Task a3 = new RecordingTask(buildUser("a3"), project1, executionOrder, null);
+        Task b1 = new RecordingTask(buildUser("b1"), project2, executionOrder, null);
+
+        // The first task blocks the only thread until all other tasks have been enqueued
+        for (Task task : asList(a1, a2, a3, b1)) {
+            sut.enqueue(task);
+        }
+        latch.countDown();
+
+        await().atMost(15, SECONDS).until(() -> executionOrder.size() == 4);
+
+        assertThat(executionOrder) //
+                .as("Project 2 should not have to wait for all tasks of project 1")
+                .containsExactly(a1, b1, a2, a3);
+    }
+
+    @Test
+    public void thatTaskWhichCannotBeScheduledDoesNotBlockMatchingTasks()
+    {
+        AutowireCapableBeanFactory factory = mock(AutowireCapableBeanFactory.class);
+        when(mockContext.getAutowireCapableBeanFactory()).thenReturn(factory);
+        doThrow(new BeanCreationException("Autowiring failed")).when(factory)
+                .autowireBean(any());
+
+        Task failingTask = buildDummyTask("user1", "project1");
+        sut.enqueue(failingTask);
+
+        assertThat(sut.getScheduledAndRunningTasks()).isEmpty();
+        assertThat(sut.getEnqueuedTasks()).isEmpty();
+
+        when(mockContext.getAutowireCapableBeanFactory())
+                .thenReturn(mock(AutowireCapableBeanFactory.class));
+
+        Task matchingTask = buildDummyTask("user1", "project1");
+        sut.enqueue(matchingTask);
+
+        assertThat(sut.getScheduledAndRunningTasks()) //
+                .as("A matching task must not be discarded as a duplicate of the failed task") //
+                .containsExactly(matchingTask);
+    }
+
     private User buildUser(String aUsername)
     {
         return new User(aUsername);
@@ -155,4 +300,39 @@ public class SchedulingServiceTest
             }
         }
     }
+
+    /**
+     * RecordingTask records when it is executed. If a latch is given, it waits for the latch
+     * before completing.
+     */
+    private static class RecordingTask
+        extends Task
+    {
+        private final List<Task> executionOrder;
+        private final CountDownLatch latch;
+
+        RecordingTask(User aUser, Project aProject, List<Task> aExecutionOrder,
+                CountDownLatch aLatch)
+        {
+            super(aUser, aProject, "JUnit");
+            executionOrder = aExecutionOrder;
+            latch = aLatch;
+        }
+
+        @Override
+        public void execute()
+        {
+            executionOrder.add(this);
+            try {
+                if (latch != null) {
+                    latch.await();
+                }
+                // Make sure the task uses up some measurable run time
+                Thread.sleep(20);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.collections4.map.LRUMap;
+
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Counter;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+
+/**
+ * Bounded cache for the query results and statistics of a single project index.
+ * <p>
+ * Each entry is stored along with the index generation it was computed from. Changes to the
+ * annotations of a user advance the generation of that user only, changes affecting all users (e.g.
+ * to source documents) advance the generation of the whole project. Results computed from an older
+ * generation are never returned, even if the change was applied while they were being computed.
+ */
+class SearchResultCache
+{
+    private static final Counter HITS = Metrics.counter("inception_search_cache_hits_total",
+            "Number of search queries and statistics served from the cache");
+    private static final Counter MISSES = Metrics.counter("inception_search_cache_misses_total",
+            "Number of search queries and statistics which had to be computed");
+
+    private final Map<Key, Object> entries;
+    private final Map<String, Long> userGenerations = new HashMap<>();
+    private long projectGeneration = 0;
+
+    public SearchResultCache(int aMaxSize)
+    {
+        entries = new LRUMap<>(Math.max(1, aMaxSize));
+    }
+
+    /**
+     * Returns the cached result for the given request or computes it if necessary.
+     * 
+     * @param aUser
+     *            the user whose view on the index is queried.
+     * @param aRequest
+     *            the normalized request parameters.
+     * @param aLoader
+     *            computes the result if it is not cached.
+     * @return the result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String aUser, List<Object> aRequest, Loader<T> aLoader)
+        throws IOException, ExecutionException
+    {
+        Key key;
+        synchronized (this) {
+            key = new Key(aUser, getGeneration(aUser), aRequest);
+            Object result = entries.get(key);
+            if (result != null) {
+                HITS.increment();
+                return (T) result;
+            }
+        }
+
+        MISSES.increment();
+        T result = aLoader.load();
+
+        synchronized (this) {
+            // If the index changed in the mean time, the result may already be stale
+            if (result != null && key.generation == getGeneration(aUser)) {
+                entries.put(key, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drops all results for the given user, e.g. because one of the user's annotation documents
+     * has been re-indexed.
+     */
+    public synchronized void invalidate(String aUser)
+    {
+        userGenerations.merge(aUser, 1L, Long::sum);
+        entries.keySet().removeIf(key -> key.user.equals(aUser));
+    }
+
+    /**
+     * Drops all results, e.g. because a source document has been re-indexed or removed.
+     */
+    public synchronized void invalidateAll()
+    {
+        projectGeneration++;
+        entries.clear();
+    }
+
+    private long getGeneration(String aUser)
+    {
+        // Both parts only ever grow, so the sum changes whenever either of them changes
+        return projectGeneration + userGenerations.getOrDefault(aUser, 0L);
+    }
+
+    public interface Loader<T>
+    {
+        T load() throws IOException, ExecutionException;
+    }
+
+    private static final class Key
+    {
+        private final String user;
+        private final long generation;
+        private final List<Object> request;
+
+        public Key(String aUser, long aGeneration, List<Object> aRequest)
+        {
+            user = aUser;
+            generation = aGeneration;
+            request = aRequest;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) aOther;
+            return generation == other.generation && user.equals(other.user)
+                    && request.equals(other.request);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(user, generation, request);
+        }
+    }
+}
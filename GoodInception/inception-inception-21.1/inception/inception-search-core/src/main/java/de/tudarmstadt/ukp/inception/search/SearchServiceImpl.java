@@ -19,16 +19,23 @@ package de.tudarmstadt.ukp.inception.search;
 
 import static de.tudarmstadt.ukp.inception.search.SearchCasUtils.casToByteArray;
 import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,6 +47,8 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.function.FailableRunnable;
 import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +63,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterCasWrittenEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentCreatedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.AnnotationStateChangeEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeDocumentRemovedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeProjectRemovedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
@@ -63,9 +73,12 @@ import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Metrics;
+import de.tudarmstadt.ukp.clarin.webanno.support.metrics.Timer;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
+import de.tudarmstadt.ukp.inception.search.index.BulkIndexBuilder;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexFactory;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
@@ -87,6 +100,9 @@ import de.tudarmstadt.ukp.inception.search.scheduling.tasks.ReindexTask;
 public class SearchServiceImpl
     implements SearchService, DisposableBean
 {
+    private static final Timer QUERY_TIMER = Metrics.timer("inception_search_query",
+            "Time spent executing a search query against the physical index");
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private @PersistenceContext EntityManager entityManager;
@@ -334,18 +350,22 @@ public class SearchServiceImpl
         try (PooledIndex pooledIndex = acquireIndex(project.getId())) {
             Index index = pooledIndex.get();
             // If the index has not been created yet, there is nothing to do
-            if (!index.getPhysicalIndex().isCreated()) {
+            if (!index.getPhysicalIndex().isCreated() && !pooledIndex.isRebuilding()) {
                 return;
             }
 
-            // Remove source document from the index
-            index.getPhysicalIndex().deindexDocument(document);
+            List<AnnotationDocument> annotationDocuments = documentService
+                    .listAnnotationDocuments(document);
 
-            // Remove related annotation documents from the index
-            for (AnnotationDocument annotationDocument : documentService
-                    .listAnnotationDocuments(document)) {
-                index.getPhysicalIndex().deindexDocument(annotationDocument);
-            }
+            pooledIndex.applyChange(IndexChangeKey.removalOf(document), physicalIndex -> {
+                // Remove source document from the index
+                physicalIndex.deindexDocument(document);
+
+                // Remove related annotation documents from the index
+                for (AnnotationDocument annotationDocument : annotationDocuments) {
+                    physicalIndex.deindexDocument(annotationDocument);
+                }
+            });
         }
     }
 
@@ -369,6 +389,21 @@ public class SearchServiceImpl
         enqueueIndexDocument(aEvent.getDocument(), "afterAnnotationUpdate", aEvent.getCas());
     }
 
+    @TransactionalEventListener(fallbackExecution = true)
+    public void afterAnnotationStateChanged(AnnotationStateChangeEvent aEvent)
+    {
+        // Ignored documents are excluded from the results of the user. Changing the state does not
+        // touch the index, so we need to drop the cached results here.
+        PooledIndex pooledIndex;
+        synchronized (indexes) {
+            pooledIndex = indexes.get(aEvent.getDocument().getProject().getId());
+        }
+
+        if (pooledIndex != null) {
+            pooledIndex.getResultCache().invalidate(aEvent.getAnnotationDocument().getUser());
+        }
+    }
+
     @TransactionalEventListener(fallbackExecution = true)
     @Transactional
     public void beforeLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
@@ -408,7 +443,7 @@ public class SearchServiceImpl
         Index index = aPooledIndex.get();
         // Index already initialized? If not, schedule full re-indexing job. This will also
         // index the given document, so we can stop here after scheduling the re-indexing.
-        if (!index.getPhysicalIndex().isCreated()) {
+        if (!index.getPhysicalIndex().isCreated() && !aPooledIndex.isRebuilding()) {
             log.trace(
                     "Index in project [{}]({}) has not yet been initialized. Scheduling an asynchronous re-indexing.",
                     project.getName(), project.getId());
@@ -422,7 +457,8 @@ public class SearchServiceImpl
         // threads to update the index concurrently. The underlying index code should hopefully
         // be thread-safe...
         try {
-            index.getPhysicalIndex().indexDocument(aSourceDocument, aBinaryCas);
+            aPooledIndex.applyChange(IndexChangeKey.of(aSourceDocument),
+                    physicalIndex -> physicalIndex.indexDocument(aSourceDocument, aBinaryCas));
         }
         catch (IOException e) {
             log.error("Error indexing source document [{}]({}) in project [{}]({})",
@@ -465,7 +501,7 @@ public class SearchServiceImpl
         Index index = aPooledIndex.get();
         // Index already initialized? If not, schedule full re-indexing job. This will also
         // index the given document, so we can stop here after scheduling the re-indexing.
-        if (!index.getPhysicalIndex().isCreated()) {
+        if (!index.getPhysicalIndex().isCreated() && !aPooledIndex.isRebuilding()) {
             log.trace(
                     "Index in project [{}]({}) has not yet been initialized. Scheduling an asynchronous re-indexing.",
                     project.getName(), project.getId());
@@ -484,7 +520,8 @@ public class SearchServiceImpl
             log.trace("Indexing new version of annotation document [{}]({}) in project [{}]({})",
                     aAnnotationDocument.getName(), aAnnotationDocument.getId(), project.getName(),
                     project.getId());
-            index.getPhysicalIndex().indexDocument(aAnnotationDocument, aBinaryCas);
+            aPooledIndex.applyChange(IndexChangeKey.of(aAnnotationDocument),
+                    physicalIndex -> physicalIndex.indexDocument(aAnnotationDocument, aBinaryCas));
         }
         catch (IOException e) {
             log.error("Error indexing annotation document [{}]({}) in project [{}]({})",
@@ -530,8 +567,29 @@ public class SearchServiceImpl
 
             ensureIndexIsCreatedAndValid(aProject, index);
 
-            return index.getPhysicalIndex().executeQuery(new SearchQueryRequest(aProject, aUser,
-                    aQuery, aDocument, aAnnotationLayer, aAnnotationFeature, offset, count));
+            Map<String, List<SearchResult>> results = pooledIndex.getResultCache().get(
+                    aUser.getUsername(),
+                    asList("query", normalizeQuery(aQuery), idOf(aDocument), idOf(aAnnotationLayer),
+                            idOf(aAnnotationFeature), offset, count),
+                    () -> {
+                        long start = System.nanoTime();
+                        Map<String, List<SearchResult>> r = index.getPhysicalIndex()
+                                .executeQuery(new SearchQueryRequest(aProject, aUser, aQuery,
+                                        aDocument, aAnnotationLayer, aAnnotationFeature, offset,
+                                        count));
+                        QUERY_TIMER.recordSince(start);
+                        return r;
+                    });
+
+            // The caller may modify the results (e.g. select them for annotation), so it must not
+            // get hold of the cached instances
+            Map<String, List<SearchResult>> copy = new LinkedHashMap<>();
+            for (Entry<String, List<SearchResult>> e : results.entrySet()) {
+                copy.put(e.getKey(), e.getValue().stream() //
+                        .map(SearchResult::new) //
+                        .collect(Collectors.toList()));
+            }
+            return copy;
         }
     }
 
@@ -545,8 +603,12 @@ public class SearchServiceImpl
             Index index = pooledIndex.get();
             ensureIndexIsCreatedAndValid(aProject, index);
 
-            return index.getPhysicalIndex().getAnnotationStatistics(new StatisticRequest(aProject,
-                    aUser, aMinTokenPerDoc, aMaxTokenPerDoc, aFeatures, null));
+            return pooledIndex.getResultCache().get(aUser.getUsername(),
+                    asList("projectStatistics", aMinTokenPerDoc, aMaxTokenPerDoc,
+                            idsOf(aFeatures)),
+                    () -> index.getPhysicalIndex()
+                            .getAnnotationStatistics(new StatisticRequest(aProject, aUser,
+                                    aMinTokenPerDoc, aMaxTokenPerDoc, aFeatures, null)));
         }
     }
 
@@ -563,8 +625,11 @@ public class SearchServiceImpl
 
             StatisticRequest statRequest = new StatisticRequest(aProject, aUser, aMinTokenPerDoc,
                     aMaxTokenPerDoc, aFeatures, aQuery);
-            LayerStatistics statistics = physicalIndex.getLayerStatistics(statRequest,
-                    statRequest.getQuery(), physicalIndex.getUniqueDocuments(statRequest));
+            LayerStatistics statistics = pooledIndex.getResultCache().get(aUser.getUsername(),
+                    asList("queryStatistics", normalizeQuery(aQuery), aMinTokenPerDoc,
+                            aMaxTokenPerDoc),
+                    () -> physicalIndex.getLayerStatistics(statRequest, statRequest.getQuery(),
+                            physicalIndex.getUniqueDocuments(statRequest)));
 
             Map<String, LayerStatistics> statisticsMap = new HashMap<String, LayerStatistics>();
             statisticsMap.put("query." + aQuery, statistics);
@@ -577,6 +642,10 @@ public class SearchServiceImpl
 
     /**
      * Re-index the project. If there is no physical index, create a new one.
+     * <p>
+     * The new index is built next to the current one which keeps serving queries until the new
+     * index is complete and replaces it. Loading and converting the CASes is spread over a pool
+     * of worker threads which all feed into the same index writer.
      */
     @Override
     @Transactional
@@ -592,12 +661,8 @@ public class SearchServiceImpl
             }
 
             Index index = pooledIndex.get();
-            index.setInvalid(true);
-
-            // Clear the index
-            index.getPhysicalIndex().clear();
 
-            // Index all the annotation documents
+            // Collect all the annotation documents and source documents
             List<AnnotationDocument> annotationDocuments = new ArrayList<>();
             for (User user : projectService.listProjectUsersWithPermissions(aProject)) {
                 annotationDocuments.addAll(documentService.listAnnotationDocuments(aProject, user));
@@ -606,50 +671,93 @@ public class SearchServiceImpl
 
             monitor.setTodo(annotationDocuments.size() + sourceDocuments.size());
 
-            for (AnnotationDocument doc : annotationDocuments) {
-                if (isPerformNoMoreActions(pooledIndex)) {
-                    return;
+            long start = currentTimeMillis();
+            boolean complete = false;
+            pooledIndex.beginRebuild();
+            try (BulkIndexBuilder builder = index.getPhysicalIndex()
+                    .startRebuild(properties.getReindexRamBufferSize())) {
+                List<Callable<Void>> jobs = new ArrayList<>();
+                for (AnnotationDocument doc : annotationDocuments) {
+                    jobs.add(() -> reindexDocument(pooledIndex, monitor, doc.getName(),
+                            () -> builder.indexDocument(doc,
+                                    casToByteArray(documentService.readAnnotationCas(doc)))));
                 }
-
-                // Because serialization is a process which modifies internal data structures of
-                // the CAS, we need exclusive access the CAS for the time being.
-                // This can be relaxed after upgrading to UIMA 3.2.0 which includes a fix for
-                // for https://issues.apache.org/jira/browse/UIMA-6162
-                byte[] casAsByteArray;
-                try (CasStorageSession session = CasStorageSession.openNested()) {
-                    casAsByteArray = casToByteArray(documentService.readAnnotationCas(doc));
+                for (SourceDocument doc : sourceDocuments) {
+                    jobs.add(() -> reindexDocument(pooledIndex, monitor, doc.getName(),
+                            () -> builder.indexDocument(doc,
+                                    casToByteArray(documentService.createOrReadInitialCas(doc)))));
                 }
-                indexDocument(pooledIndex, doc, "reindex", casAsByteArray);
 
-                monitor.incDone();
-            }
+                ExecutorService workers = Executors.newFixedThreadPool(
+                        Math.max(1, properties.getReindexThreads()),
+                        new BasicThreadFactory.Builder() //
+                                .daemon(true) //
+                                .namingPattern("reindex-worker-%d") //
+                                .build());
+                try {
+                    workers.invokeAll(jobs);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                finally {
+                    workers.shutdownNow();
+                }
 
-            // Index all the source documents
-            for (SourceDocument doc : sourceDocuments) {
                 if (isPerformNoMoreActions(pooledIndex)) {
                     return;
                 }
 
-                // Because serialization is a process which modifies internal data structures of
-                // the CAS, we need exclusive access the CAS for the time being.
-                // This can be relaxed after upgrading to UIMA 3.2.0 which includes a fix for
-                // for https://issues.apache.org/jira/browse/UIMA-6162
-                byte[] casAsByteArray;
-                try (CasStorageSession session = CasStorageSession.openNested()) {
-                    casAsByteArray = casToByteArray(documentService.createOrReadInitialCas(doc));
+                // Swap in the new index and re-apply any changes which have been made to the old
+                // index while the new one was being built
+                pooledIndex.commitRebuild(builder);
+                complete = true;
+            }
+            finally {
+                if (!complete) {
+                    pooledIndex.abortRebuild();
                 }
-
-                indexDocument(pooledIndex, doc, casAsByteArray);
-
-                monitor.incDone();
             }
 
+            log.info("Re-indexed {} documents in project [{}]({}) in {}ms",
+                    annotationDocuments.size() + sourceDocuments.size(), aProject.getName(),
+                    aProject.getId(), currentTimeMillis() - start);
+
             // After re-indexing, reset the invalid flag
             index.setInvalid(false);
             entityManager.merge(index);
         }
     }
 
+    private Void reindexDocument(PooledIndex aPooledIndex, Monitor aMonitor, String aDocumentName,
+            FailableRunnable<IOException> aAction)
+    {
+        try {
+            if (isPerformNoMoreActions(aPooledIndex)) {
+                return null;
+            }
+
+            // Because serialization is a process which modifies internal data structures of
+            // the CAS, we need exclusive access the CAS for the time being.
+            // This can be relaxed after upgrading to UIMA 3.2.0 which includes a fix for
+            // for https://issues.apache.org/jira/browse/UIMA-6162
+            try (CasStorageSession session = CasStorageSession.openNested()) {
+                aAction.run();
+            }
+        }
+        catch (Exception e) {
+            log.error("Error re-indexing document [{}] in project [{}]({})", aDocumentName,
+                    aPooledIndex.get().getProject().getName(),
+                    aPooledIndex.get().getProject().getId(), e);
+        }
+        finally {
+            aMonitor.incDone();
+        }
+
+        return null;
+    }
+
     /**
      * For testing only...
      */
@@ -707,11 +815,48 @@ public class SearchServiceImpl
             ensureIndexIsCreatedAndValid(aProject, index);
 
             // Index is valid, try to execute the query
-            return index.getPhysicalIndex().numberOfQueryResults(new SearchQueryRequest(aProject,
-                    aUser, aQuery, aDocument, aAnnotationLayer, aAnnotationFeature, 0L, 0L));
+            return pooledIndex.getResultCache().get(aUser.getUsername(),
+                    asList("count", normalizeQuery(aQuery), idOf(aDocument),
+                            idOf(aAnnotationLayer), idOf(aAnnotationFeature)),
+                    () -> index.getPhysicalIndex()
+                            .numberOfQueryResults(new SearchQueryRequest(aProject, aUser, aQuery,
+                                    aDocument, aAnnotationLayer, aAnnotationFeature, 0L, 0L)));
         }
     }
 
+    /**
+     * Surrounding whitespace does not change the meaning of a query, so it should not prevent
+     * results from being reused.
+     */
+    private static String normalizeQuery(String aQuery)
+    {
+        return aQuery != null ? aQuery.trim() : null;
+    }
+
+    private static Long idOf(SourceDocument aDocument)
+    {
+        return aDocument != null ? aDocument.getId() : null;
+    }
+
+    private static Long idOf(AnnotationLayer aLayer)
+    {
+        return aLayer != null ? aLayer.getId() : null;
+    }
+
+    private static Long idOf(AnnotationFeature aFeature)
+    {
+        return aFeature != null ? aFeature.getId() : null;
+    }
+
+    private static Set<Long> idsOf(Set<AnnotationFeature> aFeatures)
+    {
+        if (aFeatures == null) {
+            return null;
+        }
+
+        return aFeatures.stream().map(AnnotationFeature::getId).collect(Collectors.toSet());
+    }
+
     /**
      * Checks if the index has been created and is valid. If necessary, a re-indexing operation is
      * scheduled and an {@link ExecutionException} is thrown to short-circuit the caller.
@@ -725,8 +870,10 @@ public class SearchServiceImpl
             aIndex.setInvalid(true);
             entityManager.merge(aIndex);
 
-            // Schedule new re-indexing process
-            enqueueReindexTask(aProject, "ensureIndexIsCreatedAndValid[doesNotExist]");
+            // Schedule new re-indexing process unless the index is already being built
+            if (getIndexProgress(aProject).isEmpty()) {
+                enqueueReindexTask(aProject, "ensureIndexIsCreatedAndValid[doesNotExist]");
+            }
 
             // Throw execution exception so that the user knows the query was not run
             throw (new ExecutionException("Index still building. Try again later."));
@@ -807,9 +954,15 @@ public class SearchServiceImpl
         private AtomicBoolean forceRecycle;
         private AtomicBoolean dead;
 
+        private final Object rebuildLock = new Object();
+        private Map<IndexChangeKey, IndexChange> changesDuringRebuild;
+
+        private final SearchResultCache resultCache;
+
         public PooledIndex(Index aDelegate)
         {
             delegate = aDelegate;
+            resultCache = new SearchResultCache(properties.getResultCacheSize());
             refCount = new AtomicInteger(0);
             lastAccess = new AtomicLong(currentTimeMillis());
             forceRecycle = new AtomicBoolean(false);
@@ -821,6 +974,11 @@ public class SearchServiceImpl
             return delegate;
         }
 
+        public SearchResultCache getResultCache()
+        {
+            return resultCache;
+        }
+
         public void borrow()
         {
             refCount.incrementAndGet();
@@ -862,5 +1020,154 @@ public class SearchServiceImpl
         {
             return dead.get();
         }
+
+        public void beginRebuild()
+        {
+            synchronized (rebuildLock) {
+                changesDuringRebuild = new LinkedHashMap<>();
+            }
+        }
+
+        public boolean isRebuilding()
+        {
+            synchronized (rebuildLock) {
+                return changesDuringRebuild != null;
+            }
+        }
+
+        /**
+         * Applies the given change to the physical index. While the index is being rebuilt, the
+         * change is also recorded, so it can be applied to the new index once that replaces the
+         * current one. Only the latest change per document and user is recorded because it
+         * supersedes any earlier one. Removing a document supersedes all earlier changes to the
+         * document.
+         * 
+         * @param aKey
+         *            the document and user affected by the change.
+         * @param aChange
+         *            the change.
+         */
+        public void applyChange(IndexChangeKey aKey, IndexChange aChange) throws IOException
+        {
+            synchronized (rebuildLock) {
+                try {
+                    if (changesDuringRebuild != null) {
+                        if (aKey.removal) {
+                            changesDuringRebuild.keySet()
+                                    .removeIf(key -> key.documentId == aKey.documentId);
+                        }
+                        // Re-insert so the change is replayed in the order of its latest update
+                        changesDuringRebuild.remove(aKey);
+                        changesDuringRebuild.put(aKey, aChange);
+
+                        // If there is no current index yet, the change only goes to the new one
+                        if (!delegate.getPhysicalIndex().isCreated()) {
+                            return;
+                        }
+                    }
+
+                    aChange.apply(delegate.getPhysicalIndex());
+                }
+                finally {
+                    if (aKey.user != null) {
+                        resultCache.invalidate(aKey.user);
+                    }
+                    else {
+                        resultCache.invalidateAll();
+                    }
+                }
+            }
+        }
+
+        public void commitRebuild(BulkIndexBuilder aBuilder) throws IOException
+        {
+            synchronized (rebuildLock) {
+                try {
+                    aBuilder.commit();
+
+                    for (IndexChange change : changesDuringRebuild.values()) {
+                        try {
+                            change.apply(delegate.getPhysicalIndex());
+                        }
+                        catch (IOException e) {
+                            log.error("Unable to re-apply change to rebuilt index in project "
+                                    + "[{}]({})", delegate.getProject().getName(),
+                                    delegate.getProject().getId(), e);
+                        }
+                    }
+                }
+                finally {
+                    changesDuringRebuild = null;
+                    resultCache.invalidateAll();
+                }
+            }
+        }
+
+        public void abortRebuild()
+        {
+            synchronized (rebuildLock) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexChange
+    {
+        void apply(PhysicalIndex aIndex) throws IOException;
+    }
+
+    /**
+     * Identifies the document and user affected by an {@link IndexChange}. The user is
+     * {@code null} for changes to the source document, which affect the results of all users.
+     */
+    private static final class IndexChangeKey
+    {
+        private final long documentId;
+        private final String user;
+        private final boolean removal;
+
+        private IndexChangeKey(long aDocumentId, String aUser, boolean aRemoval)
+        {
+            documentId = aDocumentId;
+            user = aUser;
+            removal = aRemoval;
+        }
+
+        public static IndexChangeKey of(SourceDocument aDocument)
+        {
+            return new IndexChangeKey(aDocument.getId(), null, false);
+        }
+
+        public static IndexChangeKey of(AnnotationDocument aDocument)
+        {
+            return new IndexChangeKey(aDocument.getDocument().getId(), aDocument.getUser(),
+                    false);
+        }
+
+        public static IndexChangeKey removalOf(SourceDocument aDocument)
+        {
+            return new IndexChangeKey(aDocument.getId(), null, true);
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof IndexChangeKey)) {
+                return false;
+            }
+            IndexChangeKey other = (IndexChangeKey) aOther;
+            return documentId == other.documentId && Objects.equals(user, other.user)
+                    && removal == other.removal;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(documentId, user, removal);
+        }
     }
 }
@@ -27,4 +27,40 @@ public interface SearchServiceProperties
      * Time to keep an index open after it has last been used.
      */
     Duration getIndexKeepOpenTime();
+
+    /**
+     * Number of worker threads loading and indexing documents when a project is re-indexed.
+     */
+    int getReindexThreads();
+
+    /**
+     * Number of threads searching the segments of an index in parallel. The threads are shared by
+     * the indexes of all projects.
+     */
+    int getSearchThreads();
+
+    /**
+     * Maximum number of query results and statistics cached per project.
+     */
+    int getResultCacheSize();
+
+    /**
+     * Memory in MB which the index writer may use to buffer documents while re-indexing a project.
+     */
+    double getReindexRamBufferSize();
+
+    /**
+     * Maximum time until changes become visible to searches when nobody is waiting for them.
+     */
+    Duration getIndexRefreshMaxStale();
+
+    /**
+     * Maximum time until changes become visible to searches when a search is waiting for them.
+     */
+    Duration getIndexRefreshMinStale();
+
+    /**
+     * Time after a change until the index is durably committed to disk.
+     */
+    Duration getIndexCommitInterval();
 }
@@ -29,6 +29,20 @@ public class SearchServicePropertiesImpl
 
     private Duration indexKeepOpenTime = Duration.ofMinutes(10);
 
+    private int reindexThreads = Runtime.getRuntime().availableProcessors();
+
+    private int searchThreads = Runtime.getRuntime().availableProcessors();
+
+    private int resultCacheSize = 256;
+
+    private double reindexRamBufferSize = 256.0;
+
+    private Duration indexRefreshMaxStale = Duration.ofSeconds(1);
+
+    private Duration indexRefreshMinStale = Duration.ofMillis(25);
+
+    private Duration indexCommitInterval = Duration.ofMinutes(1);
+
     @Override
     public boolean isEnabled()
     {
@@ -50,4 +64,81 @@ public class SearchServicePropertiesImpl
     {
         indexKeepOpenTime = aIndexKeepOpenTime;
     }
+
+    @Override
+    public int getReindexThreads()
+    {
+        return reindexThreads;
+    }
+
+    public void setReindexThreads(int aReindexThreads)
+    {
+        reindexThreads = aReindexThreads;
+    }
+
+    @Override
+    public int getSearchThreads()
+    {
+        return searchThreads;
+    }
+
+    public void setSearchThreads(int aSearchThreads)
+    {
+        searchThreads = aSearchThreads;
+    }
+
+    @Override
+    public int getResultCacheSize()
+    {
+        return resultCacheSize;
+    }
+
+    public void setResultCacheSize(int aResultCacheSize)
+    {
+        resultCacheSize = aResultCacheSize;
+    }
+
+    @Override
+    public double getReindexRamBufferSize()
+    {
+        return reindexRamBufferSize;
+    }
+
+    public void setReindexRamBufferSize(double aReindexRamBufferSize)
+    {
+        reindexRamBufferSize = aReindexRamBufferSize;
+    }
+
+    @Override
+    public Duration getIndexRefreshMaxStale()
+    {
+        return indexRefreshMaxStale;
+    }
+
+    public void setIndexRefreshMaxStale(Duration aIndexRefreshMaxStale)
+    {
+        indexRefreshMaxStale = aIndexRefreshMaxStale;
+    }
+
+    @Override
+    public Duration getIndexRefreshMinStale()
+    {
+        return indexRefreshMinStale;
+    }
+
+    public void setIndexRefreshMinStale(Duration aIndexRefreshMinStale)
+    {
+        indexRefreshMinStale = aIndexRefreshMinStale;
+    }
+
+    @Override
+    public Duration getIndexCommitInterval()
+    {
+        return indexCommitInterval;
+    }
+
+    public void setIndexCommitInterval(Duration aIndexCommitInterval)
+    {
+        indexCommitInterval = aIndexCommitInterval;
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index;
+
+import java.io.IOException;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+
+/**
+ * Builds a new version of a {@link PhysicalIndex} from scratch while the current version of the
+ * index continues to serve queries. The new version only becomes visible when {@link #commit()} is
+ * called. Closing the builder without committing discards the new version.
+ * <p>
+ * The indexing methods are thread-safe and are meant to be called from multiple worker threads.
+ */
+public interface BulkIndexBuilder
+    extends AutoCloseable
+{
+    void indexDocument(SourceDocument aSourceDocument, byte[] aBinaryCas) throws IOException;
+
+    void indexDocument(AnnotationDocument aDocument, byte[] aBinaryCas) throws IOException;
+
+    /**
+     * Replaces the current version of the index with the newly built one.
+     * 
+     * @throws IOException
+     *             if the new index could not be written or swapped in.
+     */
+    void commit() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -75,6 +75,19 @@ public interface PhysicalIndex
 
     void clear() throws IOException;
 
+    /**
+     * Starts rebuilding the index from scratch. The current index remains available for queries
+     * and updates until the returned builder is committed.
+     * 
+     * @param aRamBufferSizeMb
+     *            the amount of memory that may be used to buffer documents before they are flushed
+     *            to disk.
+     * @return the builder.
+     * @throws IOException
+     *             if the new index cannot be created.
+     */
+    BulkIndexBuilder startRebuild(double aRamBufferSizeMb) throws IOException;
+
     /**
      * Retrieve the timestamp of this annotation document
      * 
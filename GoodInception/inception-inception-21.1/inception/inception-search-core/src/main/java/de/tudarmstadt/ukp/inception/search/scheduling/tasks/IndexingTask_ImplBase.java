@@ -21,12 +21,15 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import java.util.Objects;
 
+import org.apache.commons.lang3.tuple.Pair;
+
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.scheduling.MatchableTask;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskType;
 import de.tudarmstadt.ukp.inception.search.model.Progress;
 
 /**
@@ -95,6 +98,19 @@ public abstract class IndexingTask_ImplBase
 
     public abstract Progress getProgress();
 
+    @Override
+    public TaskType getType()
+    {
+        return TaskType.INDEXING;
+    }
+
+    @Override
+    public Object getMatchKey()
+    {
+        // Indexing tasks only ever match other indexing tasks in the same project
+        return Pair.of(IndexingTask_ImplBase.class, getProject().getId());
+    }
+
     @Override
     public String toString()
     {
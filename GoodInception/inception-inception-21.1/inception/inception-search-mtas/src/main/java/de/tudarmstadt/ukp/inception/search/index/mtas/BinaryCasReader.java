@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Carries a binary CAS to the {@link MtasUimaParser} through the Lucene analysis chain. Lucene
+ * only accepts text content for tokenized fields, so the CAS used to be char-encoded into a
+ * {@link String} just to be decoded back into bytes by the parser. This reader hands the original
+ * bytes to the parser directly. Consumers which actually read characters from it still get the
+ * encoding produced by {@link MtasUtils#bytesToChars}, but it is only computed on demand.
+ */
+final class BinaryCasReader
+    extends Reader
+{
+    private final byte[] binaryCas;
+
+    private Reader delegate;
+
+    public BinaryCasReader(byte[] aBinaryCas)
+    {
+        binaryCas = aBinaryCas;
+    }
+
+    public byte[] getBytes()
+    {
+        return binaryCas;
+    }
+
+    @Override
+    public int read(char[] aBuffer, int aOffset, int aLength) throws IOException
+    {
+        if (delegate == null) {
+            delegate = new CharArrayReader(MtasUtils.bytesToChars(binaryCas));
+        }
+
+        return delegate.read(aBuffer, aOffset, aLength);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+}
@@ -23,40 +23,58 @@ package de.tudarmstadt.ukp.inception.search.index.mtas;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.ProjectService.PROJECT_FOLDER;
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.FINISHED;
-import static de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocumentState.IGNORE;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.PARAM_PROJECT_ID;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.getIndexedName;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUtils.decodeFSAddress;
-import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.synchronizedMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 import static mtas.analysis.util.MtasTokenizerFactory.ARGUMENT_PARSER;
 import static mtas.analysis.util.MtasTokenizerFactory.ARGUMENT_PARSER_ARGS;
 import static mtas.codec.MtasCodec.MTAS_CODEC_NAME;
 import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.apache.lucene.search.BooleanClause.Occur.FILTER;
+import static org.apache.lucene.search.BooleanClause.Occur.MUST_NOT;
+import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
 import java.text.BreakIterator;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.custom.CustomAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
@@ -67,24 +85,34 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.spans.SpanWeight;
 import org.apache.lucene.search.spans.Spans;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -108,7 +136,10 @@ import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
 import de.tudarmstadt.ukp.inception.search.SearchResult;
 import de.tudarmstadt.ukp.inception.search.StatisticRequest;
 import de.tudarmstadt.ukp.inception.search.StatisticsResult;
+import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
+import de.tudarmstadt.ukp.inception.search.index.BulkIndexBuilder;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
+import de.tudarmstadt.ukp.inception.search.index.mtas.metrics.MtasDocumentIndexMetrics;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import mtas.analysis.token.MtasTokenString;
@@ -128,7 +159,9 @@ import mtas.search.spans.util.MtasSpanQuery;
 public class MtasDocumentIndex
     implements PhysicalIndex
 {
-    private static final String INDEX = "indexMtas";
+    static final String INDEX = "indexMtas";
+    private static final String REBUILD_SUFFIX = ".rebuild";
+    private static final String OLD_SUFFIX = ".old";
 
     /**
      * Constant for the field which carries the unique identifier for the index document consisting:
@@ -167,6 +200,8 @@ public class MtasDocumentIndex
 
     private static final String EMPTY_FEATURE_VALUE_KEY = "<Empty>";
 
+    private static final int MAX_QUERY_CURSORS = 100;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
@@ -176,15 +211,30 @@ public class MtasDocumentIndex
     private final Project project;
     private final File repositoryDir;
     private final ScheduledExecutorService schedulerService;
+    private final SearchServiceProperties properties;
+    private final MtasDocumentIndexMetrics metrics;
+    private final ExecutorService searchExecutor;
+
+    // These are only assigned while holding the lock on the index, but they are read without
+    // locking so that searches do not block each other
+    private volatile IndexWriter _indexWriter;
+    private volatile ReferenceManager<IndexSearcher> _searcherManager;
+    private volatile ControlledRealTimeReopenThread<IndexSearcher> _reopenThread;
 
-    private IndexWriter _indexWriter;
-    private ReferenceManager<IndexSearcher> _searcherManager;
     private ScheduledFuture<?> _commitFuture;
 
+    // Sequence number of the latest change to the index - searches wait for it to become visible
+    private final AtomicLong lastChange = new AtomicLong(-1);
+
+    // Where recently requested result pages ended, so the next page can be continued from there
+    private final Map<QueryCursorKey, QueryCursor> queryCursors = synchronizedMap(
+            new LRUMap<>(MAX_QUERY_CURSORS));
+
     public MtasDocumentIndex(Project aProject, DocumentService aDocumentService,
             AnnotationSchemaService aSchemaService, String aDir,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry, SearchServiceProperties aProperties,
+            MtasDocumentIndexMetrics aMetrics, ExecutorService aSearchExecutor)
     {
         schemaService = aSchemaService;
         documentService = aDocumentService;
@@ -192,11 +242,24 @@ public class MtasDocumentIndex
         featureIndexingSupportRegistry = aFeatureIndexingSupportRegistry;
         featureSupportRegistry = aFeatureSupportRegistry;
         repositoryDir = new File(aDir);
+        properties = aProperties;
+        metrics = aMetrics;
+        searchExecutor = aSearchExecutor;
 
         schedulerService = new ScheduledThreadPoolExecutor(0);
     }
 
-    private synchronized IndexWriter getIndexWriter() throws IOException
+    private IndexWriter getIndexWriter() throws IOException
+    {
+        IndexWriter indexWriter = _indexWriter;
+        if (indexWriter != null) {
+            return indexWriter;
+        }
+
+        return openIndex();
+    }
+
+    private synchronized IndexWriter openIndex() throws IOException
     {
         if (_indexWriter != null) {
             return _indexWriter;
@@ -206,37 +269,20 @@ public class MtasDocumentIndex
         // new RuntimeException());
 
         try {
-            // Add the project id to the configuration
-            JSONObject jsonParserConfiguration = new JSONObject();
-            jsonParserConfiguration.put(PARAM_PROJECT_ID, project.getId());
-
-            // Tokenizer parameters
-            Map<String, String> tokenizerArguments = new HashMap<>();
-            tokenizerArguments.put(ARGUMENT_PARSER, MtasUimaParser.class.getName());
-            tokenizerArguments.put(ARGUMENT_PARSER_ARGS, jsonParserConfiguration.toString());
-
-            // Build analyzer
-            Analyzer mtasAnalyzer = CustomAnalyzer.builder()
-                    .withTokenizer(MtasTokenizerFactory.class, tokenizerArguments).build();
-
-            Map<String, Analyzer> analyzerPerField = new HashMap<String, Analyzer>();
-            analyzerPerField.put(FIELD_CONTENT, mtasAnalyzer);
-
-            PerFieldAnalyzerWrapper analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(),
-                    analyzerPerField);
-
             // Build IndexWriter
             FileUtils.forceMkdir(getIndexDir());
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            config.setCodec(Codec.forName(MTAS_CODEC_NAME));
+            IndexWriterConfig config = createIndexWriterConfig();
 
             @SuppressWarnings("resource")
             IndexWriter indexWriter = new IndexWriter(FSDirectory.open(getIndexDir().toPath()),
                     config);
 
             // Initialize the index
+            SearcherManager searcherManager;
             try {
                 indexWriter.commit();
+                searcherManager = new SearcherManager(indexWriter, true, true,
+                        new SearcherFactory());
             }
             catch (IOException e) {
                 try {
@@ -249,6 +295,20 @@ public class MtasDocumentIndex
                 throw e;
             }
 
+            searcherManager.addListener(new RefreshMetricsListener());
+
+            // Makes recent changes visible to searches without having to commit them first
+            ControlledRealTimeReopenThread<IndexSearcher> reopenThread = //
+                    new ControlledRealTimeReopenThread<>(indexWriter, searcherManager,
+                            toSeconds(properties.getIndexRefreshMaxStale()),
+                            toSeconds(properties.getIndexRefreshMinStale()));
+            reopenThread.setName("mtas-refresh-" + project.getId());
+            reopenThread.setDaemon(true);
+            reopenThread.start();
+
+            _reopenThread = reopenThread;
+            _searcherManager = searcherManager;
+
             // After the index has been initialized, assign the _indexWriter - this is also used
             // by isOpen() to check if the index writer is available.
             _indexWriter = indexWriter;
@@ -261,25 +321,49 @@ public class MtasDocumentIndex
         }
     }
 
-    private void ensureAllIsCommitted()
+    private static double toSeconds(Duration aDuration)
     {
-        if (_commitFuture != null && !_commitFuture.isDone()) {
-            try {
-                _commitFuture.get();
-            }
-            catch (Exception e) {
-                log.error(
-                        "Error waiting for pending scheduled commit to complete in project [{}]({})",
-                        project.getName(), project.getId());
-            }
-            finally {
-                _commitFuture = null;
-            }
+        return aDuration.toMillis() / 1000.0;
+    }
+
+    private IndexWriterConfig createIndexWriterConfig() throws IOException
+    {
+        // Add the project id to the configuration
+        JSONObject jsonParserConfiguration = new JSONObject();
+        jsonParserConfiguration.put(PARAM_PROJECT_ID, project.getId());
+
+        // Tokenizer parameters
+        Map<String, String> tokenizerArguments = new HashMap<>();
+        tokenizerArguments.put(ARGUMENT_PARSER, MtasUimaParser.class.getName());
+        tokenizerArguments.put(ARGUMENT_PARSER_ARGS, jsonParserConfiguration.toString());
+
+        // Build analyzer
+        Analyzer mtasAnalyzer = CustomAnalyzer.builder()
+                .withTokenizer(MtasTokenizerFactory.class, tokenizerArguments).build();
+
+        Map<String, Analyzer> analyzerPerField = new HashMap<String, Analyzer>();
+        analyzerPerField.put(FIELD_CONTENT, mtasAnalyzer);
+
+        PerFieldAnalyzerWrapper analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(),
+                analyzerPerField);
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setCodec(Codec.forName(MTAS_CODEC_NAME));
+        return config;
+    }
+
+    private synchronized void ensureAllIsCommitted()
+    {
+        // The scheduled commit may be far in the future, so we commit right away instead of
+        // waiting for it. If it is already running, the index writer serializes the two commits.
+        if (_commitFuture != null) {
+            _commitFuture.cancel(false);
+            _commitFuture = null;
         }
 
         if (_indexWriter != null) {
             try {
-                _indexWriter.commit();
+                commitIndexWriter(_indexWriter);
             }
             catch (IOException e) {
                 log.error("Error committing changes to index for project [{}]({})",
@@ -301,6 +385,11 @@ public class MtasDocumentIndex
     private synchronized void closeIndex()
     {
         try {
+            if (_reopenThread != null) {
+                // Stop refreshing before the searcher manager and the writer are closed
+                _reopenThread.close();
+            }
+
             try {
                 if (!isOpen()) {
                     return;
@@ -328,18 +417,70 @@ public class MtasDocumentIndex
         finally {
             _indexWriter = null;
             _searcherManager = null;
+            _reopenThread = null;
+            // Sequence numbers start over when the index is opened again
+            lastChange.set(-1);
+            // Cursors of the closed index do not apply to the index opened next
+            queryCursors.clear();
             log.debug("Closed index for project [{}]({})", project.getName(), project.getId());
         }
     }
 
-    private synchronized ReferenceManager<IndexSearcher> getSearcherManager() throws IOException
+    private ReferenceManager<IndexSearcher> getSearcherManager() throws IOException
     {
-        if (_searcherManager == null) {
-            _searcherManager = new SearcherManager(getIndexWriter(), true, true,
-                    new SearcherFactory());
+        ReferenceManager<IndexSearcher> searcherManager = _searcherManager;
+        if (searcherManager != null) {
+            return searcherManager;
         }
 
-        return _searcherManager;
+        synchronized (this) {
+            // The searcher manager is created along with the index writer
+            openIndex();
+            return _searcherManager;
+        }
+    }
+
+    /**
+     * Records a change to the index so that subsequent searches can wait for it to become visible.
+     */
+    private void changed(long aSequenceNumber)
+    {
+        lastChange.accumulateAndGet(aSequenceNumber, Math::max);
+    }
+
+    /**
+     * Waits until all changes made to the index so far are visible to searches. The index does not
+     * need to be committed for this. The refresh thread makes the changes visible within the
+     * minimum staleness configured for the index, but we do not wait for longer than the maximum
+     * staleness.
+     */
+    private void awaitChanges()
+    {
+        ControlledRealTimeReopenThread<IndexSearcher> reopenThread = _reopenThread;
+        long change = lastChange.get();
+        if (reopenThread == null || change < 0) {
+            return;
+        }
+
+        try {
+            reopenThread.waitForGeneration(change,
+                    (int) properties.getIndexRefreshMaxStale().toMillis());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IllegalStateException | IllegalArgumentException e) {
+            // The index has been closed or replaced in the mean time - nothing to wait for
+            log.trace("Not waiting for changes to index of project [{}]({}): {}",
+                    project.getName(), project.getId(), e.getMessage());
+        }
+    }
+
+    private void commitIndexWriter(IndexWriter aIndexWriter) throws IOException
+    {
+        long start = System.currentTimeMillis();
+        aIndexWriter.commit();
+        metrics.commitComplete(System.currentTimeMillis() - start);
     }
 
     private synchronized void scheduleCommit()
@@ -356,7 +497,10 @@ public class MtasDocumentIndex
         log.debug("Enqueuing new future to index for project [{}]({})", project.getName(),
                 project.getId());
 
-        _commitFuture = schedulerService.schedule(this::commit, 3, SECONDS);
+        // Changes are visible to searches long before they are committed, so there is no need to
+        // commit often
+        _commitFuture = schedulerService.schedule(this::commit,
+                properties.getIndexCommitInterval().toMillis(), MILLISECONDS);
     }
 
     private void commit()
@@ -364,14 +508,11 @@ public class MtasDocumentIndex
         try {
             log.debug("Executing future to index for project [{}]({})", project.getName(),
                     project.getId());
-            if (_indexWriter != null && _indexWriter.isOpen()) {
-                _indexWriter.commit();
+            IndexWriter indexWriter = _indexWriter;
+            if (indexWriter != null && indexWriter.isOpen()) {
+                commitIndexWriter(indexWriter);
                 log.debug("Committed changes to index for project [{}]({})", project.getName(),
                         project.getId());
-
-                if (_searcherManager != null) {
-                    _searcherManager.maybeRefresh();
-                }
             }
         }
         catch (IOException e) {
@@ -388,7 +529,8 @@ public class MtasDocumentIndex
     @Override
     public boolean isOpen()
     {
-        return _indexWriter != null ? _indexWriter.isOpen() : false;
+        IndexWriter indexWriter = _indexWriter;
+        return indexWriter != null ? indexWriter.isOpen() : false;
     }
 
     @Override
@@ -638,7 +780,7 @@ public class MtasDocumentIndex
     {
         log.debug("Executing query [{}] on index [{}]", aRequest, getIndexDir());
 
-        ensureAllIsCommitted();
+        awaitChanges();
 
         final MtasSpanQuery mtasSpanQuery;
         try {
@@ -659,6 +801,7 @@ public class MtasDocumentIndex
         }
 
         IndexSearcher searcher = null;
+        long start = System.currentTimeMillis();
         try {
             searcher = getSearcherManager().acquire();
             return aRunner.run(searcher, aRequest, mtasSpanQuery);
@@ -668,6 +811,7 @@ public class MtasDocumentIndex
                     e);
         }
         finally {
+            metrics.queryComplete(System.currentTimeMillis() - start);
             if (searcher != null) {
                 // Releasing and setting to null per recommendation in JavaDoc of release(searcher)
                 // method
@@ -716,95 +860,29 @@ public class MtasDocumentIndex
             MtasSpanQuery q)
         throws IOException
     {
-        ListIterator<LeafReaderContext> leafReaderContextIterator = searcher.getIndexReader()
-                .leaves().listIterator();
-
-        Map<Long, Long> annotatableDocuments = listAnnotatableDocuments(aRequest.getProject(),
-                aRequest.getUser());
+        Map<SourceDocument, AnnotationDocument> annotatableDocuments = documentService
+                .listAnnotatableDocuments(aRequest.getProject(), aRequest.getUser());
 
         final float boost = 0;
         SpanWeight spanweight = q.rewrite(searcher.getIndexReader()).createWeight(searcher, false,
                 boost);
+        Weight filterWeight = createDocumentFilterWeight(searcher, aRequest, annotatableDocuments);
 
-        long numResults = 0;
+        List<Long> counts = forEachLeaf(searcher,
+                leaf -> countLeafResults(leaf, spanweight, filterWeight));
 
-        while (leafReaderContextIterator.hasNext()) {
-            LeafReaderContext leafReaderContext = leafReaderContextIterator.next();
-            try {
-                Spans spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
-                SegmentReader segmentReader = (SegmentReader) leafReaderContext.reader();
-                if (spans != null) {
-                    while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
-                        if (segmentReader.numDocs() == segmentReader.maxDoc()
-                                || segmentReader.getLiveDocs().get(spans.docID())) {
-                            Document document = segmentReader.document(spans.docID());
-
-                            // Retrieve user
-                            String user = document.get(FIELD_USER);
-
-                            // Retrieve source and annotation document ids
-                            String rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                            String rawAnnotationDocumentId = document
-                                    .get(FIELD_ANNOTATION_DOCUMENT_ID);
-                            if (rawSourceDocumentId == null || rawAnnotationDocumentId == null) {
-                                log.trace(
-                                        "Indexed document lacks source/annotation document IDs"
-                                                + " - source: {}, annotation: {}",
-                                        rawSourceDocumentId, rawAnnotationDocumentId);
-                                continue;
-
-                            }
-                            long sourceDocumentId = Long.valueOf(rawSourceDocumentId);
-                            long annotationDocumentId = Long.valueOf(rawAnnotationDocumentId);
-
-                            // If the query is limited to a given document, skip any results
-                            // which are not in the given document
-                            Optional<SourceDocument> limitedToDocument = aRequest
-                                    .getLimitedToDocument();
-                            if (limitedToDocument.isPresent() && !Objects
-                                    .equals(limitedToDocument.get().getId(), sourceDocumentId)) {
-                                log.trace(
-                                        "Query limited to document {}, skipping results for "
-                                                + "document {}",
-                                        limitedToDocument.get().getId(), sourceDocumentId);
-                                continue;
-                            }
-
-                            if (annotatableDocuments.containsKey(sourceDocumentId)
-                                    && annotationDocumentId == -1) {
-                                // Exclude result if the retrieved document is a sourcedocument
-                                // (that is, has annotationDocument = -1) AND it has a
-                                // corresponding annotation document for this user
-                                log.trace("Skipping results from indexed source document {} in"
-                                        + "favor of results from the corresponding annotation "
-                                        + "document", sourceDocumentId);
-                                continue;
-                            }
-                            else if (annotationDocumentId != -1
-                                    && !aRequest.getUser().getUsername().equals(user)) {
-                                // Exclude result if the retrieved document is an annotation
-                                // document (that is, annotationDocument != -1 and its username
-                                // is different from the quering user
-                                log.trace(
-                                        "Skipping results from annotation document for user {} "
-                                                + "which does not match the requested user {}",
-                                        user, aRequest.getUser().getUsername());
-                                continue;
-                            }
-
-                            while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
-                                numResults++;
-                            }
-                        }
-                    }
-                }
-            }
-            catch (Exception e) {
-                log.error("Unable to process query results", e);
-                numResults = -1;
+        // A segment which could not be counted makes the total unreliable, so we report the count
+        // as failed instead of returning the partial total
+        boolean failed = false;
+        long numResults = 0;
+        for (Long count : counts) {
+            if (count == null) {
+                failed = true;
+                continue;
             }
+            numResults += count;
         }
-        return numResults;
+        return failed ? -1 : numResults;
     }
 
     private Map<Long, Long> listAnnotatableDocuments(Project aProject, User aUser)
@@ -821,11 +899,6 @@ public class MtasDocumentIndex
             SearchQueryRequest aRequest, MtasSpanQuery q)
         throws IOException
     {
-        Map<String, List<SearchResult>> results = new LinkedHashMap<>();
-
-        ListIterator<LeafReaderContext> leafReaderContextIterator = searcher.getIndexReader()
-                .leaves().listIterator();
-
         Map<SourceDocument, AnnotationDocument> sourceAnnotationDocPairs = documentService
                 .listAnnotatableDocuments(aRequest.getProject(), aRequest.getUser());
         Map<Long, SourceDocument> sourceDocumentIndex = new HashMap<>();
@@ -835,209 +908,421 @@ public class MtasDocumentIndex
         final float boost = 0;
         SpanWeight spanweight = q.rewrite(searcher.getIndexReader()).createWeight(searcher, false,
                 boost);
+        Query filter = createDocumentFilter(aRequest, sourceAnnotationDocPairs);
+        Weight filterWeight = searcher.createWeight(searcher.rewrite(filter), false, 1.0f);
 
         long offset = aRequest.getOffset();
         long count = aRequest.getCount();
-        long current = 0;
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+
+        // Locate the first result of the requested page. If the previous page has been requested
+        // from the same searcher, we continue where it ended. Otherwise, we have to count the
+        // results from the start - which is cheap compared to rendering them.
+        QueryCursorKey cursorKey = QueryCursorKey.of(searcher, aRequest.getQuery(), filter, offset);
+        QueryCursor start = cursorKey != null ? queryCursors.get(cursorKey) : null;
+        if (start == null && offset > 0) {
+            List<Long> counts = forEachLeaf(searcher,
+                    leaf -> countLeafResults(leaf, spanweight, filterWeight));
+            if (counts.contains(null)) {
+                // Without the counts of all segments, we cannot tell where the page starts
+                return new LinkedHashMap<>();
+            }
+
+            long remaining = offset;
+            for (int i = 0; i < counts.size() && start == null; i++) {
+                long leafCount = counts.get(i);
+                if (remaining < leafCount) {
+                    start = new QueryCursor(i, -1, remaining);
+                }
+                remaining -= leafCount;
+            }
+
+            if (start == null) {
+                // Offset is beyond the last result
+                return new LinkedHashMap<>();
+            }
+        }
+        else if (start == null) {
+            start = new QueryCursor(0, -1, 0);
+        }
 
-        resultIteration: while (leafReaderContextIterator.hasNext()) {
-            LeafReaderContext leafReaderContext = leafReaderContextIterator.next();
+        // Each segment collects at most a page worth of results - then the results are merged in
+        // the order of the segments
+        QueryCursor pageStart = start;
+        List<List<QueryHit>> leafHits = forEachLeaf(searcher, leaf -> {
+            if (leaf.ord < pageStart.leaf) {
+                return emptyList();
+            }
+            return collectLeafHits(leaf, spanweight, filterWeight,
+                    leaf.ord == pageStart.leaf ? pageStart : null, count);
+        });
+
+        List<QueryHit> pageHits = new ArrayList<>();
+        for (List<QueryHit> hits : leafHits) {
+            if (hits == null) {
+                continue;
+            }
+            for (QueryHit hit : hits) {
+                if (pageHits.size() >= count) {
+                    break;
+                }
+                pageHits.add(hit);
+            }
+        }
+
+        if (cursorKey != null && !pageHits.isEmpty() && pageHits.size() == count) {
+            QueryHit last = pageHits.get(pageHits.size() - 1);
+            queryCursors.put(cursorKey.next(offset + count),
+                    new QueryCursor(last.leaf, last.doc, last.position + 1));
+        }
+
+        // Render the results of the page in parallel by segment
+        Map<Integer, List<QueryHit>> hitsByLeaf = pageHits.stream()
+                .collect(groupingBy(hit -> hit.leaf, LinkedHashMap::new, toList()));
+        List<List<Pair<String, SearchResult>>> leafResults = forEachLeaf(searcher, leaf -> {
+            List<QueryHit> hits = hitsByLeaf.get(leaf.ord);
+            if (hits == null) {
+                return emptyList();
+            }
+            return renderLeafHits(leaf, hits, aRequest, sourceDocumentIndex,
+                    sourceAnnotationDocPairs);
+        });
+
+        Map<String, List<SearchResult>> results = new LinkedHashMap<>();
+        for (int i = 0; i < leaves.size(); i++) {
+            if (leafResults.get(i) != null) {
+                for (Pair<String, SearchResult> result : leafResults.get(i)) {
+                    addToResults(results, result.getKey(), result.getValue());
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Builds a filter matching the indexed documents the user may see results from:
+     * <ul>
+     * <li>the annotation documents of the user for documents which are not ignored by the user
+     * and</li>
+     * <li>the source documents for which the user does not have an annotation document yet.</li>
+     * </ul>
+     * If the query is limited to a given document, only the documents for it are matched. Using
+     * this filter, documents which are not visible to the user are skipped while iterating over
+     * the matches instead of having to load their stored fields to decide that.
+     */
+    private Query createDocumentFilter(SearchQueryRequest aRequest,
+            Map<SourceDocument, AnnotationDocument> aAnnotatableDocuments)
+    {
+        Optional<Long> limitedToDocument = aRequest.getLimitedToDocument()
+                .map(SourceDocument::getId);
+
+        List<BytesRef> annotatable = new ArrayList<>();
+        List<BytesRef> notStarted = new ArrayList<>();
+        for (Entry<SourceDocument, AnnotationDocument> e : aAnnotatableDocuments.entrySet()) {
+            Long sourceDocumentId = e.getKey().getId();
+            if (limitedToDocument.isPresent()
+                    && !Objects.equals(limitedToDocument.get(), sourceDocumentId)) {
+                continue;
+            }
+
+            BytesRef id = new BytesRef(String.valueOf(sourceDocumentId));
+            annotatable.add(id);
+            if (e.getValue() == null) {
+                notStarted.add(id);
+            }
+        }
+
+        Query annotationDocuments = new BooleanQuery.Builder() //
+                .add(new TermInSetQuery(FIELD_SOURCE_DOCUMENT_ID, annotatable), FILTER) //
+                .add(new TermQuery(new Term(FIELD_USER, aRequest.getUser().getUsername())),
+                        FILTER) //
+                .add(new TermQuery(new Term(FIELD_ANNOTATION_DOCUMENT_ID, "-1")), MUST_NOT) //
+                .build();
+
+        Query sourceDocuments = new BooleanQuery.Builder() //
+                .add(new TermInSetQuery(FIELD_SOURCE_DOCUMENT_ID, notStarted), FILTER) //
+                .add(new TermQuery(new Term(FIELD_ANNOTATION_DOCUMENT_ID, "-1")), FILTER) //
+                .build();
+
+        return new BooleanQuery.Builder() //
+                .add(annotationDocuments, SHOULD) //
+                .add(sourceDocuments, SHOULD) //
+                .build();
+    }
+
+    private Weight createDocumentFilterWeight(IndexSearcher aSearcher,
+            SearchQueryRequest aRequest,
+            Map<SourceDocument, AnnotationDocument> aAnnotatableDocuments)
+        throws IOException
+    {
+        Query filter = createDocumentFilter(aRequest, aAnnotatableDocuments);
+        return aSearcher.createWeight(aSearcher.rewrite(filter), false, 1.0f);
+    }
+
+    /**
+     * Runs the given function for each segment of the index on the search executor. The results
+     * are returned in the order of the segments. If the function fails for a segment, the error is
+     * logged and the result for the segment is {@code null}.
+     */
+    private <T> List<T> forEachLeaf(IndexSearcher aSearcher, LeafFunction<T> aFunction)
+        throws IOException
+    {
+        List<LeafReaderContext> leaves = aSearcher.getIndexReader().leaves();
+        List<Callable<T>> jobs = new ArrayList<>();
+        for (LeafReaderContext leaf : leaves) {
+            jobs.add(() -> aFunction.apply(leaf));
+        }
+
+        if (jobs.size() == 1) {
+            // Not worth handing off to another thread
+            try {
+                return singletonList(aFunction.apply(leaves.get(0)));
+            }
+            catch (IOException | RuntimeException e) {
+                log.error("Unable to process query results", e);
+                return singletonList(null);
+            }
+        }
+
+        List<Future<T>> futures;
+        try {
+            futures = searchExecutor.invokeAll(jobs);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while searching");
+        }
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
             try {
-                Spans spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
-                SegmentReader segmentReader = (SegmentReader) leafReaderContext.reader();
-                Terms terms = segmentReader.terms(FIELD_CONTENT);
-                CodecInfo mtasCodecInfo = CodecInfo.getCodecInfoFromTerms(terms);
-                if (spans != null) {
-                    while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
-                        if (segmentReader.numDocs() == segmentReader.maxDoc()
-                                || segmentReader.getLiveDocs().get(spans.docID())) {
-                            Document document = segmentReader.document(spans.docID());
-
-                            // Retrieve user
-                            String user = document.get(FIELD_USER);
-
-                            // Retrieve source and annotation document ids
-                            String rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                            String rawAnnotationDocumentId = document
-                                    .get(FIELD_ANNOTATION_DOCUMENT_ID);
-                            if (rawSourceDocumentId == null || rawAnnotationDocumentId == null) {
-                                log.trace(
-                                        "Indexed document lacks source/annotation document IDs"
-                                                + " - source: {}, annotation: {}",
-                                        rawSourceDocumentId, rawAnnotationDocumentId);
-                                continue;
-
-                            }
-
-                            long sourceDocumentId = Long.valueOf(rawSourceDocumentId);
-                            long annotationDocumentId = Long.valueOf(rawAnnotationDocumentId);
-                            boolean matchInSourceDocument = annotationDocumentId == -1;
-
-                            SourceDocument sourceDocument = sourceDocumentIndex
-                                    .get(sourceDocumentId);
-
-                            if (sourceDocument == null) {
-                                // Document is not annotatable by this user, so we skip this result
-                                continue;
-                            }
-
-                            AnnotationDocument annotationDocument = sourceAnnotationDocPairs
-                                    .get(sourceDocument);
-
-                            if (annotationDocument != null
-                                    && IGNORE != annotationDocument.getState()) {
-                                // Skip if the document is ignored for this user
-                                log.trace("Skipping results from ignored document {}",
-                                        sourceDocumentId);
-                            }
-
-                            // If the query is limited to a given document, skip any results
-                            // which are not in the given document
-                            Optional<SourceDocument> limitedToDocument = aRequest
-                                    .getLimitedToDocument();
-                            if (limitedToDocument.isPresent() && !Objects
-                                    .equals(limitedToDocument.get().getId(), sourceDocumentId)) {
-                                log.trace(
-                                        "Query limited to document {}, skipping results for "
-                                                + "document {}",
-                                        limitedToDocument.get().getId(), sourceDocumentId);
-                                continue;
-                            }
-
-                            if (matchInSourceDocument && annotationDocument != null) {
-                                // Exclude result if the retrieved document is a sourcedocument
-                                // AND it has a corresponding annotation document for this user
-                                // AND the document is not ignored for this user
-                                log.trace("Skipping results from indexed source document {} in"
-                                        + "favor of results from the corresponding annotation "
-                                        + "document", sourceDocumentId);
-                                continue;
-                            }
-                            else if (annotationDocumentId != -1
-                                    && !aRequest.getUser().getUsername().equals(user)) {
-                                // Exclude result if the retrieved document is an annotation
-                                // document (that is, annotationDocument != -1 and its username
-                                // is different from the quering user
-                                log.trace(
-                                        "Skipping results from annotation document for user {} "
-                                                + "which does not match the requested user {}",
-                                        user, aRequest.getUser().getUsername());
-                                continue;
-                            }
-
-                            // Retrieve document title
-                            String documentTitle = document.get(FIELD_TITLE);
-
-                            // String idValue = segmentReader.document(spans.docID())
-                            // .getField(FIELD_ID).stringValue();
-                            // log.debug("******** New doc {}-{}", + spans.docID(), idValue);
-
-                            while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
-                                if (current < offset) {
-                                    current++;
-                                    continue;
-                                }
-                                if (current - offset + 1 > count) {
-                                    break resultIteration;
-                                }
-                                current++;
-                                int matchStart = spans.startPosition();
-                                int matchEnd = spans.endPosition();
-
-                                int windowStart = Math.max(matchStart - RESULT_WINDOW_SIZE, 0);
-                                int windowEnd = matchEnd + RESULT_WINDOW_SIZE - 1;
-
-                                // Retrieve all indexed objects within the matching range
-                                List<MtasTokenString> tokens = mtasCodecInfo.getObjectsByPositions(
-                                        FIELD_CONTENT, spans.docID(), windowStart, windowEnd);
-
-                                tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
-
-                                if (tokens.isEmpty()) {
-                                    continue;
-                                }
-
-                                SearchResult result = new SearchResult();
-                                StringBuilder resultText = new StringBuilder();
-                                StringBuilder leftContext = new StringBuilder();
-                                StringBuilder rightContext = new StringBuilder();
-                                result.setDocumentId(sourceDocumentId);
-                                result.setDocumentTitle(documentTitle);
-                                result.setOffsetStart(tokens.stream()
-                                        .filter(t -> t.getPositionStart() >= matchStart
-                                                && t.getPositionEnd() < matchEnd)
-                                        .mapToInt(MtasTokenString::getOffsetStart).min()
-                                        .getAsInt());
-                                result.setOffsetEnd(tokens.stream()
-                                        .filter(t -> t.getPositionStart() >= matchStart
-                                                && t.getPositionEnd() < matchEnd)
-                                        .mapToInt(MtasTokenString::getOffsetEnd).max().getAsInt());
-                                result.setTokenStart(matchStart);
-                                result.setTokenLength(matchEnd - matchStart);
-                                result.setReadOnly(annotationDocument != null
-                                        && FINISHED.equals(annotationDocument.getState()));
-                                result.setSelectedForAnnotation(!result.isReadOnly());
-
-                                MtasTokenString prevToken = null;
-                                for (MtasTokenString token : tokens) {
-                                    if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
-                                        continue;
-                                    }
-
-                                    // When searching for an annotation, we don't get the matching
-                                    // text back... not sure why...
-                                    String tokenText = CodecUtil.termValue(token.getValue());
-                                    if (tokenText == null) {
-                                        continue;
-                                    }
-
-                                    if (token.getPositionStart() < matchStart) {
-                                        fill(leftContext, prevToken, token);
-                                        leftContext.append(tokenText);
-                                    }
-                                    else if (token.getPositionStart() >= matchEnd) {
-                                        fill(rightContext, prevToken, token);
-                                        rightContext.append(tokenText);
-                                    }
-                                    else {
-                                        // Only add the whitespace to the match if we already have
-                                        // added any text to the match - otherwise consider the
-                                        // whitespace to be part of the left contex
-                                        if (resultText.length() > 0) {
-                                            fill(resultText, prevToken, token);
-                                        }
-                                        else {
-                                            fill(leftContext, prevToken, token);
-                                        }
-                                        resultText.append(tokenText);
-                                    }
-                                    prevToken = token;
-                                }
-                                result.setText(resultText.toString());
-                                result.setLeftContext(leftContext.toString());
-                                result.setRightContext(rightContext.toString());
-
-                                AnnotationLayer groupingLayer = aRequest.getAnnoationLayer();
-                                AnnotationFeature groupingFeature = aRequest.getAnnotationFeature();
-
-                                if (groupingLayer != null && groupingFeature != null) {
-                                    List<String> featureValues = featureValuesAtMatch(tokens,
-                                            matchStart, matchEnd, groupingLayer, groupingFeature);
-                                    for (String featureValue : featureValues) {
-                                        addToResults(results, featureValue, result);
-                                    }
-                                }
-                                else {
-                                    // if no annotation feature is specified group by document title
-                                    addToResults(results, result.getDocumentTitle(), result);
-                                }
-                            }
-                        }
+                results.add(future.get());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while searching");
+            }
+            catch (java.util.concurrent.ExecutionException e) {
+                log.error("Unable to process query results", e.getCause());
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    private long countLeafResults(LeafReaderContext aLeaf, SpanWeight aSpanWeight,
+            Weight aFilterWeight)
+        throws IOException
+    {
+        Spans spans = aSpanWeight.getSpans(aLeaf, SpanWeight.Postings.POSITIONS);
+        Scorer filterScorer = aFilterWeight.scorer(aLeaf);
+        if (spans == null || filterScorer == null) {
+            return 0;
+        }
+
+        DocIdSetIterator filter = filterScorer.iterator();
+        Bits liveDocs = aLeaf.reader().getLiveDocs();
+
+        long numResults = 0;
+        int doc = nextVisibleDoc(spans, filter, liveDocs, spans.nextDoc());
+        while (doc != NO_MORE_DOCS) {
+            while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
+                numResults++;
+            }
+            doc = nextVisibleDoc(spans, filter, liveDocs, spans.nextDoc());
+        }
+        return numResults;
+    }
+
+    /**
+     * Collects up to the given number of matches from a segment in the order in which they appear
+     * in the index.
+     * 
+     * @param aStart
+     *            where to start in the segment or {@code null} to start at its beginning.
+     */
+    private List<QueryHit> collectLeafHits(LeafReaderContext aLeaf, SpanWeight aSpanWeight,
+            Weight aFilterWeight, QueryCursor aStart, long aLimit)
+        throws IOException
+    {
+        Spans spans = aSpanWeight.getSpans(aLeaf, SpanWeight.Postings.POSITIONS);
+        Scorer filterScorer = aFilterWeight.scorer(aLeaf);
+        if (spans == null || filterScorer == null) {
+            return emptyList();
+        }
+
+        DocIdSetIterator filter = filterScorer.iterator();
+        Bits liveDocs = aLeaf.reader().getLiveDocs();
+
+        long skip = aStart != null ? aStart.skip : 0;
+        int doc = aStart != null && aStart.doc >= 0 ? spans.advance(aStart.doc) : spans.nextDoc();
+        doc = nextVisibleDoc(spans, filter, liveDocs, doc);
+
+        List<QueryHit> hits = new ArrayList<>();
+        while (doc != NO_MORE_DOCS && hits.size() < aLimit) {
+            int position = 0;
+            while (hits.size() < aLimit && spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
+                if (skip > 0) {
+                    skip--;
+                }
+                else {
+                    hits.add(new QueryHit(aLeaf.ord, doc, position, spans.startPosition(),
+                            spans.endPosition()));
+                }
+                position++;
+            }
+
+            if (hits.size() < aLimit) {
+                doc = nextVisibleDoc(spans, filter, liveDocs, spans.nextDoc());
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Moves the spans forward from the given document to the next document which passes the
+     * filter and which has not been deleted.
+     */
+    private static int nextVisibleDoc(Spans aSpans, DocIdSetIterator aFilter, Bits aLiveDocs,
+            int aDoc)
+        throws IOException
+    {
+        int doc = aDoc;
+        while (doc != NO_MORE_DOCS) {
+            int filterDoc = aFilter.docID() < doc ? aFilter.advance(doc) : aFilter.docID();
+            if (filterDoc == NO_MORE_DOCS) {
+                return NO_MORE_DOCS;
+            }
+
+            if (filterDoc > doc) {
+                doc = aSpans.advance(filterDoc);
+            }
+            else if (aLiveDocs == null || aLiveDocs.get(doc)) {
+                return doc;
+            }
+            else {
+                doc = aSpans.nextDoc();
+            }
+        }
+        return NO_MORE_DOCS;
+    }
+
+    private List<Pair<String, SearchResult>> renderLeafHits(LeafReaderContext aLeaf,
+            List<QueryHit> aHits, SearchQueryRequest aRequest,
+            Map<Long, SourceDocument> aSourceDocumentIndex,
+            Map<SourceDocument, AnnotationDocument> aSourceAnnotationDocPairs)
+        throws IOException
+    {
+        LeafReader reader = aLeaf.reader();
+        Terms terms = reader.terms(FIELD_CONTENT);
+        CodecInfo mtasCodecInfo = CodecInfo.getCodecInfoFromTerms(terms);
+
+        List<Pair<String, SearchResult>> results = new ArrayList<>();
+        Map<Integer, Document> documents = new HashMap<>();
+        for (QueryHit hit : aHits) {
+            // Only the documents which passed the filter and actually contain results of the
+            // requested page are loaded
+            Document document = documents.get(hit.doc);
+            if (document == null) {
+                document = reader.document(hit.doc);
+                documents.put(hit.doc, document);
+            }
+
+            long sourceDocumentId = Long.valueOf(document.get(FIELD_SOURCE_DOCUMENT_ID));
+            AnnotationDocument annotationDocument = aSourceAnnotationDocPairs
+                    .get(aSourceDocumentIndex.get(sourceDocumentId));
+
+            // Retrieve document title
+            String documentTitle = document.get(FIELD_TITLE);
+
+            int matchStart = hit.start;
+            int matchEnd = hit.end;
+
+            int windowStart = Math.max(matchStart - RESULT_WINDOW_SIZE, 0);
+            int windowEnd = matchEnd + RESULT_WINDOW_SIZE - 1;
+
+            // Retrieve all indexed objects within the matching range
+            List<MtasTokenString> tokens = mtasCodecInfo.getObjectsByPositions(FIELD_CONTENT,
+                    hit.doc, windowStart, windowEnd);
+
+            tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
+
+            if (tokens.isEmpty()) {
+                continue;
+            }
+
+            SearchResult result = new SearchResult();
+            StringBuilder resultText = new StringBuilder();
+            StringBuilder leftContext = new StringBuilder();
+            StringBuilder rightContext = new StringBuilder();
+            result.setDocumentId(sourceDocumentId);
+            result.setDocumentTitle(documentTitle);
+            result.setOffsetStart(tokens.stream()
+                    .filter(t -> t.getPositionStart() >= matchStart
+                            && t.getPositionEnd() < matchEnd)
+                    .mapToInt(MtasTokenString::getOffsetStart).min().getAsInt());
+            result.setOffsetEnd(tokens.stream()
+                    .filter(t -> t.getPositionStart() >= matchStart
+                            && t.getPositionEnd() < matchEnd)
+                    .mapToInt(MtasTokenString::getOffsetEnd).max().getAsInt());
+            result.setTokenStart(matchStart);
+            result.setTokenLength(matchEnd - matchStart);
+            result.setReadOnly(annotationDocument != null
+                    && FINISHED.equals(annotationDocument.getState()));
+            result.setSelectedForAnnotation(!result.isReadOnly());
+
+            MtasTokenString prevToken = null;
+            for (MtasTokenString token : tokens) {
+                if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
+                    continue;
+                }
+
+                // When searching for an annotation, we don't get the matching
+                // text back... not sure why...
+                String tokenText = CodecUtil.termValue(token.getValue());
+                if (tokenText == null) {
+                    continue;
+                }
+
+                if (token.getPositionStart() < matchStart) {
+                    fill(leftContext, prevToken, token);
+                    leftContext.append(tokenText);
+                }
+                else if (token.getPositionStart() >= matchEnd) {
+                    fill(rightContext, prevToken, token);
+                    rightContext.append(tokenText);
+                }
+                else {
+                    // Only add the whitespace to the match if we already have
+                    // added any text to the match - otherwise consider the
+                    // whitespace to be part of the left contex
+                    if (resultText.length() > 0) {
+                        fill(resultText, prevToken, token);
+                    }
+                    else {
+                        fill(leftContext, prevToken, token);
                     }
+                    resultText.append(tokenText);
                 }
+                prevToken = token;
             }
-            catch (Exception e) {
-                log.error("Unable to process query results", e);
+            result.setText(resultText.toString());
+            result.setLeftContext(leftContext.toString());
+            result.setRightContext(rightContext.toString());
+
+            AnnotationLayer groupingLayer = aRequest.getAnnoationLayer();
+            AnnotationFeature groupingFeature = aRequest.getAnnotationFeature();
+
+            if (groupingLayer != null && groupingFeature != null) {
+                List<String> featureValues = featureValuesAtMatch(tokens, matchStart, matchEnd,
+                        groupingLayer, groupingFeature);
+                for (String featureValue : featureValues) {
+                    results.add(Pair.of(featureValue, result));
+                }
+            }
+            else {
+                // if no annotation feature is specified group by document title
+                results.add(Pair.of(result.getDocumentTitle(), result));
             }
         }
         return results;
@@ -1127,11 +1412,14 @@ public class MtasDocumentIndex
                 project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId, aUser,
                 timestamp);
 
-        IndexWriter indexWriter = getIndexWriter();
-
-        // Prepare bytearray with document content to be indexed
-        String encodedCAS = new String(MtasUtils.bytesToChars(aBinaryCas));
+        // Add document to the Lucene index
+        changed(getIndexWriter().addDocument(createDocument(aDocumentTitle, aSourceDocumentId,
+                aAnnotationDocumentId, aUser, timestamp, aBinaryCas)));
+    };
 
+    private Document createDocument(String aDocumentTitle, long aSourceDocumentId,
+            long aAnnotationDocumentId, String aUser, String aTimestamp, byte[] aBinaryCas)
+    {
         // Create new Lucene document
         Document doc = new Document();
 
@@ -1145,12 +1433,12 @@ public class MtasDocumentIndex
                 Field.Store.YES));
         doc.add(new StringField(FIELD_TITLE, aDocumentTitle, Field.Store.YES));
         doc.add(new StringField(FIELD_USER, aUser, Field.Store.YES));
-        doc.add(new StringField(FIELD_TIMESTAMP, timestamp, Field.Store.YES));
-        doc.add(new TextField(FIELD_CONTENT, encodedCAS, Field.Store.NO));
-
-        // Add document to the Lucene index
-        indexWriter.addDocument(doc);
-    };
+        doc.add(new StringField(FIELD_TIMESTAMP, aTimestamp, Field.Store.YES));
+        // The CAS bytes are passed through to the MTAS parser as they are instead of encoding them
+        // into a string which the parser would have to decode again
+        doc.add(new TextField(FIELD_CONTENT, new BinaryCasReader(aBinaryCas)));
+        return doc;
+    }
 
     /**
      * Remove document from the index
@@ -1175,8 +1463,8 @@ public class MtasDocumentIndex
                 aUser);
 
         IndexWriter indexWriter = getIndexWriter();
-        indexWriter.deleteDocuments(new Term(FIELD_ID,
-                String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId)));
+        changed(indexWriter.deleteDocuments(new Term(FIELD_ID,
+                String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId))));
     }
 
     /**
@@ -1211,7 +1499,7 @@ public class MtasDocumentIndex
                         BooleanClause.Occur.MUST);
 
         // Delete document based on the previous query
-        indexWriter.deleteDocuments(booleanQuery.build());
+        changed(indexWriter.deleteDocuments(booleanQuery.build()));
     }
 
     /**
@@ -1232,7 +1520,7 @@ public class MtasDocumentIndex
     {
         // Remove all data from the index
         IndexWriter indexWriter = getIndexWriter();
-        indexWriter.deleteAll();
+        changed(indexWriter.deleteAll());
         ensureAllIsCommitted();
     }
 
@@ -1263,6 +1551,62 @@ public class MtasDocumentIndex
         scheduleCommit();
     }
 
+    @Override
+    public BulkIndexBuilder startRebuild(double aRamBufferSizeMb) throws IOException
+    {
+        File rebuildDir = getSiblingDir(REBUILD_SUFFIX);
+        if (rebuildDir.exists()) {
+            // Left over from an interrupted rebuild
+            deleteDirectory(rebuildDir);
+        }
+        FileUtils.forceMkdir(rebuildDir);
+
+        IndexWriterConfig config = createIndexWriterConfig();
+        config.setOpenMode(OpenMode.CREATE);
+        config.setRAMBufferSizeMB(aRamBufferSizeMb);
+        // There is no point in committing intermediate states of the new index since nobody can
+        // see them - we commit once at the end
+        config.setCommitOnClose(false);
+
+        log.debug("Rebuilding index for project [{}]({}) in [{}]", project.getName(),
+                project.getId(), rebuildDir);
+
+        return new MtasBulkIndexBuilder(
+                new IndexWriter(FSDirectory.open(rebuildDir.toPath()), config), rebuildDir);
+    }
+
+    /**
+     * Replaces the current index directory with the given one. Searchers which are still using the
+     * old index can continue to do so until they are released.
+     */
+    private synchronized void replaceIndex(File aNewIndexDir) throws IOException
+    {
+        // Pending changes to the old index are committed, but they are lost with the old index.
+        // The caller needs to take care of re-applying them to the new index.
+        closeIndex();
+
+        File indexDir = getIndexDir();
+        File oldDir = getSiblingDir(OLD_SUFFIX);
+        if (oldDir.exists()) {
+            deleteDirectory(oldDir);
+        }
+
+        if (indexDir.exists()) {
+            Files.move(indexDir.toPath(), oldDir.toPath(), ATOMIC_MOVE);
+        }
+        Files.move(aNewIndexDir.toPath(), indexDir.toPath(), ATOMIC_MOVE);
+
+        try {
+            deleteDirectory(oldDir);
+        }
+        catch (IOException e) {
+            log.warn("Unable to delete old index for project [{}]({}) at [{}]", project.getName(),
+                    project.getId(), oldDir, e);
+        }
+
+        log.debug("Replaced index for project [{}]({})", project.getName(), project.getId());
+    }
+
     /**
      * Returns a File object corresponding to the project's index folder
      * 
@@ -1273,6 +1617,11 @@ public class MtasDocumentIndex
         return new File(repositoryDir, "/" + PROJECT_FOLDER + "/" + project.getId() + "/" + INDEX);
     }
 
+    private File getSiblingDir(String aSuffix)
+    {
+        return new File(getIndexDir().getParentFile(), INDEX + aSuffix);
+    }
+
     @Override
     public synchronized void delete() throws IOException
     {
@@ -1304,7 +1653,7 @@ public class MtasDocumentIndex
 
         // Prepare index searcher for accessing index
         ReferenceManager<IndexSearcher> searchManager = getSearcherManager();
-        searchManager.maybeRefresh();
+        awaitChanges();
         IndexSearcher indexSearcher = searchManager.acquire();
         try {
 
@@ -1349,6 +1698,86 @@ public class MtasDocumentIndex
                 .toString();
     }
 
+    /**
+     * Reports the time it takes to refresh the searchers to the metrics.
+     */
+    private class RefreshMetricsListener
+        implements ReferenceManager.RefreshListener
+    {
+        // Refreshes are never running concurrently
+        private long refreshStart;
+
+        @Override
+        public void beforeRefresh()
+        {
+            refreshStart = System.currentTimeMillis();
+        }
+
+        @Override
+        public void afterRefresh(boolean aDidRefresh)
+        {
+            if (aDidRefresh) {
+                metrics.refreshComplete(System.currentTimeMillis() - refreshStart);
+            }
+        }
+    }
+
+    private class MtasBulkIndexBuilder
+        implements BulkIndexBuilder
+    {
+        private final IndexWriter indexWriter;
+        private final File indexDir;
+        private final String timestamp;
+        private boolean committed = false;
+
+        public MtasBulkIndexBuilder(IndexWriter aIndexWriter, File aIndexDir)
+        {
+            indexWriter = aIndexWriter;
+            indexDir = aIndexDir;
+            timestamp = DateTools.dateToString(new Date(), DateTools.Resolution.MILLISECOND);
+        }
+
+        @Override
+        public void indexDocument(SourceDocument aSourceDocument, byte[] aBinaryCas)
+            throws IOException
+        {
+            // The index is built from scratch, so there is nothing to de-index first
+            indexWriter.addDocument(createDocument(aSourceDocument.getName(),
+                    aSourceDocument.getId(), -1, "", timestamp, aBinaryCas));
+        }
+
+        @Override
+        public void indexDocument(AnnotationDocument aDocument, byte[] aBinaryCas)
+            throws IOException
+        {
+            indexWriter.addDocument(createDocument(aDocument.getName(),
+                    aDocument.getDocument().getId(), aDocument.getId(), aDocument.getUser(),
+                    timestamp, aBinaryCas));
+        }
+
+        @Override
+        public synchronized void commit() throws IOException
+        {
+            indexWriter.commit();
+            indexWriter.close();
+            committed = true;
+
+            replaceIndex(indexDir);
+        }
+
+        @Override
+        public synchronized void close() throws IOException
+        {
+            if (committed) {
+                return;
+            }
+
+            // Discard the new index
+            indexWriter.rollback();
+            deleteDirectory(indexDir);
+        }
+    }
+
     @FunctionalInterface
     private interface QueryRunner<T>
     {
@@ -1356,6 +1785,106 @@ public class MtasDocumentIndex
             throws Exception;
     }
 
+    @FunctionalInterface
+    private interface LeafFunction<T>
+    {
+        T apply(LeafReaderContext aLeaf) throws IOException;
+    }
+
+    /**
+     * A match of a query in a segment of the index.
+     */
+    private static class QueryHit
+    {
+        private final int leaf;
+        private final int doc;
+        private final int position;
+        private final int start;
+        private final int end;
+
+        public QueryHit(int aLeaf, int aDoc, int aPosition, int aStart, int aEnd)
+        {
+            leaf = aLeaf;
+            doc = aDoc;
+            position = aPosition;
+            start = aStart;
+            end = aEnd;
+        }
+    }
+
+    /**
+     * The position in the index from which on to collect query results. Collecting starts in the
+     * given segment at the given document (or the first document of the segment if the document
+     * is {@code -1}) after skipping the given number of matches.
+     */
+    private static class QueryCursor
+    {
+        private final int leaf;
+        private final int doc;
+        private final long skip;
+
+        public QueryCursor(int aLeaf, int aDoc, long aSkip)
+        {
+            leaf = aLeaf;
+            doc = aDoc;
+            skip = aSkip;
+        }
+    }
+
+    /**
+     * Identifies the result page of a query. A cursor is only valid for the same version of the
+     * index and the same document filter.
+     */
+    private static class QueryCursorKey
+    {
+        private final long indexVersion;
+        private final String query;
+        private final Query filter;
+        private final long offset;
+
+        private QueryCursorKey(long aIndexVersion, String aQuery, Query aFilter, long aOffset)
+        {
+            indexVersion = aIndexVersion;
+            query = aQuery;
+            filter = aFilter;
+            offset = aOffset;
+        }
+
+        public static QueryCursorKey of(IndexSearcher aSearcher, String aQuery, Query aFilter,
+                long aOffset)
+        {
+            if (!(aSearcher.getIndexReader() instanceof DirectoryReader)) {
+                return null;
+            }
+
+            long version = ((DirectoryReader) aSearcher.getIndexReader()).getVersion();
+            return new QueryCursorKey(version, aQuery, aFilter, aOffset);
+        }
+
+        public QueryCursorKey next(long aOffset)
+        {
+            return new QueryCursorKey(indexVersion, query, filter, aOffset);
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (!(aOther instanceof QueryCursorKey)) {
+                return false;
+            }
+            QueryCursorKey castOther = (QueryCursorKey) aOther;
+            return indexVersion == castOther.indexVersion && offset == castOther.offset
+                    && Objects.equals(query, castOther.query)
+                    && Objects.equals(filter, castOther.filter);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(indexVersion, query, filter, offset);
+        }
+    }
+
     @Override
     public void indexDocument(AnnotationDocument aDocument, byte[] aBinaryCas) throws IOException
     {
@@ -21,6 +21,11 @@
  */
 package de.tudarmstadt.ukp.inception.search.index.mtas;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
@@ -29,9 +34,11 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRe
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
+import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexFactoryImplBase;
 import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.index.mtas.metrics.MtasDocumentIndexMetrics;
 
 /**
  * Support for MTAS-based internal search.
@@ -42,24 +49,44 @@ import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAu
  */
 public class MtasDocumentIndexFactory
     extends PhysicalIndexFactoryImplBase
+    implements DisposableBean
 {
     private final AnnotationSchemaService schemaService;
     private final DocumentService documentService;
     private final RepositoryProperties repositoryProperties;
     private final FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
     private final FeatureSupportRegistry featureSupportRegistry;
+    private final SearchServiceProperties searchServiceProperties;
+    private final MtasDocumentIndexMetrics metrics;
+    private final ExecutorService searchExecutor;
 
     @Autowired
     public MtasDocumentIndexFactory(AnnotationSchemaService aSchemaService,
             DocumentService aDocumentService, RepositoryProperties aRepositoryProperties,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry,
+            SearchServiceProperties aSearchServiceProperties, MtasDocumentIndexMetrics aMetrics)
     {
         schemaService = aSchemaService;
         documentService = aDocumentService;
         repositoryProperties = aRepositoryProperties;
         featureIndexingSupportRegistry = aFeatureIndexingSupportRegistry;
         featureSupportRegistry = aFeatureSupportRegistry;
+        searchServiceProperties = aSearchServiceProperties;
+        metrics = aMetrics;
+
+        searchExecutor = Executors.newFixedThreadPool(
+                Math.max(1, aSearchServiceProperties.getSearchThreads()),
+                new BasicThreadFactory.Builder() //
+                        .daemon(true) //
+                        .namingPattern("mtas-search-%d") //
+                        .build());
+    }
+
+    @Override
+    public void destroy()
+    {
+        searchExecutor.shutdownNow();
     }
 
     @Override
@@ -73,6 +100,6 @@ public class MtasDocumentIndexFactory
     {
         return new MtasDocumentIndex(aProject, documentService, schemaService,
                 repositoryProperties.getPath().getAbsolutePath(), featureIndexingSupportRegistry,
-                featureSupportRegistry);
+                featureSupportRegistry, searchServiceProperties, metrics, searchExecutor);
     }
 }
@@ -199,7 +199,16 @@ public class MtasUimaParser
     {
         CAS cas = createCas();
 
-        try (InputStream in = new ByteArrayInputStream(charsToBytes(toCharArray(aReader)))) {
+        byte[] binaryCas;
+        if (aReader instanceof BinaryCasReader) {
+            // Fast path - the index handed us the CAS bytes directly
+            binaryCas = ((BinaryCasReader) aReader).getBytes();
+        }
+        else {
+            binaryCas = charsToBytes(toCharArray(aReader));
+        }
+
+        try (InputStream in = new ByteArrayInputStream(binaryCas)) {
             CasIOUtils.load(in, getRealCas(cas));
         }
 
@@ -27,8 +27,11 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRe
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
 import de.tudarmstadt.ukp.inception.search.index.mtas.MtasDocumentIndexFactory;
+import de.tudarmstadt.ukp.inception.search.index.mtas.metrics.MtasDocumentIndexMetrics;
+import de.tudarmstadt.ukp.inception.search.index.mtas.metrics.MtasDocumentIndexMetricsImpl;
 
 @AutoConfigureAfter(SearchServiceAutoConfiguration.class)
 @ConditionalOnBean(PhysicalIndexRegistry.class)
@@ -38,9 +41,17 @@ public class MtasDocumentIndexAutoConfiguration
     public MtasDocumentIndexFactory mtasDocumentIndexFactory(AnnotationSchemaService aSchemaService,
             DocumentService aDocumentService, RepositoryProperties aRepositoryProperties,
             FeatureIndexingSupportRegistry aFeatureIndexingSupportRegistry,
-            FeatureSupportRegistry aFeatureSupportRegistry)
+            FeatureSupportRegistry aFeatureSupportRegistry,
+            SearchServiceProperties aSearchServiceProperties, MtasDocumentIndexMetrics aMetrics)
     {
         return new MtasDocumentIndexFactory(aSchemaService, aDocumentService, aRepositoryProperties,
-                aFeatureIndexingSupportRegistry, aFeatureSupportRegistry);
+                aFeatureIndexingSupportRegistry, aFeatureSupportRegistry, aSearchServiceProperties,
+                aMetrics);
+    }
+
+    @Bean
+    public MtasDocumentIndexMetricsImpl mtasDocumentIndexMetrics()
+    {
+        return new MtasDocumentIndexMetricsImpl();
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas.metrics;
+
+public interface MtasDocumentIndexMetrics
+{
+    /**
+     * Records that the searchers of an index have been refreshed to include recent changes.
+     * 
+     * @param aTime
+     *            the time in milliseconds the refresh took.
+     */
+    void refreshComplete(long aTime);
+
+    /**
+     * Records that the changes to an index have been durably committed.
+     * 
+     * @param aTime
+     *            the time in milliseconds the commit took.
+     */
+    void commitComplete(long aTime);
+
+    /**
+     * Records that a query or a query result count has been executed against an index.
+     * 
+     * @param aTime
+     *            the time in milliseconds the query took.
+     */
+    void queryComplete(long aTime);
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas.metrics;
+
+import static org.springframework.jmx.support.MetricType.COUNTER;
+import static org.springframework.jmx.support.MetricType.GAUGE;
+
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAutoConfiguration;
+
+/**
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link MtasDocumentIndexAutoConfiguration#mtasDocumentIndexMetrics}.
+ * </p>
+ */
+@ManagedResource
+public class MtasDocumentIndexMetricsImpl
+    implements MtasDocumentIndexMetrics
+{
+    private long refreshCount = 0;
+    private long refreshTime = 0;
+    private long maxRefreshTime = 0;
+    private long lastRefreshTime = 0;
+
+    private long commitCount = 0;
+    private long commitTime = 0;
+    private long maxCommitTime = 0;
+    private long lastCommitTime = 0;
+
+    private long queryCount = 0;
+    private long queryTime = 0;
+    private long maxQueryTime = 0;
+    private long lastQueryTime = 0;
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getRefreshCount()
+    {
+        return refreshCount;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getRefreshTime()
+    {
+        return refreshTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getMaxRefreshTime()
+    {
+        return maxRefreshTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getLastRefreshTime()
+    {
+        return lastRefreshTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getCommitCount()
+    {
+        return commitCount;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getCommitTime()
+    {
+        return commitTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getMaxCommitTime()
+    {
+        return maxCommitTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getLastCommitTime()
+    {
+        return lastCommitTime;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public synchronized long getQueryCount()
+    {
+        return queryCount;
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public synchronized long getQueryTime()
+    {
+        return queryTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getMaxQueryTime()
+    {
+        return maxQueryTime;
+    }
+
+    @ManagedMetric(metricType = GAUGE, unit = "ms")
+    public synchronized long getLastQueryTime()
+    {
+        return lastQueryTime;
+    }
+
+    @ManagedOperation
+    public synchronized void reset()
+    {
+        refreshCount = 0;
+        refreshTime = 0;
+        maxRefreshTime = 0;
+        lastRefreshTime = 0;
+        commitCount = 0;
+        commitTime = 0;
+        maxCommitTime = 0;
+        lastCommitTime = 0;
+        queryCount = 0;
+        queryTime = 0;
+        maxQueryTime = 0;
+        lastQueryTime = 0;
+    }
+
+    @Override
+    public synchronized void refreshComplete(long aTime)
+    {
+        refreshCount++;
+        refreshTime += aTime;
+        maxRefreshTime = Math.max(maxRefreshTime, aTime);
+        lastRefreshTime = aTime;
+    }
+
+    @Override
+    public synchronized void commitComplete(long aTime)
+    {
+        commitCount++;
+        commitTime += aTime;
+        maxCommitTime = Math.max(maxCommitTime, aTime);
+        lastCommitTime = aTime;
+    }
+
+    @Override
+    public synchronized void queryComplete(long aTime)
+    {
+        queryCount++;
+        queryTime += aTime;
+        maxQueryTime = Math.max(maxQueryTime, aTime);
+        lastQueryTime = aTime;
+    }
+}
@@ -17,9 +17,13 @@
  */
 package de.tudarmstadt.ukp.inception.search.index.mtas;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.ProjectService.PROJECT_FOLDER;
+import static de.tudarmstadt.ukp.inception.search.SearchCasUtils.casToByteArray;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -27,14 +31,20 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.uima.fit.factory.JCasBuilder;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.jcas.JCas;
@@ -58,8 +68,10 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.FileSystemUtils;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.clarin.webanno.api.config.RepositoryAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.annotationservice.config.AnnotationSchemaServiceAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.casstorage.CasStorageSession;
@@ -85,12 +97,17 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.inception.export.config.DocumentImportExportServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.LayerStatistics;
+import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
 import de.tudarmstadt.ukp.inception.search.SearchResult;
 import de.tudarmstadt.ukp.inception.search.SearchService;
 import de.tudarmstadt.ukp.inception.search.StatisticsResult;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.config.SearchServicePropertiesImpl;
 import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.index.mtas.metrics.MtasDocumentIndexMetricsImpl;
+import de.tudarmstadt.ukp.inception.search.model.Monitor;
 
 @EnableAutoConfiguration
 @EntityScan({ //
@@ -131,6 +148,9 @@ public class MtasDocumentIndexTest
     private @Autowired ProjectService projectService;
     private @Autowired DocumentService documentService;
     private @Autowired SearchService searchService;
+    private @Autowired AnnotationSchemaService schemaService;
+    private @Autowired FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
+    private @Autowired FeatureSupportRegistry featureSupportRegistry;
 
     @BeforeAll
     public static void setupClass()
@@ -307,6 +327,41 @@ public class MtasDocumentIndexTest
         log.info("Indexing complete!");
     }
 
+    @Test
+    public void testQueryAfterReindex() throws Exception
+    {
+        Project project = new Project();
+        project.setName("TestQueryAfterReindex");
+
+        createProject(project);
+
+        SourceDocument sourceDocument = new SourceDocument();
+
+        sourceDocument.setName("Raw text document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+
+        String fileContent = "The capital of Galicia is Santiago de Compostela.";
+
+        uploadDocument(Pair.of(sourceDocument, fileContent));
+
+        User user = userRepository.get("admin");
+
+        Monitor monitor = new Monitor();
+        searchService.reindex(project, monitor);
+
+        assertThat(searchService.isIndexValid(project)).isTrue();
+        assertThat(monitor.toProgress().getTotal()).isPositive();
+        assertThat(monitor.toProgress().getDone()).isEqualTo(monitor.toProgress().getTotal());
+
+        // Execute query against the rebuilt index
+        List<SearchResult> results = searchService.query(user, project, "Galicia");
+
+        assertThat(results).extracting(SearchResult::getDocumentId)
+                .containsExactly(sourceDocument.getId());
+        assertThat(results).extracting(SearchResult::getText).containsExactly("Galicia");
+    }
+
     @Test
     public void testRawTextQuery() throws Exception
     {
@@ -387,6 +442,53 @@ public class MtasDocumentIndexTest
         assertThat(results).usingFieldByFieldElementComparator().containsExactly(expectedResult);
     }
 
+    @Test
+    public void thatResultsCanBePaged() throws Exception
+    {
+        Project project = new Project();
+        project.setName("ResultsCanBePaged");
+
+        createProject(project);
+
+        SourceDocument sourceDocument = new SourceDocument();
+
+        sourceDocument.setName("Raw text document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+
+        String fileContent = "Hello world. Hello moon. Hello sun. Hello stars.";
+
+        uploadDocument(Pair.of(sourceDocument, fileContent));
+
+        User user = userRepository.get("admin");
+
+        String query = "Hello";
+
+        assertThat(searchService.determineNumOfQueryResults(user, project, query, null, null,
+                null)).isEqualTo(4);
+
+        // Consecutive pages continue where the previous page ended
+        assertThat(queryPage(user, project, query, 0, 2)).containsExactly(0, 13);
+        assertThat(queryPage(user, project, query, 2, 2)).containsExactly(25, 36);
+        assertThat(queryPage(user, project, query, 4, 2)).isEmpty();
+
+        // Pages can also be requested out of order
+        assertThat(queryPage(user, project, query, 1, 2)).containsExactly(13, 25);
+        assertThat(queryPage(user, project, query, 3, 2)).containsExactly(36);
+    }
+
+    private List<Integer> queryPage(User aUser, Project aProject, String aQuery, long aOffset,
+            long aCount)
+        throws Exception
+    {
+        return searchService
+                .query(aUser, aProject, aQuery, null, null, null, aOffset, aCount).values()
+                .stream() //
+                .flatMap(List::stream) //
+                .map(SearchResult::getOffsetStart) //
+                .collect(toList());
+    }
+
     @Test
     public void testLimitQueryToDocument() throws Exception
     {
@@ -533,6 +635,155 @@ public class MtasDocumentIndexTest
         assertThat(results).usingFieldByFieldElementComparator().containsExactly(expectedResult);
     }
 
+    @Test
+    public void thatCachedResultsAreDroppedWhenDocumentIsReindexed() throws Exception
+    {
+        Project project = new Project();
+        project.setName("TestCachedResults");
+
+        createProject(project);
+
+        User user = userRepository.get("admin");
+
+        SourceDocument sourceDocument = new SourceDocument();
+
+        sourceDocument.setName("Cached document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+
+        String fileContent = "The capital of Galicia is Santiago de Compostela.";
+
+        uploadDocument(Pair.of(sourceDocument, fileContent));
+
+        String tokenQuery = "Galicia";
+        String entityQuery = "<Named_entity.value=\"LOC\"/>";
+
+        List<SearchResult> tokenResults = searchService.query(user, project, tokenQuery);
+        assertThat(tokenResults).hasSize(1);
+        assertThat(searchService.query(user, project, entityQuery)).isEmpty();
+        assertThat(searchService.determineNumOfQueryResults(user, project, entityQuery, null, null,
+                null)).isEqualTo(0);
+
+        // Modifying the returned results must not affect the results of later queries
+        tokenResults.get(0).setSelectedForAnnotation(false);
+        assertThat(searchService.query(user, project, " " + tokenQuery + " ")) //
+                .extracting(SearchResult::isSelectedForAnnotation) //
+                .containsExactly(true);
+
+        annotateDocument(project, user, sourceDocument);
+
+        assertThat(searchService.query(user, project, entityQuery)) //
+                .extracting(SearchResult::getOffsetStart, SearchResult::getOffsetEnd) //
+                .containsExactly(tuple(15, 22));
+        assertThat(searchService.determineNumOfQueryResults(user, project, entityQuery, null, null,
+                null)).isEqualTo(1);
+    }
+
+    @Test
+    public void thatChangesAreVisibleBeforeTheyAreCommitted() throws Exception
+    {
+        Project project = new Project();
+        project.setName("TestNearRealTime");
+
+        createProject(project);
+
+        User user = userRepository.get("admin");
+
+        SourceDocument sourceDocument = new SourceDocument();
+        sourceDocument.setName("Near real-time document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+
+        uploadDocument(Pair.of(sourceDocument, "The capital of Galicia is Santiago."));
+
+        File repositoryDir = new File(TEST_OUTPUT_FOLDER, "detached-near-real-time");
+        ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+        MtasDocumentIndex index = createDetachedIndex(project, repositoryDir, searchExecutor);
+        try {
+            index.indexDocument(sourceDocument, readInitialCas(sourceDocument));
+
+            assertThat(index.numberOfQueryResults(new SearchQueryRequest(project, user, "Galicia",
+                    null, null, null, 0, 0))) //
+                            .as("Change should be visible to searches") //
+                            .isEqualTo(1);
+            assertThat(countCommittedDocuments(project, repositoryDir)) //
+                    .as("Change should not have been committed yet") //
+                    .isEqualTo(0);
+        }
+        finally {
+            index.close();
+            searchExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void thatPendingChangesAreCommittedOnClose() throws Exception
+    {
+        Project project = new Project();
+        project.setName("TestCommitOnClose");
+
+        createProject(project);
+
+        SourceDocument sourceDocument = new SourceDocument();
+        sourceDocument.setName("Commit on close document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+
+        uploadDocument(Pair.of(sourceDocument, "The capital of Galicia is Santiago."));
+
+        File repositoryDir = new File(TEST_OUTPUT_FOLDER, "detached-commit-on-close");
+        ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+        try {
+            MtasDocumentIndex index = createDetachedIndex(project, repositoryDir, searchExecutor);
+            index.indexDocument(sourceDocument, readInitialCas(sourceDocument));
+
+            // The scheduled commit is an hour away - closing must not wait for it
+            long start = System.currentTimeMillis();
+            index.close();
+            assertThat(System.currentTimeMillis() - start).isLessThan(10_000);
+
+            assertThat(countCommittedDocuments(project, repositoryDir)) //
+                    .as("Pending change should have been committed on close") //
+                    .isEqualTo(1);
+        }
+        finally {
+            searchExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates an index which is not managed by the search service. Commits are only scheduled
+     * after a long delay, so only an explicit commit makes changes durable during the test.
+     */
+    private MtasDocumentIndex createDetachedIndex(Project aProject, File aRepositoryDir,
+            ExecutorService aSearchExecutor)
+    {
+        SearchServicePropertiesImpl properties = new SearchServicePropertiesImpl();
+        properties.setIndexCommitInterval(Duration.ofHours(1));
+
+        return new MtasDocumentIndex(aProject, documentService, schemaService,
+                aRepositoryDir.getAbsolutePath(), featureIndexingSupportRegistry,
+                featureSupportRegistry, properties, new MtasDocumentIndexMetricsImpl(),
+                aSearchExecutor);
+    }
+
+    private byte[] readInitialCas(SourceDocument aSourceDocument) throws Exception
+    {
+        try (CasStorageSession session = CasStorageSession.open()) {
+            return casToByteArray(documentService.createOrReadInitialCas(aSourceDocument));
+        }
+    }
+
+    private int countCommittedDocuments(Project aProject, File aRepositoryDir) throws Exception
+    {
+        File indexDir = new File(aRepositoryDir,
+                PROJECT_FOLDER + "/" + aProject.getId() + "/" + MtasDocumentIndex.INDEX);
+        try (Directory directory = FSDirectory.open(indexDir.toPath());
+                DirectoryReader reader = DirectoryReader.open(directory)) {
+            return reader.numDocs();
+        }
+    }
+
     @Test
     public void testStatistics() throws Exception
     {
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.mockito.Mockito.mock;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.testing.factory.TokenBuilder;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.BooleanFeatureSupport;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRegistryImpl;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.NumberFeatureSupport;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.StringFeatureSupport;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistryImpl;
+import de.tudarmstadt.ukp.inception.search.PrimitiveUimaIndexingSupport;
+import de.tudarmstadt.ukp.inception.search.SearchCasUtils;
+
+/**
+ * Measures how many documents per second the {@link MtasUimaParser} turns into token collections
+ * when the CAS is handed over as a char-encoded string (as {@link MtasDocumentIndex} used to do)
+ * compared to passing the CAS bytes through a {@link BinaryCasReader}. This is not a unit test -
+ * run it via the {@link #main} method from the IDE or with the JMH runner on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MtasIndexingBenchmark
+{
+    @Param({ "1000", "100000" })
+    public int tokens;
+
+    private MtasUimaParser parser;
+    private byte[] binaryCas;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        FeatureSupportRegistryImpl featureSupportRegistry = new FeatureSupportRegistryImpl(
+                asList(new StringFeatureSupport(), new BooleanFeatureSupport(),
+                        new NumberFeatureSupport()));
+        featureSupportRegistry.init();
+
+        FeatureIndexingSupportRegistryImpl featureIndexingSupportRegistry = //
+                new FeatureIndexingSupportRegistryImpl(
+                        asList(new PrimitiveUimaIndexingSupport(featureSupportRegistry)));
+        featureIndexingSupportRegistry.init();
+
+        parser = new MtasUimaParser(emptyList(), mock(AnnotationSchemaService.class),
+                featureIndexingSupportRegistry);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            text.append("token").append(i % 100);
+            text.append(i % 10 == 9 ? " . \n " : " ");
+        }
+
+        JCas jcas = JCasFactory.createJCas();
+        TokenBuilder.create(Token.class, Sentence.class).buildTokens(jcas, text.toString());
+        binaryCas = SearchCasUtils.casToByteArray(jcas.getCas());
+    }
+
+    @Benchmark
+    public Object viaString() throws Exception
+    {
+        String encodedCas = new String(MtasUtils.bytesToChars(binaryCas));
+        return parser.createTokenCollection(new StringReader(encodedCas));
+    }
+
+    @Benchmark
+    public Object viaBinaryCasReader() throws Exception
+    {
+        return parser.createTokenCollection(new BinaryCasReader(binaryCas));
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(MtasIndexingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
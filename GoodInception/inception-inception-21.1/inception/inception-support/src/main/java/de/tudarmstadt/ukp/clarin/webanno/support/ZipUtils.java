@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.support;
 
+import static java.util.Locale.ROOT;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
 import java.io.File;
@@ -25,6 +26,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -40,6 +44,10 @@ public class ZipUtils
     // http://notepad2.blogspot.de/2012/07/java-detect-if-stream-or-file-is-zip.html
     private static byte[] MAGIC = { 'P', 'K', 0x3, 0x4 };
 
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("zip", "gz", "bz2", "xz",
+            "7z", "jar", "docx", "xlsx", "pptx", "odt", "ods", "epub", "pdf", "png", "jpg", "jpeg",
+            "gif", "mp3", "mp4", "ogg");
+
     /**
      * check if the {@link InputStream} provided is a zip file
      * 
@@ -86,10 +94,7 @@ public class ZipUtils
         ZipOutputStream zip = null;
         try {
             zip = new ZipOutputStream(new FileOutputStream(destZipFile));
-
-            for (File file : srcFolder.getAbsoluteFile().listFiles()) {
-                addToZip(zip, srcFolder.getAbsoluteFile(), file);
-            }
+            zipFolder(srcFolder, zip);
             zip.flush();
         }
         finally {
@@ -97,6 +102,24 @@ public class ZipUtils
         }
     }
 
+    /**
+     * Adds the contents of the given folder to a ZIP stream. The entry names are relative to the
+     * folder.
+     * 
+     * @param aSrcFolder
+     *            source folder.
+     * @param aZip
+     *            target ZIP stream.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public static void zipFolder(File aSrcFolder, ZipOutputStream aZip) throws IOException
+    {
+        for (File file : aSrcFolder.getAbsoluteFile().listFiles()) {
+            addToZip(aZip, aSrcFolder.getAbsoluteFile(), file);
+        }
+    }
+
     private static void addToZip(ZipOutputStream zip, File aBasePath, File aPath) throws IOException
     {
         if (aPath.isDirectory()) {
@@ -105,17 +128,80 @@ public class ZipUtils
             }
         }
         else {
-            FileInputStream in = null;
-            try {
-                in = new FileInputStream(aPath);
-                String relativePath = aBasePath.toURI().relativize(aPath.toURI()).getPath();
-                zip.putNextEntry(new ZipEntry(relativePath));
-                IOUtils.copy(in, zip);
-            }
-            finally {
-                closeQuietly(in);
+            String relativePath = aBasePath.toURI().relativize(aPath.toURI()).getPath();
+            addFileToZip(zip, aPath, relativePath);
+        }
+    }
+
+    /**
+     * Adds a file to a ZIP stream. Files which are already compressed (judging by their extension)
+     * are stored as they are instead of being compressed again.
+     * 
+     * @param aZip
+     *            target ZIP stream.
+     * @param aFile
+     *            the file to add.
+     * @param aEntryName
+     *            the name of the entry in the ZIP stream.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public static void addFileToZip(ZipOutputStream aZip, File aFile, String aEntryName)
+        throws IOException
+    {
+        addFileToZip(aZip, aFile, new ZipEntry(aEntryName));
+    }
+
+    /**
+     * Adds a file to a ZIP stream using the given entry, e.g. to control the modification time of
+     * the entry. Files which are already compressed (judging by their extension) are stored as they
+     * are instead of being compressed again.
+     * 
+     * @param aZip
+     *            target ZIP stream.
+     * @param aFile
+     *            the file to add.
+     * @param aEntry
+     *            the entry in the ZIP stream.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public static void addFileToZip(ZipOutputStream aZip, File aFile, ZipEntry aEntry)
+        throws IOException
+    {
+        if (isCompressed(aFile.getName())) {
+            // Stored entries require the size and checksum to be known up-front
+            CRC32 crc = new CRC32();
+            try (InputStream in = new CheckedInputStream(new FileInputStream(aFile), crc)) {
+                IOUtils.consume(in);
             }
+            aEntry.setMethod(ZipEntry.STORED);
+            aEntry.setSize(aFile.length());
+            aEntry.setCompressedSize(aFile.length());
+            aEntry.setCrc(crc.getValue());
+        }
+
+        aZip.putNextEntry(aEntry);
+        try (InputStream in = new FileInputStream(aFile)) {
+            IOUtils.copy(in, aZip);
+        }
+        aZip.closeEntry();
+    }
+
+    /**
+     * @param aFilename
+     *            a file name.
+     * @return whether the file name indicates a format which is already compressed such that
+     *         compressing it again is not worth the effort.
+     */
+    public static boolean isCompressed(String aFilename)
+    {
+        int dot = aFilename.lastIndexOf('.');
+        if (dot < 0) {
+            return false;
         }
+
+        return COMPRESSED_EXTENSIONS.contains(aFilename.substring(dot + 1).toLowerCase(ROOT));
     }
 
     public static String normalizeEntryName(ZipEntry aEntry)
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.support.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing counter. Incrementing the counter is thread-safe and does not
+ * allocate.
+ */
+public final class Counter
+{
+    private final LongAdder value = new LongAdder();
+
+    Counter()
+    {
+        // Obtain instances via MetricsRegistry
+    }
+
+    public void increment()
+    {
+        value.increment();
+    }
+
+    public void add(long aAmount)
+    {
+        value.add(aAmount);
+    }
+
+    public long get()
+    {
+        return value.sum();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.support.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Access to the global {@link MetricsRegistry}. Components record their metrics here, e.g.:
+ * 
+ * <pre>
+ * <code>
+ * private static final Timer CAS_READ = Metrics.timer("inception_cas_read",
+ *         "Time spent reading CASes from disk");
+ * </code>
+ * </pre>
+ */
+public final class Metrics
+{
+    private static final MetricsRegistry GLOBAL_REGISTRY = new MetricsRegistry();
+
+    private Metrics()
+    {
+        // No instances
+    }
+
+    public static MetricsRegistry globalRegistry()
+    {
+        return GLOBAL_REGISTRY;
+    }
+
+    public static Counter counter(String aName, String aHelp, String... aLabels)
+    {
+        return GLOBAL_REGISTRY.counter(aName, aHelp, aLabels);
+    }
+
+    public static Timer timer(String aName, String aHelp, String... aLabels)
+    {
+        return GLOBAL_REGISTRY.timer(aName, aHelp, aLabels);
+    }
+
+    public static void gauge(String aName, String aHelp, DoubleSupplier aValue,
+            String... aLabels)
+    {
+        GLOBAL_REGISTRY.gauge(aName, aHelp, aValue, aLabels);
+    }
+}
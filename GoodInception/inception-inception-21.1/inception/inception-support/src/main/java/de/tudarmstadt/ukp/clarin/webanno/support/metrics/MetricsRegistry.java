@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.support.metrics;
+
+import static java.util.Locale.ROOT;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of counters, timers and gauges. Metrics are identified by their name and optionally a
+ * set of labels. Registering a metric which already exists returns the existing metric, so
+ * components can simply look up their metrics once (e.g. in a static field) and then use them
+ * without further synchronization.
+ * <p>
+ * The registry can write its metrics in the Prometheus text exposition format. Timers are exposed
+ * as summaries in seconds including the 50th, 95th and 99th percentile since startup.
+ * </p>
+ */
+public class MetricsRegistry
+{
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param aName
+     *            the metric name, e.g. {@code inception_cas_write_total}.
+     * @param aHelp
+     *            a short description of the metric.
+     * @param aLabels
+     *            label names and values in alternating order.
+     * @return the counter.
+     */
+    public Counter counter(String aName, String aHelp, String... aLabels)
+    {
+        return (Counter) family(aName, aHelp, Type.COUNTER).metrics
+                .computeIfAbsent(labels(aLabels), key -> new Counter());
+    }
+
+    /**
+     * @param aName
+     *            the metric name without unit suffix, e.g. {@code inception_cas_read}. The suffix
+     *            {@code _seconds} is added automatically.
+     * @param aHelp
+     *            a short description of the metric.
+     * @param aLabels
+     *            label names and values in alternating order.
+     * @return the timer.
+     */
+    public Timer timer(String aName, String aHelp, String... aLabels)
+    {
+        return (Timer) family(aName + "_seconds", aHelp, Type.SUMMARY).metrics
+                .computeIfAbsent(labels(aLabels), key -> new Timer());
+    }
+
+    /**
+     * Registers a gauge. If a gauge with the same name and labels already exists, its value
+     * supplier is replaced.
+     * 
+     * @param aName
+     *            the metric name.
+     * @param aHelp
+     *            a short description of the metric.
+     * @param aValue
+     *            supplier of the current value - called when the metrics are collected.
+     * @param aLabels
+     *            label names and values in alternating order.
+     */
+    public void gauge(String aName, String aHelp, DoubleSupplier aValue, String... aLabels)
+    {
+        family(aName, aHelp, Type.GAUGE).metrics.put(labels(aLabels), aValue);
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format (version 0.0.4).
+     * 
+     * @param aWriter
+     *            the target writer.
+     * @throws IOException
+     *             if the metrics cannot be written.
+     */
+    public void writePrometheus(Writer aWriter) throws IOException
+    {
+        for (Family family : families.values()) {
+            aWriter.append("# HELP ").append(family.name).append(' ')
+                    .append(escapeHelp(family.help)).append('\n');
+            aWriter.append("# TYPE ").append(family.name).append(' ')
+                    .append(family.type.name().toLowerCase(ROOT)).append('\n');
+
+            for (Map.Entry<String, Object> e : family.metrics.entrySet()) {
+                String labels = e.getKey();
+                Object metric = e.getValue();
+                switch (family.type) {
+                case COUNTER:
+                    sample(aWriter, family.name, labels, ((Counter) metric).get());
+                    break;
+                case GAUGE:
+                    sample(aWriter, family.name, labels, ((DoubleSupplier) metric).getAsDouble());
+                    break;
+                case SUMMARY: {
+                    Timer timer = (Timer) metric;
+                    for (double q : QUANTILES) {
+                        String quantileLabel = "quantile=\"" + q + "\"";
+                        sample(aWriter, family.name,
+                                labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                                timer.getPercentileNanos(q) / NANOS_PER_SECOND);
+                    }
+                    sample(aWriter, family.name + "_sum", labels,
+                            timer.getTotalTimeNanos() / NANOS_PER_SECOND);
+                    sample(aWriter, family.name + "_count", labels, timer.getCount());
+                    break;
+                }
+                }
+            }
+
+            // Summaries do not have a maximum, so we expose it as a separate gauge
+            if (family.type == Type.SUMMARY) {
+                String maxName = family.name + "_max";
+                aWriter.append("# TYPE ").append(maxName).append(" gauge\n");
+                for (Map.Entry<String, Object> e : family.metrics.entrySet()) {
+                    sample(aWriter, maxName, e.getKey(),
+                            ((Timer) e.getValue()).getMaxNanos() / NANOS_PER_SECOND);
+                }
+            }
+        }
+    }
+
+    private Family family(String aName, String aHelp, Type aType)
+    {
+        if (!NAME_PATTERN.matcher(aName).matches()) {
+            throw new IllegalArgumentException("Invalid metric name [" + aName + "]");
+        }
+
+        Family family = families.computeIfAbsent(aName, key -> new Family(key, aHelp, aType));
+
+        if (family.type != aType) {
+            throw new IllegalArgumentException("Metric [" + aName + "] is already registered as "
+                    + family.type + " and cannot be registered as " + aType);
+        }
+
+        return family;
+    }
+
+    private static String labels(String... aLabels)
+    {
+        if (aLabels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name/value pairs");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < aLabels.length; i += 2) {
+            if (!NAME_PATTERN.matcher(aLabels[i]).matches()) {
+                throw new IllegalArgumentException("Invalid label name [" + aLabels[i] + "]");
+            }
+
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(aLabels[i]).append("=\"").append(escapeLabelValue(aLabels[i + 1]))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+
+    private static void sample(Writer aWriter, String aName, String aLabels, double aValue)
+        throws IOException
+    {
+        aWriter.append(aName);
+        if (!aLabels.isEmpty()) {
+            aWriter.append('{').append(aLabels).append('}');
+        }
+        aWriter.append(' ');
+        if (aValue == Math.rint(aValue) && !Double.isInfinite(aValue)) {
+            aWriter.append(Long.toString((long) aValue));
+        }
+        else {
+            aWriter.append(Double.toString(aValue));
+        }
+        aWriter.append('\n');
+    }
+
+    private static String escapeHelp(String aHelp)
+    {
+        return aHelp.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabelValue(String aValue)
+    {
+        return aValue.replace("\\", "\\\\").replace("\n", "\\n").replace("\"", "\\\"");
+    }
+
+    private static enum Type
+    {
+        COUNTER, GAUGE, SUMMARY;
+    }
+
+    private static class Family
+    {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+
+        Family(String aName, String aHelp, Type aType)
+        {
+            name = aName;
+            help = aHelp;
+            type = aType;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.support.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations into a histogram with logarithmic buckets from which percentiles can be
+ * obtained. Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so the
+ * relative error of a percentile is at most ~6%. Recording a duration is thread-safe and does not
+ * allocate, so timers can be used on hot paths:
+ * 
+ * <pre>
+ * <code>
+ * long start = System.nanoTime();
+ * ...
+ * TIMER.recordSince(start);
+ * </code>
+ * </pre>
+ */
+public final class Timer
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Timer()
+    {
+        // Obtain instances via MetricsRegistry
+    }
+
+    /**
+     * @param aStartNanos
+     *            start time as obtained from {@link System#nanoTime()}.
+     */
+    public void recordSince(long aStartNanos)
+    {
+        record(System.nanoTime() - aStartNanos);
+    }
+
+    public void record(long aDuration, TimeUnit aUnit)
+    {
+        record(aUnit.toNanos(aDuration));
+    }
+
+    /**
+     * @param aNanos
+     *            duration in nanoseconds.
+     */
+    public void record(long aNanos)
+    {
+        long nanos = Math.max(0, aNanos);
+        buckets.incrementAndGet(bucketIndex(nanos));
+        count.increment();
+        sum.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getTotalTimeNanos()
+    {
+        return sum.sum();
+    }
+
+    public long getMaxNanos()
+    {
+        return max.get();
+    }
+
+    /**
+     * @param aQuantile
+     *            quantile between {@code 0.0} and {@code 1.0}.
+     * @return an upper bound for the given quantile of the recorded durations in nanoseconds or
+     *         {@code 0} if nothing has been recorded yet.
+     */
+    public long getPercentileNanos(double aQuantile)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(aQuantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    static int bucketIndex(long aValue)
+    {
+        if (aValue < SUB_BUCKETS) {
+            return (int) aValue;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(aValue);
+        int subBucket = (int) (aValue >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int aIndex)
+    {
+        if (aIndex < SUB_BUCKETS) {
+            return aIndex;
+        }
+
+        int exponent = aIndex / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = aIndex % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.support;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZipUtilsTest
+{
+    public @TempDir File tempFolder;
+
+    @Test
+    public void thatCompressedFilesAreStored() throws Exception
+    {
+        File text = new File(tempFolder, "document.txt");
+        Files.write(text.toPath(), "Some text".getBytes(UTF_8));
+        File pdf = new File(tempFolder, "document.pdf");
+        Files.write(pdf.toPath(), "Some PDF".getBytes(UTF_8));
+
+        File zipFile = new File(tempFolder, "test.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            ZipUtils.addFileToZip(zip, text, "source/document.txt");
+            ZipUtils.addFileToZip(zip, pdf, "source/document.pdf");
+        }
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            ZipEntry textEntry = zip.getEntry("source/document.txt");
+            ZipEntry pdfEntry = zip.getEntry("source/document.pdf");
+
+            assertThat(textEntry.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(pdfEntry.getMethod()).isEqualTo(ZipEntry.STORED);
+
+            try (InputStream is = zip.getInputStream(pdfEntry)) {
+                assertThat(IOUtils.toString(is, UTF_8)).isEqualTo("Some PDF");
+            }
+            try (InputStream is = zip.getInputStream(textEntry)) {
+                assertThat(IOUtils.toString(is, UTF_8)).isEqualTo("Some text");
+            }
+        }
+    }
+
+    @Test
+    public void thatIsCompressedChecksExtension()
+    {
+        assertThat(ZipUtils.isCompressed("image.PNG")).isTrue();
+        assertThat(ZipUtils.isCompressed("archive.tar.gz")).isTrue();
+        assertThat(ZipUtils.isCompressed("annotations.ser")).isFalse();
+        assertThat(ZipUtils.isCompressed("README")).isFalse();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.support.metrics;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MetricsRegistryTest
+{
+    private MetricsRegistry sut;
+
+    @BeforeEach
+    public void setup()
+    {
+        sut = new MetricsRegistry();
+    }
+
+    @Test
+    public void thatSameMetricIsReturnedForSameNameAndLabels()
+    {
+        assertThat(sut.counter("test_total", "Test")).isSameAs(sut.counter("test_total", "Test"));
+        assertThat(sut.timer("test_time", "Test", "type", "a"))
+                .isSameAs(sut.timer("test_time", "Test", "type", "a"))
+                .isNotSameAs(sut.timer("test_time", "Test", "type", "b"));
+    }
+
+    @Test
+    public void thatMetricTypeCannotChange()
+    {
+        sut.counter("test", "Test");
+
+        assertThatThrownBy(() -> sut.gauge("test", "Test", () -> 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void thatTimerPercentilesAreAccurate()
+    {
+        Timer timer = sut.timer("test", "Test");
+        for (int i = 1; i <= 1000; i++) {
+            timer.record(i, MILLISECONDS);
+        }
+
+        assertThat(timer.getCount()).isEqualTo(1000);
+        assertThat(timer.getMaxNanos()).isEqualTo(MILLISECONDS.toNanos(1000));
+        assertThat((double) timer.getPercentileNanos(0.5))
+                .isCloseTo(MILLISECONDS.toNanos(500), within(MILLISECONDS.toNanos(500) * 0.07));
+        assertThat((double) timer.getPercentileNanos(0.99))
+                .isCloseTo(MILLISECONDS.toNanos(990), within(MILLISECONDS.toNanos(990) * 0.07));
+        assertThat(timer.getPercentileNanos(1.0)).isEqualTo(MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    public void thatBucketBoundsAreConsistent()
+    {
+        for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789,
+                Long.MAX_VALUE }) {
+            int index = Timer.bucketIndex(value);
+            assertThat(Timer.bucketUpperBound(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(Timer.bucketUpperBound(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void thatPrometheusFormatIsWritten() throws Exception
+    {
+        sut.counter("test_events_total", "Events", "type", "a").add(3);
+        sut.gauge("test_queue_size", "Queue size", () -> 5);
+        sut.timer("test_latency", "Latency").record(2, MILLISECONDS);
+
+        StringWriter out = new StringWriter();
+        sut.writePrometheus(out);
+
+        assertThat(out.toString()).contains( //
+                "# TYPE test_events_total counter\n", //
+                "test_events_total{type=\"a\"} 3\n", //
+                "# TYPE test_queue_size gauge\n", //
+                "test_queue_size 5\n", //
+                "# TYPE test_latency_seconds summary\n", //
+                "test_latency_seconds_count 1\n", //
+                "test_latency_seconds_sum 0.002\n", //
+                "test_latency_seconds_max 0.002\n");
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -58,11 +59,17 @@ import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wicketstuff.annotation.mount.MountPath;
+import org.wicketstuff.progressbar.ProgressBar;
+import org.wicketstuff.progressbar.Progression;
+import org.wicketstuff.progressbar.ProgressionModel;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementService;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasureSupportRegistry;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.IncrementalAgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.task.AgreementCalculationTask;
 import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
@@ -98,10 +105,14 @@ public class AgreementPage
     private @SpringBean AnnotationSchemaService annotationService;
     private @SpringBean UserDao userRepository;
     private @SpringBean AgreementMeasureSupportRegistry agreementRegistry;
+    private @SpringBean AgreementService agreementService;
 
     private AgreementForm agreementForm;
     private WebMarkupContainer resultsContainer;
 
+    private Integer calculationTaskId;
+    private String calculationMeasureId;
+
     public AgreementPage(final PageParameters aPageParameters)
     {
         super(aPageParameters);
@@ -134,6 +145,8 @@ public class AgreementPage
 
         private final LambdaAjaxButton<Void> runCalculationsButton;
 
+        private final ProgressBar calculationProgress;
+
         private final WebMarkupContainer traitsContainer;
 
         public AgreementForm(String id, IModel<AgreementFormModel> aModel)
@@ -162,6 +175,19 @@ public class AgreementPage
             runCalculationsButton.triggerAfterSubmit();
             add(runCalculationsButton);
 
+            calculationProgress = new ProgressBar("progress", new CalculationProgressModel())
+            {
+                private static final long serialVersionUID = 3530385419374767416L;
+
+                @Override
+                protected void onFinished(AjaxRequestTarget aTarget)
+                {
+                    actionCalculationComplete(aTarget);
+                }
+            };
+            calculationProgress.setVisible(false);
+            add(calculationProgress);
+
             add(measureDropDown = new DropDownChoice<Pair<String, String>>("measure",
                     this::listMeasures)
             {
@@ -192,7 +218,8 @@ public class AgreementPage
             measureDropDown.add(new LambdaAjaxFormComponentUpdatingBehavior("change",
                     _target -> _target.add(runCalculationsButton, traitsContainer)));
 
-            runCalculationsButton.add(enabledWhen(() -> measureDropDown.getModelObject() != null));
+            runCalculationsButton.add(enabledWhen(
+                    () -> measureDropDown.getModelObject() != null && calculationTaskId == null));
         }
 
         private void actionSelectFeature(AjaxRequestTarget aTarget)
@@ -229,7 +256,19 @@ public class AgreementPage
                     (DefaultAgreementTraits) traitsContainer.get(MID_TRAITS)
                             .getDefaultModelObject());
 
-            Map<String, List<CAS>> casMap = getCasMap();
+            // Measures which support it are calculated in the background one document at a time
+            // instead of loading all CASes of all annotators into memory at once
+            if (measure instanceof IncrementalAgreementMeasure) {
+                calculationMeasureId = ams.getId();
+                calculationTaskId = agreementService.startCalculation(
+                        userRepository.getCurrentUser(), (IncrementalAgreementMeasure) measure);
+                resultsContainer.addOrReplace(new EmptyPanel(MID_RESULTS));
+                calculationProgress.start(aTarget);
+                aTarget.add(this, resultsContainer);
+                return;
+            }
+
+            Map<String, List<CAS>> casMap = loadCasMap();
 
             if (casMap.values().stream().allMatch(list -> list == null || list.isEmpty())) {
                 error("No documents with annotations were found.");
@@ -238,12 +277,44 @@ public class AgreementPage
             else {
                 Serializable result = measure.getAgreement(casMap);
                 resultsContainer.addOrReplace(ams.createResultsPanel(MID_RESULTS, Model.of(result),
-                        AgreementPage.this::getCasMap));
+                        AgreementPage.this::loadCasMap));
                 aTarget.add(resultsContainer);
             }
 
         }
 
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private void actionCalculationComplete(AjaxRequestTarget aTarget)
+        {
+            Optional<AgreementCalculationTask> task = agreementService
+                    .getCalculation(calculationTaskId);
+            AgreementMeasureSupport ams = agreementRegistry
+                    .getAgreementMeasureSupport(calculationMeasureId);
+
+            calculationTaskId = null;
+            calculationMeasureId = null;
+            calculationProgress.setVisible(false);
+            aTarget.add(this);
+
+            if (!task.isPresent()) {
+                error("Agreement calculation is no longer available.");
+                aTarget.addChildren(getPage(), IFeedback.class);
+                return;
+            }
+
+            if (task.get().getErrorMessage() != null) {
+                error(task.get().getErrorMessage());
+                aTarget.addChildren(getPage(), IFeedback.class);
+                return;
+            }
+
+            // The results panel only loads the CASes if the user exports the full agreement data.
+            // Drilling into a cell uses the per-pair results which have already been calculated.
+            resultsContainer.addOrReplace(ams.createResultsPanel(MID_RESULTS,
+                    Model.of(task.get().getResult()), AgreementPage.this::loadCasMap));
+            aTarget.add(resultsContainer);
+        }
+
         List<Pair<String, String>> listMeasures()
         {
             if (getModelObject().feature == null) {
@@ -270,6 +341,37 @@ public class AgreementPage
         }
     }
 
+    private class CalculationProgressModel
+        extends ProgressionModel
+    {
+        private static final long serialVersionUID = -4504359271547734431L;
+
+        @Override
+        protected Progression getProgression()
+        {
+            if (calculationTaskId == null) {
+                return new Progression(0, "Calculation not started yet...");
+            }
+
+            Optional<AgreementCalculationTask> task = agreementService
+                    .getCalculation(calculationTaskId);
+
+            // If the task is gone or done, we report completion so that onFinished is triggered
+            if (!task.isPresent() || task.get().isDone()) {
+                return new Progression(100, null);
+            }
+
+            int max = task.get().getMaxProgress();
+            if (max == 0) {
+                return new Progression(0, "Waiting for calculation to start...");
+            }
+
+            int progress = task.get().getProgress();
+            return new Progression(Math.min(99, (int) (progress * 100L / max)),
+                    "Processed " + progress + " of " + max + " documents");
+        }
+    }
+
     static class AgreementFormModel
         implements Serializable
     {
@@ -280,15 +382,12 @@ public class AgreementPage
         Pair<String, String> measure;
     }
 
-    // The CASes cannot be serialized, so we make them transient here. However, it does not matter
-    // as we do not access the field directly but via getCases() which will re-load them if
-    // necessary, e.g. if the transient field is empty after a session is restored from a
-    // persisted state.
-    private transient Map<String, List<CAS>> cachedCASes;
-    private transient Project cachedProject;
-    private transient boolean cachedLimitToFinishedDocuments;
-
-    public Map<String, List<CAS>> getCasMap()
+    /**
+     * Loads the CASes of all annotators for all documents. The CASes are not retained by the page,
+     * so this should only be called when they are actually needed and the result should be
+     * released as soon as possible.
+     */
+    private Map<String, List<CAS>> loadCasMap()
     {
         if (agreementForm.featureList.getModelObject() == null) {
             return Collections.emptyMap();
@@ -299,17 +398,11 @@ public class AgreementPage
         DefaultAgreementTraits traits = (DefaultAgreementTraits) agreementForm.traitsContainer
                 .get(MID_TRAITS).getDefaultModelObject();
 
-        // Avoid reloading the CASes when switching features within the same project
-        if (cachedCASes != null && project.equals(cachedProject)
-                && cachedLimitToFinishedDocuments == traits.isLimitToFinishedDocuments()) {
-            return cachedCASes;
-        }
-
         List<User> users = projectService.listProjectUsersWithPermissions(project, ANNOTATOR);
 
         List<SourceDocument> sourceDocuments = documentService.listSourceDocuments(project);
 
-        cachedCASes = new LinkedHashMap<>();
+        Map<String, List<CAS>> casMap = new LinkedHashMap<>();
         for (User user : users) {
             List<CAS> cases = new ArrayList<>();
 
@@ -361,12 +454,9 @@ public class AgreementPage
                 cases.add(cas);
             }
 
-            cachedCASes.put(user.getUsername(), cases);
+            casMap.put(user.getUsername(), cases);
         }
 
-        cachedProject = project;
-        cachedLimitToFinishedDocuments = traits.isLimitToFinishedDocuments();
-
-        return cachedCASes;
+        return casMap;
     }
 }
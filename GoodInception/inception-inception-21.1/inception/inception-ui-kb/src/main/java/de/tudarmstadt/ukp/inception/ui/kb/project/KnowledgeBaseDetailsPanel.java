@@ -20,19 +20,27 @@ package de.tudarmstadt.ukp.inception.ui.kb.project;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxButton;
 import org.apache.wicket.feedback.IFeedback;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.markup.html.form.RequiredTextField;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
 import org.apache.wicket.markup.html.panel.Fragment;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.model.StringResourceModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
@@ -43,12 +51,14 @@ import org.eclipse.rdf4j.repository.sparql.config.SPARQLRepositoryConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.clarin.webanno.support.dialog.ConfirmationDialog;
 import de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaAjaxLink;
 import de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior;
 import de.tudarmstadt.ukp.clarin.webanno.support.spring.ApplicationEventPublisherHolder;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
 import de.tudarmstadt.ukp.inception.kb.RepositoryType;
+import de.tudarmstadt.ukp.inception.kb.bulk.BulkImportTask;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
 import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseConfigurationChangedEvent;
 import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
@@ -66,6 +76,7 @@ public class KnowledgeBaseDetailsPanel
     private @SpringBean ApplicationEventPublisherHolder applicationEventPublisherHolder;
     private @SpringBean KnowledgeBaseService kbService;
     private @SpringBean KnowledgeBaseProperties kbProperties;
+    private @SpringBean UserDao userRepository;
 
     private final IModel<KnowledgeBase> kbModel;
     private final CompoundPropertyModel<KnowledgeBaseWrapper> kbwModel;
@@ -106,6 +117,7 @@ public class KnowledgeBaseDetailsPanel
         content = new KBSettingsContent(CONTENT_MARKUP_ID, kbwModel);
         form.add(title);
         form.add(content);
+        form.add(createBulkImportStatus("bulkImports"));
 
         // re-index button only visible for local KBs
         form.add(new LambdaAjaxLink("delete", KnowledgeBaseDetailsPanel.this::actionDelete));
@@ -178,6 +190,11 @@ public class KnowledgeBaseDetailsPanel
             if (kb.getType() == RepositoryType.LOCAL) {
                 kbService.defineBaseProperties(kb);
                 for (Pair<String, File> f : kbw.getFiles()) {
+                    // Large files are imported in the background
+                    if (f.getValue().length() >= kbProperties.getBulkImportThreshold().toBytes()) {
+                        scheduleBulkImport(kb, f);
+                        continue;
+                    }
                     try (InputStream is = new FileInputStream(f.getValue())) {
                         kbService.importData(kb, f.getValue().getName(), is);
                         success("Imported: " + f.getKey());
@@ -196,6 +213,63 @@ public class KnowledgeBaseDetailsPanel
         }
     }
 
+    private void scheduleBulkImport(KnowledgeBase aKB, Pair<String, File> aFile)
+    {
+        try {
+            kbService.scheduleBulkImport(userRepository.getCurrentUser(), aKB, aFile.getKey(),
+                    aFile.getValue());
+            info("Importing in the background: " + aFile.getKey());
+        }
+        catch (Exception e) {
+            error("Failed to import: " + aFile.getKey() + ": " + e.getMessage());
+            log.error("Unable to schedule import of [{}]", aFile.getKey(), e);
+        }
+    }
+
+    /**
+     * Lists the background imports into the knowledge base. While any of them is shown, the list
+     * refreshes itself periodically to show the import progress.
+     */
+    private WebMarkupContainer createBulkImportStatus(String aId)
+    {
+        IModel<List<BulkImportTask>> bulkImports = LoadableDetachableModel.of(() -> {
+            KnowledgeBase kb = kbwModel.getObject().getKb();
+            return kb != null ? kbService.listBulkImports(kb) : Collections.emptyList();
+        });
+
+        WebMarkupContainer container = new WebMarkupContainer(aId);
+        container.setOutputMarkupPlaceholderTag(true);
+        container.add(LambdaBehavior.visibleWhen(() -> !bulkImports.getObject().isEmpty()));
+        container.add(new AjaxSelfUpdatingTimerBehavior(Duration.ofSeconds(5)));
+        container.add(new ListView<BulkImportTask>("bulkImport", bulkImports)
+        {
+            private static final long serialVersionUID = -1431939390427096366L;
+
+            @Override
+            protected void populateItem(ListItem<BulkImportTask> aItem)
+            {
+                BulkImportTask task = aItem.getModelObject();
+                aItem.add(new Label("fileName", task.getFileName()));
+                aItem.add(new Label("status", renderBulkImportStatus(task)));
+            }
+        });
+        return container;
+    }
+
+    private String renderBulkImportStatus(BulkImportTask aTask)
+    {
+        if (!aTask.isDone()) {
+            return String.format("importing - %,d statements so far", aTask.getProgress());
+        }
+
+        if (aTask.getErrorMessage() != null) {
+            return String.format("failed after %,d statements: %s - import the file again to "
+                    + "resume", aTask.getProgress(), aTask.getErrorMessage());
+        }
+
+        return String.format("completed - %,d statements", aTask.getProgress());
+    }
+
     private void actionReindex(AjaxRequestTarget aTarget)
     {
         aTarget.addChildren(getPage(), IFeedback.class);
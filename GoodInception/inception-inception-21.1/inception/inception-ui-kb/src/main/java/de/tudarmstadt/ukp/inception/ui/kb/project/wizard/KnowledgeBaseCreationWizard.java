@@ -50,6 +50,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
 import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
@@ -87,6 +88,7 @@ public class KnowledgeBaseCreationWizard
 
     private @SpringBean KnowledgeBaseService kbService;
     private @SpringBean KnowledgeBaseProperties kbProperties;
+    private @SpringBean UserDao userRepository;
 
     private final IModel<Project> projectModel;
     private final DynamicWizardModel wizardModel;
@@ -284,6 +286,12 @@ public class KnowledgeBaseCreationWizard
                     success("Created knowledge base: " + kb.getName());
                     kbService.defineBaseProperties(kb);
                     for (Pair<String, File> f : wrapper.getFiles()) {
+                        // Large files are imported in the background
+                        if (f.getValue().length() >= kbProperties.getBulkImportThreshold()
+                                .toBytes()) {
+                            scheduleBulkImport(kb, f);
+                            continue;
+                        }
                         try (InputStream is = new FileInputStream(f.getValue())) {
                             kbService.importData(kb, f.getValue().getName(), is);
                             success("Imported: " + f.getKey());
@@ -324,6 +332,19 @@ public class KnowledgeBaseCreationWizard
         {
             return null;
         }
+
+        private void scheduleBulkImport(KnowledgeBase aKB, Pair<String, File> aFile)
+        {
+            try {
+                kbService.scheduleBulkImport(userRepository.getCurrentUser(), aKB,
+                        aFile.getKey(), aFile.getValue());
+                info("Importing in the background: " + aFile.getKey());
+            }
+            catch (Exception e) {
+                error("Failed to import: " + aFile.getKey() + ": " + e.getMessage());
+                log.error("Unable to schedule import of [{}]", aFile.getKey(), e);
+            }
+        }
     }
 
     @Override